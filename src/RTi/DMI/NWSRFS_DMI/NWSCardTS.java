@@ -115,9 +115,11 @@
 package RTi.DMI.NWSRFS_DMI;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.FileOutputStream;
 import java.io.InputStreamReader;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
@@ -151,6 +153,18 @@ TS package standard of 0 to 23 hours.
 public class NWSCardTS
 {
 
+/**
+Powers of 10 that are exactly represented as doubles, used to convert data values.
+*/
+private static final double [] __POWERS_OF_10 = {
+	1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+	1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+/**
+Number of characters that are formatted before writing, when writing time series.
+*/
+private static final int __WRITE_BLOCK_SIZE = 65536;
+
 /**
 Return a sample so that a user/developer knows what a file looks like.  Right
 now, the samples are compiled into the code to make absolutely sure that the
@@ -848,7 +862,7 @@ throws IOException
 	String description = "";
 	String location = "";
 	String units = "";
-	String fixed_format = "";	// Format to read data, using strings.
+	int value_width = 0;	// Width of each data value, from the data format (e.g., 9 for F9.3).
 	List<String> tokens = null;
 	boolean	header1_found = false;
 	boolean header2_found = false;
@@ -1009,10 +1023,10 @@ throws IOException
         date2_file = new DateTime(DateTime.PRECISION_HOUR);
     }
 
-	DateTime idate_file = null; // Date/time used to iterate through values in the file (always historical)
-	DateTime idate_ts = null; // Date used to iterate through the time series data (historical or real-time for traces)
-	DateTime date1_ts = null; // Run period date1 used for iteration with idate_ts
-	DateTime date2_ts = null; // Run period date2 used for iteration with idate_ts
+	DateTime ts_start = null; // Time series date/time of the first value in the file (historical or real-time for traces)
+	DateTime set_date = null; // Date/time of the next value to set in the time series
+	DateTime date1_ts = null; // Run period date1, compared with the time series date/times of the values
+	DateTime date2_ts = null; // Run period date2, compared with the time series date/times of the values
 	boolean doneWithThisTrace = false; // Flag used to control to processing flow after each trace in the file.
 	boolean premature_trace_end = false; // Used when a trace does not have enough data
 
@@ -1288,21 +1302,12 @@ throws IOException
                         Message.printStatus ( 2, routine, msg );
         			}
     				
-    				// Now put together a format string for StringUtil.fixedRead()...  The value from the
-    				// file will be something like F9.3 so need to throw away what is after the period...
-    				String fformat2 = fformat;  // Make a copy so original can be used for logging below
-    				if ( fformat2.indexOf(".") >= 0 ) {
-    					// Remove the trailing ".N"...
-    					fformat2 = fformat2.substring( 0,fformat2.indexOf("."));
-    					// Remove the leading "F"...
-    					fformat2 = fformat2.substring(1);
-    				}
-    				for ( int iformat=0; iformat<ndpl; iformat++ ) {
-    					fixed_format += "s" + fformat2;
-    				}
+    				// Now determine the width of each data value...  The value from the file will be
+    				// something like F9.3 so need to throw away what is before the width and after the period...
+    				value_width = readTimeSeriesList_GetFormatWidth ( fformat );
     
-    				// At this point fixed_format should not be empty. 
-    				if ( fixed_format.length() == 0 ) {
+    				// At this point the width and number of values per line should be known.
+    				if ( (value_width <= 0) || (ndpl <= 0) ) {
     					// Did not figure out how to put together the format...
     					msg = "Unable to determine data format for file (format string=\"" + fformat +
     					"\"), line number: " + line_count;
@@ -1317,7 +1322,7 @@ throws IOException
     					Message.printDebug(dl, routine, "date1 file (0-23 hour) = '" + date1_file + "'");
     					Message.printDebug(dl, routine, "date2 file (month) = '" + date2_fileHeader + "'");
     					Message.printDebug(dl, routine,	"date2 file (0-23 hour) = '" + date2_file + "'");
-    					Message.printDebug(dl, routine, "fixed_format = '" + fixed_format + "'"); 
+    					Message.printDebug(dl, routine, "value width = " + value_width); 
     				}	
     
     				break;	// last line of header
@@ -1502,34 +1507,54 @@ throws IOException
 			Message.printDebug ( dl, routine, "Reading data..." );
 		}
 
-		// There are two dates/iterators of interest when processing the data.  The first is that related
+		// There are two dates/times of interest when processing the data.  The first is that related
 		// to the data in the file, which is always in full month blocks and uses the historical dates.  The
 		// second is the location in the time series, which for normal card files may be limited by a requested
 		// period, and for ESP traces needs to be in the year of the ESP run period (and may be limited by a
 		// requested period).  Additionally, when an ESP run has leap-year oddities, the data in the file must
 		// be sequentially transferred to the in-memory time series, even if a shift occurs due to a leap
-		// year.  The transfer occurs correctly by initializing two date/times at the start of each trace:
-		//    idate_file = the iterator date/time corresponding to data in the file (historical date/times)
-		//    idate_ts = the iterator date/time corresponding to the time series (esp date/times)
-		// The date/times are then incremented as each value is processed, resulting in values correctly being
-		// transferred to the traces.  If there is a leap year involved, it is possible that a value at the end
-		// of a trace may be discarded or set to missing, depending on the direction of the shift.
-
-		// The file date/time is always initialized based on what is in the file.
-        idate_file = new DateTime ( date1_file );
+		// year.  The transfer occurs correctly by counting the values in the file (the position) from the start
+		// of each trace:
+		//    date1_file + position intervals = the date/time of the value in the file (historical date/times)
+		//    ts_start + position intervals = the date/time of the value in the time series (esp date/times)
+		// The positions of the first and last values in the time series period are calculated once, so
+		// date/times do not need to be incremented and compared for each value.  If there is a leap year
+		// involved, it is possible that a value at the end of a trace may be discarded or set to missing,
+		// depending on the direction of the shift.
 		if ( is_nwsCardTrace ) {
-		    // Set the time series iterator date to that corresponding to the start of the month in the file
-		    idate_ts = new DateTime ( date1_read );
+		    // The time series date/time corresponds to the start of the month in the file
+		    ts_start = date1_read;
 		}
 		else {
-		    // Reading a normal card file so initialize the iterator to the file start.
-			idate_ts = new DateTime ( date1_file );
+		    // Reading a normal card file so the time series date/time is the file date/time.
+			ts_start = date1_file;
+		}
+		// Hours are used for the arithmetic, with 24 hours per interval for daily data.
+		int interval_hours = data_interval_mult;
+		if ( data_interval_base == TimeInterval.DAY ) {
+		    interval_hours = 24*data_interval_mult;
+		}
+		int file_count = (readTimeSeriesList_GetHour(date2_file) - readTimeSeriesList_GetHour(date1_file))/
+		    interval_hours + 1;	// Number of values in the file for the time series (trace)
+		int ts_start_hour = readTimeSeriesList_GetHour(ts_start);
+		int hours1 = readTimeSeriesList_GetHour(date1_ts) - ts_start_hour;
+		int hours2 = readTimeSeriesList_GetHour(date2_ts) - ts_start_hour;
+		int first_pos = 0;	// Position of the first value in the time series period
+		if ( hours1 > 0 ) {
+		    first_pos = (hours1 + interval_hours - 1)/interval_hours;
+		}
+		int last_pos = -1;	// Position of the last value in the time series period
+		if ( hours2 >= 0 ) {
+		    last_pos = Math.min ( hours2/interval_hours, file_count - 1 );
+		}
+		set_date = new DateTime ( ts_start );
+		if ( first_pos > 0 ) {
+		    set_date.addInterval ( data_interval_base, data_interval_mult*first_pos );
 		}
 
+		int pos = 0;	// Position of the next value in the file
 		int size, i;
-		Object otoken;	// Individual data token as Object
-		String token;	// Individual data token as String
-		int blanks = 0;	// Number of blank data values on a line
+		double [] values = new double[ndpl];	// Data values on a line
 		premature_trace_end = false; // Reset to false - set to true if not enough data in a trace
 		
 		// Now loop on data records within the time series (trace)
@@ -1567,7 +1592,8 @@ throws IOException
 				    // In any case, process the time series contents and add to the list.
 					if (is_nwsCardTrace) {
                     	Message.printStatus(2, routine, "[" + trace_start_year +
-                    	    "] finished reading trace data at: " + idate_file );
+                    	    "] finished reading trace data at: " +
+                    	    readTimeSeriesList_GetFileDate ( date1_file, data_interval_base, data_interval_mult, pos ) );
                     	// Process the time series and add to the list.  If units cannot be converted, keep trying to
                     	// process and generate one exception at the end.
                     	try {
@@ -1605,7 +1631,8 @@ throws IOException
                         // A normal single time series file that is at an end.  Process and then check whether the
                         // file has prematurely ended.
                     	Message.printStatus(2, routine,
-                    		"Finished reading single time series card file data at: " + idate_file );
+                    		"Finished reading single time series card file data at: " +
+                    		readTimeSeriesList_GetFileDate ( date1_file, data_interval_base, data_interval_mult, pos ) );
                     	// Convert the data units if requested...
                     	if ( read_data ) {
                     	    readTimeSeriesList_ConvertDataUnits ( ts, req_units );
@@ -1615,7 +1642,8 @@ throws IOException
                     	// so just return the TSList with the single time series. 
                     	return TSList;
                     }
-				    if (idate_file.lessThan(date2_read)) {
+				    if (readTimeSeriesList_GetFileDate ( date1_file, data_interval_base, data_interval_mult, pos ).
+				        lessThan(date2_read)) {
 				        // Only quit reading the file with an exception if a serious file truncation.
 						msg = "EOF processing time series data at line "
 						    + line_count + ".  Possible corrupt data file.";
@@ -1632,24 +1660,10 @@ throws IOException
 
 				// Only deal with the data values (not leading station ID or record count at the beginning of a
 				// line.  It is possible that data values can be smashed together so parse using the fixed
-				// format width.  The format uses strings so that different numbers of values in a month do
-				// not cause conversion errors.
+				// format width.  Size can be less if at end of month, in which case the blank values at the end
+				// of the line are not counted.
 
-				List<Object> oTokens = StringUtil.fixedRead ( string.substring(20), fixed_format );
-
-				// Size can be less if at end of month.  Since the values are read as strings, check for
-				// blanks and reduce the length accordingly...
-
-				size = oTokens.size();
-
-				blanks = 0;
-				for ( i = 0; i < size; i++ ) {
-					otoken = oTokens.get(i);
-					if ( (otoken == null) || (((String)otoken).trim().length()==0)) {
-						++blanks;
-					}
-				}
-				size -= blanks;
+				size = readTimeSeriesList_ParseDataLine ( string, value_width, values );
 
 				if ( (size > ndpl) || (size < 1) ) {
 					// Can't continue because date sequence may be off...
@@ -1660,8 +1674,8 @@ throws IOException
 
 				if ( Message.isDebugOn ) {
 					Message.printDebug ( dl, routine, "#data on line =" + size );
-					Message.printDebug ( dl, routine, "date (file) = " + idate_file );
-					Message.printDebug ( dl, routine, "date (ts data) = " + idate_ts );
+					Message.printDebug ( dl, routine, "position (file) = " + pos );
+					Message.printDebug ( dl, routine, "date (ts data) = " + set_date );
 					Message.printDebug ( dl, routine, "Date1 = " + date1_read );
 					Message.printDebug ( dl, routine, "Date2 = " + date2_read );
 				}
@@ -1669,25 +1683,23 @@ throws IOException
 				// Processing data.
 				 
 			    for ( i = 0; i < size; i++ ) {
-			        // Only set values in the data period (skip over others).  This is a bit of a performance
-			        // hit but can prevent a bunch of logging low-level messages about trying to set values outside
-			        // the time series period.
-					if( idate_ts.greaterThanOrEqualTo( date1_ts ) && idate_ts.lessThanOrEqualTo(date2_ts) ) {
+			        // Only set values in the data period (skip over others).  This prevents a bunch of logging
+			        // low-level messages about trying to set values outside the time series period.
+					if ( (pos >= first_pos) && (pos <= last_pos) ) {
 						// In the requested period so set the data...
-						token = ( (String)oTokens.get(i)).trim();
-						ts.setDataValue(idate_ts, StringUtil.atod(token));
+						ts.setDataValue(set_date, values[i]);
 						if ( Message.isDebugOn ) {
-							Message.printDebug ( dl, routine, "Setting value at " + idate_ts + ": " + token );
+							Message.printDebug ( dl, routine, "Setting value at " + set_date + ": " + values[i] );
 						}
+						set_date.addInterval ( data_interval_base, data_interval_mult );
 					}
-					if ( idate_file.lessThan(date2_file) ) {
-					    // Data being processed may have corresponding data in file so 
-						// advance the iterator pointers of the time series and the file data period. 
-						idate_file.addInterval ( data_interval_base, data_interval_mult );
-						idate_ts.addInterval ( data_interval_base, data_interval_mult );
+					if ( pos < file_count - 1 ) {
+					    // Data being processed may have corresponding data in file so advance the position.
+						++pos;
 					}
 					else {
-						Message.printStatus ( 2, routine, "Finished reading data at file date: " + idate_file );
+						Message.printStatus ( 2, routine, "Finished reading data at file date: " +
+						    readTimeSeriesList_GetFileDate ( date1_file, data_interval_base, data_interval_mult, pos ) );
 
 						try {
 						    // Convert units
@@ -1868,6 +1880,177 @@ private static DateTimeRange readTimeSeries_CalculateFilePeriod (
     return range;
 }
 
+/**
+Helper method for read method to return the width of the data values from the data format.
+@param fformat FORTRAN format for each data value (e.g., F9.3).
+@return the width of each value (e.g., 9), or 0 if the width cannot be determined.
+*/
+private static int readTimeSeriesList_GetFormatWidth ( String fformat )
+{   if ( fformat == null ) {
+        return 0;
+    }
+    // The width is the digits before the period (or the end of the format).
+    int end = fformat.indexOf(".");
+    if ( end < 0 ) {
+        end = fformat.length();
+    }
+    int start = end;
+    while ( (start > 0) && Character.isDigit(fformat.charAt(start - 1)) ) {
+        --start;
+    }
+    if ( start == end ) {
+        return 0;
+    }
+    return StringUtil.atoi ( fformat.substring(start, end) );
+}
+
+/**
+Helper method for read method to return the file date/time of a value.
+@param date1_file The date/time for the first data file value.
+@param data_interval_base Data interval base.
+@param data_interval_mult Data interval multiplier.
+@param pos Position of the value in the file data, starting at 0.
+@return the date/time of the value.
+*/
+private static DateTime readTimeSeriesList_GetFileDate ( DateTime date1_file, int data_interval_base,
+    int data_interval_mult, int pos )
+{   DateTime date = new DateTime ( date1_file );
+    if ( pos > 0 ) {
+        date.addInterval ( data_interval_base, data_interval_mult*pos );
+    }
+    return date;
+}
+
+/**
+Helper method for read method to return a date/time as hours, without creating objects.
+@param date Date/time to convert, in 0-23 hour notation.
+@return the Julian hour for the date/time, for calculating the number of hours between date/times.
+*/
+private static int readTimeSeriesList_GetHour ( DateTime date )
+{   return NWSRFS_Util.getJulianHour1900FromPackedDate ( NWSRFS_Util.packDate (
+        date.getYear(), date.getMonth(), date.getDay(), date.getHour() ) );
+}
+
+/**
+Helper method for read method to parse the data values on a data line.  The values are in fixed-width
+columns after the first 20 columns, which contain the station ID and record count, and are parsed directly
+from the line without creating a String for each value.  Blank values at the end of the line (e.g., at the
+end of a month) are not counted.
+@param line Data line from the file.
+@param width Width of each value.
+@param values Array to receive the values, which also limits the number of values that are parsed.
+@return the number of values on the line, not including blanks.
+*/
+private static int readTimeSeriesList_ParseDataLine ( String line, int width, double [] values )
+{   int length = line.length();
+    int fields = 0;
+    int blanks = 0;
+    for ( int start = 20; (start < length) && (fields < values.length); start += width ) {
+        ++fields;
+        int end = Math.min ( start + width, length );
+        boolean blank = true;
+        for ( int ic = start; ic < end; ic++ ) {
+            if ( !Character.isWhitespace(line.charAt(ic)) ) {
+                blank = false;
+                break;
+            }
+        }
+        if ( blank ) {
+            ++blanks;
+        }
+    }
+    int size = fields - blanks;
+    for ( int i = 0; i < size; i++ ) {
+        int start = 20 + i*width;
+        values[i] = readTimeSeriesList_ParseValue ( line, start, Math.min(start + width, length) );
+    }
+    return size;
+}
+
+/**
+Helper method for read method to parse a number from part of a line.  Numbers with up to 15 digits
+and an optional exponent are converted directly from the characters, with the same result as
+StringUtil.atod(), and other strings are converted with StringUtil.atod().
+@param line Line containing the number.
+@param start Index of the first character of the number field.
+@param end Index after the last character of the number field.
+@return the number.
+*/
+private static double readTimeSeriesList_ParseValue ( String line, int start, int end )
+{   int ic = start;
+    int last = end;
+    while ( (ic < last) && (line.charAt(ic) == ' ') ) {
+        ++ic;
+    }
+    while ( (last > ic) && (line.charAt(last - 1) == ' ') ) {
+        --last;
+    }
+    boolean negative = false;
+    if ( (ic < last) && ((line.charAt(ic) == '-') || (line.charAt(ic) == '+')) ) {
+        negative = (line.charAt(ic) == '-');
+        ++ic;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int exponent = 0;
+    boolean point = false;
+    for ( ; ic < last; ic++ ) {
+        char c = line.charAt(ic);
+        if ( (c >= '0') && (c <= '9') ) {
+            mantissa = mantissa*10 + (c - '0');
+            ++digits;
+            if ( point ) {
+                --exponent;
+            }
+        }
+        else if ( (c == '.') && !point ) {
+            point = true;
+        }
+        else {
+            break;
+        }
+    }
+    if ( (ic < last) && (digits > 0) && ((line.charAt(ic) == 'e') || (line.charAt(ic) == 'E')) ) {
+        ++ic;
+        boolean negative_exponent = false;
+        if ( (ic < last) && ((line.charAt(ic) == '-') || (line.charAt(ic) == '+')) ) {
+            negative_exponent = (line.charAt(ic) == '-');
+            ++ic;
+        }
+        int exponent_digits = 0;
+        int value_exponent = 0;
+        for ( ; (ic < last) && (exponent_digits < 4); ic++ ) {
+            char c = line.charAt(ic);
+            if ( (c < '0') || (c > '9') ) {
+                break;
+            }
+            value_exponent = value_exponent*10 + (c - '0');
+            ++exponent_digits;
+        }
+        if ( exponent_digits == 0 ) {
+            digits = 0;
+        }
+        exponent += (negative_exponent ? -value_exponent : value_exponent);
+    }
+    if ( (ic < last) || (digits == 0) || (digits > 15) || (exponent < -22) || (exponent > 22) ) {
+        // Not a simple number, so use the general conversion.
+        return StringUtil.atod ( line.substring(start, end).trim() );
+    }
+    // The mantissa and power of 10 are exact, so a single multiply or divide gives the correctly
+    // rounded value.
+    double value = mantissa;
+    if ( exponent < 0 ) {
+        value /= __POWERS_OF_10[-exponent];
+    }
+    else if ( exponent > 0 ) {
+        value *= __POWERS_OF_10[exponent];
+    }
+    if ( negative ) {
+        return -value;
+    }
+    return value;
+}
+
 /**
 Helper method for read method to convert the data units for a time series, as requested.
 @param ts Time series to process.
@@ -1916,7 +2099,8 @@ throws IOException
 
 	String full_fname = IOUtil.getPathUsingWorkingDir ( fname );
 	//try {	out = new PrintWriter (new FileWriter(full_fname));
-	try {	out = new PrintWriter ( new FileOutputStream ( full_fname ) );
+	try {	out = new PrintWriter ( new BufferedWriter ( new OutputStreamWriter (
+			new FileOutputStream ( full_fname ) ), __WRITE_BLOCK_SIZE ) );
 	}
 	catch ( Exception e ) {
 		String message =
@@ -1953,7 +2137,8 @@ throws IOException
 	String full_fname = IOUtil.getPathUsingWorkingDir ( fname );
 	//try {	out = new PrintWriter (new FileWriter(full_fname));
 	try {
-        out = new PrintWriter ( new FileOutputStream ( full_fname ) );
+        out = new PrintWriter ( new BufferedWriter ( new OutputStreamWriter (
+            new FileOutputStream ( full_fname ) ), __WRITE_BLOCK_SIZE ) );
 	}
 	catch ( Exception e ) {
 		String message = "Error opening \"" + full_fname + "\" for writing.";
@@ -2029,6 +2214,8 @@ throws IOException
 	TSLimits limits = ts.getDataLimits();
 	double min = limits.getMinValue();
 	double max = limits.getMaxValue();
+	int width = 10;		// Width and precision of the output format, for formatting values.
+	int precision = 3;
 	if ( (max <= 99999) && (min >= -9999) ) {
 		nfmt = "F10.3";
 		cfmt = "%10.3f";
@@ -2036,20 +2223,25 @@ throws IOException
 	else if ( (max <= 999999) && (min >= -99999) ) {
 		nfmt = "F10.2";
 		cfmt = "%10.2f";
+		precision = 2;
 	}
 	else if ( (max <= 9999999) && (min >= -999999) ) {
 		nfmt = "F10.1";
 		cfmt = "%10.1f";
+		precision = 1;
 	}
 	else if ( (max <= 99999999) && (min >= -9999999) ) {
 		nfmt = "F10.0";
 		cfmt = "%10.0f";
+		precision = 0;
 	}
     else if ( max > 99999999 || (min < -999999999) ) {
         // Make the format enough to display the value and have one space extra and allow for negative.
         int ndigits = (int)Math.log10(Math.max(Math.abs(max),Math.abs(min))) + 3;
         nfmt = "F" + ndigits + ".0";
         cfmt = "%" + ndigits + ".0f";
+        width = ndigits;
+        precision = 0;
     }
 	// Else use the 10.3 default originally defined.
 
@@ -2252,7 +2444,10 @@ throws IOException
 
 	DateTime date = new DateTime ( date1 );
 
-	StringBuffer buffer = new StringBuffer();
+	// The output lines are formatted into a block of characters, which is written when full, rather than
+	// printing each line.  The values are formatted directly into the block (see writeTimeSeries_AppendValue()).
+	StringBuffer buffer = new StringBuffer(__WRITE_BLOCK_SIZE + 1024);
+	String line_separator = System.getProperty ( "line.separator" );
 
     int card = 0;			// Counter for output
     int card_out = 0;		// Counter for output that is actually printed (maximum value of 9999).
@@ -2283,6 +2478,12 @@ throws IOException
 	}
 
 	String location = StringUtil.formatString(id.getLocation(),"%-12.12s");
+	int line_start = 0;		// Position in the buffer of the start of the current line.
+	// Blanks to reserve space for the location, month, year and line count at the start of each line.
+	StringBuffer line_info = new StringBuffer();
+	for ( int i = location.length() + 8; i > 0; i-- ) {
+		line_info.append ( ' ' );
+	}
 	for ( ; date.lessThanOrEqualTo(date2);
 		date.addInterval(data_interval_base,data_interval_mult) ) {
 		// For hour data:
@@ -2328,13 +2529,17 @@ throws IOException
     		 // Need to convert units if not missing
      		 value = value*mult + add;
         }
-        // Now append the value to the buffer
-        buffer.append( StringUtil.formatString(value,cfmt) );
+        // Now append the value to the buffer, after reserving space for the line information if a new line
+        if ( buffer.length() == line_start ) {
+            buffer.append ( line_info );
+        }
+        writeTimeSeries_AppendValue ( buffer, value, width, precision, cfmt );
 
 		// Determine whether the line should be printed.  The line is printed if the number of data values is
 		// evenly divisible by the number of values for the line or if all values for the month have been printed.
 		//
-		// If read to print, print the line information and then the StringBuffer data contents from above.
+		// If ready to print, set the line information in the space reserved before the data contents from above
+		// and end the line.
 		//
 
 		if ( (month_data_count%ndpl == 0) ||(ndata_in_month == month_data_count) ) {
@@ -2355,13 +2560,15 @@ throws IOException
 			if ( card_out > 9999 ) {
 				card_out = 9999;
 			}
-			fp.println ( location +
-			StringUtil.formatString( month_card, "%2d") +
-			StringUtil.formatString( year_card%100, "%02d") +
-			StringUtil.formatString (card_out,"%4d") +
-			buffer.toString() );
-			// Clear the buffer...
-			buffer.setLength ( 0 );
+			writeTimeSeries_SetLineInfo ( buffer, line_start, location, month_card, year_card%100, card_out );
+			buffer.append ( line_separator );
+			line_start = buffer.length();
+			if ( line_start >= __WRITE_BLOCK_SIZE ) {
+				// Write the block and clear the buffer...
+				fp.write ( buffer.toString() );
+				buffer.setLength ( 0 );
+				line_start = 0;
+			}
 		}
 
 		// If hourly data, check for new month AFTER processing the data
@@ -2377,6 +2584,8 @@ throws IOException
 			month_data_count = 0;
 		}
 	}
+	// Write the last block (any values after the last complete line are not written)...
+	fp.write ( buffer.toString(), 0, line_start );
 	dimension = null;
 	nfmt = null;
 	routine = null;
@@ -2392,6 +2601,118 @@ throws IOException
 	location = null;
 }
 
+/**
+Append a data value to an output buffer, formatted with a fixed-width format, for writeTimeSeries().
+The value is formatted directly from its digits, with the same result as StringUtil.formatString(), which
+is used for values that cannot be formatted directly (e.g., values that are half-way between two
+output values, which may be rounded differently, or values that are too large for the width).
+@param buffer Buffer to append to.
+@param value Value to format.
+@param width Width of the output format.
+@param precision Number of digits after the decimal point (0 to 3).
+@param cfmt C-style format for the value (e.g., %10.3f), which is used if the value cannot be formatted
+directly.
+The method is package-private so that NWSRFS_Test -cardformat can compare it with StringUtil.formatString().
+*/
+static void writeTimeSeries_AppendValue ( StringBuffer buffer, double value, int width,
+    int precision, String cfmt )
+{   boolean negative = (Double.doubleToRawLongBits(value) < 0);
+    double scaled = Math.abs(value)*__POWERS_OF_10[precision];
+    if ( !(scaled < 1e15) ) {
+        // Too large for exact integer arithmetic (or not a number).
+        buffer.append ( StringUtil.formatString(value,cfmt) );
+        return;
+    }
+    double floor = Math.floor(scaled);
+    double fraction = scaled - floor;
+    if ( Math.abs(fraction - 0.5) <= 4.0*Math.ulp(scaled) ) {
+        // Too close to half-way to be sure of the rounding.
+        buffer.append ( StringUtil.formatString(value,cfmt) );
+        return;
+    }
+    long digits = (long)floor;
+    if ( fraction > 0.5 ) {
+        ++digits;
+    }
+    if ( negative && (digits == 0) ) {
+        // Negative value that rounds to zero, which may be formatted as -0.
+        buffer.append ( StringUtil.formatString(value,cfmt) );
+        return;
+    }
+    long integer_part = digits;
+    long fraction_part = 0;
+    if ( precision > 0 ) {
+        long divisor = (long)__POWERS_OF_10[precision];
+        integer_part = digits/divisor;
+        fraction_part = digits%divisor;
+    }
+    int integer_digits = 1;
+    for ( long i = integer_part; i >= 10; i /= 10 ) {
+        ++integer_digits;
+    }
+    int length = integer_digits;
+    if ( negative ) {
+        ++length;
+    }
+    if ( precision > 0 ) {
+        length += precision + 1;
+    }
+    if ( length > width ) {
+        buffer.append ( StringUtil.formatString(value,cfmt) );
+        return;
+    }
+    for ( int i = length; i < width; i++ ) {
+        buffer.append ( ' ' );
+    }
+    if ( negative ) {
+        buffer.append ( '-' );
+    }
+    buffer.append ( integer_part );
+    if ( precision > 0 ) {
+        buffer.append ( '.' );
+        int fraction_digits = 1;
+        for ( long i = fraction_part; i >= 10; i /= 10 ) {
+            ++fraction_digits;
+        }
+        for ( int i = fraction_digits; i < precision; i++ ) {
+            buffer.append ( '0' );
+        }
+        buffer.append ( fraction_part );
+    }
+}
+
+/**
+Set the information at the start of an output line for writeTimeSeries(), with the same result as
+formatting the month with %2d, the year with %02d and the line count with %4d.  The characters for the
+information must have been reserved at the start of the line, before the data values.
+@param buffer Buffer containing the line.
+@param line_start Position in the buffer of the start of the line.
+@param location Location, formatted to 12 characters.
+@param month Month (1-12).
+@param year Two-digit year (0-99).
+@param card Line count (1-9999).
+*/
+static void writeTimeSeries_SetLineInfo ( StringBuffer buffer, int line_start, String location,
+    int month, int year, int card )
+{   int pos = line_start;
+    for ( int i = 0; i < location.length(); i++ ) {
+        buffer.setCharAt ( pos++, location.charAt(i) );
+    }
+    buffer.setCharAt ( pos++, (month < 10) ? ' ' : (char)('0' + month/10) );
+    buffer.setCharAt ( pos++, (char)('0' + month%10) );
+    buffer.setCharAt ( pos++, (char)('0' + year/10) );
+    buffer.setCharAt ( pos++, (char)('0' + year%10) );
+    for ( int i = pos + 3; i >= pos; i-- ) {
+        if ( (card == 0) && (i < pos + 3) ) {
+            buffer.setCharAt ( i, ' ' );
+        }
+        else {
+            buffer.setCharAt ( i, (char)('0' + card%10) );
+            card /= 10;
+        }
+    }
+}
+
 /**
 Returns an array of SimpleFileFilters suitable for use in JFileChoosers. 
 @return an array of SimpleFileFilters suitable for use in JFileChoosers. 
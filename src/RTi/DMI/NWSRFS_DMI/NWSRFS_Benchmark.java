@@ -0,0 +1,571 @@
+//------------------------------------------------------------------------------
+// NWSRFS_Benchmark - class to time the NWSRFS_DMI operations that are most
+//				important to performance
+//------------------------------------------------------------------------------
+// Endheader
+
+package RTi.DMI.NWSRFS_DMI;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import RTi.TS.HourTS;
+import RTi.TS.TS;
+
+import RTi.Util.IO.EndianDataInputStream;
+import RTi.Util.IO.EndianRandomAccessFile;
+import RTi.Util.IO.IOUtil;
+import RTi.Util.IO.PropList;
+
+import RTi.Util.Message.Message;
+
+import RTi.Util.Time.DateTime;
+import RTi.Util.Time.TimeInterval;
+
+/**
+The NWSRFS_Benchmark class times the operations that are most important to the
+performance of applications that use the NWSRFS_DMI, so that changes to the
+DMI can be compared with consistent measurements.  Each benchmark is run a
+number of times to warm up the Java virtual machine (so that the code has been
+compiled) and then run a number of times while the elapsed time of each run is
+recorded in an NWSRFS_LatencyHistogram.  Each run returns a checksum of the
+data that were read or written, so that the work cannot be skipped by the
+compiler.
+<p>
+The benchmarks are:
+<ul>
+<li>	read - NWSRFS_DMI.read() of 64 byte records, decoding the values</li>
+<li>	readFloats - NWSRFS_DMI.readFloats() of a block of values</li>
+<li>	julian - NWSRFS_Util Julian hour conversions</li>
+<li>	NWSCardTS.read and NWSCardTS.write - NWS Card time series files</li>
+<li>	ESP.read and ESP.write - ESP trace ensemble files (which are always big
+	endian)</li>
+<li>	readTimeSeries - NWSRFS_DMI.readTimeSeries() from an FS5Files database
+	(which includes readPRDTS(), readTimeSeriesPRD() and
+	readTimeSeriesPDB()), only if an FS5Files directory and time series
+	identifiers are given, or if a synthetic database is generated with
+	NWSRFS_FS5FilesGenerator (see generateFS5Files())</li>
+</ul>
+The number of values controls the size of the data that are read and written.
+The read and readFloats benchmarks are run with big and/or little endian
+files.  The other benchmarks use the byte order of their files.
+<p>
+Run the benchmarks from the command line with:
+<pre>
+java RTi.DMI.NWSRFS_DMI.NWSRFS_Benchmark [-warmup N] [-iterations N]
+	[-values N[,N...]] [-endian big|little|both] [-benchmark Name[,Name...]]
+	[-fs5files Directory -tsid TSID [-tsid TSID...] | -generate Scale]
+</pre>
+*/
+public class NWSRFS_Benchmark
+{
+
+/**
+Names of the benchmarks, in the order that they are run.
+*/
+public static final String[] BENCHMARKS = {
+	"read",
+	"readFloats",
+	"julian",
+	"NWSCardTS.read",
+	"NWSCardTS.write",
+	"ESP.read",
+	"ESP.write",
+	"readTimeSeries"
+};
+
+/**
+Number of traces in the ESP trace ensembles.  The number of values in each
+trace is the number of values for the benchmark divided by this number.
+*/
+private static final int __ESP_TRACES = 20;
+
+/**
+Data interval of the time series that are written, in hours.
+*/
+private static final int __TS_INTERVAL_HOURS = 6;
+
+/**
+DMI used for the read and readFloats benchmarks, which is run stand-alone.
+*/
+private NWSRFS_DMI __dmi = null;
+
+/**
+DMI used for the readTimeSeries benchmark, if an FS5Files directory is given.
+*/
+private NWSRFS_DMI __fs5FilesDMI = null;
+
+/**
+FS5Files directory for the readTimeSeries benchmark, or null.
+*/
+private String __fs5FilesDirectory = null;
+
+/**
+Number of timed runs of each benchmark.
+*/
+private int __iterations = 0;
+
+/**
+Time series identifiers read by the readTimeSeries benchmark.
+*/
+private List<String> __tsidents = new ArrayList<String>();
+
+/**
+Directory for the files that are read and written by the benchmarks.
+*/
+private File __tempDirectory = null;
+
+/**
+Number of warm up runs of each benchmark.
+*/
+private int __warmup = 0;
+
+/**
+Construct the benchmarks.
+@param warmup the number of times to run each benchmark before timing it.
+@param iterations the number of times to run each benchmark while timing it.
+@throws Exception if the directory for temporary files cannot be created.
+*/
+public NWSRFS_Benchmark(int warmup, int iterations)
+throws Exception {
+	__warmup = warmup;
+	__iterations = iterations;
+	__dmi = new NWSRFS_DMI("stand alone");
+	File tempFile = File.createTempFile("NWSRFS_Benchmark", "");
+	if (!tempFile.delete() || !tempFile.mkdir()) {
+		throw new IOException("Cannot create directory \"" + tempFile + "\"");
+	}
+	__tempDirectory = tempFile;
+}
+
+/**
+Create an ESP trace ensemble with __ESP_TRACES traces.
+@param values the total number of values in the traces.
+@return the ensemble.
+@throws Exception if the ensemble cannot be created.
+*/
+private NWSRFS_ESPTraceEnsemble createESPTraceEnsemble(int values)
+throws Exception {
+	int traceValues = Math.max(values/__ESP_TRACES, 1);
+	List<TS> tslist = new ArrayList<TS>(__ESP_TRACES);
+	for (int i = 0; i < __ESP_TRACES; i++) {
+		HourTS ts = createTimeSeries(traceValues, i);
+		// The sequence identifier is the historical year of the trace.
+		ts.setSequenceID("" + (1950 + i));
+		tslist.add(ts);
+	}
+	PropList props = new PropList("ESP");
+	props.set("Segment", "BENCH");
+	return new NWSRFS_ESPTraceEnsemble(tslist, props);
+}
+
+/**
+Create a 6-hour time series filled with varying values.
+@param values the number of values in the time series.
+@param seed a number used to vary the values between time series.
+@return the time series.
+@throws Exception if the time series cannot be created.
+*/
+private HourTS createTimeSeries(int values, int seed)
+throws Exception {
+	HourTS ts = new HourTS();
+	ts.setIdentifier("BENCH.NWSRFS.SQIN." + __TS_INTERVAL_HOURS + "Hour");
+	ts.setDataInterval(TimeInterval.HOUR, __TS_INTERVAL_HOURS);
+	DateTime date1 = new DateTime(DateTime.PRECISION_HOUR);
+	date1.setYear(2006);
+	date1.setMonth(1);
+	date1.setDay(1);
+	date1.setHour(12);
+	DateTime date2 = new DateTime(date1);
+	date2.addHour((values - 1)*__TS_INTERVAL_HOURS);
+	ts.setDate1(date1);
+	ts.setDate1Original(new DateTime(date1));
+	ts.setDate2(date2);
+	ts.setDate2Original(new DateTime(date2));
+	ts.setDataUnits("CMS");
+	ts.setDescription("Benchmark");
+	ts.allocateDataSpace();
+	DateTime date = new DateTime(date1);
+	for (int i = 0; i < values; i++) {
+		ts.setDataValue(date, 100.0 + (i*31 + seed*17)%1000/10.0);
+		date.addHour(__TS_INTERVAL_HOURS);
+	}
+	return ts;
+}
+
+/**
+Close the FS5Files database and delete the temporary files.
+*/
+public void close() {
+	// Close the database first because it may be in the temporary directory.
+	if (__fs5FilesDMI != null) {
+		try {
+			__fs5FilesDMI.close();
+		}
+		catch (Exception e) {
+			// Ignore.
+		}
+		__fs5FilesDMI = null;
+	}
+	deleteDirectory(__tempDirectory);
+}
+
+/**
+Delete a directory and the files and directories in it.
+@param directory the directory to delete.
+*/
+private static void deleteDirectory(File directory) {
+	File[] files = directory.listFiles();
+	if (files != null) {
+		for (int i = 0; i < files.length; i++) {
+			if (files[i].isDirectory()) {
+				deleteDirectory(files[i]);
+			}
+			else {
+				files[i].delete();
+			}
+		}
+	}
+	directory.delete();
+}
+
+/**
+Generate a synthetic FS5Files database in the temporary directory with
+NWSRFS_FS5FilesGenerator and use it for the readTimeSeries benchmark, which
+reads a sample of the PRD and RRS time series spread through the database.
+@param scale the size of the database relative to the generator defaults, for
+example 10 for ten times the default size.
+@throws Exception if the database cannot be written.
+*/
+public void generateFS5Files(double scale)
+throws Exception {
+	File directory = new File(__tempDirectory, "fs5files");
+	NWSRFS_FS5FilesGenerator generator =
+		new NWSRFS_FS5FilesGenerator(directory.getPath());
+	generator.setScale(scale);
+	generator.write();
+	List<String> tsidents = new ArrayList<String>();
+	addSample(tsidents, generator.getPRDTSIdentifiers(), 10);
+	addSample(tsidents, generator.getPDBTSIdentifiers(), 5);
+	setFS5Files(directory.getPath(), tsidents);
+}
+
+/**
+Add evenly spaced identifiers from a list to another list.
+@param sample the list to add to.
+@param tsidents the identifiers to choose from.
+@param count the number of identifiers to add.
+*/
+private static void addSample(List<String> sample, List<String> tsidents, int count) {
+	int size = tsidents.size();
+	count = Math.min(count, size);
+	for (int i = 0; i < count; i++) {
+		sample.add(tsidents.get(i*size/count));
+	}
+}
+
+/**
+Return whether a benchmark uses the byte order that is specified for the run.
+@param name the name of the benchmark.
+@return true if the benchmark reads big or little endian files as requested,
+false if it uses the byte order of its files.
+*/
+public static boolean isEndianDependent(String name) {
+	return name.equals("read") || name.equals("readFloats");
+}
+
+/**
+Run a benchmark and return a line summarizing the times.
+@param name the name of the benchmark (see BENCHMARKS).
+@param values the number of values read or written by each run.
+@param isBigEndian true to use big endian files, false for little endian, if
+the benchmark is endian dependent (see isEndianDependent()).
+@return a line summarizing the times, or null if the benchmark cannot be run
+(readTimeSeries without an FS5Files directory).
+@throws Exception if the benchmark fails.
+*/
+public String run(String name, int values, boolean isBigEndian)
+throws Exception {
+	String routine = "NWSRFS_Benchmark.run";
+	if (name.equals("readTimeSeries") && (__fs5FilesDirectory == null
+	    || __tsidents.size() == 0)) {
+		return null;
+	}
+
+	// Create the file or objects used by the benchmark, outside of the timing.
+	File file = new File(__tempDirectory, name + "-" + values + "-"
+		+ (isBigEndian ? "big" : "little"));
+	TS ts = null;
+	NWSRFS_ESPTraceEnsemble ensemble = null;
+	RandomAccessFile raf = null;
+	if (name.equals("read") || name.equals("readFloats")) {
+		writeFloatFile(file, values, isBigEndian);
+	}
+	else if (name.equals("NWSCardTS.read") || name.equals("NWSCardTS.write")) {
+		ts = createTimeSeries(values, 0);
+		NWSCardTS.writeTimeSeries(ts, file.getPath());
+	}
+	else if (name.equals("ESP.read") || name.equals("ESP.write")) {
+		ensemble = createESPTraceEnsemble(values);
+		ensemble.writeESPTraceEnsembleFile(file.getPath());
+	}
+	else if (name.equals("readTimeSeries") && __fs5FilesDMI == null) {
+		__fs5FilesDMI = new NWSRFS_DMI(__fs5FilesDirectory);
+		__fs5FilesDMI.open();
+	}
+	if (name.equals("read")) {
+		raf = new EndianRandomAccessFile(file.getPath(), "r");
+	}
+	else if (name.equals("readFloats")) {
+		raf = new RandomAccessFile(file, "r");
+	}
+
+	NWSRFS_LatencyHistogram histogram = new NWSRFS_LatencyHistogram();
+	double checksum = 0.0;
+	try {
+		for (int i = 0; i < __warmup; i++) {
+			checksum += runOnce(name, values, isBigEndian, file, raf, ts,
+				ensemble);
+		}
+		long elapsed = System.nanoTime();
+		for (int i = 0; i < __iterations; i++) {
+			long start = System.nanoTime();
+			checksum += runOnce(name, values, isBigEndian, file, raf, ts,
+				ensemble);
+			histogram.add(System.nanoTime() - start);
+		}
+		elapsed = System.nanoTime() - elapsed;
+		double opsPerSecond = 0.0;
+		if (elapsed > 0) {
+			opsPerSecond = __iterations*1.0e9/elapsed;
+		}
+		String endian = "n/a";
+		if (isEndianDependent(name)) {
+			endian = isBigEndian ? "big" : "little";
+		}
+		if (Message.isDebugOn) {
+			Message.printDebug(1, routine, name + " checksum " + checksum);
+		}
+		return name + " values=" + values + " endian=" + endian + " ops/s="
+			+ (long)opsPerSecond + " " + histogram;
+	}
+	finally {
+		if (raf != null) {
+			raf.close();
+		}
+		file.delete();
+	}
+}
+
+/**
+Run a benchmark once.
+@return a checksum of the data that were read or written.
+@throws Exception if the benchmark fails.
+*/
+private double runOnce(String name, int values, boolean isBigEndian, File file,
+RandomAccessFile raf, TS ts, NWSRFS_ESPTraceEnsemble ensemble)
+throws Exception {
+	double checksum = 0.0;
+	if (name.equals("read")) {
+		// Read the file sequentially in 64 byte (16 value) records, as
+		// the DMI reads most database files.
+		EndianRandomAccessFile eraf = (EndianRandomAccessFile)raf;
+		eraf.seek(0);
+		int records = values/16;
+		for (int i = 0; i < records; i++) {
+			EndianDataInputStream EDIS = __dmi.read(eraf, 0, 64);
+			EDIS.setBigEndian(isBigEndian);
+			for (int j = 0; j < 16; j++) {
+				checksum += EDIS.readEndianFloat();
+			}
+			EDIS.close();
+		}
+	}
+	else if (name.equals("readFloats")) {
+		float[] data = __dmi.readFloats(raf, 0, values, isBigEndian);
+		for (int i = 0; i < data.length; i++) {
+			checksum += data[i];
+		}
+	}
+	else if (name.equals("julian")) {
+		// Convert the same number of consecutive Julian hours to dates and back.
+		int firstHour = NWSRFS_Util.getJulianHour1900FromDate(1, 1, 2006, 12);
+		for (int jh = firstHour; jh < firstHour + values; jh++) {
+			int packed = NWSRFS_Util.getPackedDateFromJulianHour1900(jh);
+			checksum += NWSRFS_Util.getJulianHour1900FromPackedDate(packed)
+				- jh + NWSRFS_Util.getPackedDay(packed);
+		}
+	}
+	else if (name.equals("NWSCardTS.read")) {
+		checksum = NWSRFS_Test.checksum(NWSCardTS.readTimeSeries(file.getPath()));
+	}
+	else if (name.equals("NWSCardTS.write")) {
+		NWSCardTS.writeTimeSeries(ts, file.getPath());
+		checksum = file.length();
+	}
+	else if (name.equals("ESP.read")) {
+		NWSRFS_ESPTraceEnsemble read = new NWSRFS_ESPTraceEnsemble(
+			file.getPath(), true);
+		TS[] traces = read.getTimeSeries();
+		for (int i = 0; i < traces.length; i++) {
+			checksum += NWSRFS_Test.checksum(traces[i]);
+		}
+	}
+	else if (name.equals("ESP.write")) {
+		ensemble.writeESPTraceEnsembleFile(file.getPath());
+		checksum = file.length();
+	}
+	else if (name.equals("readTimeSeries")) {
+		for (int i = 0; i < __tsidents.size(); i++) {
+			checksum += NWSRFS_Test.checksum(__fs5FilesDMI.readTimeSeries(
+				__tsidents.get(i), null, null, null, true));
+		}
+	}
+	else {
+		throw new Exception("Unknown benchmark \"" + name + "\"");
+	}
+	return checksum;
+}
+
+/**
+Set the FS5Files database and time series for the readTimeSeries benchmark.
+@param directory the FS5Files directory.
+@param tsidents the time series identifiers to read in each run.
+*/
+public void setFS5Files(String directory, List<String> tsidents) {
+	__fs5FilesDirectory = directory;
+	__tsidents = new ArrayList<String>(tsidents);
+}
+
+/**
+Write a file of float values.
+@param file the file to write.
+@param values the number of values to write.
+@param isBigEndian true to write big endian values, false for little endian.
+@throws IOException if the file cannot be written.
+*/
+private void writeFloatFile(File file, int values, boolean isBigEndian)
+throws IOException {
+	ByteBuffer buffer = ByteBuffer.allocate(values*4);
+	if (isBigEndian) {
+		buffer.order(ByteOrder.BIG_ENDIAN);
+	}
+	else {
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+	}
+	for (int i = 0; i < values; i++) {
+		buffer.putFloat((i*31)%1000/10.0f);
+	}
+	RandomAccessFile raf = new RandomAccessFile(file, "rw");
+	try {
+		raf.setLength(0);
+		raf.write(buffer.array());
+	}
+	finally {
+		raf.close();
+	}
+}
+
+/**
+Run the benchmarks from the command line.  See the class description for the
+arguments.  A line summarizing the times is printed for each benchmark, data
+size and byte order.
+@param args the command line arguments.
+*/
+public static void main(String[] args) {
+	String routine = "NWSRFS_Benchmark.main";
+	int warmup = 20;
+	int iterations = 100;
+	int[] values = { 1460, 14600 };
+	boolean[] endians = { true, false };
+	String[] names = BENCHMARKS;
+	String fs5Files = null;
+	double generateScale = 0.0;
+	List<String> tsidents = new ArrayList<String>();
+	NWSRFS_Benchmark benchmark = null;
+	int status = 0;
+
+	IOUtil.testing(true);
+	Message.setWarningLevel(Message.TERM_OUTPUT, 1);
+
+	try {
+		for (int i = 0; i < args.length - 1; i += 2) {
+			if (args[i].equalsIgnoreCase("-warmup")) {
+				warmup = Integer.parseInt(args[i + 1]);
+			}
+			else if (args[i].equalsIgnoreCase("-iterations")) {
+				iterations = Integer.parseInt(args[i + 1]);
+			}
+			else if (args[i].equalsIgnoreCase("-values")) {
+				String[] parts = args[i + 1].split(",");
+				values = new int[parts.length];
+				for (int j = 0; j < parts.length; j++) {
+					values[j] = Integer.parseInt(parts[j].trim());
+				}
+			}
+			else if (args[i].equalsIgnoreCase("-endian")) {
+				if (args[i + 1].equalsIgnoreCase("big")) {
+					endians = new boolean[] { true };
+				}
+				else if (args[i + 1].equalsIgnoreCase("little")) {
+					endians = new boolean[] { false };
+				}
+			}
+			else if (args[i].equalsIgnoreCase("-benchmark")) {
+				names = args[i + 1].split(",");
+			}
+			else if (args[i].equalsIgnoreCase("-fs5files")) {
+				fs5Files = args[i + 1];
+			}
+			else if (args[i].equalsIgnoreCase("-tsid")) {
+				tsidents.add(args[i + 1]);
+			}
+			else if (args[i].equalsIgnoreCase("-generate")) {
+				generateScale = Double.parseDouble(args[i + 1]);
+			}
+			else {
+				Message.printWarning(1, routine, "Unknown argument \""
+					+ args[i] + "\" - ignoring.");
+			}
+		}
+
+		benchmark = new NWSRFS_Benchmark(warmup, iterations);
+		if (fs5Files != null) {
+			benchmark.setFS5Files(fs5Files, tsidents);
+		}
+		else if (generateScale > 0.0) {
+			benchmark.generateFS5Files(generateScale);
+		}
+		for (int i = 0; i < names.length; i++) {
+			for (int j = 0; j < values.length; j++) {
+				for (int k = 0; k < endians.length; k++) {
+					if (k > 0 && !isEndianDependent(names[i])) {
+						break;
+					}
+					String result = benchmark.run(names[i], values[j],
+						endians[k]);
+					if (result != null) {
+						Message.printStatus(1, routine, result);
+					}
+				}
+			}
+		}
+	}
+	catch (Exception e) {
+		Message.printWarning(1, routine, e);
+		status = 1;
+	}
+	if (benchmark != null) {
+		benchmark.close();
+	}
+	System.exit(status);
+}
+
+}
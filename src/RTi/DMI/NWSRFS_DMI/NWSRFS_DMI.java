@@ -92,14 +92,33 @@ import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
 
 import java.lang.reflect.Array;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Vector;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
 import RTi.DMI.NWSRFS_DMI.NWSRFS_Carryover;
 import RTi.DMI.NWSRFS_DMI.NWSRFS_CarryoverGroup;
 import RTi.DMI.NWSRFS_DMI.NWSRFS_ESPTraceEnsemble;
@@ -141,7 +160,6 @@ import RTi.Util.IO.PropList;
 import RTi.Util.String.StringUtil;
 
 import RTi.Util.Time.DateTime;
-import RTi.Util.Time.StopWatch;
 import RTi.Util.Time.TimeInterval;
 
 import RTi.GRTS.TSGraph;
@@ -467,9 +485,109 @@ use the fs5files, if false do not.
 private boolean __useFS5Files; 
 
 /**
-Hashtable for TS tsid values to check for existence in a very fast manner.
+Lock used when opening database files and reading the database indexes, so
+that concurrent readers do not open the same file twice.  Reads that use
+readAt() do not depend on the file pointer and do not need to be locked.
+*/
+private ReentrantLock __openLock = null;
+
+/**
+Whether each database file is open for reads with readAt(), set after the file
+has been opened so that checkRandomAccessFileOpenForReadAt() can check the open
+state without taking __openLock.  1 if open, 0 if not.
+*/
+private AtomicIntegerArray __openForReadAt = null;
+
+/**
+The global values from the first record of PDBRRS, which are the same for all
+stations, and the database time stamp when they were read.
+*/
+private NWSRFS_PDBRRS __pdbrrsHeader = null;
+private long __pdbrrsHeaderTimestamp = 0;
+
+/**
+A value read from the database files and the database time stamp when it was
+read.  Instances are not changed after they are created, so they can be shared
+between threads through a volatile field without locking.
+*/
+private static class TimestampedValue<T>
+{
+	/**
+	The database time stamp when the value was read.
+	*/
+	final long timestamp;
+
+	/**
+	The value that was read.
+	*/
+	final T value;
+
+	TimestampedValue(T value, long timestamp) {
+		this.value = value;
+		this.timestamp = timestamp;
+	}
+}
+
+/**
+The data type catalog read from PRDPARM, with the database time stamp when it
+was read, and the lock held while it is read.  See getPRDPARM().
+*/
+private volatile TimestampedValue<NWSRFS_PRDPARM> __prdparm = null;
+private ReentrantLock __prdparmLock = null;
+
+/**
+The headers of the time series in the processed database, with the database
+time stamp when they were read, and the lock held while they are read.  See
+readPRDTSHeaderList().
+*/
+private volatile TimestampedValue<List<NWSRFS_PRDTSHeader>> __prdtsHeaderList = null;
+private ReentrantLock __prdtsHeaderLock = null;
+
+/**
+Saves and restores the parsed index files, or null if index snapshots are not
+used.  See setIndexSnapshotDirectory().
+*/
+private NWSRFS_IndexSnapshot __indexSnapshot = null;
+
+/**
+Counts of the reads from the database files and times of the read methods.
+*/
+private NWSRFS_DMIMetrics __metrics = null;
+
+/**
+The number of threads used by readTimeSeriesList() to read time series.
+*/
+private int __readParallelism = 1;
+
+/**
+Lock used to serialize reads from the preprocessor database, which still rely
+on the file pointer of the shared EndianRandomAccessFile.
+*/
+private ReentrantLock __pdbLock = null;
+
+/**
+Cache of time series that have been read, and of time series identifiers that
+are known to exist, to check for existence in a very fast manner.
+*/
+private NWSRFS_TSCache __tsCache = null;
+
+/**
+The last time stamp computed for the time series database files, and the time
+(from System.currentTimeMillis()) when it was computed.  The time stamp for a
+single file (e.g., PRDPARM, or a memory-mapped file) is indexed by its own file
+pointer and the time stamp for a group of files by the number of database files
+plus the file pointer of the index file (PRDINDEX or PDBINDEX), so that the
+time stamps of the index file and of its group are kept separately.  See
+getTSDatabaseTimestamp().
 */
-private Hashtable __tsHashtable = null;
+private AtomicLongArray __tsTimestamps = null;
+private AtomicLongArray __tsTimestampTimes = null;
+
+/**
+The minimum time in milliseconds between checks of the time series database
+files for modification.  Within the interval the last time stamp is reused.
+*/
+private long __tsTimestampInterval = 1000;
 
 /**
 Hashtable for TS Data Type and Logical Unit values to check for existence in a very fast manner.
@@ -479,7 +597,8 @@ private Hashtable __tsDTUHashtable = null;
 /**
 A boolean specifying whether to cache the Time Series values or not.
 It is often advantageous to used cached TS data to speed processes but
-it also makes the data become "Outdated".
+it also makes the data become "Outdated".  Cached time series are discarded
+if the database files are modified (see getTSDatabaseTimestamp()).
 */
 private boolean __cacheTS = false;
 
@@ -493,6 +612,22 @@ The array of EndianRandomAccessFile objects holding for the binary database file
 */
 private EndianRandomAccessFile[] __NWSRFS_DBFiles = null;
 
+/**
+The file pointer (index in __NWSRFS_DBFiles) of each open database file, so
+that read() and readAt() can find the mapped file and count the read without
+searching __NWSRFS_DBFiles.  Files are added when they are opened and removed
+when they are closed.
+*/
+private ConcurrentHashMap<RandomAccessFile,Integer> __dbFilePointers = null;
+
+/**
+The array of memory-mapped files, parallel to __NWSRFS_DBFiles.  An element is
+non-null only if the database file was opened read-only and could be mapped,
+in which case read() copies records from the mapping rather than reading the
+EndianRandomAccessFile one byte at a time.
+*/
+private NWSRFS_MappedFile[] __mappedDBFiles = null;
+
 /**
 String holding the location of the fs5files. This could be for either OFS or IFP.
 */
@@ -597,11 +732,24 @@ public NWSRFS_DMI(NWSRFS_DMI dmi) {
 	__input_name = dmi.getInputName();
 	__opened_with_AppsDefaults = dmi.openedWithAppsDefaults();
 	__NWSRFS_DBFiles = dmi.getNWSRFSDBFiles(); 
+	__dbFilePointers = dmi.__dbFilePointers;
+	__mappedDBFiles = dmi.getMappedDBFiles();
 	__useFS5Files = dmi.usingFS5Files(); 
 	__isOpen = dmi.isOpen();
+	__openForReadAt = dmi.__openForReadAt;
 	__isBigEndian = dmi.usingBigEndian();
 	__NWSRFS_properties = dmi.getNWSRFSProperties();
-	__tsHashtable = dmi.getTSHashtable();
+	__tsCache = dmi.getTSCache();
+	__tsTimestamps = dmi.__tsTimestamps;
+	__tsTimestampTimes = dmi.__tsTimestampTimes;
+	__tsTimestampInterval = dmi.getTSTimestampInterval();
+	__metrics = dmi.getMetrics();
+	// Share the locks because the files are shared.
+	__openLock = dmi.__openLock;
+	__pdbLock = dmi.__pdbLock;
+	__readParallelism = dmi.getReadParallelism();
+	__indexSnapshot = dmi.__indexSnapshot;
+	__cacheTS = dmi.getCacheTS();
 	__tsDTUHashtable = dmi.getTSDTUHashtable();
 	_fcrcptr = dmi.getFcrcptr(); 
 	_fcsegptr = dmi.getFcsegptr(); 
@@ -700,6 +848,13 @@ throws Exception {
 		__isBigEndian = IOUtil.isBigEndianMachine();
 	}
 	
+	// Make sure that any files already mapped decode values with the correct byte order.
+	for (int i = 0; i < __mappedDBFiles.length; i++) {
+		if (__mappedDBFiles[i] != null) {
+			__mappedDBFiles[i].setBigEndian(__isBigEndian);
+		}
+	}
+
 	if(__isBigEndian) {
 		Message.printStatus(10,routine, "The NWSRFS FS5Files endian-ness is Big Endian");
 	}
@@ -734,6 +889,7 @@ private boolean checkRandomAccessFileOpen(int filePointer, boolean readOFSFS5Fil
 				if(readWrite) {
 					__NWSRFS_DBFiles[filePointer] 
 						= new EndianRandomAccessFile(__fs5FilesLocation	+ __dbFileNames[filePointer], "rw");
+					__mappedDBFiles[filePointer] = null;
 				
 						Message.printStatus(10,routine,
 						"__dbFileNames[filePointer] = "+ __dbFileNames[filePointer]+ " is now open read/write");
@@ -741,6 +897,7 @@ private boolean checkRandomAccessFileOpen(int filePointer, boolean readOFSFS5Fil
 				else {
 					__NWSRFS_DBFiles[filePointer] 
 						= new EndianRandomAccessFile(__fs5FilesLocation + __dbFileNames[filePointer], "r");
+					mapDBFile(filePointer, __fs5FilesLocation + __dbFileNames[filePointer]);
 				
 						Message.printStatus(10,routine,
 						"__dbFileNames[filePointer] = "+ __dbFileNames[filePointer]+ " is now open read only");
@@ -749,17 +906,20 @@ private boolean checkRandomAccessFileOpen(int filePointer, boolean readOFSFS5Fil
 			else {
 				if(readWrite) {
 					__NWSRFS_DBFiles[filePointer] = new EndianRandomAccessFile( __dbFileNames[filePointer], "rw");
+					__mappedDBFiles[filePointer] = null;
 				
 						Message.printStatus(10,routine,
 						"__dbFileNames[filePointer] = "+ __dbFileNames[filePointer]+ " is now open read/write");
 				}
 				else {
 					__NWSRFS_DBFiles[filePointer] = new EndianRandomAccessFile( __dbFileNames[filePointer], "r");
+					mapDBFile(filePointer, __dbFileNames[filePointer]);
 				
 						Message.printStatus(10,routine,
 						"__dbFileNames[filePointer] = "+ __dbFileNames[filePointer]+ " is now open read only");
 				}
 			}
+			__dbFilePointers.put(__NWSRFS_DBFiles[filePointer], Integer.valueOf(filePointer));
 			__isOpen[filePointer] = true;
 		}
 		else {
@@ -770,6 +930,8 @@ private boolean checkRandomAccessFileOpen(int filePointer, boolean readOFSFS5Fil
 		// TODO (JTS - 2004-08-18) why not handle the exception, get more information about
 		// what failed and print some warning messages?
 		__isOpen[filePointer] = false;
+		__openForReadAt.set(filePointer, 0);
+		__mappedDBFiles[filePointer] = null;
 		Message.printWarning(10,routine,e);
 		exceptionCount++;
 		return false;
@@ -777,6 +939,103 @@ private boolean checkRandomAccessFileOpen(int filePointer, boolean readOFSFS5Fil
 	return true;
 }
 
+/**
+Checks to see if the file pointed to by filePointer is open for reading, and
+opens it if not.  Unlike checkRandomAccessFileOpen(), the file is not rewound if
+it is already open, so this method can be used by concurrent readers that read
+the file with readAt().  Once the file is open, no lock is taken.
+@param filePointer the index of the database file.
+@return true if the file is open, false if an error occurred opening the file.
+*/
+private boolean checkRandomAccessFileOpenForReadAt(int filePointer) {
+	if (__openForReadAt.get(filePointer) != 0) {
+		// Already open.  The flag is set after the file objects so they
+		// are visible to this thread.
+		return true;
+	}
+	__openLock.lock();
+	try {
+		if (__isOpen[filePointer] || checkRandomAccessFileOpen(filePointer, true)) {
+			__openForReadAt.set(filePointer, 1);
+			return true;
+		}
+		return false;
+	}
+	finally {
+		__openLock.unlock();
+	}
+}
+
+/**
+Read the PRDINDEX file if it has not already been read.  Concurrent callers
+wait for the first caller to read the index rather than each reading it.
+@throws Exception if an error occurs reading the index.
+*/
+private void checkPRDIndexRead()
+throws Exception {
+	__openLock.lock();
+	try {
+		if (getPRDIndex() == null) {
+			setPRDIndex(readPRDINDEX());
+		}
+	}
+	finally {
+		__openLock.unlock();
+	}
+}
+
+/**
+Returns the PRDPARM data type catalog, reading it if it has not been read or if
+PRDPARM has been modified since it was read.  The catalog is returned without
+locking unless it must be read, in which case concurrent callers wait for the
+first caller to read the catalog rather than each reading it.
+@return the PRDPARM data type catalog.
+@throws Exception if an error occurs reading the catalog.
+*/
+private NWSRFS_PRDPARM getPRDPARM()
+throws Exception {
+	long timestamp = getTSDatabaseTimestamp(__PRDPARM);
+	TimestampedValue<NWSRFS_PRDPARM> prdparm = __prdparm;
+	if (prdparm != null && prdparm.timestamp == timestamp) {
+		__metrics.countCacheHit("PRDPARM");
+		return prdparm.value;
+	}
+	__prdparmLock.lock();
+	try {
+		// Check again in case another thread read the catalog while
+		// this thread waited for the lock.
+		prdparm = __prdparm;
+		if (prdparm == null || prdparm.timestamp != timestamp) {
+			__metrics.countCacheMiss("PRDPARM");
+			prdparm = new TimestampedValue<NWSRFS_PRDPARM>(readPRDPARM(), timestamp);
+			__prdparm = prdparm;
+		}
+		else {
+			__metrics.countCacheHit("PRDPARM");
+		}
+		return prdparm.value;
+	}
+	finally {
+		__prdparmLock.unlock();
+	}
+}
+
+/**
+Save a time series that has been read.  If time series are being cached, the
+time series is added to the cache.  Otherwise, only its existence is recorded.
+@param tsIdentKey the time series key ("TSID.DT.interval").
+@param tsFile the time series that was read.
+@param tsTimestamp the database time stamp when the read started.
+*/
+private void cacheTimeSeries(String tsIdentKey, NWSRFS_TimeSeries tsFile, long tsTimestamp) {
+	if (__cacheTS) {
+		__tsCache.put(tsIdentKey, tsFile, tsTimestamp);
+	}
+	else {
+		__tsCache.addExisting(tsIdentKey);
+	}
+}
+
 /**
 Checks to see if the time series exists in the binary Fortran database.
 @param ts the time series to check.  Cannot be null.
@@ -794,9 +1053,9 @@ throws Exception {
 
 	tsIdentKey = ts.getTSID() + "." + ts.getTSDataType() + "." + ts.getTSDTInterval();
 	Message.printStatus(10, routine, "tsIdentKey = " + tsIdentKey 
-		+ " __tsHashtable.containsKey(tsIdentKey) = " + __tsHashtable.containsKey(tsIdentKey));	
+		+ " __tsCache.containsExisting(tsIdentKey) = " + __tsCache.containsExisting(tsIdentKey));	
 
-	if(__tsHashtable.containsKey(tsIdentKey)) {
+	if(__tsCache.containsExisting(tsIdentKey)) {
 		if (IOUtil.testing()) {
 			Message.printStatus(10, "", "tsIdentKey '"+ tsIdentKey + "' in hash table.");
 		}
@@ -804,8 +1063,8 @@ throws Exception {
 	}
 	
 	if(checkTimeSeriesExists(ts.getTSID(), ts.getTSDataType(), ts.getTSDTInterval())) {
-		// Put the the tsID into the hash table for future checks.
-		__tsHashtable.put(tsIdentKey,ts);
+		// Put the the tsID into the cache for future checks.
+		__tsCache.addExisting(tsIdentKey);
 	}
 	else {
 		return false;
@@ -832,9 +1091,9 @@ throws Exception {
 
 	tsIdentKey = ts.getTSID() + "." + ts.getTSDataType() + "." + ts.getTSDTInterval();
 	Message.printStatus(10, routine, "tsIdentKey = " + tsIdentKey 
-		+ " __tsHashtable.containsKey(tsIdentKey) = " + __tsHashtable.containsKey(tsIdentKey));	
+		+ " __tsCache.containsExisting(tsIdentKey) = " + __tsCache.containsExisting(tsIdentKey));	
 
-	if(__tsHashtable.containsKey(tsIdentKey)) {
+	if(__tsCache.containsExisting(tsIdentKey)) {
 		if (IOUtil.testing()) {
 			Message.printStatus(10, "", "tsIdentKey '" + tsIdentKey + "' in hash table.");
 		}
@@ -842,8 +1101,8 @@ throws Exception {
 	}
 	
 	if(checkTimeSeriesExists(ts.getTSID(), ts.getTSDataType(), ts.getTSDTInterval(), alsoCheckDataExist)) {
-		// Put the the tsID into the hash table for future checks.
-		__tsHashtable.put(tsIdentKey,ts);
+		// Put the the tsID into the cache for future checks.
+		__tsCache.addExisting(tsIdentKey);
 	}
 	else {
 		return false;
@@ -880,17 +1139,12 @@ public boolean checkTimeSeriesExists(String tsID, String tsDT, int tsDTInterval,
 throws Exception {
 	String routine = "NWSRFS_DMI.checkTimeSeriesExists";
 	//String tsIdentIn = null, prdtsDataFile = null;
-	String parseChar;
-	char[] charValue;
-	int i, prdIndex = 1, prdTSIDSize, recordNum, unitNum = -1;
-	EndianDataInputStream EDIS = null;
+	int i, prdIndex = 1, recordNum, unitNum = -1;
 	// A dummy object to be passed to the readPRDTS method
 	NWSRFS_TimeSeries tsFile = new NWSRFS_TimeSeries(tsID, tsDT,tsDTInterval); 
 	
 	// Check to see if the pppindex file exists! If not return empty list.
-	if(getPRDIndex() == null) { 
-		setPRDIndex(readPRDINDEX());
-	}
+	checkPRDIndexRead();
 	
 	// Check the tsID and tsDT. They must not be null
 	if (tsID == null) {
@@ -907,100 +1161,25 @@ throws Exception {
 		//tsIdentIn = tsID + "." + tsDT + "." + tsDTInterval;
 	}
 
-	// Check if the the database binary file is open as a Random Access object
-	if (!checkRandomAccessFileOpen(__PRDPARM, true)) {
-		throw new Exception("Cannot open the " + __dbFileNames[__PRDPARM] + " binary database file");
-	}
-
-	if(__tsDTUHashtable.containsKey(tsDT)) {
-		unitNum = ((Integer)__tsDTUHashtable.get(tsDT)).intValue();
-	}
-	else {
-		// Now read the Time Series parameter file to get the parameters
-		// for the Time series in the PRDTSn binary file.
-
-		// Skip the first first record (240 bytes) and go to the 241 byte
-		EDIS = read(__NWSRFS_DBFiles[__PRDPARM],0,240);
-		EDIS.close();
-	
-		while (true) {
-			// Read until EOF or break.
-			try {
-				// Read the subsequent records (72 bytes) 
-				EDIS = read(__NWSRFS_DBFiles[__PRDPARM], 0,	__byteLength[__PRDPARM]);
-
-				// Field 1 - [type field name here]
-				charValue = new char[4];
-				for (i = 0; i < 4; i++) {
-					charValue[i] = EDIS.readEndianChar1();
-				}
-			
-				parseChar = new String(charValue).trim();
-
-				if (parseChar.length() == 0 || !parseChar.equalsIgnoreCase(tsDT)) {
-						continue;
-				}
-
-				// Field 2 - [type field name here]
-				unitNum = checkInt(EDIS.readEndianInt(), 0, 100, 0);				
-				break;
-			}
-			catch (EOFException EOFe) {
-				// Should never get here.
-				exceptionCount++;
-				Message.printStatus(10, routine, "No Time Series of data type: " + tsDT + " was found.");
-				return false;
-			}
-			catch (IOException IOe) {
-				// Should never get here.
-				exceptionCount++;
-				Message.printStatus(10, routine, "No Time Series of data type: " + tsDT + " was found.");
-				return false;
-			}
-		}
-
-		__tsDTUHashtable.put(tsDT,new Integer(unitNum));
-		EDIS.close();
-	}
-	
-	// Create the tsDataFile String. Need to loop through all 5 of the
-	// TS files until find right unit number. If LUNIT from the PRDTSn
-	// Equals the IUNIT value from the PRDPARM file then have the right Time Series file to read the TS into.
-	for (i = 0; i < 5; i++) {
-		// FIXME SAM 2008-04-07 What is the following?  Simplify
-		prdIndex = (int)new Integer(String.valueOf(__PRDTS1 + i)).intValue();
-		/* TODO SAM 2008-05-02 Evaluate if needed - are paths full always?
-		if (__useFS5Files && true) {
-			prdtsDataFile = __fs5FilesLocation + __dbFileNames[prdIndex]; 
-		}
-		else {
-			prdtsDataFile = __dbFileNames[prdIndex];
-		}
-		*/
-
-		// Check if the the database binary file is open as a Random Access object
-		if (!checkRandomAccessFileOpen(prdIndex, true)) {
-			throw new Exception("Cannot open the " + __dbFileNames[prdIndex] + " binary database file");
-		}
-
-// TODO (JTS - 2004-08-21) explain the magic number 4 and 5		
-		EDIS = read(__NWSRFS_DBFiles[prdIndex],0, 4, 5);
-		if (unitNum == EDIS.readEndianInt()) {
-			break;
-		}
-		else {
-			EDIS.close();
-		}
+	// Get the logical unit number for the data type and the PRDTSn file
+	// that holds time series with the unit number.
+	NWSRFS_PRDPARM prdparm = getPRDPARM();
+	int parmIndex = prdparm.getDataTypeIndex(tsDT);
+	if (parmIndex < 0) {
+		Message.printStatus(10, routine, "No Time Series of data type: " + tsDT + " was found.");
+		return false;
 	}
-
-	// Check the PRDTSn to see if it is null!
-	if (__NWSRFS_DBFiles[prdIndex] == null) {
+	unitNum = prdparm.getIUNIT(parmIndex);
+	prdIndex = prdparm.getUnitFileIndex(unitNum);
+	if (prdIndex < 0) {
 		Message.printWarning(10, routine,"No time series of data type: "+ tsDT + " was found.");
 		return false;
 	}
 
-	// Rewind the PRDTSn to prepare for the TS read.
-	rewind(__NWSRFS_DBFiles[prdIndex]);
+	// Check if the the database binary file is open as a Random Access object
+	if (!checkRandomAccessFileOpenForReadAt(prdIndex)) {
+		throw new Exception("Cannot open the " + __dbFileNames[prdIndex] + " binary database file");
+	}
 
 	// Now read the Time Series index object to get the Record number
 	// for the Time series in the PRDTSn binary file.
@@ -1014,23 +1193,13 @@ throws Exception {
 	// which matches TSID and TSDT... Ugly but there is no other way to do it
 	// given the structure of the FS5Files.
 
-	prdTSIDSize = ((getPRDIndex()).getTSID()).size();
+	int[] recordNums = getPRDIndex().getRecordNumbers(tsID, tsDT);
 	
 	boolean found = false;
 	
-	for (i = 0; i < prdTSIDSize; i++) {
-		// Check the TS ID to see if we match
-		if (!((getPRDIndex()).getTSID(i)).equalsIgnoreCase(tsID)) {
-			continue;
-		}
-
-		// Check the TS Data Type to see if we match
-		if (!((getPRDIndex()).getTSDT(i)).equalsIgnoreCase(tsDT)) {
-			continue;
-		}
-
-		// If we match the TS ID and TS Data Type the get record number
-		recordNum = (getPRDIndex()).getIREC(i);
+	for (i = 0; i < recordNums.length; i++) {
+		// Get the record number for the matching TS ID and TS Data Type
+		recordNum = recordNums[i];
 
 		// Now call readPRDTS to first see if we have the right record
 		// then read the TS datafile to see if TS exists! The false tells the
@@ -1045,8 +1214,6 @@ throws Exception {
 		}
 	}
 
-	EDIS.close();
-
 	// if not concerned about whether the time series actually has data,
 	// function like the old version of the method and just return true
 	if (!alsoCheckDataExist) {
@@ -1076,7 +1243,10 @@ throws Exception
 	for (int i = 0; i < __dbFileNames.length; i++) {
 		if (__isOpen[i]) {
 			try {
+				__openForReadAt.set(i, 0);
+				__dbFilePointers.remove(__NWSRFS_DBFiles[i]);
 				__NWSRFS_DBFiles[i].close();
+				__mappedDBFiles[i] = null;
 				__isOpen[i] = false;
 			}
 			catch (Throwable e) {
@@ -1148,6 +1318,44 @@ public NWSRFS_FCSEGPTR getFcsegptr() {
 	return _fcsegptr;
 }
 
+/**
+Returns whether time series are cached when they are read.
+@return true if time series are cached, false if not.
+*/
+public boolean getCacheTS() {
+	return __cacheTS;
+}
+
+/**
+Returns the file for a database file.
+@param filePointer the file pointer for the file.
+@return the file for the database file.
+*/
+private File getDBFile(int filePointer) {
+	if (__useFS5Files) {
+		return new File(__fs5FilesLocation + __dbFileNames[filePointer]);
+	}
+	else {
+		return new File(__dbFileNames[filePointer]);
+	}
+}
+
+/**
+Returns the file pointer (index in __NWSRFS_DBFiles) of an open database file.
+@param raFile an EndianRandomAccessFile from the __NWSRFS_DBFiles array.
+@return the file pointer, or -1 if raFile is not one of the database files.
+*/
+private int getDBFilePointer(RandomAccessFile raFile) {
+	if (raFile == null) {
+		return -1;
+	}
+	Integer filePointer = __dbFilePointers.get(raFile);
+	if (filePointer == null) {
+		return -1;
+	}
+	return filePointer.intValue();
+}
+
 /**
 Returns the path to the FS5 files.  The private String __fs5FilesLocation holds the path and
 includes a trailing slash. This method removes the trailing slash for applications which are not expecting it.
@@ -1162,6 +1370,18 @@ public String getFS5FilesLocation() {
 	}
 }
 
+/**
+Returns the directory in which the parsed index files are saved.
+@return the directory in which the parsed index files are saved, or null if
+index snapshots are not used.
+*/
+public String getIndexSnapshotDirectory() {
+	if (__indexSnapshot == null) {
+		return null;
+	}
+	return __indexSnapshot.getDirectory();
+}
+
 /**
 Return the input name, used with time series identifiers.
 */
@@ -1169,6 +1389,76 @@ public String getInputName ()
 {	return __input_name;
 }
 
+/**
+Returns the array of memory-mapped NWSRFS database files, parallel to the
+array returned by getNWSRFSDBFiles().  Elements are null for files that are
+not open, are open read/write, or could not be mapped.
+@return the array of memory-mapped NWSRFS database files.
+*/
+protected NWSRFS_MappedFile[] getMappedDBFiles() {
+	return __mappedDBFiles;
+}
+
+/**
+Return the memory-mapped file corresponding to an open EndianRandomAccessFile.
+@param raFile an EndianRandomAccessFile from the __NWSRFS_DBFiles array.
+@return the mapped file for raFile, or null if raFile is not mapped (e.g., it
+was opened read/write or is not one of the database files).
+*/
+private NWSRFS_MappedFile getMappedDBFile(EndianRandomAccessFile raFile) {
+	return getMappedDBFile(getDBFilePointer(raFile));
+}
+
+/**
+Return the memory-mapped file for a database file.  A mapping does not change
+size when the file changes, so the time stamp of the file is compared with the
+time stamp when it was mapped, at most once per interval (see
+setTSTimestampInterval()), and the file is mapped again if it has been modified.
+@param filePointer the file pointer for the file, or -1.
+@return the mapped file, or null if the file is not mapped (e.g., it was opened
+read/write or could not be mapped).
+*/
+private NWSRFS_MappedFile getMappedDBFile(int filePointer) {
+	if (filePointer < 0) {
+		return null;
+	}
+	NWSRFS_MappedFile mappedFile = __mappedDBFiles[filePointer];
+	if (mappedFile == null
+		|| mappedFile.getTimestamp() == getTSDatabaseTimestamp(filePointer)) {
+		return mappedFile;
+	}
+	__openLock.lock();
+	try {
+		// Check again with the current time stamp, in case another thread
+		// has mapped the file again.  Saving the time stamp avoids locking
+		// again for each read until the next check.
+		long timestamp = getFileTimestamp(filePointer);
+		setTSDatabaseTimestamp(filePointer, timestamp, System.currentTimeMillis());
+		mappedFile = __mappedDBFiles[filePointer];
+		if (mappedFile != null && mappedFile.getTimestamp() != timestamp) {
+			Message.printStatus(10, "NWSRFS_DMI.getMappedDBFile",
+				"\"" + mappedFile.getFilename()
+				+ "\" has been modified - mapping it again.");
+			mapDBFile(filePointer, mappedFile.getFilename());
+			mappedFile = __mappedDBFiles[filePointer];
+		}
+	}
+	finally {
+		__openLock.unlock();
+	}
+	return mappedFile;
+}
+
+/**
+Returns the metrics for the DMI, which count the reads from each database file
+and time the read methods.  The metrics can be disabled with
+getMetrics().setEnabled(false).
+@return the metrics for the DMI.
+*/
+public NWSRFS_DMIMetrics getMetrics() {
+	return __metrics;
+}
+
 /**
 Returns the array of NWSRFS Database files.
 @return the array of NWSRFS Database files.
@@ -1237,11 +1527,94 @@ public NWSRFS_PRDINDEX getPRDIndex() {
 }
 
 /**
-Returns the time series hashtable.
-@return the time series hashtable.
+Returns the number of threads used by readTimeSeriesList() to read time series.
+@return the number of threads used by readTimeSeriesList() to read time series.
+*/
+public int getReadParallelism() {
+	return __readParallelism;
+}
+
+/**
+Returns the time series cache.
+@return the time series cache.
+*/
+public NWSRFS_TSCache getTSCache() {
+	return __tsCache;
+}
+
+/**
+Returns a copy of the cached time series.  Previously this returned a Hashtable
+of every time series that had been read, which grew without limit.  Time series
+are now only kept if caching is enabled (see setCacheTS(), which is off by
+default) and within the cache limits, so the Hashtable is empty if caching is
+off and otherwise contains only the time series that are still cached.
+@return a Hashtable of the cached NWSRFS_TimeSeries, by time series key.
+Changes to the Hashtable do not change the cache.
+@deprecated Use getTSCache().  To check whether a time series exists, use
+checkTimeSeriesExists().
 */
 public Hashtable getTSHashtable() {
-	return __tsHashtable;
+	return __tsCache.toHashtable();
+}
+
+/**
+Returns a time stamp for the database files that hold time series, used to
+determine whether cached time series are out of date.  The time stamp combines
+the last modification time and length of the index, parameter, and data files.
+The files are checked at most once per interval (see
+setTSTimestampInterval()), with the last time stamp returned in between.
+@param indexPointer the file pointer for the index file (e.g., PRDINDEX).
+@param parmPointer the file pointer for the parameter file (e.g., PRDPARM).
+@param firstDataPointer the file pointer for the first data file (e.g., PRDTS1).
+@param lastDataPointer the file pointer for the last data file (e.g., PRDTS5).
+@return a time stamp that changes when any of the files are modified.
+*/
+private long getTSDatabaseTimestamp(int indexPointer, int parmPointer,
+int firstDataPointer, int lastDataPointer) {
+	long now = System.currentTimeMillis();
+	int groupPointer = __dbFileNames.length + indexPointer;
+	long checked = __tsTimestampTimes.get(groupPointer);
+	if (checked != 0 && (now - checked) < __tsTimestampInterval) {
+		return __tsTimestamps.get(groupPointer);
+	}
+	long timestamp = getFileTimestamp(indexPointer);
+	timestamp = 31*timestamp + getFileTimestamp(parmPointer);
+	for (int i = firstDataPointer; i <= lastDataPointer; i++) {
+		timestamp = 31*timestamp + getFileTimestamp(i);
+	}
+	setTSDatabaseTimestamp(groupPointer, timestamp, now);
+	return timestamp;
+}
+
+/**
+Returns a time stamp for a single database file, used to determine whether
+values read from the file (e.g., the PRDPARM catalog, or a memory-mapped file)
+are out of date.  As for groups of files, the file is checked at most once per
+interval.
+@param filePointer the file pointer for the file.
+@return a time stamp that changes when the file is modified.
+*/
+private long getTSDatabaseTimestamp(int filePointer) {
+	long now = System.currentTimeMillis();
+	long checked = __tsTimestampTimes.get(filePointer);
+	if (checked != 0 && (now - checked) < __tsTimestampInterval) {
+		return __tsTimestamps.get(filePointer);
+	}
+	long timestamp = getFileTimestamp(filePointer);
+	setTSDatabaseTimestamp(filePointer, timestamp, now);
+	return timestamp;
+}
+
+/**
+Returns the current time stamp of a database file, without reusing the last
+time stamp.
+@param filePointer the file pointer for the file.
+@return the sum of the last modification time and length of the file, or 0 if
+the file does not exist.
+*/
+private long getFileTimestamp(int filePointer) {
+	File f = getDBFile(filePointer);
+	return f.lastModified() + f.length();
 }
 
 /**
@@ -1252,6 +1625,15 @@ public Hashtable getTSDTUHashtable() {
 	return __tsDTUHashtable;
 }
 
+/**
+Returns the minimum time between checks of the time series database files for
+modification.
+@return the minimum time between checks, milliseconds.
+*/
+public long getTSTimestampInterval() {
+	return __tsTimestampInterval;
+}
+
 /**
 Initialize the DMI instance.
 */
@@ -1259,8 +1641,18 @@ private void initialize() {
 	__fs5FilesLocation = null;
 	__isBigEndian = false;
 	__NWSRFS_DBFiles = new EndianRandomAccessFile[__dbFileNames.length];
+	__dbFilePointers = new ConcurrentHashMap<RandomAccessFile,Integer>();
+	__openForReadAt = new AtomicIntegerArray(__dbFileNames.length);
+	__mappedDBFiles = new NWSRFS_MappedFile[__dbFileNames.length];
 	__NWSRFS_properties = null;
-	__tsHashtable = new Hashtable();
+	__tsCache = new NWSRFS_TSCache();
+	__tsTimestamps = new AtomicLongArray(2*__dbFileNames.length);
+	__tsTimestampTimes = new AtomicLongArray(2*__dbFileNames.length);
+	__metrics = new NWSRFS_DMIMetrics(__dbFileNames, __tsCache);
+	__openLock = new ReentrantLock();
+	__prdparmLock = new ReentrantLock();
+	__prdtsHeaderLock = new ReentrantLock();
+	__pdbLock = new ReentrantLock();
 	__tsDTUHashtable = new Hashtable();
 	__useFS5Files = true;
 	_fcrcptr = null;
@@ -1279,6 +1671,28 @@ public boolean[] isOpen() {
 	return __isOpen;
 }
 
+/**
+Memory-map a database file that has been opened read-only so that read()
+can copy records from memory.  If the file cannot be mapped a warning is
+printed and reads fall back to the EndianRandomAccessFile.
+@param filePointer the index of the file in __NWSRFS_DBFiles.
+@param filename the path to the file.
+*/
+private void mapDBFile(int filePointer, String filename) {
+	String routine = "NWSRFS_DMI.mapDBFile";
+	__mappedDBFiles[filePointer] = null;
+	if (!NWSRFS_MappedFile.canMap(filename)) {
+		return;
+	}
+	try {
+		__mappedDBFiles[filePointer] = new NWSRFS_MappedFile(filename, __isBigEndian);
+	}
+	catch (Exception e) {
+		Message.printWarning(10, routine, "Unable to memory-map \"" + filename
+			+ "\" - will read from file (" + e + ").");
+	}
+}
+
 /**
 Open the NWSRFS processed database files.
 @throws Exception if an error occurs while trying to determine database endianness 
@@ -4754,33 +5168,12 @@ record which is turned into a byteArrayInputStream.
 protected EndianDataInputStream read(EndianRandomAccessFile raFile,
 long recordNumber, int byteLength) throws Exception 
 {
-	// TODO (JTS - 2004-08-19) this method is the same as the next one!!
-	// overload this one and have it call the next one with the number
-	// of bytes to read -- perhaps if bytesToRead is -1 then just read them all.
-
 	// Check for negative byteLength
 	if (byteLength < 0) {
 		byteLength = 0;
 	}
 
-	byte[] record = new byte[byteLength]; 
-		// Array of bytes holding binary data retrieved from file
-
-	raFile.skipBytes((int)recordNumber * byteLength);
-
-	// Get the record as a byte array
-	for (int i = 0; i < byteLength; i++) {
-		record[i] = (byte)raFile.readByte();
-	}
-	
-	// Create the ByteArrayInputStream
-	ByteArrayInputStream BAIS = new ByteArrayInputStream(record);
-
-	// Create the EndianDataInputStream and check for the Endianess
-	EndianDataInputStream EDIS = new EndianDataInputStream((InputStream)BAIS,true);
-	EDIS.setBigEndian(__isBigEndian);
-
-	return EDIS;
+	return read(raFile, recordNumber, byteLength, byteLength, false);
 }
 
 /**
@@ -4806,54 +5199,207 @@ throws Exception, EOFException, NullPointerException {
 	return read(raFile, recordNumber, byteLength, bytesToRead, false);
 }
 
-// TODO (JTS - 2004-08-21) being used for testing efficiency of read operations -- leave in for now ...
+/**
+Read from a data file.  See read(EndianRandomAccessFile,long,int,int).  The
+read is counted in the DMI metrics (see getMetrics()).
+@param raFile an EndianRandomAccessFile to the binary file to read.
+@param recordNumber a long used to set the position of the file to read the correct record. 
+@param byteLength an integer used to tell the method how many bytes a record contains.
+@param bytesToRead an integer used to tell the method how many bytes to read 
+at the starting location. 
+@param testing no longer used.
+@return an endianDataInputStream which uses a byte array holding the binary 
+record which is turned into a byteArrayInputStream.
+@throws Exception if an error occurs trying to read the file.
+*/
 protected EndianDataInputStream read(EndianRandomAccessFile raFile,
 long recordNumber, int byteLength,int bytesToRead, boolean testing) 
 throws Exception {
-	StopWatch sw1 = new StopWatch();
-	StopWatch sw2 = new StopWatch();
-	StopWatch sw3 = new StopWatch();
-
 	// Check for negative bytesToRead
 	if (bytesToRead < 0) {
 		bytesToRead = 0;
 	}
 
-	sw1.start();
-
 	byte[] record = new byte[bytesToRead];
 		// Array of bytes holding binary data retrieved from file
-	raFile.skipBytes((int)recordNumber*byteLength);
-	
-	sw1.stop();
-	sw2.start();
+	int filePointer = getDBFilePointer(raFile);
+	int skip = (int)recordNumber*byteLength;
+	__metrics.countRead(filePointer, bytesToRead, skip != 0);
+	NWSRFS_MappedFile mappedFile = getMappedDBFile(filePointer);
+	if (mappedFile != null) {
+		// The file is mapped so copy the record from memory.  The position
+		// is relative to the current file pointer, consistent with
+		// skipBytes() below, and the file pointer is left after the record
+		// so that callers that read sequentially continue to work.
+		long position = raFile.getFilePointer();
+		if (skip > 0) {
+			// Like skipBytes(), do not position past the end of the file
+			position = Math.min(position + skip, mappedFile.length());
+		}
 
-	// Get the record as a byte array
-	for (int i = 0; i < bytesToRead; i++) {
-		record[i] = (byte)raFile.readByte();
+		try {
+			mappedFile.getBytes(position, record, 0, bytesToRead);
+		}
+		catch (EOFException e) {
+			// Leave the file pointer at the end of the file, as would
+			// happen when reading past the end with readByte().
+			raFile.seek(mappedFile.length());
+			throw e;
+		}
+		raFile.seek(position + bytesToRead);
+	}
+	else {
+		raFile.skipBytes(skip);
+
+		// Get the record as a byte array
+		raFile.readFully(record);
 	}
 
-	sw2.stop();
-	sw3.start();
-	
 	// Create the ByteArrayInputStream
 	ByteArrayInputStream BAIS = new ByteArrayInputStream(record);
-	sw3.stop();
 
 	// Create the EndianDataInputStream and check for the Endianess
 	EndianDataInputStream EDIS = new EndianDataInputStream((InputStream)BAIS,true);
 	EDIS.setBigEndian(__isBigEndian);
-
-	//if (testing) {
-	//	Message.printStatus(1, "", "    1: " + sw1.getSeconds());
-	//	Message.printStatus(1, "", "    2: " + sw2.getSeconds());
-	//	Message.printStatus(1, "", "    3: " + sw3.getSeconds());
-	//	Message.printStatus(1, "", "");
-	//}
 	
 	return EDIS;
 }
 
+/**
+Read from a data file at an absolute position.  Unlike read(), this method does
+not use or change the file pointer of the EndianRandomAccessFile, so multiple
+threads can read from the same file at the same time.  If the file is
+memory-mapped the bytes are copied from memory, otherwise a positional
+FileChannel read is used.
+@param raFile an EndianRandomAccessFile to the binary file to read.
+@param position the absolute byte position in the file to start reading.
+@param bytesToRead the number of bytes to read.
+@return an EndianDataInputStream which uses a byte array holding the bytes.
+@throws Exception if an error occurs reading the file, including an
+EOFException if the read extends past the end of the file.
+*/
+protected EndianDataInputStream readAt(EndianRandomAccessFile raFile,
+long position, int bytesToRead)
+throws Exception {
+	if (bytesToRead < 0) {
+		bytesToRead = 0;
+	}
+	byte[] record = new byte[bytesToRead];
+	readAt(raFile, position, record);
+
+	EndianDataInputStream EDIS = new EndianDataInputStream(
+		(InputStream)new ByteArrayInputStream(record), true);
+	EDIS.setBigEndian(__isBigEndian);
+	return EDIS;
+}
+
+/**
+Fill a byte array from a data file at an absolute position, without using or
+changing the file pointer.  See readAt(EndianRandomAccessFile,long,int).
+@param raFile a RandomAccessFile to the binary file to read.
+@param position the absolute byte position in the file to start reading.
+@param bytes the array to fill.
+@throws Exception if an error occurs reading the file, including an
+EOFException if the read extends past the end of the file.
+*/
+private void readAt(RandomAccessFile raFile, long position, byte[] bytes)
+throws Exception {
+	int filePointer = getDBFilePointer(raFile);
+	__metrics.countRead(filePointer, bytes.length, true);
+	NWSRFS_MappedFile mappedFile = getMappedDBFile(filePointer);
+	if (mappedFile != null) {
+		mappedFile.getBytes(position, bytes, 0, bytes.length);
+		return;
+	}
+	// FileChannel.read(ByteBuffer,long) does not change the channel position
+	// and can be called concurrently.
+	FileChannel channel = raFile.getChannel();
+	ByteBuffer buffer = ByteBuffer.wrap(bytes);
+	while (buffer.hasRemaining()) {
+		int n = channel.read(buffer, position + buffer.position());
+		if (n < 0) {
+			throw new EOFException("Attempt to read " + bytes.length
+				+ " bytes at position " + position
+				+ " past the end of the file.");
+		}
+	}
+}
+
+/**
+Read a block of consecutive float values from a data file in one operation.
+This is used for the data portion of records (e.g., PRDTSn time series data),
+rather than reading the values one at a time with readEndianFloat().
+The values are decoded using the endian-ness of the database.  Like readAt(),
+the file pointer is not used or changed so concurrent reads are allowed.
+@param raFile an EndianRandomAccessFile to the binary file to read.
+@param position the absolute byte position in the file of the first value.
+@param count the number of float values to read.
+@return an array containing the values.
+@throws Exception if an error occurs reading the file, including an
+EOFException if the block extends past the end of the file.
+*/
+protected float[] readFloats(EndianRandomAccessFile raFile, long position, int count)
+throws Exception {
+	if (count < 0) {
+		count = 0;
+	}
+	NWSRFS_MappedFile mappedFile = getMappedDBFile(raFile);
+	if (mappedFile != null) {
+		float[] values = new float[count];
+		mappedFile.getFloats(position, values, 0, count);
+		__metrics.countRead(getDBFilePointer(raFile), count*__WORDSIZE, true);
+		return values;
+	}
+	else {
+		float[] values = new float[count];
+		byte[] bytes = new byte[count*__WORDSIZE];
+		readAt(raFile, position, bytes);
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		if (__isBigEndian) {
+			buffer.order(ByteOrder.BIG_ENDIAN);
+		}
+		else {
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+		}
+		buffer.asFloatBuffer().get(values);
+		return values;
+	}
+}
+
+/**
+Read a block of consecutive float values from a binary file in one operation,
+using the specified byte order.  This version is used for files that are not
+part of the FS5Files database (e.g., ESP trace ensemble files), which may have
+a byte order that is different from the database.  The file pointer is left
+after the last value that is read.
+@param raFile the binary file to read.
+@param position the absolute byte position in the file of the first value.
+@param count the number of float values to read.
+@param isBigEndian true if the values in the file are big endian, false if little endian.
+@return an array containing the values.
+@throws Exception if an error occurs reading the file, including an
+EOFException if the block extends past the end of the file.
+*/
+protected float[] readFloats(RandomAccessFile raFile, long position, int count, boolean isBigEndian)
+throws Exception {
+	if (count < 0) {
+		count = 0;
+	}
+	float[] values = new float[count];
+	byte[] bytes = new byte[count*__WORDSIZE];
+	raFile.seek(position);
+	raFile.readFully(bytes);
+	ByteBuffer buffer = ByteBuffer.wrap(bytes);
+	if (isBigEndian) {
+		buffer.order(ByteOrder.BIG_ENDIAN);
+	}
+	else {
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+	}
+	buffer.asFloatBuffer().get(values);
+	return values;
+}
+
 /** 
 Reads the preprocessed parameteric database to fill the data members of the
 NWSRFS_BASN object argument. It will read the information from the 
@@ -4914,8 +5460,8 @@ public List<String> readBASNParamList() throws Exception
 	// Get the logical unit for the parameter type.
 	for(int i=0;i<(pppindex.getPARMTP()).size();i++) {
 		if(((String)(pppindex.getPARMTP()).get(i)).equalsIgnoreCase("BASN")) {
-			logicalUnitNum = ((Integer)pppindex.getLUFILE().get(i)).intValue();
-			numberOFParamRecs = ((Integer)pppindex.getNUMPRM().get(i)).intValue();
+			logicalUnitNum = pppindex.getLUFILE(i);
+			numberOFParamRecs = pppindex.getNUMPRM(i);
 			break;
 		}
 	}
@@ -4930,7 +5476,7 @@ public List<String> readBASNParamList() throws Exception
 			if(((String)(pppindex.getPARMTP()).get(i)).equalsIgnoreCase("BASN")) {
 				basin = new NWSRFS_BASN((String)(pppindex.getID()).get(i));
 				basin.setLogicalUnitNum(logicalUnitNum);
-				basin.setRecordNum(((Integer)(pppindex.getFIRST()).get(i)).intValue());
+				basin.setRecordNum(pppindex.getFIRST(i));
 				basinList.add(basin.getID());
 				break;
 			}
@@ -4943,7 +5489,7 @@ public List<String> readBASNParamList() throws Exception
 			if(((String)(pppindex.getITYPE()).get(i)).equalsIgnoreCase("BASN")) {
 				basin = new NWSRFS_BASN((String)(pppindex.getID()).get(i));
 					basin.setLogicalUnitNum(logicalUnitNum);
-					basin.setRecordNum(((Integer)(pppindex.getIREC()).get(i)).intValue());
+					basin.setRecordNum(pppindex.getIREC(i));
 					basinList.add(basin.getID());
 			}
 		}
@@ -4973,6 +5519,17 @@ FCCARRY binary database file.
 @throws Exception if segment object is NULL or segment objects parent FG and CG's are NULL.
 */
 public List<NWSRFS_Carryover> readCarryover(NWSRFS_Segment segObject, boolean deepRead) 
+throws Exception {
+	long start = __metrics.startTimer();
+	try {
+		return readCarryoverInternal(segObject, deepRead);
+	}
+	finally {
+		__metrics.stopTimer("readCarryover", start);
+	}
+}
+
+private List<NWSRFS_Carryover> readCarryoverInternal(NWSRFS_Segment segObject, boolean deepRead) 
 throws Exception {
 	// Check to see if the segObject is null. If so throw an Exception
 	if (segObject == null) {
@@ -5100,6 +5657,17 @@ data from the FCCOGDEF binary database file.
 @throws Exception if the binary file can not be opened.
 */
 public NWSRFS_CarryoverGroup readCarryoverGroup(String CG_ID, boolean deepRead) 
+throws Exception {
+	long start = __metrics.startTimer();
+	try {
+		return readCarryoverGroupInternal(CG_ID, deepRead);
+	}
+	finally {
+		__metrics.stopTimer("readCarryoverGroup", start);
+	}
+}
+
+private NWSRFS_CarryoverGroup readCarryoverGroupInternal(String CG_ID, boolean deepRead) 
 throws Exception {
 	NWSRFS_CarryoverGroup cgFile = new NWSRFS_CarryoverGroup(CG_ID);
 
@@ -5569,6 +6137,17 @@ stores the data from an ESP trace binary file into a TS object.
 @throws Exception if there was an error reading from the esp trace ensemble
 */
 public NWSRFS_ESPTraceEnsemble readESPTraceEnsemble(String filename, boolean read_data) 
+throws Exception {
+	long start = __metrics.startTimer();
+	try {
+		return readESPTraceEnsembleInternal(filename, read_data);
+	}
+	finally {
+		__metrics.stopTimer("readESPTraceEnsemble", start);
+	}
+}
+
+private NWSRFS_ESPTraceEnsemble readESPTraceEnsembleInternal(String filename, boolean read_data) 
 throws Exception {
 	NWSRFS_ESPTraceEnsemble espTE = null;
 
@@ -5579,6 +6158,29 @@ throws Exception {
 	return espTE;
 }
 
+/**
+Returns the index that was saved for an index file.  See
+setIndexSnapshotDirectory().
+@param filePointer the file pointer for the index file.
+@param indexClass the class of the index.
+@return the saved index, or null if index snapshots are not used, or there is
+no current snapshot for the index file.
+*/
+private <T> T readIndexSnapshot(int filePointer, Class<T> indexClass) {
+	NWSRFS_IndexSnapshot indexSnapshot = __indexSnapshot;
+	if (indexSnapshot == null) {
+		return null;
+	}
+	T index = indexSnapshot.read(getDBFile(filePointer), indexClass);
+	if (index == null) {
+		__metrics.countCacheMiss("IndexSnapshot");
+	}
+	else {
+		__metrics.countCacheHit("IndexSnapshot");
+	}
+	return index;
+}
+
 /** 
 This method is used to read in the values from the FCRCPTR NWSRFS forecast 
 component file into the data members of the NWSRFS_FCRCPTR class. The data 
@@ -5591,7 +6193,11 @@ that the index to the FCRATING binary file will be in memory.
 */
 private NWSRFS_FCRCPTR readFCRCPTR() 
 throws Exception {
-	NWSRFS_FCRCPTR ptrFile = new NWSRFS_FCRCPTR();
+	NWSRFS_FCRCPTR ptrFile = readIndexSnapshot(__FCRCPTR, NWSRFS_FCRCPTR.class);
+	if (ptrFile != null) {
+		return ptrFile;
+	}
+	ptrFile = new NWSRFS_FCRCPTR();
 
 	// Check if the the database binary file is open as a Random Access object
 // TODO (JTS - 2004-08-19) always defined to be true in this class and used like this.  Can these be removed?	
@@ -5670,6 +6276,7 @@ throws Exception {
 		}
 	}
 
+	writeIndexSnapshot(__FCRCPTR, ptrFile);
 	return ptrFile;
 }
 
@@ -5685,7 +6292,11 @@ that the index to the FCSEGSTS binary file will be in memory.
 */
 private NWSRFS_FCSEGPTR readFCSEGPTR() 
 throws Exception {
-	NWSRFS_FCSEGPTR ptrFile = new NWSRFS_FCSEGPTR();
+	NWSRFS_FCSEGPTR ptrFile = readIndexSnapshot(__FCSEGPTR, NWSRFS_FCSEGPTR.class);
+	if (ptrFile != null) {
+		return ptrFile;
+	}
+	ptrFile = new NWSRFS_FCSEGPTR();
 
 	// Check if the the database binary file is open as a Random Access object
 // TODO (JTS - 2004-08-19) always defined to be true in this class and used like this.  Can these be removed?	
@@ -5772,6 +6383,10 @@ throws Exception {
 		}
 	}
 
+	// Build the segment lookup table used by readSegment()
+	ptrFile.buildSegmentRecordIndex();
+
+	writeIndexSnapshot(__FCSEGPTR, ptrFile);
 	return ptrFile;
 }
 
@@ -5808,6 +6423,17 @@ the FCFGSTAT binary database file. This class should be instantiated by the user
 @throws Exception if there are any problems reading from the database.
 */
 public NWSRFS_ForecastGroup readForecastGroup(String FGID, boolean deepRead) 
+throws Exception {
+	long start = __metrics.startTimer();
+	try {
+		return readForecastGroupInternal(FGID, deepRead);
+	}
+	finally {
+		__metrics.stopTimer("readForecastGroup", start);
+	}
+}
+
+private NWSRFS_ForecastGroup readForecastGroupInternal(String FGID, boolean deepRead) 
 throws Exception {
 
 	// Will need to read the FCFGSTAT binary database until there is a
@@ -6176,8 +6802,8 @@ public List<String> readMAPAreaList() throws Exception
 	// Get the logical unit for the parameter type.
 	for(int i=0;i<(pppindex.getPARMTP()).size();i++) {
 		if(((String)(pppindex.getPARMTP()).get(i)).equalsIgnoreCase("MAP")) {
-			logicalUnitNum = ((Integer)pppindex.getLUFILE().get(i)).intValue();
-			numberOFParamRecs = ((Integer)pppindex.getNUMPRM().get(i)).intValue();
+			logicalUnitNum = pppindex.getLUFILE(i);
+			numberOFParamRecs = pppindex.getNUMPRM(i);
 			break;
 		}
 	}
@@ -6193,7 +6819,7 @@ public List<String> readMAPAreaList() throws Exception
 			if(((String)(pppindex.getPARMTP()).get(i)).equalsIgnoreCase("MAP")) {
 				map = new NWSRFS_MAP((String)(pppindex.getID()).get(i));
 				map.setLogicalUnitNum(logicalUnitNum);
-				map.setRecordNum(((Integer)(pppindex.getFIRST()).get(i)).intValue());
+				map.setRecordNum(pppindex.getFIRST(i));
 				mapAreaList.add(map.getID());
 				break;
 			}
@@ -6206,7 +6832,7 @@ public List<String> readMAPAreaList() throws Exception
 			if(((String)(pppindex.getITYPE()).get(i)).equalsIgnoreCase("MAP")) {
 				map = new NWSRFS_MAP((String)(pppindex.getID()).get(i));
 					map.setLogicalUnitNum(logicalUnitNum);
-					map.setRecordNum(((Integer)(pppindex.getIREC()).get(i)).intValue());
+					map.setRecordNum(pppindex.getIREC(i));
 					mapAreaList.add(map.getID());
 			}
 		}
@@ -6369,8 +6995,8 @@ public List<String> readMATAreaList() throws Exception
 	// Get the logical unit for the parameter type.
 	for(int i=0;i<(pppindex.getPARMTP()).size();i++) {
 		if(((String)(pppindex.getPARMTP()).get(i)).equalsIgnoreCase("MAT")) {
-			logicalUnitNum = ((Integer)pppindex.getLUFILE().get(i)).intValue();
-			numberOFParamRecs = ((Integer)pppindex.getNUMPRM().get(i)).intValue();
+			logicalUnitNum = pppindex.getLUFILE(i);
+			numberOFParamRecs = pppindex.getNUMPRM(i);
 			break;
 		}
 	}
@@ -6386,7 +7012,7 @@ public List<String> readMATAreaList() throws Exception
 			if(((String)(pppindex.getPARMTP()).get(i)).equalsIgnoreCase("MAT")) {
 				mat = new NWSRFS_MAT((String)(pppindex.getID()).get(i));
 				mat.setLogicalUnitNum(logicalUnitNum);
-				mat.setRecordNum(((Integer)(pppindex.getFIRST()).get(i)).intValue());
+				mat.setRecordNum(pppindex.getFIRST(i));
 				matAreaList.add(mat.getID());
 				break;
 			}
@@ -6399,7 +7025,7 @@ public List<String> readMATAreaList() throws Exception
 			if(((String)(pppindex.getITYPE()).get(i)).equalsIgnoreCase("MAT")) {
 				mat = new NWSRFS_MAT((String)(pppindex.getID()).get(i));
 					mat.setLogicalUnitNum(logicalUnitNum);
-					mat.setRecordNum(((Integer)(pppindex.getIREC()).get(i)).intValue());
+					mat.setRecordNum(pppindex.getIREC(i));
 					matAreaList.add(mat.getID());
 			}
 		}
@@ -6470,8 +7096,8 @@ public List<String> readNTWKParamList() throws Exception
 	// Get the logical unit for the parameter type.
 	for(int i=0;i<(pppindex.getPARMTP()).size();i++) {
 		if(((String)(pppindex.getPARMTP()).get(i)).equalsIgnoreCase("NTWK")) {
-			logicalUnitNum = ((Integer)pppindex.getLUFILE().get(i)).intValue();
-			numberOFParamRecs = ((Integer)pppindex.getNUMPRM().get(i)).intValue();
+			logicalUnitNum = pppindex.getLUFILE(i);
+			numberOFParamRecs = pppindex.getNUMPRM(i);
 			break;
 		}
 	}
@@ -6487,7 +7113,7 @@ public List<String> readNTWKParamList() throws Exception
 			if(((String)(pppindex.getPARMTP()).get(i)).equalsIgnoreCase("NTWK")) {
 				network = new NWSRFS_NTWK((String)(pppindex.getID()).get(i));
 				network.setLogicalUnitNum(logicalUnitNum);
-				network.setRecordNum(((Integer)(pppindex.getFIRST()).get(i)).intValue());
+				network.setRecordNum(pppindex.getFIRST(i));
 				networkList.add(network.getID());
 				break;
 			}
@@ -6500,7 +7126,7 @@ public List<String> readNTWKParamList() throws Exception
 			if(((String)(pppindex.getITYPE()).get(i)).equalsIgnoreCase("NTWK")) {
 				network = new NWSRFS_NTWK((String)(pppindex.getID()).get(i));
 					network.setLogicalUnitNum(logicalUnitNum);
-					network.setRecordNum(((Integer)(pppindex.getIREC()).get(i)).intValue());
+					network.setRecordNum(pppindex.getIREC(i));
 					networkList.add(network.getID());
 			}
 		}
@@ -6523,6 +7149,17 @@ the FCPARAM binary database file. This class should be instantiated by the user.
 @throws NullPointerException if the segObject is null.
 */
 public List<NWSRFS_Operation> readOperations(NWSRFS_Segment segObject, boolean deepRead) 
+throws Exception {
+	long start = __metrics.startTimer();
+	try {
+		return readOperationsInternal(segObject, deepRead);
+	}
+	finally {
+		__metrics.stopTimer("readOperations", start);
+	}
+}
+
+private List<NWSRFS_Operation> readOperationsInternal(NWSRFS_Segment segObject, boolean deepRead) 
 throws Exception {
 //StopWatch sw1 = new StopWatch();
 //StopWatch sw2 = new StopWatch();
@@ -6678,8 +7315,8 @@ public List<String> readORRSParamList() throws Exception
 	// Get the logical unit for the parameter type.
 	for(int i=0;i<(pppindex.getPARMTP()).size();i++) {
 		if(((String)(pppindex.getPARMTP()).get(i)).equalsIgnoreCase("ORRS")) {
-			logicalUnitNum = ((Integer)pppindex.getLUFILE().get(i)).intValue();
-			numberOFParamRecs = ((Integer)pppindex.getNUMPRM().get(i)).intValue();
+			logicalUnitNum = pppindex.getLUFILE(i);
+			numberOFParamRecs = pppindex.getNUMPRM(i);
 			break;
 		}
 	}
@@ -6695,7 +7332,7 @@ public List<String> readORRSParamList() throws Exception
 			if(((String)(pppindex.getPARMTP()).get(i)).equalsIgnoreCase("NTWK")) {
 				orrsObj = new NWSRFS_ORRS((String)(pppindex.getID()).get(i));
 				orrsObj.setLogicalUnitNum(logicalUnitNum);
-				orrsObj.setRecordNum(((Integer)(pppindex.getFIRST()).get(i)).intValue());
+				orrsObj.setRecordNum(pppindex.getFIRST(i));
 				orrsList.add(orrsObj.getID());
 				break;
 			}
@@ -6708,7 +7345,7 @@ public List<String> readORRSParamList() throws Exception
 			if(((String)(pppindex.getITYPE()).get(i)).equalsIgnoreCase("ORRS")) {
 				orrsObj = new NWSRFS_ORRS((String)(pppindex.getID()).get(i));
 					orrsObj.setLogicalUnitNum(logicalUnitNum);
-					orrsObj.setRecordNum(((Integer)(pppindex.getIREC()).get(i)).intValue());
+					orrsObj.setRecordNum(pppindex.getIREC(i));
 					orrsList.add(orrsObj.getID());
 			}
 		}
@@ -6767,9 +7404,12 @@ throws Exception
 	char[] pppChar;
 	String parseChar = null;
 	EndianDataInputStream EDIS = null;
-	NWSRFS_PDBINDEX pdbindex = null;
+	NWSRFS_PDBINDEX pdbindex = readIndexSnapshot(__PDBINDEX, NWSRFS_PDBINDEX.class);
 	List<String> tempADDDTPVect = null;
-	List<Integer> tempADTPTRVect = null;
+	NWSRFS_IntColumn tempADTPTRVect = null;
+	if (pdbindex != null) {
+		return pdbindex;
+	}
 
 	try {
 		// Create the RandoAccessFile
@@ -6972,7 +7612,7 @@ throws Exception
 
 			// Now define and loop through station data type records
 			tempADDDTPVect = new Vector<String>();
-			tempADTPTRVect = new Vector<Integer>();
+			tempADTPTRVect = new NWSRFS_IntColumn(NADDTP);
 			
 			for (i = 0; i < NADDTP; i++) {
 				// Define the pppChar character array to hold segment info
@@ -6987,7 +7627,7 @@ throws Exception
 				parseChar = parseChar.trim();
 				tempADDDTPVect.add(parseChar);
 
-				tempADTPTRVect.add(new Integer((int)EDIS.readEndianShort()));
+				tempADTPTRVect.addInt((int)EDIS.readEndianShort());
 			}
 			
 			// Add the temp Vectors to the pdbindex object
@@ -7037,6 +7677,11 @@ throws Exception
 	finally {
 		EDIS.close();
 	}
+	// Release the space that was allocated for the index as it was read,
+	// and build the lookup table for RRS records.
+	pdbindex.trimToSize();
+	pdbindex.buildRRSRecordIndex();
+	writeIndexSnapshot(__PDBINDEX, pdbindex);
 	return pdbindex;
 }
 
@@ -7052,7 +7697,7 @@ private NWSRFS_PDBRRS readPDBRRS(String tsID, String tsDT, int tsDTInterval, boo
 {
 	char[] charValue = null;
 	EndianDataInputStream EDIS;
-	int i=0, j=0, recNum=-1, pdbAddDT=0, numObs=0;
+	int i=0, recNum=-1, numObs=0;
 	int checkInterval = 0;
 	int checkObsTime = 0;
 	float checkDataValue = 0;
@@ -7072,80 +7717,80 @@ private NWSRFS_PDBRRS readPDBRRS(String tsID, String tsDT, int tsDTInterval, boo
 	// Now read the Time Series parameter file to get the parameters
 	// for the Time series in the PRDTSn binary file.
 
-	// Read the first record to get the global values
-	EDIS = read(__NWSRFS_DBFiles[__PDBRRS], 0,__byteLength[__PDBRRS]);
+	// Read the first record to get the global values.  The values are the
+	// same for all stations so they are only read again if the file changes.
+	long headerTimestamp = getTSDatabaseTimestamp(__PDBRRS);
+	if (__pdbrrsHeader == null || __pdbrrsHeaderTimestamp != headerTimestamp) {
+		NWSRFS_PDBRRS header = new NWSRFS_PDBRRS("");
+		EDIS = read(__NWSRFS_DBFiles[__PDBRRS], 0,__byteLength[__PDBRRS]);
 
-	// Field 1 - Maximum primary record
-	pdbFile.setMAXREC(EDIS.readEndianInt());
+		// Field 1 - Maximum primary record
+		header.setMAXREC(EDIS.readEndianInt());
 	
-	// Field 2 - Next available primary record
-	pdbFile.setNEXTRC(EDIS.readEndianInt());
+		// Field 2 - Next available primary record
+		header.setNEXTRC(EDIS.readEndianInt());
 	
-	// Field 3 - Rec number of first free pool record
-	pdbFile.setFREE1(EDIS.readEndianInt());
+		// Field 3 - Rec number of first free pool record
+		header.setFREE1(EDIS.readEndianInt());
 	
-	// Field 4 - Rec number of next free pool record
-	pdbFile.setFREEN(EDIS.readEndianInt());
+		// Field 4 - Rec number of next free pool record
+		header.setFREEN(EDIS.readEndianInt());
 	
-	// Field 5 - Number of words in a free pool record
-	pdbFile.setFREEL(EDIS.readEndianInt());
+		// Field 5 - Number of words in a free pool record
+		header.setFREEL(EDIS.readEndianInt());
 	
-	// Field 6 - Ordinal number of daily data file in which free records are stored.
-	pdbFile.setLUFREE(EDIS.readEndianInt());
+		// Field 6 - Ordinal number of daily data file in which free records are stored.
+		header.setLUFREE(EDIS.readEndianInt());
 	
-	// Field 7 - Maximum free pool records
-	pdbFile.setMAXFRE(EDIS.readEndianInt());
+		// Field 7 - Maximum free pool records
+		header.setMAXFRE(EDIS.readEndianInt());
 	
-	// Field 8 - Length of longest observation period
-	pdbFile.setMAXPD(EDIS.readEndianInt());
+		// Field 8 - Length of longest observation period
+		header.setMAXPD(EDIS.readEndianInt());
 	
-	// Field 9 - Number of daily and RRS stations defined
-	pdbFile.setNUMSET(EDIS.readEndianInt());
+		// Field 9 - Number of daily and RRS stations defined
+		header.setNUMSET(EDIS.readEndianInt());
 	
-	// Field 10 - In use indicator
-	pdbFile.setINUSE(EDIS.readEndianInt());
+		// Field 10 - In use indicator
+		header.setINUSE(EDIS.readEndianInt());
 	
-	// Field 11 - User name
-	charValue = new char[8];
-	for (i = 0; i < 8; i++) {
-		charValue[i] = EDIS.readEndianChar1();
-	}
+		// Field 11 - User name
+		charValue = new char[8];
+		for (i = 0; i < 8; i++) {
+			charValue[i] = EDIS.readEndianChar1();
+		}
 			
-	parseChar = new String(charValue).trim();
+		parseChar = new String(charValue).trim();
 
-	if (parseChar.length() != 0) {
-		pdbFile.setUSER(parseChar);
-	}
+		if (parseChar.length() != 0) {
+			header.setUSER(parseChar);
+		}
 
-	// Close the Stream since the first record is read
-	EDIS.close();
-	
-	// Now pull the station data. We loop through PDBINDEX Station Vector till we find the correct station.
+		// Close the Stream since the first record is read
+		EDIS.close();
+
+		__pdbrrsHeader = header;
+		__pdbrrsHeaderTimestamp = headerTimestamp;
+	}
+	pdbFile.setMAXREC(__pdbrrsHeader.getMAXREC());
+	pdbFile.setNEXTRC(__pdbrrsHeader.getNEXTRC());
+	pdbFile.setFREE1(__pdbrrsHeader.getFREE1());
+	pdbFile.setFREEN(__pdbrrsHeader.getFREEN());
+	pdbFile.setFREEL(__pdbrrsHeader.getFREEL());
+	pdbFile.setLUFREE(__pdbrrsHeader.getLUFREE());
+	pdbFile.setMAXFRE(__pdbrrsHeader.getMAXFRE());
+	pdbFile.setMAXPD(__pdbrrsHeader.getMAXPD());
+	pdbFile.setNUMSET(__pdbrrsHeader.getNUMSET());
+	pdbFile.setINUSE(__pdbrrsHeader.getINUSE());
+	if (__pdbrrsHeader.getUSER() != null) {
+		pdbFile.setUSER(__pdbrrsHeader.getUSER());
+	}
+	
+	// Now pull the station data. The PDBINDEX object keeps a lookup table
+	// of the record number for each station and data type.
 	pdbIndex = getPDBIndex();
 	//station = readStation(tsID,true);
-	
-	for(i = 0; i < (pdbIndex.getSTAID()).size(); i++) {
-		pdbAddDT = pdbIndex.getNADDTP(i);
-//Message.printStatus(10,routine,"  Station ID = "+tsID+"\n  getSTAID("+i+") = "+
-//pdbIndex.getSTAID(i)+"\n   Station Num = "+station.getStationNum()+
-//"\n   getNUMID("+i+") = "+pdbIndex.getNUMID(i));
-		if(tsID.equalsIgnoreCase(pdbIndex.getSTAID(i))) {
-			// If the number of additional data types is <= 0
-			// then no more data types to check so continue!
-			// Now addDTIndex is the true Vector index holding the additional data types!
-			if(pdbAddDT > 0) {
-				for(j = 0; j < pdbAddDT; j++) {
-//Message.printStatus(10,routine,"    DataType = "+tsDT+
-//"\n  ADDDTP("+i+","+j+") = "+pdbIndex.getADDDTP(i,j));
-					if((pdbIndex.getADDDTP(i,j)).equalsIgnoreCase(tsDT)) {
-						recNum = pdbIndex.getADTPTR(i,j);
-						break; // Inner loop
-					}
-				}
-			}
-			break; // Outer loop
-		}
-	}
+	recNum = pdbIndex.getRRSRecordNumber(tsID, tsDT);
 
 	// Set pdbIndex to null to free up memory
 	pdbIndex = null;
@@ -7479,7 +8124,11 @@ is so that the index to the PPPPARMn binary file will be in memory.
 private NWSRFS_PPPINDEX readPPPINDEX() 
 throws Exception
 {
-	NWSRFS_PPPINDEX ptrFile = new NWSRFS_PPPINDEX();
+	NWSRFS_PPPINDEX ptrFile = readIndexSnapshot(__PPPINDEX, NWSRFS_PPPINDEX.class);
+	if (ptrFile != null) {
+		return ptrFile;
+	}
+	ptrFile = new NWSRFS_PPPINDEX();
 	long randomAccessFileLength = 0;
 	// Define the pppChar character array to hold segment info
 	char[] pppChar = new char[8];
@@ -7625,6 +8274,7 @@ throws Exception
 		}
 	}
 
+	writeIndexSnapshot(__PPPINDEX, ptrFile);
 	return ptrFile;
 }
 
@@ -7641,7 +8291,11 @@ is so that the index to the PRDTSn binary file will be in memory.
 */
 private NWSRFS_PRDINDEX readPRDINDEX() 
 throws Exception {
-	NWSRFS_PRDINDEX ptrFile = new NWSRFS_PRDINDEX();
+	NWSRFS_PRDINDEX ptrFile = readIndexSnapshot(__PRDINDEX, NWSRFS_PRDINDEX.class);
+	if (ptrFile != null) {
+		return ptrFile;
+	}
+	ptrFile = new NWSRFS_PRDINDEX();
 	int j;
 	EndianDataInputStream EDIS = null;
 	char[] prdChar;
@@ -7653,6 +8307,34 @@ throws Exception {
 		throw new Exception("Cannot open the " + __dbFileNames[__PRDINDEX] + " binary database file");
 	}
 
+	NWSRFS_MappedFile mappedFile = getMappedDBFile(__PRDINDEX);
+	if (mappedFile != null) {
+		// Read the records directly from the mapped file without creating
+		// a stream for each 16 byte record.
+		char[] tsidChar = new char[8];
+		char[] dtChar = new char[4];
+		String tsid;
+		long position;
+		long length = mappedFile.length();
+		for (position = 0; position + 16 <= length; position += __byteLength[__PRDINDEX]) {
+			tsid = mappedFile.getString(position, tsidChar, 8);
+			if (tsid.length() == 0) {
+				continue;
+			}
+			parseChar = mappedFile.getString(position + 8, dtChar, 4);
+			ptrFile.addTSID(tsid);
+			if (parseChar.length() == 0) {
+				// Same as below - the identifier is added without the data type
+				continue;
+			}
+			ptrFile.addTSDT(parseChar);
+			ptrFile.addIREC(checkInt(mappedFile.getInt(position + 12), 0, 1000000, -1));
+		}
+		ptrFile.buildRecordIndex();
+		writeIndexSnapshot(__PRDINDEX, ptrFile);
+		return ptrFile;
+	}
+
 	randomAccessFileLength = __NWSRFS_DBFiles[__PRDINDEX].length();
 	while(__NWSRFS_DBFiles[__PRDINDEX].getFilePointer()+16 <= randomAccessFileLength) {
 		// Get the first record set which holds PARMTP, LUFILE, FIRST, and LAST
@@ -7697,10 +8379,290 @@ throws Exception {
 
 		EDIS.close();
 	}
+
+	// Build the lookup table used to find the records for a time series
+	ptrFile.buildRecordIndex();
+	writeIndexSnapshot(__PRDINDEX, ptrFile);
 	
 	return ptrFile;
 }
 
+/**
+Reads the PRDPARM processed database file into an NWSRFS_PRDPARM object, and
+determines which PRDTS<i>n</i> file holds the time series for each unit number
+by reading the first word of each file.
+@return the NWSRFS_PRDPARM object holding the data type catalog.
+@throws Exception if PRDPARM cannot be opened or read.
+*/
+private NWSRFS_PRDPARM readPRDPARM()
+throws Exception {
+	String routine = "NWSRFS_DMI.readPRDPARM";
+	NWSRFS_PRDPARM prdparm = new NWSRFS_PRDPARM();
+	char[] charValue = null;
+	EndianDataInputStream EDIS = null;
+	int i, prdIndex;
+	String parseChar = null;
+
+	// Check if the the database binary file is open as a Random Access object
+	if (!checkRandomAccessFileOpenForReadAt(__PRDPARM)) {
+		throw new Exception("Cannot open the " + __dbFileNames[__PRDPARM] + " binary database file");
+	}
+
+	// Read the first record to get the global values (240 bytes)
+	EDIS = readAt(__NWSRFS_DBFiles[__PRDPARM], 0, 240);
+
+	// Field 1 - User identifier
+	charValue = new char[8];
+	for (i = 0; i < 8; i++) {
+		charValue[i] = EDIS.readEndianChar1();
+	}
+	parseChar = new String(charValue).trim();
+	if (parseChar.length() != 0) {
+		prdparm.setNAMERF(parseChar);
+	}
+
+	// Field 2 - Maximum number of data types
+	prdparm.setMAXDTP(checkInt(EDIS.readEndianInt(), 0, 200, -1));
+
+	// Field 3 - Maximum number of time series
+	prdparm.setMAXTMS(checkInt(EDIS.readEndianInt(), 0, 400, -1));
+
+	// Field 4 - Minimum number of days of observed data kept
+	prdparm.setMINDAY(checkInt(EDIS.readEndianInt(), 0, 365, -1));
+
+	// Skip an unused portion of the first record.
+	for (i = 0; i < 7; i++) {
+		EDIS.readEndianInt();
+	}
+
+	// Field 5 - Actual number of time series
+	prdparm.setNUMTMS(checkInt(EDIS.readEndianInt(), 0, 400, -1));
+
+	// Field 6 - Actual number of data types
+	prdparm.setNUMDTP(checkInt(EDIS.readEndianInt(), 0, 200, -1));
+
+	EDIS.close();
+
+	// Read the data type records (72 bytes each)
+	long parmPosition = 240;
+	long length = __NWSRFS_DBFiles[__PRDPARM].length();
+	charValue = new char[4];
+	while (parmPosition + __byteLength[__PRDPARM] <= length) {
+		EDIS = readAt(__NWSRFS_DBFiles[__PRDPARM], parmPosition, __byteLength[__PRDPARM]);
+		parmPosition += __byteLength[__PRDPARM];
+
+		// Field 1 - Data type code
+		for (i = 0; i < 4; i++) {
+			charValue[i] = EDIS.readEndianChar1();
+		}
+		parseChar = new String(charValue).trim();
+		if (parseChar.length() == 0) {
+			EDIS.close();
+			continue;
+		}
+
+		// Fields 2 through 15, in the order of the record
+		prdparm.addDataType(parseChar,
+			checkInt(EDIS.readEndianInt(), 1, 100, 1),		// IUNIT
+			checkInt(EDIS.readEndianInt(), 0, 200, -1),		// NCORE
+			checkInt(EDIS.readEndianInt(), 0, 365, -1),		// MAXDAY
+			checkInt(EDIS.readEndianInt(), 0, 24, -1),		// MINDT
+			checkInt(EDIS.readEndianInt(), 0, 10, 0),		// IPROC
+			checkInt(EDIS.readEndianInt(), -10000, 10000, 0),	// IFDAT
+			checkInt(EDIS.readEndianInt(), 0, 10000, -1),		// IFRECD
+			checkInt(EDIS.readEndianInt(), 0, 10000, -1),		// ILRECD
+			checkInt(EDIS.readEndianInt(), 0, 10000, -1),		// ICPTR
+			checkInt(EDIS.readEndianInt(), 0, 10, -1),		// ICALL
+			checkInt(EDIS.readEndianInt(), 0, 1000, -1),		// IDIM
+			checkInt(EDIS.readEndianInt(), -2, 24, -1),		// NVAL
+			checkInt(EDIS.readEndianInt(), 0, 100, -1),		// NXHDR
+			checkInt(EDIS.readEndianInt(), 0, 10000, -1));		// NUMTS
+		EDIS.close();
+	}
+
+	// The first word of each PRDTSn file is the logical unit number, which
+	// matches the IUNIT value of the data types stored in the file.
+	for (i = 0; i < 5; i++) {
+		prdIndex = __PRDTS1 + i;
+		if (!checkRandomAccessFileOpenForReadAt(prdIndex)) {
+			Message.printWarning(10, routine, "Cannot open the " + __dbFileNames[prdIndex]
+				+ " binary database file.  Time series in the file cannot be read.");
+			continue;
+		}
+		EDIS = readAt(__NWSRFS_DBFiles[prdIndex], 0, __WORDSIZE);
+		prdparm.setUnitFileIndex(EDIS.readEndianInt(), prdIndex);
+		EDIS.close();
+	}
+
+	return prdparm;
+}
+
+/**
+Returns the headers of all of the time series in the processed database, in
+PRDINDEX order.  The headers are read in one pass through the PRDTSn files,
+ordered by file and record, without creating NWSRFS_TimeSeries or HourTS
+objects.  The list is kept and is only read again if the PRDINDEX, PRDPARM, or
+PRDTSn files are modified, so it can be called repeatedly, for example to
+list the time series for each data type.
+@return an unmodifiable list of the time series headers.
+@throws Exception if the processed database files cannot be read.
+*/
+public List<NWSRFS_PRDTSHeader> readPRDTSHeaderList()
+throws Exception {
+	long timestamp = getTSDatabaseTimestamp(__PRDINDEX, __PRDPARM, __PRDTS1, __PRDTS1 + 4);
+	TimestampedValue<List<NWSRFS_PRDTSHeader>> headerList = __prdtsHeaderList;
+	if (headerList != null && headerList.timestamp == timestamp) {
+		__metrics.countCacheHit("PRDTSHeaders");
+		return headerList.value;
+	}
+	// Only callers that need the list wait while it is read.  Other reads
+	// from the processed database are not blocked.
+	__prdtsHeaderLock.lock();
+	try {
+		headerList = __prdtsHeaderList;
+		if (headerList == null || headerList.timestamp != timestamp) {
+			__metrics.countCacheMiss("PRDTSHeaders");
+			headerList = new TimestampedValue<List<NWSRFS_PRDTSHeader>>(
+				Collections.unmodifiableList(readPRDTSHeaders()), timestamp);
+			__prdtsHeaderList = headerList;
+		}
+		else {
+			__metrics.countCacheHit("PRDTSHeaders");
+		}
+		return headerList.value;
+	}
+	finally {
+		__prdtsHeaderLock.unlock();
+	}
+}
+
+/**
+Reads the header of each time series in PRDINDEX from the PRDTSn files.  See
+readPRDTSHeaderList().
+@return the list of time series headers, in PRDINDEX order.
+@throws Exception if the processed database files cannot be read.
+*/
+private List<NWSRFS_PRDTSHeader> readPRDTSHeaders()
+throws Exception {
+	String routine = "NWSRFS_DMI.readPRDTSHeaders";
+	checkPRDIndexRead();
+	final NWSRFS_PRDINDEX prdindex = getPRDIndex();
+	NWSRFS_PRDPARM prdparm = getPRDPARM();
+
+	// Determine the PRDTSn file for each PRDINDEX record.  Unused and
+	// deleted records, and records for data types that are not defined,
+	// are skipped.
+	int size = prdindex.getNumRecords();
+	final int[] fileIndexes = new int[size];
+	Integer[] order = new Integer[size];
+	int count = 0;
+	int i, parmIndex;
+	for (i = 0; i < size; i++) {
+		fileIndexes[i] = -1;
+		if (prdindex.getIREC(i) <= 0) {
+			continue;
+		}
+		parmIndex = prdparm.getDataTypeIndex(prdindex.getTSDT(i));
+		if (parmIndex < 0) {
+			continue;
+		}
+		fileIndexes[i] = prdparm.getUnitFileIndex(prdparm.getIUNIT(parmIndex));
+		if (fileIndexes[i] >= 0) {
+			order[count++] = new Integer(i);
+		}
+	}
+
+	// Read the headers in file and record order so that each PRDTSn file
+	// is read from start to end.
+	Arrays.sort(order, 0, count, new Comparator<Integer>() {
+		public int compare(Integer i1, Integer i2) {
+			int index1 = i1.intValue();
+			int index2 = i2.intValue();
+			if (fileIndexes[index1] != fileIndexes[index2]) {
+				return fileIndexes[index1] < fileIndexes[index2] ? -1 : 1;
+			}
+			int recordNum1 = prdindex.getIREC(index1);
+			int recordNum2 = prdindex.getIREC(index2);
+			if (recordNum1 != recordNum2) {
+				return recordNum1 < recordNum2 ? -1 : 1;
+			}
+			return index1 < index2 ? -1 : (index1 == index2 ? 0 : 1);
+		}
+	});
+
+	NWSRFS_PRDTSHeader[] headers = new NWSRFS_PRDTSHeader[size];
+	NWSRFS_PRDTSHeader header = null;
+	EndianDataInputStream EDIS = null;
+	char[] charValue = new char[20];
+	int fileIndex = -1, index, j, recordNum;
+	for (i = 0; i < count; i++) {
+		index = order[i].intValue();
+		if (fileIndexes[index] != fileIndex) {
+			fileIndex = fileIndexes[index];
+			if (!checkRandomAccessFileOpenForReadAt(fileIndex)) {
+				throw new Exception("Cannot open the " + __dbFileNames[fileIndex] + " binary database file");
+			}
+		}
+		recordNum = prdindex.getIREC(index);
+		header = new NWSRFS_PRDTSHeader(prdindex.getTSID(index),
+			prdindex.getTSDT(index), fileIndex, recordNum);
+		try {
+			// The fixed part of the header is 72 bytes (see readPRDTS()).
+			EDIS = readAt(__NWSRFS_DBFiles[fileIndex], (long)(recordNum - 1)*64, 72);
+
+			// Header length
+			EDIS.readByte();
+			header.setIDTINT(EDIS.readByte());
+			header.setNVLINT(EDIS.readByte());
+			EDIS.readByte();
+			header.setNTSMAX(EDIS.readEndianShort());
+			header.setNTSNUM(EDIS.readEndianShort());
+			header.setIPTREG(EDIS.readEndianShort());
+			header.setIPTFUT(EDIS.readEndianShort());
+
+			// Skip the TSID and DataType, which are in PRDINDEX
+			for (j = 0; j < 12; j++) {
+				EDIS.readEndianChar1();
+			}
+
+			for (j = 0; j < 4; j++) {
+				charValue[j] = EDIS.readEndianChar1();
+			}
+			header.setTSUNIT(new String(charValue, 0, 4).trim());
+			header.setTSLAT(EDIS.readEndianFloat());
+			header.setTSLONG(EDIS.readEndianFloat());
+			header.setJULBEG(EDIS.readEndianInt());
+			header.setITSFUT(EDIS.readEndianInt());
+
+			// Skip the next word and the next record number
+			EDIS.readEndianInt();
+			EDIS.readEndianInt();
+
+			for (j = 0; j < 20; j++) {
+				charValue[j] = EDIS.readEndianChar1();
+			}
+			header.setTSDESC(new String(charValue, 0, 20).trim());
+			EDIS.close();
+		}
+		catch (IOException e) {
+			exceptionCount++;
+			Message.printWarning(2, routine, "Unable to read the header for "
+				+ header.getTSID() + "." + header.getTSDataType() + " at record "
+				+ recordNum + " of " + __dbFileNames[fileIndex] + " (" + e + ").");
+			continue;
+		}
+		headers[index] = header;
+	}
+
+	List<NWSRFS_PRDTSHeader> headerList = new Vector<NWSRFS_PRDTSHeader>(count);
+	for (i = 0; i < size; i++) {
+		if (headers[i] != null) {
+			headerList.add(headers[i]);
+		}
+	}
+	return headerList;
+}
+
 /**
 This method reads Time Series directly from the PRDTS<i>n</i> binary database file
 where <i>n</i> is determined from the PRDINDEX file and the UNIT NUMBER parameter 
@@ -7726,9 +8688,14 @@ NWSRFS_TimeSeries tsFile, boolean readData) throws Exception {
 
 	// Read the header record. Remember that recordNum is the record number
 	// read from the PRDINDEX file. First must get the length of the header prior to the full read.
-// TODO (JTS - 2004-08-21)
-// explain the magic numbers 64 and 6	
-	EDIS = read(RA,recordNum-1, 64, 6);
+	// Records are 64 bytes and the first 6 bytes contain the header length.
+	// Positional reads are used so that the file pointer of the shared
+	// file is not used, allowing concurrent reads.
+	long recordPosition = 0;
+	if (recordNum > 0) {
+		recordPosition = (long)(recordNum - 1) * 64;
+	}
+	EDIS = readAt(RA, recordPosition, 6);
 	// Field 1 - [type field name here]
 	tsFile.setLTSHDR((byte)EDIS.readByte());
 	
@@ -7755,7 +8722,7 @@ NWSRFS_TimeSeries tsFile, boolean readData) throws Exception {
 	// TODO (JTS - 2004-08-18) should probably explain these magic numbers
 	EDIS.close();
 	int bytesToRead = ((int)tsFile.getLTSHDR() + (int)tsFile.getNXHDR()) * __WORDSIZE - 6;	
-	EDIS = read(RA, 0, 64, bytesToRead);
+	EDIS = readAt(RA, recordPosition + 6, bytesToRead);
 
 	// Field 5 - [type field name here]
 	tsFile.setNTSNUM((short)EDIS.readEndianShort());
@@ -7939,63 +8906,43 @@ NWSRFS_TimeSeries tsFile, boolean readData) throws Exception {
 		return true;
 	}
 
-	// Get the Observed/Regular data.  First rewind the file
-	// Now read from the PRDTSn file to get the actual Time Series data
+	// Get the Observed/Regular data.
 	EDIS.close();
-	rewind(RA);
 
-	// Now seek to the beginning of the record + location of first regular
-	// data value in record. Remember the minimum length of a TS header 
-	// is 72 bytes then add the length of any extra header info.
-// TODO (JTS - 2004-08-21) explain the magic number 64 and 72	
+	// The observed data start at the beginning of the record + location of
+	// first regular data value in record. Remember the minimum length of a
+	// TS header is 72 bytes then add the length of any extra header info.
+	// Records in PRDTSn are 64 bytes and recordNum is 1-based.
+	// The data are decoded as a block and then transferred to the time
+	// series using a single DateTime that is incremented by the data
+	// interval, rather than creating a DateTime for each value.
+	long dataPosition = 0;
 	if (recordNum > 0) {
-		seek(RA, (recordNum - 1) * 64 + (72 + (int)tsFile.getNXHDR() * __WORDSIZE), true);
+		dataPosition = recordPosition + (72 + (int)tsFile.getNXHDR() * __WORDSIZE);
 	}
-
-	// Read the data and insert into the HourTS object
-// TODO (JTS - 2004-08-21) explain the magic number 64	
-	EDIS = read(RA, 0, 64, obsDataNum * __WORDSIZE);
-	float floatValue;
-	for (i = 0;i < obsDataNum; i++) {
-		floatValue = EDIS.readEndianFloat();
-		dtTemp = NWSRFS_Util.getDateFromJulianHour1900(startObsJul + i * (int)tsFile.getIDTINT());
-		dtTemp.setTimeZone("Z");
-		tsFile.getObservedTS().setDataValue(dtTemp,(double)floatValue);
-//Message.printWarning(10,routine,i+": Observation Data["+dtTemp.toString()+"] = "+floatValue);
+	int interval = (int)tsFile.getIDTINT();
+	float[] values = readFloats(RA, dataPosition, obsDataNum);
+	TS ts = tsFile.getObservedTS();
+	dtTemp = NWSRFS_Util.getDateFromJulianHour1900(startObsJul);
+	dtTemp.setTimeZone("Z");
+	for (i = 0; i < obsDataNum; i++) {
+		ts.setDataValue(dtTemp,(double)values[i]);
+		dtTemp.addHour(interval);
 	}
 
-	// If there is future data read that into the FutureTS object
+	// If there is future data read that into the FutureTS object.  The
+	// future data immediately follow the observed data in the record.
 	if (tsFile.getIPTFUT() != 0) {
-		// First rewind the file
-		// Now read from the PRDTSn file to get the actual Time Series data
-		EDIS.close();
-		rewind(RA);
-
-		// Now seek to the beginning of the record + location 
-		// of first future data value in record. The minimum length of a TS header is 72.
-// TODO (JTS - 2004-08-21) explain the magic number 64 and 72		
-		if (recordNum > 0) {
-			seek(RA,
-				(recordNum - 1) * 64 
-				+ (72 + (int)tsFile.getNXHDR() * __WORDSIZE 
-				+ (obsDataNum) * __WORDSIZE),
-				true);
-		}
-
-		// Read the data and insert into the HourTS object
-// TODO (JTS - 2004-08-21) explain the magic number 64		
-		EDIS = read(RA, 0, 64, futDataNum * __WORDSIZE);
+		values = readFloats(RA, dataPosition + obsDataNum * __WORDSIZE, futDataNum);
+		ts = tsFile.getFutureTS();
+		dtTemp = NWSRFS_Util.getDateFromJulianHour1900(startFutJul);
+		dtTemp.setTimeZone("Z");
 		for (i = 0; i < futDataNum; i++) {
-			floatValue = EDIS.readEndianFloat();
-			dtTemp = NWSRFS_Util.getDateFromJulianHour1900(startFutJul + i * (int)tsFile.getIDTINT());
-			dtTemp.setTimeZone("Z");
-			tsFile.getFutureTS().setDataValue(dtTemp,(double)floatValue);
-//Message.printWarning(10,routine,i+": Future Data["+dtTemp.toString()+"] = "+floatValue);
+			ts.setDataValue(dtTemp,(double)values[i]);
+			dtTemp.addHour(interval);
 		}
 	}
 
-	EDIS.close();
-	
 	return true;
 }
 
@@ -8013,6 +8960,17 @@ instantiated by the user.
 ID could not be found in the database or if there was an error reading the data.
 */
 public NWSRFS_RatingCurve readRatingCurve(String ratingCurveID) 
+throws Exception {
+	long start = __metrics.startTimer();
+	try {
+		return readRatingCurveInternal(ratingCurveID);
+	}
+	finally {
+		__metrics.stopTimer("readRatingCurve", start);
+	}
+}
+
+private NWSRFS_RatingCurve readRatingCurveInternal(String ratingCurveID) 
 throws Exception {
 	// Check to see if the rating curve pointer object exists. If not create it.
 	if (_fcrcptr == null) {
@@ -8314,37 +9272,31 @@ from the FCSEGSTS binary database file. This class should be instantiated by the
 public NWSRFS_Segment readSegment(String segmentID,NWSRFS_ForecastGroup FG, boolean deepRead) 
 throws Exception
 {
-	StopWatch mainsw = new StopWatch();
-	mainsw.start();
-	// Check to see if the Segment pointer object exists. If not create it to find the record number.
-	StopWatch sw1 = new StopWatch();
-	sw1.start();
-	if (_fcsegptr == null) {
-		_fcsegptr = readFCSEGPTR();
+	long start = __metrics.startTimer();
+	try {
+		return readSegmentInternal(segmentID, FG, deepRead);
 	}
+	finally {
+		__metrics.stopTimer("readSegment", start);
+	}
+}
 
-	long recordNum = -1;
-	long tempIREC = -1;
-	List enIREC = _fcsegptr.getIREC();
-	List enISEG = _fcsegptr.getISEG();
-	//Get the records from FCSEGPTR file
-	for ( int i = 0; i < enISEG.size(); i++ ) {
-		String tempISEG = (String)enISEG.get(i);
-		tempIREC = ((Integer)enIREC.get(i)).longValue();
-
-		if (tempISEG.equalsIgnoreCase(segmentID)) {
-			recordNum = tempIREC;
-		}
+private NWSRFS_Segment readSegmentInternal(String segmentID,NWSRFS_ForecastGroup FG, boolean deepRead) 
+throws Exception
+{
+	// Check to see if the Segment pointer object exists. If not create it to find the record number.
+	if (_fcsegptr == null) {
+		_fcsegptr = readFCSEGPTR();
 	}
+
+	// Get the record from the FCSEGPTR segment table
+	long recordNum = _fcsegptr.getSegmentRecordNumber(segmentID);
 	
 	NWSRFS_Segment segFile = null;
-	sw1.stop();
-	StopWatch sw2 = new StopWatch();
 	if (recordNum == -1) {
 		throw new Exception("NWSRFS_Segment: Segment ID: " + segmentID + " not found");
 	}
 	else {	
-		sw2.start();
 		char[] charValue = null;
 		int i = 0;
 		int j = 0;
@@ -8511,39 +9463,21 @@ throws Exception
 
 			EDIS.close();
 		}
-		sw2.stop();
 	}
 
-	StopWatch sw3 = new StopWatch();
-	StopWatch sw4 = new StopWatch();
-	StopWatch sw5 = new StopWatch();
-
 	// Set the Forecast Group as parent to the Segment if not null
 	if (FG != null) {
-		sw3.start();
 		segFile.setForecastGroup(FG);
-		sw3.stop();
 	}
 
 	// Create and add the Operation Object (contains Vectors of Operations) associated with this Segment 
-	sw4.start();
+	// (readOperations() and readCarryover() are timed separately in the metrics)
 	readOperations(segFile, deepRead);
-	sw4.stop();
 
 	// Do not read all of the carryover slots if only reading IDs.
 	// Create and add the Carryover Object (contains Vectors of Carryover values) associated with this Segment 
-	sw5.start();
 	readCarryover(segFile, deepRead);
-	sw5.stop();
-
-	mainsw.stop();
-	//Message.printStatus(1, "", "readSegment: " + mainsw.getSeconds());
-	//Message.printStatus(1, "", "      Setup: " + sw1.getSeconds());
-	//Message.printStatus(1, "", "       Read: " + sw2.getSeconds());
-	//Message.printStatus(1, "", "         FG: " + sw3.getSeconds());
-	//Message.printStatus(1, "", "         OP: " + sw4.getSeconds());
-	//Message.printStatus(1, "", "         CG: " + sw5.getSeconds());
-	//Message.printStatus(1, "", "");
+
 	return segFile;
 }	
 
@@ -8589,6 +9523,18 @@ from the PPDB or just general parameters.
 */
 public NWSRFS_Station readStation(NWSRFS_Station station, boolean deepRead) 
 throws Exception
+{
+	long start = __metrics.startTimer();
+	try {
+		return readStationInternal(station, deepRead);
+	}
+	finally {
+		__metrics.stopTimer("readStation", start);
+	}
+}
+
+private NWSRFS_Station readStationInternal(NWSRFS_Station station, boolean deepRead) 
+throws Exception
 {
 	NWSRFS_PPPINDEX pppindex = getPPPIndex();
 	Integer logicalUnitNumGENL = new Integer(-1), 
@@ -9075,6 +10021,19 @@ only read header information).
 public TS readTimeSeries(String tsident_string, DateTime requested_date1,
 DateTime requested_date2, String req_units, boolean read_data) 
 throws Exception
+{
+	long start = __metrics.startTimer();
+	try {
+		return readTimeSeriesInternal(tsident_string, requested_date1, requested_date2, req_units, read_data);
+	}
+	finally {
+		__metrics.stopTimer("readTimeSeries", start);
+	}
+}
+
+private TS readTimeSeriesInternal(String tsident_string, DateTime requested_date1,
+DateTime requested_date2, String req_units, boolean read_data) 
+throws Exception
 {
 	String routine = "NWSRFS_DMI.readTimeSeries";
 	int tsDTInterval = -1;
@@ -9137,13 +10096,13 @@ throws Exception
 	Message.printStatus(10, routine, "Units: " + req_units );
 
 	if (inputType.equalsIgnoreCase("NWSRFS_ESPTraceEnsemble")) {
-		NWSRFS_ESPTraceEnsemble espTE = readESPTraceEnsemble(tsident.getInputName(), read_data);
-		// TODO (JTS - 2004-08-21) ts never instantiated above -- will get null pointers if this if() {} is ever entered.
-		ts = new HourTS();
-		ts.setIdentifier(tsident);
-		ts.setInputName(inputDir);
-		ts.allocateDataSpace();
-		ts = new HourTS((HourTS)espTE.readTimeSeries(tsident_string, req_date1, req_date2, req_units, read_data));
+		// Read only the requested trace, using the shared cache of open ensembles so
+		// that the file is not reopened and decoded for each trace.  Only the
+		// months overlapping the requested period are read.  The traces are in
+		// local time so use the requested dates as passed in...
+		ts = NWSRFS_ESPTraceEnsembleCache.getSharedCache().readTimeSeries(
+			tsident.getInputName(), tsident.getSequenceID(), requested_date1,
+			requested_date2, read_data);
 	}
 	else if (inputType.equalsIgnoreCase("NWSRFS_FS5Files") || inputType.length() == 0) {
 		// Read the requested time series from the binary FS5 Files specified by the input directory...
@@ -9185,7 +10144,15 @@ throws Exception
 		// future data.  Need to further clean up when there is time.
 
 		if(subDataType.equalsIgnoreCase("PPDB")) {
-			tsObject = readTimeSeriesPDB(dataLoc, dataType, tsDTInterval, read_data);
+			// The preprocessor database reads use the shared file pointers
+			// so only allow one thread at a time to read.
+			__pdbLock.lock();
+			try {
+				tsObject = readTimeSeriesPDB(dataLoc, dataType, tsDTInterval, read_data);
+			}
+			finally {
+				__pdbLock.unlock();
+			}
 			dataScenario = "obs";
 		}
 		else {
@@ -9481,6 +10448,19 @@ only read header information).
 public List readTimeSeriesList(String tsident_string, DateTime req_date1,
 DateTime req_date2, String req_units, boolean read_data) 
 throws Exception
+{
+	long start = __metrics.startTimer();
+	try {
+		return readTimeSeriesListInternal(tsident_string, req_date1, req_date2, req_units, read_data);
+	}
+	finally {
+		__metrics.stopTimer("readTimeSeriesList", start);
+	}
+}
+
+private List readTimeSeriesListInternal(String tsident_string, DateTime req_date1,
+DateTime req_date2, String req_units, boolean read_data) 
+throws Exception
 {	String routine = "NWSRFS_DMI.readTimeSeriesList";
 	int i, j, k, tsDTInterval = -1;
 	List tsList = new Vector();
@@ -9521,12 +10501,11 @@ throws Exception
 
 	TS ts = null;
 	if (inputType.equalsIgnoreCase("NWSRFS_ESPTraceEnsemble")) {
-		NWSRFS_ESPTraceEnsemble espTE = readESPTraceEnsemble( tsident.getInputName(), read_data);
-
-		ts = new HourTS();
-		ts.allocateDataSpace();
-		ts = new HourTS((HourTS)espTE.readTimeSeries(tsident_string,
-			req_date1, req_date2, req_units, read_data));
+		// Read only the requested trace, using the shared cache of open ensembles,
+		// and only the months overlapping the requested period...
+		ts = NWSRFS_ESPTraceEnsembleCache.getSharedCache().readTimeSeries(
+			tsident.getInputName(), tsident.getSequenceID(), req_date1,
+			req_date2, read_data);
 		tsList.add(ts);
 	}
 	else if (inputType.equalsIgnoreCase("NWSRFS_FS5Files") ||
@@ -9607,36 +10586,145 @@ throws Exception
 		else {	
 			parseString =StringUtil.replaceString(dataLoc,"*",".*");
 		}
+		// First determine the identifiers to read and then read the
+		// time series, in parallel if requested (see setReadParallelism()).
+		List<String> tsidentStrings = new Vector<String>();
 		for ( i = 0; i < size; i++ ) {			
-			// The try/catch here so that an error on one time
-			// series does not error out the whole read process.
-			// For now assume it is not needed because the header was read successfully.
+			if ( transfer_all || StringUtil.matchesIgnoreCase(
+				((TSIdent)tsIdentList.get(i)).getLocation(),parseString)) {
+				if(((TSIdent)tsIdentList.get(i)).getIdentifier() == null) {
+					Message.printWarning (2, routine,
+							"Unable to read time series - the TS Ident String is null." );
+					continue;
+				}
+				tsidentStrings.add(((TSIdent)tsIdentList.get(i)).getIdentifier());
+			}
+		}
+		// An error on one time series does not error out the whole read
+		// process - the problems are logged in readTimeSeriesList().
+		List<TS> tsRead = readTimeSeriesList(tsidentStrings, req_date1, req_date2, req_units,
+			read_data, __readParallelism, null);
+		for ( i = 0; i < tsRead.size(); i++ ) {
+			ts = tsRead.get(i);
+			if ( ts == null ) {
+				Message.printWarning (20, routine, "Unable to read time series for \"" +
+				tsidentStrings.get(i) + "\" - not adding to returned list." );
+			}
+			else {	
+				tsList.add(ts);
+			}
+		}
+	}
+	
+	return tsList;
+}
+
+/**
+Read a list of time series, given their full identifiers.  The time series are
+read using readTimeSeries() and can be read in parallel using multiple threads,
+which share this DMI.  The returned list is in the same order as the
+identifiers, regardless of the order in which the reads complete.  An error
+reading one time series does not stop the other time series from being read.
+@param tsidentStrings the time series identifier strings to read (see readTimeSeries()).
+@param req_date1 Optional date to specify the start of the query (specify 
+null to read the entire time series).
+@param req_date2 Optional date to specify the end of the query (specify 
+null to read the entire time series).
+@param req_units requested data units (specify null or blank string to 
+return units from the database).
+@param read_data Indicates whether data should be read (specify false to 
+only read header information).
+@param parallelism the number of threads to use for the reads.  If 1 or less,
+the time series are read one after the other in the calling thread.
+@param problems if not null, a list that is filled with one entry for each
+identifier, null if the time series was read successfully, or the exception
+that occurred while reading the time series.
+@return a list with one entry for each identifier, which is the time series
+that was read, or null if the time series could not be read.
+@exception Exception if the reads are interrupted.
+*/
+public List<TS> readTimeSeriesList(List<String> tsidentStrings, final DateTime req_date1,
+final DateTime req_date2, final String req_units, final boolean read_data,
+int parallelism, List<Exception> problems)
+throws Exception
+{
+	long start = __metrics.startTimer();
+	try {
+		return readTimeSeriesListInternal(tsidentStrings, req_date1, req_date2, req_units, read_data, parallelism, problems);
+	}
+	finally {
+		__metrics.stopTimer("readTimeSeriesList", start);
+	}
+}
+
+private List<TS> readTimeSeriesListInternal(List<String> tsidentStrings, final DateTime req_date1,
+final DateTime req_date2, final String req_units, final boolean read_data,
+int parallelism, List<Exception> problems)
+throws Exception
+{	String routine = "NWSRFS_DMI.readTimeSeriesList";
+	int size = 0;
+	if ( tsidentStrings != null ) {
+		size = tsidentStrings.size();
+	}
+	List<TS> tsList = new Vector<TS>(size);
+	Exception [] errors = new Exception[size];
+	if ( (parallelism <= 1) || (size <= 1) ) {
+		for ( int i = 0; i < size; i++ ) {
 			try {
-				if ( transfer_all || StringUtil.matchesIgnoreCase(
-					((TSIdent)tsIdentList.get(i)).getLocation(),parseString)) {
-					if(((TSIdent)tsIdentList.get(i)).getIdentifier() == null) {
-						Message.printWarning (2, routine,
-								"Unable to read time series - the TS Ident String is null." );
-						continue;
+				tsList.add(readTimeSeries(tsidentStrings.get(i), req_date1, req_date2,
+					req_units, read_data));
+			}
+			catch ( Exception e ) {
+				tsList.add(null);
+				errors[i] = e;
+			}
+		}
+	}
+	else {
+		// Each read is a separate task, and the results are retrieved in
+		// the order of the identifiers.
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, size));
+		try {
+			List<Future<TS>> futures = new Vector<Future<TS>>(size);
+			for ( int i = 0; i < size; i++ ) {
+				final String tsidentString = tsidentStrings.get(i);
+				futures.add(executor.submit(new Callable<TS>() {
+					public TS call() throws Exception {
+						return readTimeSeries(tsidentString, req_date1, req_date2,
+							req_units, read_data);
 					}
-					
-					ts = readTimeSeries( ((TSIdent)
-						tsIdentList.get(i)).getIdentifier(), req_date1, req_date2, req_units, read_data);
-					if ( ts == null ) {
-						Message.printWarning (20, routine, "Unable to read time series for \"" +
-						((TSIdent)tsIdentList.get(i)).getIdentifier() +
-						"\" - not adding to returned list." );
+				}));
+			}
+			for ( int i = 0; i < size; i++ ) {
+				try {
+					tsList.add(futures.get(i).get());
+				}
+				catch ( ExecutionException e ) {
+					tsList.add(null);
+					if ( e.getCause() instanceof Exception ) {
+						errors[i] = (Exception)e.getCause();
 					}
-					else {	
-						tsList.add(ts);
+					else {
+						errors[i] = e;
 					}
 				}
-			} catch(Exception e) {
-				Message.printWarning(10,routine,e);
 			}
 		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+	for ( int i = 0; i < size; i++ ) {
+		if ( errors[i] != null ) {
+			exceptionCount++;
+			Message.printWarning(3, routine, "Error reading time series \"" +
+				tsidentStrings.get(i) + "\" (" + errors[i] + ").");
+			Message.printWarning(10, routine, errors[i]);
+		}
+		if ( problems != null ) {
+			problems.add(errors[i]);
+		}
 	}
-	
 	return tsList;
 }
 
@@ -9652,6 +10740,18 @@ identifiers for the data type.
 */
 public List readTSIdentListPDB(String tsID, String requestedDataType, String requestedInterval)
 throws Exception
+{
+	long start = __metrics.startTimer();
+	try {
+		return readTSIdentListPDBInternal(tsID, requestedDataType, requestedInterval);
+	}
+	finally {
+		__metrics.stopTimer("readTSIdentListPDB", start);
+	}
+}
+
+private List readTSIdentListPDBInternal(String tsID, String requestedDataType, String requestedInterval)
+throws Exception
 {   String routine = "NWSRFS_DMI.readTSIdentListPDB";
 	int pdbAddDT;
 	String timeInt = null;
@@ -9891,198 +10991,67 @@ both data from the database. This value is appended to the TSIdent String.
 */
 public List readTSIdentListPRD(String dataType, int interval, String dataScenario) 
 throws Exception
-{	String routine = "NWSRFS_DMI.readTSIdentListPRD";
-	int prdIndex = 1;
-	
-	// Check if the the database binary file is open as a Random Access object
-	if (!checkRandomAccessFileOpen(__PRDPARM, true)) {
-		throw new Exception("Cannot open the " + __dbFileNames[__PRDPARM] + " binary database file");
+{
+	long start = __metrics.startTimer();
+	try {
+		return readTSIdentListPRDInternal(dataType, interval, dataScenario);
 	}
-
-	// Now read the Time Series parameter file to get the parameters
-	// for the Time series in the PRDTSn binary file. Read the first record first (240 bytes)
-	EndianDataInputStream EDISParm = read(__NWSRFS_DBFiles[__PRDPARM], 0, 240);
-	char[] charValue = null;
-	int i = -1;
-	int unitNumber = -1;
-	String parseChar = null;
-	while (true) {
-		// Read until EOF or break.
-		try {
-			// Read in subsequent record (72 bytes each)
-			// Read the record 
-			EDISParm = read(__NWSRFS_DBFiles[__PRDPARM],0,72);
-
-			// Field 1 - [type field name here]
-			charValue = new char[4];
-			for (i = 0; i < 4; i++) {
-				charValue[i] = EDISParm.readEndianChar1();
-			}
-				
-			parseChar = new String(charValue).trim();
-
-			// Uncomment for troubleshooting
-			//Message.printStatus ( 2, routine, "Requested type = \"" + dataType +
-			//        "\", read \"" + parseChar + "\"" );
-			if (parseChar.length() == 0 || !parseChar.equalsIgnoreCase(dataType)) {
-			    // Data type from file does not match requested type.
-				continue;
-			}
-
-			// Field 2 - [type field name here]
-			unitNumber = EDISParm.readEndianInt();
-
-			break;
-		}
-		catch (EOFException EOFe) {
-			exceptionCount++;
-		// TODO (JTS - 2004-08-21) expensive!
-			break;
-		}
+	finally {
+		__metrics.stopTimer("readTSIdentListPRD", start);
 	}
+}
 
-	// Close the EndianDataInputStream
-	EDISParm.close();
-
-	// If the__isOpen[fileIndex] is false open the database binary file as a Random Access object.
-	// Create the tsDataFile String. Need to loop through all 5 of the TS files until find right unit number. 
-	// If LUNIT from the PRDTSn equals the IUNIT value from the PRDPARM file then have the right
-	// Time Series file to read the TS into.
-	EndianDataInputStream EDISData = null;
-	//String prdtsDataFile = null;
-	for (i = 0; i < 5; i++) {
-		prdIndex = (int)new Integer(String.valueOf(__PRDTS1 + i)).intValue();
-		/* TODO SAM 2008-04-07 What are these used for?
-		if (__useFS5Files) {
-			prdtsDataFile = __fs5FilesLocation + __dbFileNames[prdIndex] + i; 
+private List readTSIdentListPRDInternal(String dataType, int interval, String dataScenario) 
+throws Exception
+{	List tsidVector = new Vector();
+
+	// The headers of all of the time series are read once (see
+	// readPRDTSHeaderList()) and are filtered here, rather than reading
+	// PRDINDEX and each PRDTSn header for each data type and interval.
+	List<NWSRFS_PRDTSHeader> headerList = readPRDTSHeaderList();
+	int size = headerList.size();
+	NWSRFS_PRDTSHeader header = null;
+	String dataIntString = null;
+	String tsid = null;
+	String tsIdentString = null;
+	for (int i = 0; i < size; i++) {
+		header = headerList.get(i);
+		if (!header.getTSDataType().equalsIgnoreCase(dataType)) {
+			continue;
 		}
-		else {
-			prdtsDataFile = __dbFileNames[prdIndex]+i; 
+		tsid = header.getTSID();
+		if (tsid.length() == 0) {
+			continue;
 		}
-		*/
-
-		// Check if the the database binary file is open as a Random Access object
-		if (!checkRandomAccessFileOpen(prdIndex, true)) {
-			throw new Exception("Cannot open the " + __dbFileNames[prdIndex] + " binary database file");
+		else if(tsid.indexOf('.') >= 0 || tsid.indexOf('~') >= 0) {
+		    // Uncomment for troubleshooting
+			//Message.printStatus(2,routine,	"Time series identifier \""+tsid+
+			//"\" contains an illegal character (. or ~).  The time series will be skipped.");
+			continue;
 		}
 
-		EDISData = read(__NWSRFS_DBFiles[prdIndex],0,4,5);
-
-		if (unitNumber == EDISData.readEndianInt()) {
-			break;
-		}
+		// Check to see if the data interval equals the value passed in. If so add to the tsID Vector otherwise
+		// continue. If the passed in interval is 0 or -1 then assume to pickup all tsIDs.
+		if (header.getIDTINT() == interval || interval <= 0) {
+			dataIntString = "" + header.getIDTINT() + "Hour";
+		} 
 		else {
-			EDISData.close();
+			continue;
 		}
-	}
-
-	// Check if the the database binary file is open as a Random Access object
-	if (!checkRandomAccessFileOpen(__PRDINDEX, true)) {
-		throw new Exception("Cannot open the " + __dbFileNames[__PRDINDEX] + " binary database file");
-	}
-
-	// Now read the Time Series index file to get the Record number
-	// for the Time series in the PRDTSn binary file.
-	byte dataInterval = 0;
-	EndianDataInputStream EDISIndex = null;
-	int recordNum = -1;
-	String dataIntString = null;
-	String tsid = null;
-	String tsIdentString = null;
-	List tsidVector = new Vector();
-	while (true) {
-		// Read until EOF or break.
-		try {
-			// Read the record 
-			EDISIndex = read(__NWSRFS_DBFiles[__PRDINDEX],0,16);
-
-			// Field 1 - [type field name here]
-			charValue = new char[8]; 
-			for (i = 0; i < 8; i++) {
-				charValue[i] = EDISIndex.readEndianChar1();
-			}
-				
-			parseChar = new String(charValue).trim();
-		
-			if (parseChar.length() == 0) {
-			     // Uncomment for troubleshooting
-	             //Message.printStatus(2,routine, "Time series identifier \""+parseChar+
-	             //   "\" is blank.  The time series will be skipped.");
-				continue;
-			}
-			else if(parseChar.indexOf('.') >= 0 || parseChar.indexOf('~') >= 0) {
-			    // Uncomment for troubleshooting
-				//Message.printStatus(2,routine,	"Time series identifier \""+parseChar+
-				//"\" contains an illegal character (. or ~).  The time series will be skipped.");
-				continue;
-			}
-			else {
-				tsid = parseChar;
-			}
-
-			// Field 2 - [type field name here]
-			charValue = new char[4];
-			for (i = 0; i < 4; i++) {
-				charValue[i] = EDISIndex.readEndianChar1();
-			}
-		
-			parseChar = new String(charValue).trim();
-			// Uncomment for troubleshooting
-            //Message.printStatus(2,routine, "Time series data type is \"" + parseChar + "\".");
-	
-			if (parseChar.length() == 0 || !parseChar.equalsIgnoreCase(dataType)) {
-				continue;
-			}
-
-			// Field 3 - [type field name here] get the recordNum and break
-			recordNum = EDISIndex.readEndianInt();
 
-			// Now go to the record which has the data interval
-			rewind(__NWSRFS_DBFiles[prdIndex]);
-
-			// Read the header record. Remember that recordNum is the record number
-			// read from the PRDINDEX file. First must get the length of the header prior to the full read.
-			EDISData = read(__NWSRFS_DBFiles[prdIndex],	recordNum - 1, 64, 6);
-
-			// Field 1 - [type field name here]
-			EDISData.readByte();
-	
-			// Field 2 - [type field name here]
-			dataInterval = (byte)EDISData.readByte();
-			// Uncomment for troubleshooting
-            //Message.printStatus(2,routine, "Time series data interval is " + dataInterval );
-
-			// Check to see if the data interval equals the value passed in. If so add to the tsID Vector otherwise
-			// continue. If the passed in interval is 0 or -1 then assume to pickup all tsIDs.
-			if ((int)dataInterval == interval || interval <= 0) {
-				dataIntString = "" + dataInterval + "Hour";
-			} 
-			else {
-				continue;
-			}
-
-			// Now create the TSIdent String
-			if(dataScenario.equalsIgnoreCase("both")) {
-			    // Getting all data so don't include anything special for the scenario
-				tsIdentString=tsid + ".NWSRFS." + dataType + "."
-				+ dataIntString +"~NWSRFS_FS5Files~" + getFS5FilesLocation();
-			}
-			else {
-			    // Include requested part of the data ("OBS" or "FUT") in the scenario
-				tsIdentString=tsid + ".NWSRFS." + dataType + "."
-				+ dataIntString + "." + dataScenario + "~NWSRFS_FS5Files~" + getFS5FilesLocation();
-			}
-			// Now fill the Vector with TSIdent objects
-			tsidVector.add(new TSIdent(tsIdentString));
-			EDISData.close();
-			EDISIndex.close();
+		// Now create the TSIdent String
+		if(dataScenario.equalsIgnoreCase("both")) {
+		    // Getting all data so don't include anything special for the scenario
+			tsIdentString=tsid + ".NWSRFS." + dataType + "."
+			+ dataIntString +"~NWSRFS_FS5Files~" + getFS5FilesLocation();
 		}
-		catch (EOFException EOFe) {
-			exceptionCount++;
-			// Uncomment for troubleshooting
-			//Message.printWarning( 3, routine, EOFe);
-			break;
+		else {
+		    // Include requested part of the data ("OBS" or "FUT") in the scenario
+			tsIdentString=tsid + ".NWSRFS." + dataType + "."
+			+ dataIntString + "." + dataScenario + "~NWSRFS_FS5Files~" + getFS5FilesLocation();
 		}
+		// Now fill the Vector with TSIdent objects
+		tsidVector.add(new TSIdent(tsIdentString));
 	}
 	return tsidVector;
 }
@@ -10135,9 +11104,12 @@ throws Exception
 	tsIdentKey = tsID+"."+tsDT+"."+tsDTInterval;
 
 	// If we have already looked at this time series just return it and do not retrieve it again!
-	if(__tsHashtable.containsKey(tsIdentKey) && __cacheTS) {
-		tsFile = (NWSRFS_TimeSeries)__tsHashtable.get(tsIdentKey);
-		if(tsFile.getIsDataFilled()) {
+	long tsTimestamp = 0;
+	if(__cacheTS) {
+		// PDBDLY1 to PDBDLY5 follow PDBRRS
+		tsTimestamp = getTSDatabaseTimestamp(__PDBINDEX, __PDBRRS, __PDBRRS + 1, __PDBRRS + 5);
+		tsFile = __tsCache.get(tsIdentKey, tsTimestamp);
+		if(tsFile != null && tsFile.getIsDataFilled()) {
 			return tsFile;
 		}
 	}
@@ -10392,18 +11364,20 @@ throws Exception
 		tsFile.setHasData(true);
 		
 		// Now put in the data! See comment above about Julian minutes.
+		// The same DateTime is reset for each value.
+		dtTemp = new DateTime(DateTime.PRECISION_TIME_ZONE);
+		dtTemp.setTimeZone("Z");
 		for (i = 0;i < (pdbFile.getDATAVAL()).size(); i++) {
 			float floatValue = pdbFile.getDATAVAL(i);
-			dtTemp = NWSRFS_Util.getDateFromJulianHour1900(	pdbFile.getOBSTIME(i)/100);
-			dtTemp.setTimeZone("Z");
+			NWSRFS_Util.setDateFromJulianHour1900(dtTemp, pdbFile.getOBSTIME(i)/100);
 			ITS.setDataValue(dtTemp,(double)floatValue);
 		}
 	}
 		
-	// Put the the tsID into the hash table for future checks.
+	// Put the the tsID into the cache for future checks.
 	tsFile.setObservedTS(ITS);
 	tsFile.setIsDataFilled(true);
-	__tsHashtable.put(tsIdentKey, tsFile);
+	cacheTimeSeries(tsIdentKey, tsFile, tsTimestamp);
 	
 	// Return the NWSRFS_TimeSeries Object!
 	return tsFile;
@@ -10469,16 +11443,12 @@ from the PRDPARM and PRDTSn binary files.
 private NWSRFS_TimeSeries readTimeSeriesPRD(String tsID, String tsDT, int tsDTInterval, boolean readData) 
 throws Exception {
 	String routine = "NWSRFS_DMI.readTimeSeriesPRD";
-	char[] charValue = null;
-	EndianDataInputStream EDIS;
-	int i=0, prdIndex = 1, prdTSIDSize, recordNum = -1;
-	String parseChar = null, tsIdentKey;
+	int i=0, prdIndex = 1, recordNum = -1;
+	String tsIdentKey;
 	NWSRFS_TimeSeries tsFile;
 
 	// Check to see if the prdindex file exists! If not return empty list.
-	if(getPRDIndex() == null) { 
-		setPRDIndex(readPRDINDEX());
-	}
+	checkPRDIndexRead();
 	
 	if (tsID == null) {
 		throw new Exception("The Time Series identifier argument is empty.");
@@ -10494,9 +11464,12 @@ throws Exception {
 	tsIdentKey = tsID+"."+tsDT+"."+tsDTInterval;
 
 	// If we have already looked at this time series just return it and do not retreive it again!
-	if(__tsHashtable.containsKey(tsIdentKey) && __cacheTS) {
-		tsFile = (NWSRFS_TimeSeries)__tsHashtable.get(tsIdentKey);
-		if(tsFile.getIsDataFilled()) {
+	long tsTimestamp = 0;
+	if(__cacheTS) {
+		// PRDTS1 to PRDTS5
+		tsTimestamp = getTSDatabaseTimestamp(__PRDINDEX, __PRDPARM, __PRDTS1, __PRDTS1 + 4);
+		tsFile = __tsCache.get(tsIdentKey, tsTimestamp);
+		if(tsFile != null && tsFile.getIsDataFilled()) {
 			return tsFile;
 		}
 	}
@@ -10504,129 +11477,37 @@ throws Exception {
 	// If we have not previously retreived this time series create a new NWSRFS_TimeSeries object
 	tsFile = new NWSRFS_TimeSeries(tsID,tsDT,tsDTInterval);
 
-	// Check if the the database binary file is open as a Random Access object
-	if (!checkRandomAccessFileOpen(__PRDPARM, true)) {
-		throw new Exception("Cannot open the " + __dbFileNames[__PRDPARM] + " binary database file");
-	}
-
-	// Now read the Time Series parameter file to get the parameters
-	// for the Time series in the PRDTSn binary file.
-
-	// Read the first record to get the global values (240 bytes)
-	EDIS = read(__NWSRFS_DBFiles[__PRDPARM], 0, 240);
-
-	// Field 1 - [type field name here]
-	charValue = new char[8];
-	for (i = 0; i < 8; i++) {
-		charValue[i] = EDIS.readEndianChar1();
-	}
-		
-	parseChar = new String(charValue).trim();
-		
-	if (parseChar.length() != 0) {
-		tsFile.setNAMERF(parseChar);
-	}
-		
-	// Field 2 - [type field name here]
-	tsFile.setMAXDTP(checkInt(EDIS.readEndianInt(), 0, 200, -1));
-		
-	// Field 3 - [type field name here]
-	tsFile.setMAXTMS(checkInt(EDIS.readEndianInt(), 0, 400, -1));
-		
-	// Field 4 - [type field name here]
-	tsFile.setMINDAY(checkInt(EDIS.readEndianInt(), 0, 365, -1));
-	
-	// Loop through an unused portion of the first record.
-	for (i = 0; i < 7; i++) {
-		// TODO (JTS - 2004-08-18) why not just skip ahead 32 (or is it 64?) bytes?
-		EDIS.readEndianInt();
-	}
-
-	// Field 5 - [type field name here]
-	tsFile.setNUMTMS(checkInt(EDIS.readEndianInt(), 0, 400, -1));
-			
-	// Field 6 - [type field name here]
-	tsFile.setNUMDTP(checkInt(EDIS.readEndianInt(), 0, 200, -1));
-
-	EDIS.close();
-	
-	while (true) {
-		// Read until EOF or break.
-		try {
-			// Read the subsequent records 
-			EDIS = read(__NWSRFS_DBFiles[__PRDPARM],0,__byteLength[__PRDPARM]);
-
-			// Field 1 - [type field name here]
-			charValue = new char[4];
-			for (i = 0; i < 4; i++) {
-				charValue[i] = EDIS.readEndianChar1();
-			}
-			
-			parseChar = new String(charValue).trim();
-
-			if (parseChar.length() == 0 || !parseChar.equalsIgnoreCase(tsDT)) {
-				EDIS.close();
-				continue;
-			}
-
-			// Field 2 - [type field name here]
-			tsFile.setIUNIT(checkInt(EDIS.readEndianInt(),1, 100, 1));
-
-			// Field 3 - [type field name here]
-			tsFile.setNCORE(checkInt(EDIS.readEndianInt(),0, 200, -1));
-
-			// Field 4 - [type field name here]
-			tsFile.setMAXDAY(checkInt(EDIS.readEndianInt(),0, 365, -1));
-
-			// Field 5 - [type field name here]
-			tsFile.setMINDT(checkInt(EDIS.readEndianInt(), 0, 24, -1));
-
-			// Field 6 - [type field name here]
-			tsFile.setIPROC(checkInt(EDIS.readEndianInt(), 0, 10, 0));
-
-			// Field 7 - [type field name here]
-			tsFile.setIFDAT(checkInt(EDIS.readEndianInt(), -10000, 10000, 0));
-
-			// Field 8 - [type field name here]
-			tsFile.setIFRECD(checkInt(EDIS.readEndianInt(), 0, 10000, -1));
-
-			// Field 9 - [type field name here]
-			tsFile.setILRECD(checkInt(EDIS.readEndianInt(), 0, 10000, -1));
-
-			// Field 10  - [type field name here]
-			tsFile.setICPTR(checkInt(EDIS.readEndianInt(), 0, 10000, -1));
-
-			// Field 11  - [type field name here]
-			tsFile.setICALL(checkInt(EDIS.readEndianInt(), 0, 10, -1));
-
-			// Field 12  - [type field name here]
-			tsFile.setIDIM(checkInt(EDIS.readEndianInt(), 0, 1000, -1));
-
-			// Field 13  - [type field name here]
-			tsFile.setNVAL(checkInt(EDIS.readEndianInt(), -2, 24, -1));
-
-			// Field 14  - [type field name here]
-			tsFile.setNXHDR(checkInt(EDIS.readEndianInt(), 0, 100, -1));
-
-			// Field 15  - [type field name here]
-			tsFile.setNUMTS(checkInt(EDIS.readEndianInt(), 0, 10000, -1));
-
-			break;
-		}
-		catch (EOFException EOFe) {
-			exceptionCount++;
-			Message.printWarning(10, routine, "No Time Series for: " + tsIdentKey + " was found.");
-			return (NWSRFS_TimeSeries)null;
-		}
-		catch (IOException IOe) {
-			exceptionCount++;
-			throw new Exception("The TSID = " + tsID + "." + tsDT
-				+ " has not been found in the processed "
-				+ "database.");
-		}
+	// Get the parameters for the Time series in the PRDTSn binary file from
+	// the PRDPARM catalog.
+	NWSRFS_PRDPARM prdparm = getPRDPARM();
+	if (prdparm.getNAMERF() != null) {
+		tsFile.setNAMERF(prdparm.getNAMERF());
+	}
+	tsFile.setMAXDTP(prdparm.getMAXDTP());
+	tsFile.setMAXTMS(prdparm.getMAXTMS());
+	tsFile.setMINDAY(prdparm.getMINDAY());
+	tsFile.setNUMTMS(prdparm.getNUMTMS());
+	tsFile.setNUMDTP(prdparm.getNUMDTP());
+
+	int parmIndex = prdparm.getDataTypeIndex(tsDT);
+	if (parmIndex < 0) {
+		Message.printWarning(10, routine, "No Time Series for: " + tsIdentKey + " was found.");
+		return (NWSRFS_TimeSeries)null;
 	}
-
-	EDIS.close();
+	tsFile.setIUNIT(prdparm.getIUNIT(parmIndex));
+	tsFile.setNCORE(prdparm.getNCORE(parmIndex));
+	tsFile.setMAXDAY(prdparm.getMAXDAY(parmIndex));
+	tsFile.setMINDT(prdparm.getMINDT(parmIndex));
+	tsFile.setIPROC(prdparm.getIPROC(parmIndex));
+	tsFile.setIFDAT(prdparm.getIFDAT(parmIndex));
+	tsFile.setIFRECD(prdparm.getIFRECD(parmIndex));
+	tsFile.setILRECD(prdparm.getILRECD(parmIndex));
+	tsFile.setICPTR(prdparm.getICPTR(parmIndex));
+	tsFile.setICALL(prdparm.getICALL(parmIndex));
+	tsFile.setIDIM(prdparm.getIDIM(parmIndex));
+	tsFile.setNVAL(prdparm.getNVAL(parmIndex));
+	tsFile.setNXHDR(prdparm.getNXHDR(parmIndex));
+	tsFile.setNUMTS(prdparm.getNUMTS(parmIndex));
 
 	// Set the TS Data Type and Logical Unit Number into the _tsDTUHashtable for
 	// reuse if it is not there already!
@@ -10634,41 +11515,18 @@ throws Exception {
 		__tsDTUHashtable.put(tsDT,new Integer(tsFile.getIUNIT()));
 	}
 	
-	// Create the tsDataFile String. Need to loop through all 5 of the
-	// TS files until find right unit number. If LUNIT from the PRDTSn
-	// Equals the IUNIT value from the PRDPARM file then have the right
+	// Get the PRDTSn file for the unit number.  If LUNIT from the PRDTSn
+	// equals the IUNIT value from the PRDPARM file then have the right
 	// Time Series file to read the TS into.
-	for (i = 0; i <= 5; i++) {
-		prdIndex = (int)new Integer(String.valueOf(__PRDTS1 + i)).intValue();
-		if(i == 5) {
-			Message.printWarning(10, routine, "No Time Series for: " + tsIdentKey + " was found.");
-			return (NWSRFS_TimeSeries)null;
-		}
-		else {
-			/* TODO SAM 2008-04-07 What are these used for?
-		if (__useFS5Files && true) {
-			prdtsDataFile = __fs5FilesLocation + __dbFileNames[prdIndex]; 
-		}
-		else {
-			prdtsDataFile = __dbFileNames[prdIndex];
-		}
-		*/
-
-		// Check if the the database binary file is open as a Random Access object
-		if (!checkRandomAccessFileOpen(prdIndex, true)) {
-			throw new Exception("Cannot open the " + __dbFileNames[prdIndex] + " binary database file");
-		}
+	prdIndex = prdparm.getUnitFileIndex(tsFile.getIUNIT());
+	if (prdIndex < 0) {
+		Message.printWarning(10, routine, "No Time Series for: " + tsIdentKey + " was found.");
+		return (NWSRFS_TimeSeries)null;
+	}
 
-// TODO (JTS - 2004-08-21)
-// explain the magic number 4 and 5		
-		EDIS = read(__NWSRFS_DBFiles[prdIndex],0, 4, 5);
-		if (tsFile.getIUNIT() == EDIS.readEndianInt()) {
-			break;
-		}
-		else {
-			EDIS.close();
-		}
-		}
+	// Check if the the database binary file is open as a Random Access object
+	if (!checkRandomAccessFileOpenForReadAt(prdIndex)) {
+		throw new Exception("Cannot open the " + __dbFileNames[prdIndex] + " binary database file");
 	}
 
 	// Set prdIndex in the NWSRFS_TimeSeries object for future use!
@@ -10680,9 +11538,6 @@ throws Exception {
 		return (NWSRFS_TimeSeries)null;
 	}
 
-	// Rewind the PRDTSn to prepare for the TS read.
-	rewind(__NWSRFS_DBFiles[prdIndex]);
-
 	// Now read the Time Series index object to get the Record number
 	// for the Time series in the PRDTSn binary file.
 	// This might look a little convoluted but what is going on is
@@ -10694,21 +11549,11 @@ throws Exception {
 	// break out of the PRDTSn read and go to the next record in PRDINDEX
 	// which matches TSID and TSDT... Ugly but there is no other way to do it
 	// given the structure of the FS5Files.
-	prdTSIDSize = ((getPRDIndex()).getTSID()).size();
-
-	for(i = 0; i < prdTSIDSize; i++) {
-		// Check the TS ID to see if we match
-		if (!((getPRDIndex()).getTSID(i)).equalsIgnoreCase(tsID)) {
-			continue;
-		}
+	int[] recordNums = getPRDIndex().getRecordNumbers(tsID, tsDT);
 
-		// Check the TS Data Type to see if we match
-		if (!((getPRDIndex()).getTSDT(i)).equalsIgnoreCase(tsDT)) {
-			continue;
-		}
-
-		// If we match the TS ID and TS Data Type the get record number
-		recordNum = (getPRDIndex()).getIREC(i);
+	for(i = 0; i < recordNums.length; i++) {
+		// Get the record number for the matching TS ID and TS Data Type
+		recordNum = recordNums[i];
 
 		// Check now to if we are reading the data if so continue; if not return tsFile!
 		if(!readData) {
@@ -10731,17 +11576,17 @@ throws Exception {
 		}
 	}
 
-	// Now check to see if i = prdTSIDSize. If so then no TS was found and we need to
+	// Now check to see if i = recordNums.length. If so then no TS was found and we need to
 	// return a null NWSRFS_TimeSeries to the calling method.
-	if(i == prdTSIDSize) {
+	if(i == recordNums.length) {
 		Message.printWarning(10,routine,"No time series data found!");
 		return null;
 	}
 //	EDIS.close();
 	
-	// Put the the tsID into the hash table for future checks.
+	// Put the the tsID into the cache for future checks.
 	tsFile.setIsDataFilled(true);
-	__tsHashtable.put(tsIdentKey, tsFile);
+	cacheTimeSeries(tsIdentKey, tsFile, tsTimestamp);
 	
 	return tsFile;
 }
@@ -10841,8 +11686,8 @@ public List readUSERParamList() throws Exception
 	// Get the logical unit for the parameter type.
 	for(int i=0;i<(pppindex.getPARMTP()).size();i++) {
 		if(((String)(pppindex.getPARMTP()).get(i)).equalsIgnoreCase("USER")) {
-			logicalUnitNum = ((Integer)pppindex.getLUFILE().get(i)).intValue();
-			numberOFParamRecs = ((Integer)pppindex.getNUMPRM().get(i)).intValue();
+			logicalUnitNum = pppindex.getLUFILE(i);
+			numberOFParamRecs = pppindex.getNUMPRM(i);
 			break;
 		}
 	}
@@ -10856,10 +11701,10 @@ public List readUSERParamList() throws Exception
 		// Get the logical unit for the parameter type.
 		for(int i=0;i<(pppindex.getPARMTP()).size();i++) {
 			if(((String)(pppindex.getPARMTP()).get(i)).equalsIgnoreCase("USER")) {
-				logicalUnitNum = ((Integer)pppindex.getLUFILE().get(i)).intValue();
+				logicalUnitNum = pppindex.getLUFILE(i);
 				user = new NWSRFS_USER();
 				user.setLogicalUnitNum(logicalUnitNum);
-				user.setRecordNum(((Integer)(pppindex.getFIRST()).get(i)).intValue());
+				user.setRecordNum(pppindex.getFIRST(i));
 				userParamList.add((NWSRFS_USER)user);
 				break;
 			}
@@ -10873,7 +11718,7 @@ public List readUSERParamList() throws Exception
 			equalsIgnoreCase("USER")) {
 				user = new NWSRFS_USER((String)(pppindex.getID()).get(i));
 				user.setLogicalUnitNum(logicalUnitNum);
-				user.setRecordNum(((Integer)(pppindex.getIREC()).get(i)).intValue());
+				user.setRecordNum(pppindex.getIREC(i));
 				userParamList.add((NWSRFS_USER)user);
 			}
 		}
@@ -10941,6 +11786,87 @@ throws Exception {
 	raFile.seek(position);
 }
 
+/**
+Set whether time series are cached when they are read.  Cached time series are
+returned for later requests until they are discarded to stay within the cache
+limits (see getTSCache()) or the database files are modified.
+@param cacheTS true if time series should be cached, false if not.  If false,
+the cached time series are discarded.
+*/
+public void setCacheTS(boolean cacheTS) {
+	__cacheTS = cacheTS;
+	if (!cacheTS) {
+		__tsCache.clear();
+	}
+}
+
+/**
+Set the number of threads used by readTimeSeriesList() to read time series.
+Reads from the processed database (PRDTSn) can occur at the same time.
+Reads from the preprocessor database are done one at a time.
+@param readParallelism the number of threads, 1 (the default) to read the time
+series one after the other.  Specify Runtime.getRuntime().availableProcessors()
+to use all processors.
+*/
+public void setReadParallelism(int readParallelism) {
+	if (readParallelism < 1) {
+		readParallelism = 1;
+	}
+	__readParallelism = readParallelism;
+}
+
+/**
+Save a time stamp computed for the time series database files (see
+getTSDatabaseTimestamp()).
+@param filePointer the file pointer that the time stamp is saved for, or for
+a group of files the number of database files plus the file pointer of the
+index file.
+@param timestamp the time stamp.
+@param now the time when the time stamp was computed.
+*/
+private void setTSDatabaseTimestamp(int filePointer, long timestamp, long now) {
+	// Set the time stamp before the check time so that a thread that sees
+	// the new check time also sees the new time stamp.
+	__tsTimestamps.set(filePointer, timestamp);
+	__tsTimestampTimes.set(filePointer, now);
+}
+
+/**
+Set the minimum time between checks of the time series database files for
+modification, which determine whether cached time series are out of date.
+Checking requires the status of each index, parameter, and data file, so the
+last result is reused for this long.  A time series written by another program
+may therefore not be seen until the interval has passed.
+@param interval the minimum time between checks, milliseconds (default 1000),
+or 0 to check for every cached time series request.
+*/
+public void setTSTimestampInterval(long interval) {
+	__tsTimestampInterval = Math.max(interval, 0);
+	for (int i = 0; i < __tsTimestampTimes.length(); i++) {
+		__tsTimestampTimes.set(i, 0);
+	}
+}
+
+/**
+Set the directory in which the parsed index files (FCRCPTR, FCSEGPTR, PDBINDEX,
+PPPINDEX, and PRDINDEX) are saved.  When an index file is needed, the saved
+index is used if the index file has not been modified since it was saved,
+rather than parsing the index file again.  Otherwise the index file is parsed
+and the index is saved again.  This reduces the time to start an application
+that opens the DMI for a short time.  See NWSRFS_IndexSnapshot.
+@param directory the directory for the index snapshot files, which should be
+specific to the user or application because the files are replaced as needed.
+Specify null or an empty string to parse the index files each time (the default).
+*/
+public void setIndexSnapshotDirectory(String directory) {
+	if (directory == null || directory.trim().length() == 0) {
+		__indexSnapshot = null;
+	}
+	else {
+		__indexSnapshot = new NWSRFS_IndexSnapshot(directory.trim());
+	}
+}
+
 /**
 Set the input name, used with time series identifiers.
 @param input_name The input name associated with the FS5 Files, often the path to
@@ -11241,6 +12167,19 @@ throws Exception {
 	return EDOS;
 }
 
+/**
+Saves an index that was parsed from an index file, if index snapshots are used.
+See setIndexSnapshotDirectory().
+@param filePointer the file pointer for the index file.
+@param index the index that was parsed from the index file.
+*/
+private void writeIndexSnapshot(int filePointer, Serializable index) {
+	NWSRFS_IndexSnapshot indexSnapshot = __indexSnapshot;
+	if (indexSnapshot != null) {
+		indexSnapshot.write(getDBFile(filePointer), index);
+	}
+}
+
 /**
 Returns whether the DMI is using big endian numbers or not.
 @return true if the DMi is using big endian numbers, false if using small endian.
@@ -0,0 +1,454 @@
+//------------------------------------------------------------------------------
+// NWSRFS_DMIMetrics - class to count the reads and time the methods of an
+//				NWSRFS_DMI
+//------------------------------------------------------------------------------
+// Endheader
+
+package RTi.DMI.NWSRFS_DMI;
+
+import java.lang.management.ManagementFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import RTi.Util.Message.Message;
+
+/**
+The NWSRFS_DMIMetrics class holds counts and times for an NWSRFS_DMI, to
+determine which FS5Files database files and DMI methods are used the most and
+where time is spent.  The following are collected:
+<ul>
+<li>	For each database file, the number of reads, the number of bytes read,
+	and the number of seeks, which are reads that are not sequential with
+	the previous read (e.g., reads at a record number or position).</li>
+<li>	For DMI methods such as readTimeSeries(), the number of calls and a
+	histogram of the elapsed times (see NWSRFS_LatencyHistogram).</li>
+<li>	For the DMI caches, the number of hits and misses.  The hits and misses
+	of the time series cache are obtained from the NWSRFS_TSCache.</li>
+</ul>
+The counters are updated without locking, so metrics can be left enabled in
+production.  The values can be retrieved with the get methods or
+getReport(), and can be viewed with JMX tools (e.g., jconsole) after calling
+registerMBean().
+*/
+public class NWSRFS_DMIMetrics
+implements NWSRFS_DMIMetricsMBean
+{
+
+/**
+Indicates whether metrics are collected.
+*/
+private volatile boolean __enabled = true;
+
+/**
+The names of the database files, used in reports.
+*/
+private String[] __fileNames = null;
+
+/**
+The number of bytes read from each database file.
+*/
+private AtomicLongArray __bytesRead = null;
+
+/**
+The number of reads from each database file.
+*/
+private AtomicLongArray __reads = null;
+
+/**
+The number of seeks in each database file.
+*/
+private AtomicLongArray __seeks = null;
+
+/**
+Hits and misses for each cache, keyed by the cache name.  Element 0 of each
+array is the hit count and element 1 is the miss count.
+*/
+private ConcurrentHashMap<String,AtomicLongArray> __cacheCounts = null;
+
+/**
+Elapsed time histograms for each method, keyed by the method name.
+*/
+private ConcurrentHashMap<String,NWSRFS_LatencyHistogram> __latencies = null;
+
+/**
+The time series cache, whose counts are included with the cache counts.
+*/
+private NWSRFS_TSCache __tsCache = null;
+
+/**
+The name that the metrics are registered with in the platform MBean server,
+or null if not registered.
+*/
+private ObjectName __objectName = null;
+
+/**
+Construct an instance for a set of database files.
+@param fileNames the names of the database files, in the order of the file
+pointers used by NWSRFS_DMI.
+@param tsCache the time series cache of the DMI, or null.
+*/
+public NWSRFS_DMIMetrics(String[] fileNames, NWSRFS_TSCache tsCache) {
+	__fileNames = fileNames;
+	__bytesRead = new AtomicLongArray(fileNames.length);
+	__reads = new AtomicLongArray(fileNames.length);
+	__seeks = new AtomicLongArray(fileNames.length);
+	__cacheCounts = new ConcurrentHashMap<String,AtomicLongArray>();
+	__latencies = new ConcurrentHashMap<String,NWSRFS_LatencyHistogram>();
+	__tsCache = tsCache;
+}
+
+/**
+Count a cache hit.
+@param cacheName the name of the cache (e.g., "PRDPARM").
+*/
+public void countCacheHit(String cacheName) {
+	if (__enabled) {
+		getCacheCounts(cacheName).incrementAndGet(0);
+	}
+}
+
+/**
+Count a cache miss.
+@param cacheName the name of the cache (e.g., "PRDPARM").
+*/
+public void countCacheMiss(String cacheName) {
+	if (__enabled) {
+		getCacheCounts(cacheName).incrementAndGet(1);
+	}
+}
+
+/**
+Count a read from a database file.
+@param filePointer the file pointer of the database file, or -1 if the file is
+not a database file, in which case the read is not counted.
+@param bytes the number of bytes read.
+@param seek true if the read required positioning in the file.
+*/
+public void countRead(int filePointer, int bytes, boolean seek) {
+	if (!__enabled || filePointer < 0 || filePointer >= __fileNames.length) {
+		return;
+	}
+	__reads.incrementAndGet(filePointer);
+	__bytesRead.addAndGet(filePointer, bytes);
+	if (seek) {
+		__seeks.incrementAndGet(filePointer);
+	}
+}
+
+/**
+Return the bytes read from a database file.
+@param filePointer the file pointer of the database file.
+@return the bytes read from the file.
+*/
+public long getBytesRead(int filePointer) {
+	return __bytesRead.get(filePointer);
+}
+
+/**
+Return the hit and miss counters for a cache, creating them if necessary.
+@param cacheName the name of the cache.
+@return the hit and miss counters for the cache.
+*/
+private AtomicLongArray getCacheCounts(String cacheName) {
+	AtomicLongArray counts = __cacheCounts.get(cacheName);
+	if (counts == null) {
+		counts = new AtomicLongArray(2);
+		AtomicLongArray existing = __cacheCounts.putIfAbsent(cacheName, counts);
+		if (existing != null) {
+			counts = existing;
+		}
+	}
+	return counts;
+}
+
+/**
+Return the number of hits for a cache.
+@param cacheName the name of the cache.
+@return the number of hits for the cache.
+*/
+public long getCacheHitCount(String cacheName) {
+	AtomicLongArray counts = __cacheCounts.get(cacheName);
+	if (counts == null) {
+		return 0;
+	}
+	return counts.get(0);
+}
+
+/**
+Return the number of misses for a cache.
+@param cacheName the name of the cache.
+@return the number of misses for the cache.
+*/
+public long getCacheMissCount(String cacheName) {
+	AtomicLongArray counts = __cacheCounts.get(cacheName);
+	if (counts == null) {
+		return 0;
+	}
+	return counts.get(1);
+}
+
+/**
+Returns the cache statistics, one String per cache, sorted by cache name.
+@return the cache statistics.
+*/
+public String[] getCacheStatistics() {
+	List<String> names = new ArrayList<String>(__cacheCounts.keySet());
+	Collections.sort(names);
+	List<String> stats = new ArrayList<String>();
+	if (__tsCache != null) {
+		stats.add("TS: hits=" + __tsCache.getHitCount() + " misses="
+			+ __tsCache.getMissCount() + " evictions="
+			+ __tsCache.getEvictionCount() + " stale="
+			+ __tsCache.getStaleCount());
+	}
+	for (int i = 0; i < names.size(); i++) {
+		String name = names.get(i);
+		stats.add(name + ": hits=" + getCacheHitCount(name) + " misses="
+			+ getCacheMissCount(name));
+	}
+	return stats.toArray(new String[stats.size()]);
+}
+
+/**
+Returns the read statistics for each database file that has been read, one
+String per file, in file pointer order.
+@return the file statistics.
+*/
+public String[] getFileStatistics() {
+	List<String> stats = new ArrayList<String>();
+	for (int i = 0; i < __fileNames.length; i++) {
+		long reads = __reads.get(i);
+		if (reads > 0) {
+			stats.add(__fileNames[i] + ": reads=" + reads + " bytes="
+				+ __bytesRead.get(i) + " seeks=" + __seeks.get(i));
+		}
+	}
+	return stats.toArray(new String[stats.size()]);
+}
+
+/**
+Return the elapsed time histogram for a method.
+@param methodName the name of the method (e.g., "readTimeSeries").
+@return the histogram for the method, or null if the method has not been timed.
+*/
+public NWSRFS_LatencyHistogram getLatencyHistogram(String methodName) {
+	return __latencies.get(methodName);
+}
+
+/**
+Returns the elapsed time statistics for each method that has been called, one
+String per method, sorted by method name.
+@return the method time statistics.
+*/
+public String[] getLatencyStatistics() {
+	List<String> names = new ArrayList<String>(__latencies.keySet());
+	Collections.sort(names);
+	String[] stats = new String[names.size()];
+	for (int i = 0; i < stats.length; i++) {
+		stats[i] = names.get(i) + ": " + __latencies.get(names.get(i));
+	}
+	return stats;
+}
+
+/**
+Return the number of reads from a database file.
+@param filePointer the file pointer of the database file.
+@return the number of reads from the file.
+*/
+public long getReads(int filePointer) {
+	return __reads.get(filePointer);
+}
+
+/**
+Return a report of all of the metrics, for example to print at the end of a
+batch run.
+@return a report of the metrics, with one line per file, method, and cache.
+*/
+public List<String> getReport() {
+	List<String> report = new ArrayList<String>();
+	report.add("Database files (total reads=" + getTotalReads() + " bytes="
+		+ getTotalBytesRead() + " seeks=" + getTotalSeeks() + "):");
+	String[] stats = getFileStatistics();
+	for (int i = 0; i < stats.length; i++) {
+		report.add("  " + stats[i]);
+	}
+	report.add("Methods:");
+	stats = getLatencyStatistics();
+	for (int i = 0; i < stats.length; i++) {
+		report.add("  " + stats[i]);
+	}
+	report.add("Caches:");
+	stats = getCacheStatistics();
+	for (int i = 0; i < stats.length; i++) {
+		report.add("  " + stats[i]);
+	}
+	return report;
+}
+
+/**
+Return the number of seeks in a database file.
+@param filePointer the file pointer of the database file.
+@return the number of seeks in the file.
+*/
+public long getSeeks(int filePointer) {
+	return __seeks.get(filePointer);
+}
+
+/**
+Returns the total number of bytes read from the database files.
+@return the total number of bytes read.
+*/
+public long getTotalBytesRead() {
+	return sum(__bytesRead);
+}
+
+/**
+Returns the total number of reads from the database files.
+@return the total number of reads.
+*/
+public long getTotalReads() {
+	return sum(__reads);
+}
+
+/**
+Returns the total number of reads that required positioning in a file.
+@return the total number of seeks.
+*/
+public long getTotalSeeks() {
+	return sum(__seeks);
+}
+
+/**
+Returns whether metrics are being collected.
+@return true if metrics are being collected.
+*/
+public boolean isEnabled() {
+	return __enabled;
+}
+
+/**
+Register the metrics with the platform MBean server so that they can be viewed
+with JMX tools.  If the metrics are already registered they are first
+unregistered.
+@param name the JMX object name, for example
+"RTi.DMI.NWSRFS_DMI:type=NWSRFS_DMIMetrics,name=ofs".
+@throws Exception if the metrics cannot be registered (e.g., the name is
+invalid or is in use).
+*/
+public void registerMBean(String name)
+throws Exception {
+	unregisterMBean();
+	ObjectName objectName = new ObjectName(name);
+	ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+	__objectName = objectName;
+}
+
+/**
+Resets all of the counters and times.  The counters of the time series cache
+are not reset.
+*/
+public void reset() {
+	for (int i = 0; i < __fileNames.length; i++) {
+		__bytesRead.set(i, 0);
+		__reads.set(i, 0);
+		__seeks.set(i, 0);
+	}
+	__cacheCounts.clear();
+	__latencies.clear();
+}
+
+/**
+Sets whether metrics are collected.  Counts are kept when collection is
+stopped.
+@param enabled true to collect metrics, false to stop.
+*/
+public void setEnabled(boolean enabled) {
+	__enabled = enabled;
+}
+
+/**
+Start timing a method call.
+@return the start time to pass to stopTimer(), or 0 if metrics are not being
+collected.
+*/
+public long startTimer() {
+	if (!__enabled) {
+		return 0;
+	}
+	return System.nanoTime();
+}
+
+/**
+Finish timing a method call and add the elapsed time to the method histogram.
+@param methodName the name of the method.
+@param start the value returned by startTimer().  If 0, the call is not timed.
+*/
+public void stopTimer(String methodName, long start) {
+	if (start == 0) {
+		return;
+	}
+	long elapsed = System.nanoTime() - start;
+	NWSRFS_LatencyHistogram histogram = __latencies.get(methodName);
+	if (histogram == null) {
+		histogram = new NWSRFS_LatencyHistogram();
+		NWSRFS_LatencyHistogram existing =
+			__latencies.putIfAbsent(methodName, histogram);
+		if (existing != null) {
+			histogram = existing;
+		}
+	}
+	histogram.add(elapsed);
+}
+
+/**
+Return the sum of the values in an array.
+@param values the values to sum.
+@return the sum of the values.
+*/
+private static long sum(AtomicLongArray values) {
+	long sum = 0;
+	for (int i = 0; i < values.length(); i++) {
+		sum += values.get(i);
+	}
+	return sum;
+}
+
+/**
+Return a String with the total counts, for messages.
+@return a String with the total counts.
+*/
+public String toString() {
+	return "NWSRFS_DMIMetrics: " + getTotalReads() + " reads, "
+		+ getTotalBytesRead() + " bytes, " + getTotalSeeks() + " seeks";
+}
+
+/**
+Unregister the metrics from the platform MBean server, if registered.
+*/
+public void unregisterMBean() {
+	String routine = "NWSRFS_DMIMetrics.unregisterMBean";
+	if (__objectName == null) {
+		return;
+	}
+	try {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		if (server.isRegistered(__objectName)) {
+			server.unregisterMBean(__objectName);
+		}
+	}
+	catch (Exception e) {
+		Message.printWarning(3, routine, "Unable to unregister \""
+			+ __objectName + "\" (" + e + ").");
+	}
+	__objectName = null;
+}
+
+}
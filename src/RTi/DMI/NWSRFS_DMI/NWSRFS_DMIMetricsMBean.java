@@ -0,0 +1,72 @@
+//------------------------------------------------------------------------------
+// NWSRFS_DMIMetricsMBean - JMX management interface for NWSRFS_DMIMetrics
+//------------------------------------------------------------------------------
+// Endheader
+
+package RTi.DMI.NWSRFS_DMI;
+
+/**
+The NWSRFS_DMIMetricsMBean interface defines the attributes and operations of
+NWSRFS_DMIMetrics that are available through JMX (e.g., with jconsole), after
+NWSRFS_DMIMetrics.registerMBean() is called.  See NWSRFS_DMIMetrics for a
+description of the values.
+*/
+public interface NWSRFS_DMIMetricsMBean
+{
+
+/**
+Returns the cache statistics, one String per cache.
+@return the cache statistics.
+*/
+public String[] getCacheStatistics();
+
+/**
+Returns the read statistics for each database file that has been read, one
+String per file.
+@return the file statistics.
+*/
+public String[] getFileStatistics();
+
+/**
+Returns the elapsed time statistics for each DMI method that has been called,
+one String per method.
+@return the method time statistics.
+*/
+public String[] getLatencyStatistics();
+
+/**
+Returns the total number of bytes read from the database files.
+@return the total number of bytes read.
+*/
+public long getTotalBytesRead();
+
+/**
+Returns the total number of reads from the database files.
+@return the total number of reads.
+*/
+public long getTotalReads();
+
+/**
+Returns the total number of reads that required positioning in a file.
+@return the total number of seeks.
+*/
+public long getTotalSeeks();
+
+/**
+Returns whether metrics are being collected.
+@return true if metrics are being collected.
+*/
+public boolean isEnabled();
+
+/**
+Resets all of the counters and times.
+*/
+public void reset();
+
+/**
+Sets whether metrics are collected.
+@param enabled true to collect metrics, false to stop.
+*/
+public void setEnabled(boolean enabled);
+
+}
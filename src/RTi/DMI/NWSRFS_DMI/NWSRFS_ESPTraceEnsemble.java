@@ -132,11 +132,18 @@ package RTi.DMI.NWSRFS_DMI;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.RandomAccessFile;
 import java.lang.Float;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 
 import RTi.DMI.NWSRFS_DMI.NWSRFS_Util;
@@ -283,6 +290,12 @@ The following constant values were taken from TSIdent.h
 private final static int SIMFLAG_CONDITIONAL = 3;
 private final static int SIMFLAG_HISTORICAL = 1;
 
+/**
+Number of records that are assembled in memory before being written to the
+file when writing an ensemble file.
+*/
+private final static int WRITE_BLOCK_RECORDS = 2048;
+
 //private final static int VARTYPE_ACCUM = 	0x4;
 //private final static int VARTYPE_INST = 	0x1;
 //private final static int VARTYPE_MEAN = 	0x2;
@@ -338,6 +351,12 @@ contents of the file indicate the endian-ness.
 */
 private boolean __big_endian = true;
 
+/**
+The byte order that was used to successfully decode the header when the file
+was read, which is also used to decode the trace data.
+*/
+private boolean __data_big_endian = false;
+
 // The following data members correspond to the C++ ESPTraceEns class
 // definition (other than TSIdent, which is a separate section below)...
 
@@ -550,6 +569,32 @@ Array of HourTS, one for each trace.
 */
 private HourTS[] __ts;
 
+/**
+Time series identifier shared by all traces (other than the sequence number),
+determined when the header is read.  Used to create traces that are read on demand.
+*/
+private TSIdent __tsident = null;
+
+/**
+The maximum number of traces read on demand by getTimeSeries(int) that are
+retained in memory.  If zero, each request reads the trace from the file.
+*/
+private int __max_traces_retained = 0;
+
+/**
+Traces that have been read on demand, in least- to most-recently used order,
+limited to __max_traces_retained entries.  The key is the trace index.
+*/
+private LinkedHashMap<Integer,HourTS> __traces_retained = null;
+
+/**
+Start and end of the period to read for each trace, or null to read from the
+start or to the end of the forecast period.  Only the conditional months that
+overlap the period are read from the file.
+*/
+private DateTime __read_end = null;
+private DateTime __read_start = null;
+
 /**
 Time scale for data (e.g., "ACCM").
 */
@@ -690,6 +735,45 @@ throws Exception
 	}
 }
 
+/**
+Construct an NWSRFS_ESPTraceEnsemble by creating a new NWSRFS_DMI, reading only
+the data for a period.  Only the conditional months that overlap the period are
+read from the file for each trace, and the period of each trace is limited to
+the requested period.  The DMI can be left open or be closed after the read.
+@param filename the file to open and read from.
+@param read_start the start of the period to read, or null to read from the
+start of the forecast period.  The traces use local time, as stored in the file.
+@param read_end the end of the period to read, or null to read to the end of the
+forecast period.
+@param read_data If true, read the data for the period.  If false, only read the
+file header (traces read later with getTimeSeries(int) are limited to the period).
+@param remain_open If true, the DMI will remain open after reading the header.
+@exception Exception if there is an error reading the file.
+*/
+public NWSRFS_ESPTraceEnsemble ( String filename, DateTime read_start, DateTime read_end,
+					boolean read_data, boolean remain_open )
+throws Exception
+{
+	__filename = IOUtil.getPathUsingWorkingDir(filename);
+
+	initialize();
+
+	// Create a limited NWSRFS_DMI to do the read and write.
+	__dmi = new NWSRFS_DMI();
+
+	readHeader();
+	setReadPeriod ( read_start, read_end );
+	if ( read_data ) {
+		readData();
+	}
+
+	// Close the file...
+
+	if ( !remain_open ) {
+		__dmi.close();
+	}
+}
+
 /**
 Construct an NWSRFS_ESPTraceEnsemble by reading an existing NWSRFS_DMI.  The DMI can be
 left open or be closed after the data are read.
@@ -1310,6 +1394,42 @@ throws Exception
 	}
 }
 
+/**
+Close the ensemble file, if it was left open to read the header or traces on demand.
+The header information remains available.  Traces that are read on demand after
+closing will open the file again.
+@exception IOException if there is an error closing the file.
+*/
+public void close ()
+throws IOException
+{	if ( __traceRAFOpen ) {
+		__traceRAFOpen = false;
+		__traceRAF.close();
+		__traceRAF = null;
+	}
+}
+
+/**
+Compute statistics across the traces for each time step of the forecast period
+(minimum, maximum, mean, and values for exceedance probabilities).  The trace
+data are transferred to a trace by time step matrix (see getTraceMatrix()),
+reading each trace from the file if the data were not read when the ensemble was
+constructed, and the statistics are computed in parallel for blocks of time steps.
+@param exceedance_probabilities the exceedance probabilities (0 to 1) for which
+to compute values, or null to use the defaults (0.9, 0.5, 0.1).
+@return the statistics, which can be returned as time series.
+@exception Exception if there is an error reading the data or computing the statistics.
+*/
+public NWSRFS_ESPTraceEnsembleStatistics computeStatistics ( double [] exceedance_probabilities )
+throws Exception
+{	NWSRFS_ESPTraceEnsembleStatistics stats = new NWSRFS_ESPTraceEnsembleStatistics ( this );
+	if ( exceedance_probabilities != null ) {
+		stats.setExceedanceProbabilities ( exceedance_probabilities );
+	}
+	stats.compute();
+	return stats;
+}
+
 /** Finalize the object.
 */
 public void finalize()
@@ -1332,6 +1452,14 @@ public String getDataUnits ()
 {	return __ts_unit;
 }
 
+/**
+Return the forecast end date/time.
+@return the forecast end date/time.
+*/
+public DateTime getForecastEnd ()
+{	return __end_date;
+}
+
 /**
 Return the forecast start date/time (one interval after the carryover date).
 @return the forecast start date/time (one interval after the carryover date).
@@ -1526,6 +1654,58 @@ public RandomAccessFile getEndianRandomAccessFile ()
 {	return __traceRAF;
 }
 
+/**
+Return the number of time steps in the forecast period, from the forecast start
+to the forecast end, inclusive.
+@return the number of time steps in the forecast period.
+@exception Exception if the forecast period dates are not valid.
+*/
+int getForecastSteps ()
+throws Exception
+{	if ( (__start_date == null) || (__end_date == null) || (__ts_dt <= 0) ) {
+		return 0;
+	}
+	return (getJulianHour(__end_date) - getJulianHour(__start_date))/__ts_dt + 1;
+}
+
+/**
+Return the time step in the forecast period for a date/time, where time step 0
+is the forecast start.  The time zone of the date/time is ignored.
+@param date the date/time.
+@param round_up if true and the date/time is between time steps, return the
+later time step; otherwise, return the earlier time step.
+@return the time step for the date/time, which may be before the forecast start
+(negative) or after the forecast end.
+@exception Exception if the date/time is not valid.
+*/
+private int getForecastStep ( DateTime date, boolean round_up )
+throws Exception
+{	int hours = getJulianHour(date) - getJulianHour(__start_date);
+	int step = hours/__ts_dt;
+	if ( (step*__ts_dt) != hours ) {
+		// Integer division truncates toward zero...
+		if ( (hours > 0) && round_up ) {
+			++step;
+		}
+		else if ( (hours < 0) && !round_up ) {
+			--step;
+		}
+	}
+	return step;
+}
+
+/**
+Return the Julian hour (since 1900) for a date/time, for computing the number of
+intervals between dates.
+@param date the date/time, using hour 0-23.
+@return the Julian hour for the date/time.
+@exception Exception if the date/time is not valid.
+*/
+private static int getJulianHour ( DateTime date )
+throws Exception
+{	return NWSRFS_Util.getJulianHour1900FromDate ( date.getMonth(), date.getDay(), date.getYear(), date.getHour() );
+}
+
 /**
 Return the record length in 4-byte words.
 @return the record length in 4-byte words.
@@ -1535,7 +1715,9 @@ public int getRecordWords ()
 }
 
 /**
-Return the array of time series maintained in the ensemble.
+Return the array of time series maintained in the ensemble.  If the ensemble
+was constructed with read_data=false, the time series contain only header
+information - use getTimeSeries(int) to read the data for individual traces.
 @return the array of time series maintained in the ensemble, or null if no
 time series.
 */
@@ -1543,6 +1725,93 @@ public TS[] getTimeSeries ()
 {	return __ts;
 }
 
+/**
+Return a single trace from the ensemble.  If all the data were read when the
+ensemble was constructed, the trace from getTimeSeries() is returned.  Otherwise,
+the trace is read on demand by positioning the file at the start of the trace and
+reading only the data for the trace, so that memory use does not depend on the
+number of traces.  Traces read on demand are retained for reuse, up to the limit
+set with setMaxTracesRetained(), with the least recently used trace discarded first.
+@param index the index of the trace (0 to getNTraces() - 1).
+@return the time series for the trace, with data.
+@exception Exception if the index is out of range or there is an error reading the data.
+*/
+public TS getTimeSeries ( int index )
+throws Exception
+{	if ( (index < 0) || (index >= __n_traces) ) {
+		throw new Exception ( "Trace index " + index + " is out of range (0 to " + (__n_traces - 1) + ")." );
+	}
+	if ( __data_read ) {
+		return __ts[index];
+	}
+	HourTS ts = null;
+	Integer key = new Integer(index);
+	if ( __traces_retained != null ) {
+		// The get() moves the trace to the most recently used position.
+		ts = __traces_retained.get(key);
+		if ( ts != null ) {
+			return ts;
+		}
+	}
+	// Create a new time series so that the header-only time series in __ts
+	// do not hold onto the data...
+	ts = createTraceTimeSeries ( index );
+	readTraceData ( ts, index, __read_start, __read_end );
+	if ( __max_traces_retained > 0 ) {
+		if ( __traces_retained == null ) {
+			// Access-ordered so that the eldest entry is the least recently used...
+			__traces_retained = new LinkedHashMap<Integer,HourTS>(16, (float)0.75, true) {
+				protected boolean removeEldestEntry ( Map.Entry<Integer,HourTS> eldest ) {
+					return size() > __max_traces_retained;
+				}
+			};
+		}
+		__traces_retained.put ( key, ts );
+	}
+	return ts;
+}
+
+/**
+Return a single trace from the ensemble, reading only the data for a period.
+If all the data were read when the ensemble was constructed, the trace from
+getTimeSeries() is returned.  Otherwise, a new time series is read from the file,
+using only the conditional months that overlap the period, and is not retained.
+The period of the time series is limited to the requested period.  If the start
+and end are both null, this is the same as getTimeSeries(int), which uses the
+period set with setReadPeriod().
+@param index the index of the trace (0 to getNTraces() - 1).
+@param read_start the start of the period to read, or null to read from the
+start of the forecast period.  The traces use local time, as stored in the file.
+@param read_end the end of the period to read, or null to read to the end of the
+forecast period.
+@return the time series for the trace, with data for the period.  If the period
+does not overlap the forecast period, the time series has no data.
+@exception Exception if the index is out of range or there is an error reading the data.
+*/
+public TS getTimeSeries ( int index, DateTime read_start, DateTime read_end )
+throws Exception
+{	if ( (read_start == null) && (read_end == null) ) {
+		return getTimeSeries ( index );
+	}
+	if ( (index < 0) || (index >= __n_traces) ) {
+		throw new Exception ( "Trace index " + index + " is out of range (0 to " + (__n_traces - 1) + ")." );
+	}
+	if ( __data_read ) {
+		return __ts[index];
+	}
+	HourTS ts = createTraceTimeSeries ( index );
+	readTraceData ( ts, index, read_start, read_end );
+	return ts;
+}
+
+/**
+Return the maximum number of traces read on demand that are retained in memory.
+@return the maximum number of traces read on demand that are retained in memory.
+*/
+public int getMaxTracesRetained ()
+{	return __max_traces_retained;
+}
+
 /**
 Return the time series maintained in the ensemble as a Vector.
 @return the time series maintained in the ensemble as a Vector, or null if
@@ -1556,6 +1825,98 @@ public List<TS> getTimeSeriesList ()
 	return v;
 }
 
+/**
+Return the index of the trace having the given sequence identifier (historical year).
+@param sequenceID the sequence identifier for the trace (e.g., "1995").
+@return the index of the trace (0 to getNTraces() - 1), or -1 if not found.
+*/
+public int getTraceIndex ( String sequenceID )
+{	if ( (sequenceID == null) || (__ts == null) ) {
+		return -1;
+	}
+	for ( int i = 0; i < __n_traces; i++ ) {
+		if ( sequenceID.equalsIgnoreCase(__ts[i].getSequenceID()) ) {
+			return i;
+		}
+	}
+	return -1;
+}
+
+/**
+Return the data for all traces as a single matrix indexed by trace and time
+step, where time step 0 is the forecast start and the last time step is the
+forecast end (see NWSRFS_ESPTraceMatrix).  If the data were not read when the
+ensemble was constructed and the ensemble was read from a file, each trace is
+read from the file into a primitive array and transferred to the matrix, without
+creating a time series for the trace.  Otherwise, the data are taken from the
+time series.  A new matrix is created for each call.
+@param off_heap if true, store the matrix values in a direct (off-heap) buffer
+rather than a Java array.
+@return a new matrix containing the data for all traces.
+@exception Exception if there is an error reading the data.
+*/
+public NWSRFS_ESPTraceMatrix getTraceMatrix ( boolean off_heap )
+throws Exception
+{	int nsteps = getForecastSteps();
+	NWSRFS_ESPTraceMatrix matrix = new NWSRFS_ESPTraceMatrix ( this, __n_traces, nsteps,
+		__start_date, __ts_dt, off_heap );
+	if ( nsteps == 0 ) {
+		return matrix;
+	}
+	float [] row = new float[nsteps];
+	if ( __data_read || (__filename == null) ) {
+		// Time series data are in memory...
+		for ( int its = 0; its < __n_traces; its++ ) {
+			DateTime date = new DateTime ( __start_date );
+			for ( int istep = 0; istep < nsteps; istep++, date.addHour(__ts_dt) ) {
+				row[istep] = (float)__ts[its].getDataValue(date);
+			}
+			matrix.setTraceValues ( its, row, nsteps );
+		}
+		return matrix;
+	}
+	// Read each trace from the file, as in readTraceData()...
+	int ndata = __rec_words/4;	// Floats per line - should be 31
+	int nrecpermonth = (ndata/31)*(24/__ts_dt);
+	int nvalpermonth = nrecpermonth*ndata;	// Values stored in the file for each month
+	int nvalpertrace = nvalpermonth*__ncm;	// Values stored in the file for each trace
+	// Each trace starts at hour __ts_dt of the first day of the first month.
+	// Determine how many values in the file precede the forecast start...
+	DateTime date = NWSRFS_Util.toDateTime24(__start_date,true);
+	date.setDay ( 1 );
+	date.setHour ( __ts_dt );
+	date = NWSRFS_Util.toDateTime23(date,true);
+	int offset = (getJulianHour(__start_date) - getJulianHour(date))/__ts_dt;
+	if(!__traceRAFOpen)	{
+		__traceRAF = new EndianRandomAccessFile(__filename,"r");
+		__traceRAFOpen = true;
+	}
+	DateTime hdate = new DateTime(DateTime.PRECISION_MONTH);
+	for ( int its = 0; its < __n_traces; its++ ) {
+		long position = (long)(__irec - 1)*__rec_words*4 + (long)its*nvalpertrace*4;
+		float [] data = __dmi.readFloats(__traceRAF, position, nvalpertrace, __data_big_endian);
+		// Values are transferred sequentially, using the number of days in
+		// the historical month (see readTraceData())...
+		int istep = -offset;
+		for ( int icm = 0; (icm < __ncm) && (istep < nsteps); icm++ ) {
+			hdate.setYear ( __iy + its );
+			hdate.setMonth ( __im );
+			hdate.addMonth ( icm );
+			int ntran = TimeUtil.numDaysInMonth ( hdate )*24/__ts_dt;
+			int idata = icm*nvalpermonth;
+			int idataend = idata + ntran;
+			for ( ; (idata < idataend) && (istep < nsteps); idata++, istep++ ) {
+				if ( istep >= 0 ) {
+					row[istep] = data[idata];
+				}
+			}
+		}
+		// Time steps after the end of the trace data remain missing...
+		matrix.setTraceValues ( its, row, Math.max(istep, 0) );
+	}
+	return matrix;
+}
+
 /**
 Initialize the instance data.  This is similar to the C++ ESPTraceEns.init() method.
 */
@@ -1611,6 +1972,43 @@ private void initialize ()
 	__xlong = (float)0.0;
 }
 
+/**
+Create the time series for a trace, setting the header information but not
+allocating the data space.
+@param i the index of the trace (0 to __n_traces - 1).
+@return the new time series for the trace.
+*/
+private HourTS createTraceTimeSeries ( int i )
+{	HourTS ts = new HourTS();
+
+	// Set information for the time series.  Because the RTi
+	// TSIdent is more streamlined than the NWS version, only set some information...
+
+	ts.setIdentifier ( new TSIdent(__tsident) );
+	// The sequence number is used for the historical year...
+	ts.setSequenceID ( "" + (__iy + i) );
+
+	ts.setDate1 ( new DateTime(__start_date) );
+	ts.setDate1Original ( new DateTime(__start_date) );
+	ts.setDate2 ( new DateTime(__end_date) );
+	ts.setDate2Original ( new DateTime(__end_date) );
+	ts.setDataInterval ( TimeInterval.HOUR, __ts_dt );
+	ts.setDataUnits ( __ts_unit );
+	ts.setDescription ( __segdesc );
+	ts.setAlias ( __tsident.getLocation() + "_Trace_" + ts.getSequenceID() );
+
+	// Use comments for now to pass information and troubleshoot...
+
+	List<String> header_strings = getHeaderStrings ( ts );
+	for ( String h: header_strings ) {
+		ts.addToComments ( h );
+	}
+	
+	// Set time series properties for metadata so it is accessible later
+	setTimeSeriesProperties(ts, i);
+	return ts;
+}
+
 /**
 Read ensemble data from the ESP trace ensemble file.  The file must already be
 opened.  The time series data space for each trace is allocated and filled with data.
@@ -1624,114 +2022,10 @@ throws Exception
 		Message.printWarning ( 2, routine, "ESP trace ensemble data are already read from file - rereading." );
 	}
 
-	int ndata = __rec_words/4;	// Floats per line - should be 31
-	int nrecpermonth = (ndata/31)*(24/__ts_dt);
-	float [] data = new float[744];	// Enough for 31 days x 24 1-hour values...
-	//byte [] record = new byte[4]; 	// This is the byte value returned from the read.
-	int icm;	// Loop counter for conditional months in each trace.
-	int ndays;	// Number of days per month.
-	int i;		// Position in loop for data per record
-	int idata;	// Position in data array for month
-	int ntran;	// Number of data to transfer for a month's data
-	DateTime date;	// Date/time to used to transfer data array to time series.
-	DateTime hdate;	// Date/time to used to evaluate a historical date/time.
-	EndianDataInputStream EDIS;
-
 	try {
-	// Position the file pointer...
-	// Check to see if RandomAccessFile is open
-	if(!__traceRAFOpen)	{
-		__traceRAF = new EndianRandomAccessFile(__filename,"r"); 
-		__traceRAFOpen = true;
-	}
-
-	__dmi.rewind(__traceRAF);
-	__dmi.seek(__traceRAF,(long)((__irec - 1)*__rec_words*4),false);
-
 	// Loop through the number of time series traces...
 	for ( int its = 0; its < __n_traces; its++ ) {
-		// The data space is not allocated in readHeader() so do it here...
-		__ts[its].allocateDataSpace();
-		// Initialize the date that will be used to transfer data to
-		// the starting interval in the data file.
-		// The dates in the file use the hour 1-24.  However,
-		// the time series have been allocated in readHeader()
-		// using hour 0-23.  Therefore, the starting date/time
-		// must be properly set.  Each month of data in the file
-		// corresponds to hour __ts_dt of the first day of the
-		// HISTORICAL month, which will only be an issue if
-		// __ts_dt == 24.  Take care to
-		// set the starting date correctly and then just add the
-		// interval as the data are processed.
-		// First determine the hour 24 date/time, mainly to get
-		// the correct month, and year.
-		// Start by setting to the initial value...
-		date = NWSRFS_Util.toDateTime24(__start_date,true);
-		// Set the day to 1 and the hour to the interval...
-		date.setDay ( 1 );
-		date.setHour ( __ts_dt );
-		// Convert back to 0-23 hour...
-		date = NWSRFS_Util.toDateTime23(date,true);
-		// Loop through the number of conditional months (the month is incr???...
-		for ( icm = 0; icm < __ncm; icm++ ) {
-			// Loop through the records in the month...
-			idata = 0;	// Reset array position.
-			if ( Message.isDebugOn ) {
-				Message.printDebug ( 1, routine, "Reading trace [" + its + "] " +
-				__ts[its].getSequenceID() + " conditional month [" + icm + "]" );
-			}
-			for (	int ir = 0; ir < nrecpermonth; ir++ ) {
-				// Loop through the data in the month, incrementing the hour to assign the data...
-				for ( i = 0; i < ndata; i++ ) {
-					// Read the data from the DMI
-					EDIS = __dmi.read(__traceRAF,0,4);
-					//EDIS.setBigEndian(__big_endian);
-
-					// Convert to a float
-					data[idata++] = EDIS.readEndianFloat();
-
-					// Close the stream to get new record
-					EDIS.close();
-				}
-			}
-			// Now a complete month has been read.  Determine the
-			// number of values available in the file to be
-			// transferred.  The months in the file correspond to
-			// the historical months, not the real-time forecast
-			// years.  Therefore, for example, if the forecast
-			// period is May 2002 through May 2004 but the
-			// starting historical years are 1995 - 1998 (4 traces),
-			// the second trace (historical years 1996-1997) will
-			// have 28 days in February in the data file, even
-			// though 2004 in the forecast period has 29.
-			// Therefore, calculate the number of data values in
-			// the file based on the historical year and only
-			// increment the date for the time series as values are transferred.
-			hdate = new DateTime(DateTime.PRECISION_MONTH);
-			// Set the year to the historical year...
-			hdate.setYear ( __iy + its );
-			hdate.setMonth ( __im );
-			// Now add the number of months that have been processed...
-			hdate.addMonth ( icm );
-			// Now get the number of days in the month.  This does not look at the hour so an hour of 24 is OK...
-			ndays = TimeUtil.numDaysInMonth ( hdate );
-			// Now compute the number of data that will need to be
-			// transferred.  It may be less than the number read
-			// because of the number of days in the month...
-			ntran = ndays*24/__ts_dt;
-			// Now loop through the data, using the actual 0-23
-			// hour and the number of intervals.  It is OK to
-			// attempt transferring data outside the actual TS
-			// period because data outside the period will be
-			// ignored (and should be missing).
-			if ( Message.isDebugOn ) {
-				Message.printDebug ( 1, routine, "Transferring " + ndays + " days, " + ntran +
-				" values for historical " + hdate +	" starting at " + date );
-			}
-			for ( idata = 0; idata < ntran; idata++, date.addHour(__ts_dt) ) {
-				__ts[its].setDataValue(date,data[idata]);
-			}
-		}
+		readTraceData ( __ts[its], its, __read_start, __read_end );
 	}
 	}
 	catch ( Exception e ) {
@@ -1778,6 +2072,7 @@ throws Exception
 
 	// Read the header record from the dmi which is a __headerLength byte record
 	EDIS = __dmi.read(__traceRAF,0,__headerLength);
+	__data_big_endian = __dmi.usingBigEndian();
 
 	// Parse the record for the header information. It is vital to know
 	// exactly the format of the ESP trace file in order to parse the header
@@ -1806,6 +2101,7 @@ throws Exception
 		// Reread the header record from the dmi which is a __headerLength byte record
 		EDIS = __dmi.read(__traceRAF,0,__headerLength);
 		EDIS.setBigEndian(__big_endian);
+		__data_big_endian = __big_endian;
 
 		floatValue = EDIS.readEndianFloat();
 
@@ -2262,38 +2558,204 @@ throws Exception
 
 	// int offset = __end_date.getYear() - __start_date.getYear();
 	
+	__tsident = ident;
 	__ts = new HourTS[__n_traces];
 	for ( i = 0; i < __n_traces; i++ ) {
-		__ts[i] = new HourTS();
-
-		// Set information for the time series.  Because the RTi
-		// TSIdent is more streamlined than the NWS version, only set some information...
-
-		__ts[i].setIdentifier ( new TSIdent(ident) );
-		// The sequence number is used for the historical year...
-		__ts[i].setSequenceID ( "" + (__iy + i) );
-
+		__ts[i] = createTraceTimeSeries ( i );
 		Message.printStatus ( 2, routine, "Setting identifier to \"" + __ts[i].getIdentifier().toString(true) + "\"" );
-		__ts[i].setDate1 ( new DateTime(__start_date) );
-		__ts[i].setDate1Original ( new DateTime(__start_date) );
-		__ts[i].setDate2 ( new DateTime(__end_date) );
-		__ts[i].setDate2Original ( new DateTime(__end_date) );
 		Message.printStatus ( 2, routine, "Setting TS[" + i +
 		"] " + __ts[i].getSequenceID() + " period to " + __ts[i].getDate1() + " - " +__ts[i].getDate2());
-		__ts[i].setDataInterval ( TimeInterval.HOUR, __ts_dt );
-		__ts[i].setDataUnits ( __ts_unit );
-		__ts[i].setDescription ( __segdesc );
-		__ts[i].setAlias ( ident.getLocation() + "_Trace_" + __ts[i].getSequenceID() );
+	}
+}
+
+/**
+Read the data for one trace from the ESP trace ensemble file.  Because the
+traces are stored one after the other starting at record __irec, each with
+__ncm months of data, the position of the trace in the file is computed and
+only the data for the trace are read.  If a period is requested, only the
+conditional months that overlap the period are read, and the period of the
+time series is limited to the requested period.  The time series data space is
+allocated and filled with data.  If the requested period does not overlap the
+forecast period, the time series is limited to the requested period with all
+values missing.
+@param ts the time series for the trace, as initialized by readHeader().
+@param its the index of the trace (0 to __n_traces - 1).
+@param read_start the start of the period to read, or null to read from the
+start of the forecast period.
+@param read_end the end of the period to read, or null to read to the end of
+the forecast period.
+@exception Exception if there is an error reading the data, or the requested
+period does not include any time steps (e.g., it is shorter than the data interval).
+*/
+private void readTraceData ( HourTS ts, int its, DateTime read_start, DateTime read_end )
+throws Exception
+{	String routine = "NWSRFS_ESPTraceEnsemble.readTraceData";
+	int ndata = __rec_words/4;	// Floats per line - should be 31
+	int nrecpermonth = (ndata/31)*(24/__ts_dt);
+	int nvalpermonth = nrecpermonth*ndata;	// Values stored in the file for each month
+	int nvalpertrace = nvalpermonth*__ncm;	// Values stored in the file for each trace
+	float [] data;	// Data values for the months that are read.
+	int icm;	// Loop counter for conditional months in the trace.
+	int icm1 = 0;	// First conditional month to read.
+	int icm2 = __ncm - 1;	// Last conditional month to read.
+	int idata;	// Position in data array for trace
+	int idataend;	// Last position (exclusive) in data array to transfer for a month
+	int [] ntran = new int[__ncm];	// Number of data to transfer for each month
+	DateTime date;	// Date/time to used to transfer data array to time series.
+	DateTime hdate;	// Date/time to used to evaluate a historical date/time.
+
+	// Check to see if RandomAccessFile is open
+	if(!__traceRAFOpen)	{
+		__traceRAF = new EndianRandomAccessFile(__filename,"r"); 
+		__traceRAFOpen = true;
+	}
 
-		// Use comments for now to pass information and troubleshoot...
+	// Initialize the date that will be used to transfer data to
+	// the starting interval in the data file.
+	// The dates in the file use the hour 1-24.  However,
+	// the time series have been allocated in readHeader()
+	// using hour 0-23.  Therefore, the starting date/time
+	// must be properly set.  Each month of data in the file
+	// corresponds to hour __ts_dt of the first day of the
+	// HISTORICAL month, which will only be an issue if
+	// __ts_dt == 24.  Take care to
+	// set the starting date correctly and then just add the
+	// interval as the data are processed.
+	// First determine the hour 24 date/time, mainly to get
+	// the correct month, and year.
+	// Start by setting to the initial value...
+	date = NWSRFS_Util.toDateTime24(__start_date,true);
+	// Set the day to 1 and the hour to the interval...
+	date.setDay ( 1 );
+	date.setHour ( __ts_dt );
+	// Convert back to 0-23 hour...
+	date = NWSRFS_Util.toDateTime23(date,true);
+
+	// Determine the number of values available in the
+	// file to be transferred for each month.  The months in the file correspond to
+	// the historical months, not the real-time forecast
+	// years.  Therefore, for example, if the forecast
+	// period is May 2002 through May 2004 but the
+	// starting historical years are 1995 - 1998 (4 traces),
+	// the second trace (historical years 1996-1997) will
+	// have 28 days in February in the data file, even
+	// though 2004 in the forecast period has 29.
+	// Therefore, calculate the number of data values in
+	// the file based on the historical year and only
+	// increment the date for the time series as values are transferred.
+	hdate = new DateTime(DateTime.PRECISION_MONTH);
+	for ( icm = 0; icm < __ncm; icm++ ) {
+		// Set the year to the historical year...
+		hdate.setYear ( __iy + its );
+		hdate.setMonth ( __im );
+		// Now add the number of months that have been processed...
+		hdate.addMonth ( icm );
+		// Now compute the number of data that will need to be
+		// transferred.  It may be less than the number read
+		// because of the number of days in the month.  This does
+		// not look at the hour so an hour of 24 is OK...
+		ntran[icm] = TimeUtil.numDaysInMonth ( hdate )*24/__ts_dt;
+	}
+
+	if ( (read_start != null) || (read_end != null) ) {
+		// Determine the time steps in the forecast period to read, and the
+		// months that contain the time steps.  The first month starts before
+		// the forecast start, at the start of the month...
+		int step1 = 0;
+		int step2 = getForecastSteps() - 1;
+		if ( read_start != null ) {
+			step1 = Math.max ( step1, getForecastStep(read_start,true) );
+		}
+		if ( read_end != null ) {
+			step2 = Math.min ( step2, getForecastStep(read_end,false) );
+		}
+		if ( step1 > step2 ) {
+			// No data are read.  Limit the time series to the requested period, which is entirely
+			// before or after the forecast period, with missing data.  An open end of the requested
+			// period is limited to the adjacent end of the forecast period.
+			int last = getForecastSteps() - 1;
+			int rstep1 = (read_start == null) ? 0 : getForecastStep(read_start,true);
+			int rstep2 = (read_end == null) ? last : getForecastStep(read_end,false);
+			if ( read_start == null ) {
+				rstep1 = Math.min ( rstep1, rstep2 );
+			}
+			if ( read_end == null ) {
+				rstep2 = Math.max ( rstep2, rstep1 );
+			}
+			if ( rstep1 > rstep2 ) {
+				throw new Exception ( "Requested period " + read_start + " - " + read_end +
+				" does not include any " + __ts_dt + "-hour time steps of the trace data." );
+			}
+			Message.printStatus ( 2, routine, "Requested period " + read_start + " - " + read_end +
+			" does not overlap the forecast period - not reading data for trace [" + its + "]." );
+			DateTime date1 = new DateTime ( __start_date );
+			date1.addHour ( rstep1*__ts_dt );
+			DateTime date2 = new DateTime ( __start_date );
+			date2.addHour ( rstep2*__ts_dt );
+			ts.setDate1 ( date1 );
+			ts.setDate2 ( date2 );
+			ts.allocateDataSpace();
+			return;
+		}
+		int mstep0 = -(getJulianHour(__start_date) - getJulianHour(date))/__ts_dt;	// First step of first month
+		int mstep = mstep0;	// First step of month
+		int mstep1 = mstep0;	// First step of the first month to read
+		icm1 = -1;
+		icm2 = -1;
+		for ( icm = 0; icm < __ncm; icm++ ) {
+			if ( (icm1 < 0) && ((mstep + ntran[icm]) > step1) ) {
+				icm1 = icm;
+				mstep1 = mstep;
+			}
+			if ( mstep <= step2 ) {
+				icm2 = icm;
+			}
+			mstep += ntran[icm];
+		}
+		// Limit the time series period to the requested period...
+		DateTime date1 = new DateTime ( __start_date );
+		date1.addHour ( step1*__ts_dt );
+		DateTime date2 = new DateTime ( __start_date );
+		date2.addHour ( step2*__ts_dt );
+		ts.setDate1 ( date1 );
+		ts.setDate2 ( date2 );
+		if ( icm1 < 0 ) {
+			// The trace data end before the requested period...
+			ts.allocateDataSpace();
+			return;
+		}
+		// Start transferring at the first month to read...
+		date.addHour ( (mstep1 - mstep0)*__ts_dt );
+	}
 
-		List<String> header_strings = getHeaderStrings ( __ts[i] );
-		for ( String h: header_strings ) {
-			__ts[i].addToComments (	h );
+	// The data space is not allocated in readHeader() so do it here...
+	ts.allocateDataSpace();
+	// Read all the conditional months to transfer for the trace in one read and
+	// decode into an array.  This is much faster than reading one
+	// value at a time.
+	if ( Message.isDebugOn ) {
+		Message.printDebug ( 1, routine, "Reading trace [" + its + "] " +
+		ts.getSequenceID() + " conditional months " + icm1 + " to " + icm2 + " of " + __ncm );
+	}
+	long position = (long)(__irec - 1)*__rec_words*4 + (long)its*nvalpertrace*4 + (long)icm1*nvalpermonth*4;
+	data = __dmi.readFloats(__traceRAF, position, (icm2 - icm1 + 1)*nvalpermonth, __data_big_endian);
+	// Loop through the conditional months (the month is incremented)...
+	for ( icm = icm1; icm <= icm2; icm++ ) {
+		// Now loop through the data, using the actual 0-23
+		// hour and the number of intervals.  It is OK to
+		// attempt transferring data outside the actual TS
+		// period because data outside the period will be
+		// ignored (and should be missing).
+		if ( Message.isDebugOn ) {
+			Message.printDebug ( 1, routine, "Transferring " + ntran[icm] +
+			" values for conditional month [" + icm + "] starting at " + date );
+		}
+		// The month's data start at a fixed offset in the array.
+		idata = (icm - icm1)*nvalpermonth;
+		idataend = idata + ntran[icm];
+		for ( ; idata < idataend; idata++, date.addHour(__ts_dt) ) {
+			ts.setDataValue(date,data[idata]);
 		}
-		
-		// Set time series properties for metadata so it is accessible later
-		setTimeSeriesProperties(__ts[i], i);
 	}
 }
 
@@ -2321,13 +2783,60 @@ public TS readTimeSeries (String tsident_string, DateTime req_date1, DateTime re
 	input_type = tsident.getInputType();
 
 	filename = tsident.getInputName();
-	NWSRFS_ESPTraceEnsemble espTE = new NWSRFS_ESPTraceEnsemble(filename,read_data,true);
-	TS ts = new HourTS(espTE.__ts[0]); // This currently pulls the first trace
+	// Read the requested trace from the shared cache of open ensembles, which only
+	// reads the header when the file is first used, rather than reading all the traces,
+	// and only reads the months overlapping the requested period...
+	TS ts = NWSRFS_ESPTraceEnsembleCache.getSharedCache().readTimeSeries(
+		filename, tsident.getSequenceID(), req_date1, req_date2, read_data);
 
 	Message.printStatus(2,routine,"tsident_string = "+tsident_string+"\nfilename = "+filename+"input type = "+input_type);
 	return ts;
 }
 
+/**
+Set the maximum number of traces read on demand by getTimeSeries(int) that are
+retained in memory.  If more traces are read, the least recently used traces are
+discarded.  Specify zero to read each trace from the file when requested, which
+minimizes memory use.
+@param max_traces_retained the maximum number of traces to retain.
+*/
+public void setMaxTracesRetained ( int max_traces_retained )
+{	if ( max_traces_retained < 0 ) {
+		max_traces_retained = 0;
+	}
+	__max_traces_retained = max_traces_retained;
+	if ( __traces_retained != null ) {
+		if ( max_traces_retained == 0 ) {
+			__traces_retained = null;
+		}
+		else {
+			// Discard the least recently used traces that are over the new limit...
+			Iterator<Integer> it = __traces_retained.keySet().iterator();
+			while ( (__traces_retained.size() > max_traces_retained) && it.hasNext() ) {
+				it.next();
+				it.remove();
+			}
+		}
+	}
+}
+
+/**
+Set the period to read for each trace.  Only the conditional months that overlap
+the period are read from the file, and the period of each trace is limited to
+the requested period.  The period is used by readData() and getTimeSeries(int);
+it does not change data that have already been read.  Traces that were read on
+demand and retained are discarded.
+@param read_start the start of the period to read, or null to read from the
+start of the forecast period.  The traces use local time, as stored in the file.
+@param read_end the end of the period to read, or null to read to the end of the
+forecast period.
+*/
+public void setReadPeriod ( DateTime read_start, DateTime read_end )
+{	__read_start = (read_start == null) ? null : new DateTime(read_start);
+	__read_end = (read_end == null) ? null : new DateTime(read_end);
+	__traces_retained = null;
+}
+
 /**
 Set properties on the time series, based on ensemble trace information.  Currently there is no
 property list at the ensemble level.
@@ -2449,6 +2958,8 @@ Because ESP trace files are not specifically little- or big-endian, write using
 the endianness of the current machine.  This method ONLY does the write.  It is
 expected that all internal data (such as idarun, ldarun, etc.) are computed
 elsewhere.  For example, construct an instance of this class with a list of time series and then call this method.
+The header and data records are assembled in memory and written to the file in
+large blocks.
 @param fname Name of file to write. 
 @exception Exception if there is an error writing the file.
 */
@@ -2463,10 +2974,8 @@ throws Exception
     float shift = (float).01;
 	String routine = "NWSRFS_ESPTraceEnsemble.writeESPTraceEnsembleFile";
 	File f = null;
-	// TODO SAM 2004-12-01 Both of the following approaches seem to
-	// give the same results.  At some point may want to do a performance test and pick the fastest.
-	//EndianDataOutputStream fp;
-	EndianRandomAccessFile fp;
+	FileOutputStream fos = null;
+	FileChannel channel = null;
 
 	// Determine the full path to the file using the working directory...
 
@@ -2499,361 +3008,258 @@ throws Exception
 		}
 	}
 
-	// Open EndianRandomAccessFile with the defined endian-ness and replace current file if it exists.
-
-	// TODO SAM 2004-12-01  SAT was using the __dmi.write() method to 
-	// open the file.  Why is this necessary?  There may be times that
-	// an ESP trace ensemble file needs to be written independent of any
-	// DMI.  What benefit is there to use the DMI?
-	// Also, the method below uses "r" for "replacement" - this is contrary to the normal "r" = "read" notation.
-	//fp = __dmi.write(full_fname,true,"r",false); 
-	fp = new EndianRandomAccessFile (
-			full_fname,
-			"rw",	// Write the file
-			true );	// Match the endian-ness of the system.
-	/*
-	fp = new EndianDataOutputStream (
-			new FileOutputStream(full_fname,
-			false),	// No appen since one-pass write
-			true );	// Match the endian-ness of the system.
-	*/
-
-	// This is important because the read code uses the ESP file name to get the TSIdent information...
-	String espfname = f.getName();
-
-	// Format version. A 4 byte float converted back to bytes to write.
-	// No index is needed since we are just writing bytes to the file and
-	// letting the file move its position as the write is done. Sort of like a stream....
-	Message.printStatus(2,routine,"Writing version \"" + __format_ver+"\"");
-	fp.writeEndianFloat(__format_ver);
-
-	// Segment ID. An 8 byte String. Convert to bytes and pad with spaces if less than 8 characters.
-	Message.printStatus ( 2, routine,"Writing seg_id \"" + __seg_id + "\"");
-	String string = StringUtil.formatString ( __seg_id.trim(), "%-8.8s" );
-	fp.writeEndianChar1(string);
-
-	// Time series Id. An 8 byte String
-	Message.printStatus ( 2, routine, "Writing ts_id \"" + __ts_id + "\"" );
-	string = StringUtil.formatString ( __ts_id.trim(), "%-8.8s" );
-	fp.writeEndianChar1(string);
-
-	// Time series type. A 4 byte String
-	Message.printStatus ( 2, routine,"Writing ts_type \"" + __ts_type+"\"");
-	string = StringUtil.formatString ( __ts_type.trim(), "%-4.4s" );
-	fp.writeEndianChar1(string);
-
-	// Time series data interval.  A 4 byte integer written as a float.
-	Message.printStatus (2,routine,"Writing data interval \""+__ts_dt+"\"");
-	float floatval = (float)__ts_dt + shift;
-	fp.writeEndianFloat(floatval);
-
-	// Simulation flag. A 4 byte integer written as a float.
-	Message.printStatus ( 2, routine,"Writing simflag \"" + __simflag+"\"");
-	floatval = (float)__simflag + shift;
-	fp.writeEndianFloat(floatval);
-
-	// Time series units. A 4 byte String
-	Message.printStatus ( 2, routine, "Writing ts_unit \""+__ts_unit+"\"" );
-	string = StringUtil.formatString ( __ts_unit.trim(), "%-4.4s" );
-	fp.writeEndianChar1(string);
-
-	// The "now" current date and time. This is 5 4 byte integers, as floats
-	DateTime now = new DateTime ( DateTime.DATE_CURRENT );
-	Message.printStatus ( 2, routine, "Writing datetime \"" + now + "\"" );
-	floatval = (float)now.getMonth() + shift;
-	fp.writeEndianFloat(floatval);	// Month
-	floatval = (float)now.getDay() + shift;
-	fp.writeEndianFloat(floatval);	// Day
-	floatval = (float)now.getYear() + shift;
-	fp.writeEndianFloat(floatval);	// Year
-	// Hour/Min...
-	floatval = (float)(now.getHour()*100 + now.getMinute()) + shift;
-	fp.writeEndianFloat(floatval);
-	floatval = (float)now.getSecond() + shift;
-	fp.writeEndianFloat(floatval);	// Sec/Milisec
-
-	// Month of the first day of the Time series. A 4 byte integer as float.
-	Message.printStatus ( 2, routine, "Writing im \"" + __im + "\"" );
-	floatval = (float)__im + shift;
-	fp.writeEndianFloat(floatval);
-
-	// Year of the first day of the Time series. A 4 byte integer
-	Message.printStatus ( 2, routine, "Writing iy \"" + __iy + "\"" );
-	floatval = (float)__iy + shift;
-	fp.writeEndianFloat(floatval);
-
-	// Start of the traces. A 4 byte integer as a float
-	Message.printStatus ( 2, routine, "Writing start of traces idarun \"" + __idarun + "\"");
-	floatval = (float)__idarun + shift;
-	fp.writeEndianFloat(floatval);
-
-	// End of traces. A 4 byte integer
-	Message.printStatus ( 2, routine, "Writing end of traces ldarun \"" + __ldarun + "\"" );
-	floatval = (float)__ldarun + shift;
-	fp.writeEndianFloat(floatval);
-
-	// Carryover day. A 4 byte integer as a float
-	Message.printStatus ( 2, routine, "Writing carryover day ijdlst \"" + __ijdlst + "\"" );
-	floatval = (float)__ijdlst + shift;
-	fp.writeEndianFloat(floatval);
-
-	// Carryover hour. A 4 byte integer
-	Message.printStatus ( 2, routine, "Writing carryover hour ihlst \"" + __ihlst + "\"" );
-	floatval = (float)__ihlst + shift;
-	fp.writeEndianFloat(floatval);
-
-	// Last day of forecast. A 4 byte integer as a float
-	Message.printStatus ( 2, routine, "Writing last day of forecast ljdlst \"" + __ljdlst + "\"" );
-	floatval = (float)__ljdlst + shift;
-	fp.writeEndianFloat(floatval);
-
-	// Last hour of forecast. A 4 byte integer as a float
-	Message.printStatus ( 2, routine, "Writing last hour of forecast lhlst \"" + __lhlst + "\"" );
-	floatval = (float)__lhlst + shift;
-	fp.writeEndianFloat(floatval);
-
-	// Number of traces. A 4 byte integer as a float
-	Message.printStatus ( 2, routine, "Writing number of traces n_traces \"" + __n_traces + "\"" );
-	floatval = (float)__n_traces + shift;
-	fp.writeEndianFloat(floatval);
-
-	// Number of conditional months. A 4 byte integer as a float
-	Message.printStatus ( 2, routine, "Writing number of conditional months ncm \"" + __ncm+"\"");
-	floatval = (float)__ncm + shift;
-	fp.writeEndianFloat(floatval);
-
-	// NWSRFS Time zone. A 4 byte integer
-	Message.printStatus ( 2, routine,"Writing time zone nlstz \"" + __nlstz+ "\"");
-	floatval = (float)__nlstz;
-	if ( __nlstz < 0 ) {
-	    floatval -= shift;
-	}
-	else if ( __nlstz > 0 ) {
-	    floatval += shift;
-	}
-	fp.writeEndianFloat(floatval);
-
-	// The NWSRFS daylight savings time flag. A 4 byte integer as a float
-	Message.printStatus ( 2, routine, "Writing daylight saving time noutds \"" + __noutds + "\"" );
-	floatval = (float)__noutds + shift;
-	fp.writeEndianFloat(floatval);
-
-	// Record number of the first trace data. A 4 byte integer as a float
-	Message.printStatus ( 2, routine, "Writing first record with trace data \"" +__irec+"\"");
-	floatval = (float)__irec + shift;
-	fp.writeEndianFloat(floatval);
-
-	// The unit dimensions from the NWS data units. A 4 byte String
-	Message.printStatus ( 2, routine, "Writing unit dimensions dim \"" + __dim + "\"" );
-	string = StringUtil.formatString ( __dim.trim(), "%-4.4s" );
-	fp.writeEndianChar1(string);
-
-	// Time scale of code. A 4 byte String
-	Message.printStatus ( 2, routine, "Writing time scale code tscale \"" + __tscale + "\"");
-	string = StringUtil.formatString ( __tscale.trim(), "%-4.4s" );
-	fp.writeEndianChar1(string);
-
-	// Segment description. A 20 byte String
-	Message.printStatus ( 2, routine, "Writing segment description segdesc \"" + __segdesc + "\"" );
-	string = StringUtil.formatString ( __segdesc.trim(), "%-20.20s" );
-	fp.writeEndianChar1(string);
-
-	// Latitude. A 4 byte float
-	Message.printStatus ( 2, routine,"Writing latitude lat \"" + __xlat + "\"");
-	fp.writeEndianFloat(__xlat); 
-
-	// Longitude. A 4 byte float
-	Message.printStatus ( 2, routine,"Writing longitude xlong \"" + __xlong+"\"");
-	fp.writeEndianFloat(__xlong); 
-
-	// Forecast group. An 8 byte String
-	Message.printStatus ( 2, routine,"Writing forecast group fg \""+__fg+"\"");
-	string = StringUtil.formatString ( __fg.trim(), "%-8.8s" );
-	fp.writeEndianChar1(string);
-
-	// Carryover group. An 8 byte String
-	Message.printStatus ( 2, routine, "Writing carryover group cg \"" + __cg + "\"" );
-	string = StringUtil.formatString ( __cg.trim(), "%-8.8s" );
-	fp.writeEndianChar1(string);
-
-	// The RFC name. An 8 byte String
-	Message.printStatus ( 2, routine, "Writing RFC name \"" + __rfcname + "\"" );
-	string = StringUtil.formatString ( __rfcname.trim(), "%-8.8s" );
-	fp.writeEndianChar1(string);
-
-	// Trace file name without path. An 80 byte String
-	// If __espfname is missing then use the method argument fname
-	Message.printStatus ( 2, routine, "Writing espfname \"" + espfname + "\"" );
-	string = StringUtil.formatString ( espfname, "%-80.80s");
-	fp.writeEndianChar1(string);
-
-	// The prsf flag string. An 80 byte String
-	String prsf_string = "";
-	if(__prsf_flag == 1) 
-	{
-		prsf_string = "PRSF";
-	}
-	else 
-	{	
-		prsf_string = "";
-	}
-	Message.printStatus ( 2, routine, "Writing prsf string \"" + prsf_string + "\"" );
-	string = StringUtil.formatString ( prsf_string.trim(), "%-80.80s" );
-	fp.writeEndianChar1(string);
-
-	// User comments. An 80 byte String
-	Message.printStatus ( 2, routine, "Writing trace Comments \"" + __esptext + "\"");
-	string = StringUtil.formatString ( __esptext.trim(), "%-80.80s" );
-	fp.writeEndianChar1(string);
-
-	// Adjustment counter. A 4 byte integer as float
-	Message.printStatus ( 2, routine, "Writing adjustment counter \"" + __adjcount + "\"" );
-	floatval = (float)__adjcount + shift;
-	fp.writeEndianFloat(floatval);
-
-	// Words 104-124. There needs to be 84 bytes of nulls written to the file
-	string = StringUtil.formatString ( __esptext.trim(), "%-84.84s" );
-	fp.writeEndianChar1(string);
-	if ( Message.isDebugOn ) {
-	    Message.printDebug ( 1, routine, "After writing header, file size is " + fp.length());
-	}
+	// The header and data records are assembled in a buffer that is written to the
+	// file in large blocks, rather than writing each value to the file.  The values
+	// are written with the endian-ness of the system, as was done when each value was
+	// written with EndianRandomAccessFile.writeEndianFloat().
+	try {
+		fos = new FileOutputStream ( full_fname );
+		channel = fos.getChannel();
+		ByteBuffer buffer = writeESPTraceEnsembleFile_AllocateBuffer ( ByteOrder.nativeOrder() );
+
+		// This is important because the read code uses the ESP file name to get the TSIdent information...
+		String espfname = f.getName();
+
+		// Format version. A 4 byte float.
+		Message.printStatus(2,routine,"Writing version \"" + __format_ver+"\"");
+		buffer.putFloat(__format_ver);
+
+		// Segment ID. An 8 byte String. Convert to bytes and pad with spaces if less than 8 characters.
+		Message.printStatus ( 2, routine,"Writing seg_id \"" + __seg_id + "\"");
+		String string = StringUtil.formatString ( __seg_id.trim(), "%-8.8s" );
+		writeESPTraceEnsembleFile_PutChars(buffer,string);
+
+		// Time series Id. An 8 byte String
+		Message.printStatus ( 2, routine, "Writing ts_id \"" + __ts_id + "\"" );
+		string = StringUtil.formatString ( __ts_id.trim(), "%-8.8s" );
+		writeESPTraceEnsembleFile_PutChars(buffer,string);
+
+		// Time series type. A 4 byte String
+		Message.printStatus ( 2, routine,"Writing ts_type \"" + __ts_type+"\"");
+		string = StringUtil.formatString ( __ts_type.trim(), "%-4.4s" );
+		writeESPTraceEnsembleFile_PutChars(buffer,string);
+
+		// Time series data interval.  A 4 byte integer written as a float.
+		Message.printStatus (2,routine,"Writing data interval \""+__ts_dt+"\"");
+		float floatval = (float)__ts_dt + shift;
+		buffer.putFloat(floatval);
+
+		// Simulation flag. A 4 byte integer written as a float.
+		Message.printStatus ( 2, routine,"Writing simflag \"" + __simflag+"\"");
+		floatval = (float)__simflag + shift;
+		buffer.putFloat(floatval);
+
+		// Time series units. A 4 byte String
+		Message.printStatus ( 2, routine, "Writing ts_unit \""+__ts_unit+"\"" );
+		string = StringUtil.formatString ( __ts_unit.trim(), "%-4.4s" );
+		writeESPTraceEnsembleFile_PutChars(buffer,string);
+
+		// The "now" current date and time. This is 5 4 byte integers, as floats
+		DateTime now = new DateTime ( DateTime.DATE_CURRENT );
+		Message.printStatus ( 2, routine, "Writing datetime \"" + now + "\"" );
+		floatval = (float)now.getMonth() + shift;
+		buffer.putFloat(floatval);	// Month
+		floatval = (float)now.getDay() + shift;
+		buffer.putFloat(floatval);	// Day
+		floatval = (float)now.getYear() + shift;
+		buffer.putFloat(floatval);	// Year
+		// Hour/Min...
+		floatval = (float)(now.getHour()*100 + now.getMinute()) + shift;
+		buffer.putFloat(floatval);
+		floatval = (float)now.getSecond() + shift;
+		buffer.putFloat(floatval);	// Sec/Milisec
+
+		// Month of the first day of the Time series. A 4 byte integer as float.
+		Message.printStatus ( 2, routine, "Writing im \"" + __im + "\"" );
+		floatval = (float)__im + shift;
+		buffer.putFloat(floatval);
+
+		// Year of the first day of the Time series. A 4 byte integer
+		Message.printStatus ( 2, routine, "Writing iy \"" + __iy + "\"" );
+		floatval = (float)__iy + shift;
+		buffer.putFloat(floatval);
+
+		// Start of the traces. A 4 byte integer as a float
+		Message.printStatus ( 2, routine, "Writing start of traces idarun \"" + __idarun + "\"");
+		floatval = (float)__idarun + shift;
+		buffer.putFloat(floatval);
+
+		// End of traces. A 4 byte integer
+		Message.printStatus ( 2, routine, "Writing end of traces ldarun \"" + __ldarun + "\"" );
+		floatval = (float)__ldarun + shift;
+		buffer.putFloat(floatval);
+
+		// Carryover day. A 4 byte integer as a float
+		Message.printStatus ( 2, routine, "Writing carryover day ijdlst \"" + __ijdlst + "\"" );
+		floatval = (float)__ijdlst + shift;
+		buffer.putFloat(floatval);
+
+		// Carryover hour. A 4 byte integer
+		Message.printStatus ( 2, routine, "Writing carryover hour ihlst \"" + __ihlst + "\"" );
+		floatval = (float)__ihlst + shift;
+		buffer.putFloat(floatval);
+
+		// Last day of forecast. A 4 byte integer as a float
+		Message.printStatus ( 2, routine, "Writing last day of forecast ljdlst \"" + __ljdlst + "\"" );
+		floatval = (float)__ljdlst + shift;
+		buffer.putFloat(floatval);
+
+		// Last hour of forecast. A 4 byte integer as a float
+		Message.printStatus ( 2, routine, "Writing last hour of forecast lhlst \"" + __lhlst + "\"" );
+		floatval = (float)__lhlst + shift;
+		buffer.putFloat(floatval);
+
+		// Number of traces. A 4 byte integer as a float
+		Message.printStatus ( 2, routine, "Writing number of traces n_traces \"" + __n_traces + "\"" );
+		floatval = (float)__n_traces + shift;
+		buffer.putFloat(floatval);
+
+		// Number of conditional months. A 4 byte integer as a float
+		Message.printStatus ( 2, routine, "Writing number of conditional months ncm \"" + __ncm+"\"");
+		floatval = (float)__ncm + shift;
+		buffer.putFloat(floatval);
+
+		// NWSRFS Time zone. A 4 byte integer
+		Message.printStatus ( 2, routine,"Writing time zone nlstz \"" + __nlstz+ "\"");
+		floatval = (float)__nlstz;
+		if ( __nlstz < 0 ) {
+		    floatval -= shift;
+		}
+		else if ( __nlstz > 0 ) {
+		    floatval += shift;
+		}
+		buffer.putFloat(floatval);
+
+		// The NWSRFS daylight savings time flag. A 4 byte integer as a float
+		Message.printStatus ( 2, routine, "Writing daylight saving time noutds \"" + __noutds + "\"" );
+		floatval = (float)__noutds + shift;
+		buffer.putFloat(floatval);
+
+		// Record number of the first trace data. A 4 byte integer as a float
+		Message.printStatus ( 2, routine, "Writing first record with trace data \"" +__irec+"\"");
+		floatval = (float)__irec + shift;
+		buffer.putFloat(floatval);
+
+		// The unit dimensions from the NWS data units. A 4 byte String
+		Message.printStatus ( 2, routine, "Writing unit dimensions dim \"" + __dim + "\"" );
+		string = StringUtil.formatString ( __dim.trim(), "%-4.4s" );
+		writeESPTraceEnsembleFile_PutChars(buffer,string);
+
+		// Time scale of code. A 4 byte String
+		Message.printStatus ( 2, routine, "Writing time scale code tscale \"" + __tscale + "\"");
+		string = StringUtil.formatString ( __tscale.trim(), "%-4.4s" );
+		writeESPTraceEnsembleFile_PutChars(buffer,string);
+
+		// Segment description. A 20 byte String
+		Message.printStatus ( 2, routine, "Writing segment description segdesc \"" + __segdesc + "\"" );
+		string = StringUtil.formatString ( __segdesc.trim(), "%-20.20s" );
+		writeESPTraceEnsembleFile_PutChars(buffer,string);
+
+		// Latitude. A 4 byte float
+		Message.printStatus ( 2, routine,"Writing latitude lat \"" + __xlat + "\"");
+		buffer.putFloat(__xlat); 
+
+		// Longitude. A 4 byte float
+		Message.printStatus ( 2, routine,"Writing longitude xlong \"" + __xlong+"\"");
+		buffer.putFloat(__xlong); 
+
+		// Forecast group. An 8 byte String
+		Message.printStatus ( 2, routine,"Writing forecast group fg \""+__fg+"\"");
+		string = StringUtil.formatString ( __fg.trim(), "%-8.8s" );
+		writeESPTraceEnsembleFile_PutChars(buffer,string);
+
+		// Carryover group. An 8 byte String
+		Message.printStatus ( 2, routine, "Writing carryover group cg \"" + __cg + "\"" );
+		string = StringUtil.formatString ( __cg.trim(), "%-8.8s" );
+		writeESPTraceEnsembleFile_PutChars(buffer,string);
+
+		// The RFC name. An 8 byte String
+		Message.printStatus ( 2, routine, "Writing RFC name \"" + __rfcname + "\"" );
+		string = StringUtil.formatString ( __rfcname.trim(), "%-8.8s" );
+		writeESPTraceEnsembleFile_PutChars(buffer,string);
+
+		// Trace file name without path. An 80 byte String
+		// If __espfname is missing then use the method argument fname
+		Message.printStatus ( 2, routine, "Writing espfname \"" + espfname + "\"" );
+		string = StringUtil.formatString ( espfname, "%-80.80s");
+		writeESPTraceEnsembleFile_PutChars(buffer,string);
+
+		// The prsf flag string. An 80 byte String
+		String prsf_string = "";
+		if(__prsf_flag == 1) 
+		{
+			prsf_string = "PRSF";
+		}
+		else 
+		{	
+			prsf_string = "";
+		}
+		Message.printStatus ( 2, routine, "Writing prsf string \"" + prsf_string + "\"" );
+		string = StringUtil.formatString ( prsf_string.trim(), "%-80.80s" );
+		writeESPTraceEnsembleFile_PutChars(buffer,string);
+
+		// User comments. An 80 byte String
+		Message.printStatus ( 2, routine, "Writing trace Comments \"" + __esptext + "\"");
+		string = StringUtil.formatString ( __esptext.trim(), "%-80.80s" );
+		writeESPTraceEnsembleFile_PutChars(buffer,string);
+
+		// Adjustment counter. A 4 byte integer as float
+		Message.printStatus ( 2, routine, "Writing adjustment counter \"" + __adjcount + "\"" );
+		floatval = (float)__adjcount + shift;
+		buffer.putFloat(floatval);
+
+		// Words 104-124. There needs to be 84 bytes of nulls written to the file
+		string = StringUtil.formatString ( __esptext.trim(), "%-84.84s" );
+		writeESPTraceEnsembleFile_PutChars(buffer,string);
+		if ( Message.isDebugOn ) {
+		    Message.printDebug ( 1, routine, "After writing header, file size is " + (channel.position() + buffer.position()));
+		}
 	
-	// Write the data...
+		// Write the data...
 
-	//int ndata = __rec_words/4;	// Floats per line - should be 31
-	//int nrecpermonth = (ndata/31)*(24/__ts_dt);
-	float [] data = new float[744];	// Enough for 31 days x 24 1-hour values...
-	int icm;	// Loop counter for conditional months in each trace.
-	int ndays;	// Number of days per month.
-	int idata;	// Position in data array for month
-	int ntran;	// Number of data to transfer for a month's data
-	int ntran2;	// Number of data to transfer for a full month's data
-	DateTime date;	// Date/time to used to transfer data array to time series.
-	DateTime hdate;	// Date/time to used to evaluate a historical date/time.
-	float missing_float = (float)-999.0;
-	int ndata_written = 0;    // Count of data bytes written below
-	try {
-	    // Loop through the number of time series traces...
-    	for ( int its = 0; its < __n_traces; its++ ) {
-    		// Initialize the date that will be used to transfer data to
-    		// the starting interval in the data file.
-    		// The dates in the file use the hour 1-24.  However,
-    		// the time series have been allocated in readHeader()
-    		// using hour 0-23.  Therefore, the starting date/time
-    		// must be properly set.  Each month of data in the file
-    		// corresponds to hour __ts_dt of the first day of the
-    		// HISTORICAL month, which will only be an issue if
-    		// __ts_dt == 24.  Take care to
-    		// set the starting date correctly and then just add the
-    		// interval as the data are processed.
-    		// First determine the hour 24 date/time, mainly to get
-    		// the correct month, and year.
-    		// Start by setting to the initial value...
-    		date = NWSRFS_Util.toDateTime24(__start_date,true);
-    		// Set the day to 1 and the hour to the interval...
-    		date.setDay ( 1 );
-    		date.setHour ( __ts_dt );
-    		// Convert back to 0-23 hour...
-    		date = NWSRFS_Util.toDateTime23(date,true);
-    		Message.printStatus ( 2, routine, "For trace [" + __ts[its].getIdentifier().getSequenceID() +
-    		        "] date for first value to write is " + date + ", local 24 = " + NWSRFS_Util.toDateTime24(date,true) );
-    		// Loop through the number of conditional months (the month is incremented)...
-    		for ( icm = 0; icm < __ncm; icm++ ) {
-    			// Loop through the records in the month...
-    			// Transfer a complete month into the data array.
-    			// Determine the number of values available in the file
-    			// to be transferred.  The months in the file
-    			// correspond to the historical months, not the
-    			// real-time forecast years.  Therefore, for example,
-    			// if the forecast period is May 2002 through May 2004
-    			// but the starting historical years are 1995 - 1998
-    			// (4 traces), the second trace (historical years
-    			// 1996-1997) will have 28 days in February in the data
-    			// file, even though 2004 in the forecast period has 29.
-    			// Therefore, calculate the number of data values in
-    			// the file based on the historical year and only
-    			// increment the date for the time series as values are transferred.
-    			hdate = new DateTime(DateTime.PRECISION_MONTH);
-    			// Set the year to the historical year...
-    			hdate.setYear ( __iy + its );
-    			hdate.setMonth ( __im );
-    			// Now add the number of months that have been processed...
-    			hdate.addMonth ( icm );
-    			// Now get the number of days in the month.  This does
-    			// not look at the hour so an hour of 24 is OK...
-    			ndays = TimeUtil.numDaysInMonth ( hdate );
-    			// Now compute the number of data that will need to be
-    			// transferred.  It may be less than the number read
-    			// because of the number of days in the month...
-    			ntran = ndays*24/__ts_dt;
-    			// Now loop through the data, using the actual 0-23
-    			// hour and the number of intervals.  It is OK to
-    			// attempt transferring data outside the actual TS
-    			// period because data outside the period will be
-    			// ignored (and should be missing).
-    			if ( Message.isDebugOn ) {
-			        Message.printDebug ( 1, routine,
-			                "Transferring " + ndays + " days, " + ntran +
-			                " values for historical " + hdate + " starting at " + date );
-    			}
-    			for ( idata = 0; idata < ntran;	idata++, date.addHour(__ts_dt) ) {
-    				// Add a debug statement to check the first trace!
-    				if(Message.isDebugOn ) { //&& its == 0) {
-    					Message.printDebug(1, routine,
-    					date.toString(DateTime.FORMAT_YYYY_MM_DD_HHmm)+
-    					" "+__ts[its].getDataValue(date));
-    				}
-    				data[idata] = (float)__ts[its].getDataValue(date);
-    			}
-    			// Fill in the rest of the array if necessary...
-    			ntran2 = 31*24/__ts_dt;
-    			for ( ; idata < ntran2; idata++ ) {
-    				data[idata] = missing_float;
-    			}
-    			idata = 0;	// Reset array position.
-    			if ( Message.isDebugOn ) {
-    				Message.printDebug ( 1, routine, "Writing trace [" + its + "] " +
-    				__ts[its].getSequenceID() + " conditional month [" + icm + "]: " +
-    				ntran + " data values, " + ntran2 + " overall with missing to pad to 31 days." );
-    			}
-    
-    			// Loop through the data in the month, incrementing the hour to assign the data...
-    			for ( i = 0; i < ntran2; i++ ) {
-    				fp.writeEndianFloat(data[i]); 
-    			}
-                ndata_written += ntran2;
-    		} // End conditional months
-     	} // End traces
-        // ESP will try to read full records (124 values per record).
-        // If the number of months happens to not have written a
-        // full record, padd it out with missing here.
-    	if ( Message.isDebugOn ) {
-    	    Message.printDebug (1, routine, "For all data, wrote " + ndata_written + " values.  File size = " + fp.length());
-    	}
-        int ndata_extra = 124 - ndata_written%124;
-        if ( ndata_extra > 0 ) {
-            if ( Message.isDebugOn ) {
-                Message.printDebug (1, routine, "Writing " + ndata_extra +
-                    " missing values at end to fill out last record.  File size before writing extra = " + fp.length());
-            }
-            for ( i = 0; i < ndata_extra; i++ ) {
-                fp.writeEndianFloat(missing_float); 
-            }
-        }
-        if ( Message.isDebugOn ) {
-            Message.printDebug (1, routine, "File size after all writing = " + fp.length());
-        }
+		float missing_float = (float)-999.0;
+		int ndata_written = 0;    // Count of data values written below
+		try {
+		    ndata_written = writeESPTraceEnsembleFile_PutData ( channel, buffer, routine );
+	        // ESP will try to read full records (124 values per record).
+	        // If the number of months happens to not have written a
+	        // full record, padd it out with missing here.
+	    	if ( Message.isDebugOn ) {
+	    	    Message.printDebug (1, routine, "For all data, wrote " + ndata_written + " values.  File size = " +
+	    	        (channel.position() + buffer.position()));
+	    	}
+	        int ndata_extra = 124 - ndata_written%124;
+	        if ( ndata_extra > 0 ) {
+	            if ( Message.isDebugOn ) {
+	                Message.printDebug (1, routine, "Writing " + ndata_extra +
+	                    " missing values at end to fill out last record.  File size before writing extra = " +
+	                    (channel.position() + buffer.position()));
+	            }
+	            if ( buffer.remaining() < ndata_extra*4 ) {
+	                writeESPTraceEnsembleFile_Flush ( channel, buffer );
+	            }
+	            for ( i = 0; i < ndata_extra; i++ ) {
+	                buffer.putFloat(missing_float); 
+	            }
+	        }
+	        writeESPTraceEnsembleFile_Flush ( channel, buffer );
+	        if ( Message.isDebugOn ) {
+	            Message.printDebug (1, routine, "File size after all writing = " + channel.size());
+	        }
+		}
+		catch ( Exception e ) {
+			// Should not happen if loops above are correct...
+			Message.printWarning ( 2, routine, "Unexpected write error." );
+			Message.printWarning ( 2, routine, e );
+			throw new Exception ( "Unexpected write error" );
+		}
 	}
-	catch ( Exception e ) {
-		// Should not happen if loops above are correct...
-		Message.printWarning ( 2, routine, "Unexpected write error." );
-		Message.printWarning ( 2, routine, e );
-		throw new Exception ( "Unexpected write error" );
+	finally {
+		// Close the file...
+		if ( fos != null ) {
+			fos.close();
+		}
 	}
-
-	// Close the file...
-	fp.close();
-	fp = null;
 }
 
 // TODO SAM 2004-12-01 The byte conversions below seem to work like this:
@@ -2871,6 +3277,9 @@ ensemble in memory must be complete.  This method was ported from the C++
 ESPTraceEns.writeBinOutput() method.  Note that a new file is created, even if
 the data were read from the same file originally.  Because ESP trace files are
 not specifically little- or big-endian, write using the endianness of the current machine.
+The header and data records are assembled in memory and written to the file in
+large blocks, producing the same bytes as the original per-value writes, and
+an NWSRFS_DMI instance is no longer needed to write the file.
 @param fname Name of file to write.  This MUST follow the format
 FGID.SEGID.DataType.Interval.CS (e.g., PRLI.PRLI.QINE.06.CS).  This is used
 internally to determine some information about the trace.
@@ -2880,16 +3289,12 @@ public void writeESPTraceEnsembleFileUsingRandomAccessFile ( String fname )
 throws Exception
 {
 	// Local variables
-	int i;
 	String routine = "NWSRFS_ESPTraceEnsemble.writeESPTraceEnsembleFile";
-	byte [] record;
-	int floatByte;
-	String parseString;
-	String nullString = new String();
 	String prsf_string;
 	String full_fname = null;
 	File f = null;
-	EndianRandomAccessFile traceRAF;
+	FileOutputStream fos = null;
+	FileChannel channel = null;
 
 	// Determine if the passed in filename is an absolute or relative path
     // FIXME SAM 2008-01-07 Can the second clause be used always instead?
@@ -2906,524 +3311,363 @@ throws Exception
 		f.delete();
 	}
 
-	// Open RandomAccessFile
-	traceRAF = new EndianRandomAccessFile(full_fname,"rw"); 
-
-	// This is important because the read code uses the ESP file name to get the TSIdent information...
-	//String espfname = f.getName();
-
-	// Format version. A 4 byte float converted back to bytes to write.
-	// No index is needed since we are just writing bytes to the file and
-	// letting the file move its position as the write is done.
-	record = new byte[4];
-	Message.printStatus(2,routine,"Writing version \"" + __format_ver+"\"");
-	floatByte = Float.floatToIntBits(__format_ver);
-	record[3] = (byte)(floatByte>>24);
-	record[2] = (byte)(floatByte>>16);
-	record[1] = (byte)(floatByte>>8);
-	record[0] = (byte)(floatByte);
-	__dmi.write(traceRAF,__big_endian,record,4,false);
-
-	// Segment ID. An 8 byte String. Convert to bytes.
-	record = new byte[8];
-	Message.printStatus ( 2, routine,"Writing seg_id \"" + __seg_id + "\"");
-	parseString = __seg_id;
-	for(i=0;i<8-__seg_id.length();i++) {
-		parseString += " ";
-    }
-
-	record = parseString.getBytes();
-	__dmi.write(traceRAF,__big_endian,record,8,false);
-
-	// Time series Id. An 8 byte String
-	record = new byte[8];
-	Message.printStatus ( 2, routine, "Writing ts_id \"" + __ts_id + "\"" );
-	parseString = __ts_id;
-	for(i=0;i<8-__ts_id.length();i++) {
-		parseString += " ";
-    }
-
-	record = parseString.getBytes();
-	__dmi.write(traceRAF,__big_endian,record,8,false);
-
-	// Time series type. A 4 byte String
-	record = new byte[4];
-	Message.printStatus ( 2, routine, "Writing ts_type \"" + __ts_type + "\"" );
-	parseString = __ts_type;
-	for(i=0;i<4-__ts_type.length();i++) {
-        parseString += " ";
-    }
-
-	record = parseString.getBytes();
-	__dmi.write(traceRAF,__big_endian,record,4,false);
-
-	// Time series data interval. A 4 byte integer
-	record = new byte[4];
-	Message.printStatus ( 2, routine, "Writing data interval \"" + __ts_dt + "\"" );
-	floatByte = Float.floatToIntBits((float)__ts_dt);
-	record[3] = (byte)(floatByte>>24);
-	record[2] = (byte)(floatByte>>16);
-	record[1] = (byte)(floatByte>>8);
-	record[0] = (byte)(floatByte);
-	__dmi.write(traceRAF,__big_endian,record,4,false);
-
-	// Simulation flag. A 4 byte integer
-	record = new byte[4];
-	Message.printStatus ( 2, routine, "Writing simflag \"" + __simflag + "\"" );
-	floatByte = Float.floatToIntBits((float)__simflag);
-	record[3] = (byte)(floatByte>>24);
-	record[2] = (byte)(floatByte>>16);
-	record[1] = (byte)(floatByte>>8);
-	record[0] = (byte)(floatByte);
-	__dmi.write(traceRAF,__big_endian,record,4,false);
-
-	// Time series Unit. A 4 byte String
-	record = new byte[4];
-	Message.printStatus ( 2, routine, "Writing ts_unit \"" + __ts_unit + "\"" );
-	parseString = __ts_unit;
-	for(i=0;i<4-__ts_unit.length();i++) {
-		parseString += " ";
-    }
-
-	record = parseString.getBytes();
-	__dmi.write(traceRAF,__big_endian,record,4,false);
-
-	// The now datetime value. This is 5 4 byte integers
-	record = new byte[4];
-	DateTime now = new DateTime ( DateTime.DATE_CURRENT );
-	Message.printStatus ( 2, routine, "Writing datetime \"" + now + "\"" );
-	floatByte = Float.floatToIntBits((float)now.getMonth());
-	record[3] = (byte)(floatByte>>24);
-	record[2] = (byte)(floatByte>>16);
-	record[1] = (byte)(floatByte>>8);
-	record[0] = (byte)(floatByte);
-	__dmi.write(traceRAF,__big_endian,record,4,false); // Month
-
-	floatByte = Float.floatToIntBits((float)now.getDay());
-	record[3] = (byte)(floatByte>>24);
-	record[2] = (byte)(floatByte>>16);
-	record[1] = (byte)(floatByte>>8);
-	record[0] = (byte)(floatByte);
-	__dmi.write(traceRAF,__big_endian,record,4,false); // Day
-
-	floatByte = Float.floatToIntBits((float)now.getYear());
-	record[3] = (byte)(floatByte>>24);
-	record[2] = (byte)(floatByte>>16);
-	record[1] = (byte)(floatByte>>8);
-	record[0] = (byte)(floatByte);
-	__dmi.write(traceRAF,__big_endian,record,4,false); // Year
-
-	floatByte = Float.floatToIntBits((float)now.getHour()*100+(float)now.getMinute());
-	record[3] = (byte)(floatByte>>24);
-	record[2] = (byte)(floatByte>>16);
-	record[1] = (byte)(floatByte>>8);
-	record[0] = (byte)(floatByte);
-	__dmi.write(traceRAF,__big_endian,record,4,false); // Hour/Min
-
-	floatByte = Float.floatToIntBits((float)now.getSecond());
-	record[3] = (byte)(floatByte>>24);
-	record[2] = (byte)(floatByte>>16);
-	record[1] = (byte)(floatByte>>8);
-	record[0] = (byte)(floatByte);
-	__dmi.write(traceRAF,__big_endian,record,4,false); // Sec/Milisec
-
-	// Month of the first day of the Time series. A 4 byte integer	
-	record = new byte[4];
-	Message.printStatus ( 2, routine, "Writing im \"" + __im + "\"" );
-	floatByte = Float.floatToIntBits((float)__im);
-	record[3] = (byte)(floatByte>>24);
-	record[2] = (byte)(floatByte>>16);
-	record[1] = (byte)(floatByte>>8);
-	record[0] = (byte)(floatByte);
-	__dmi.write(traceRAF,__big_endian,record,4,false);
-
-	// Year of the first day of the Time series. A 4 byte integer
-	record = new byte[4];
-	Message.printStatus ( 2, routine, "Writing iy \"" + __iy + "\"" );
-	floatByte = Float.floatToIntBits((float)__iy);
-	record[3] = (byte)(floatByte>>24);
-	record[2] = (byte)(floatByte>>16);
-	record[1] = (byte)(floatByte>>8);
-	record[0] = (byte)(floatByte);
-	__dmi.write(traceRAF,__big_endian,record,4,false);
-
-	// Start of the traces. A 4 byte integer
-	record = new byte[4];
-	Message.printStatus ( 2, routine, "Writing start of traces idarun \"" + __idarun + "\"" );
-	floatByte = Float.floatToIntBits((float)__idarun);
-	record[3] = (byte)(floatByte>>24);
-	record[2] = (byte)(floatByte>>16);
-	record[1] = (byte)(floatByte>>8);
-	record[0] = (byte)(floatByte);
-	__dmi.write(traceRAF,__big_endian,record,4,false);
-
-	// End of traces. A 4 byte integer
-	record = new byte[4];
-	Message.printStatus ( 2, routine, "Writing end of traces ldarun \"" + __ldarun + "\"" );
-	floatByte = Float.floatToIntBits((float)__ldarun);
-	record[3] = (byte)(floatByte>>24);
-	record[2] = (byte)(floatByte>>16);
-	record[1] = (byte)(floatByte>>8);
-	record[0] = (byte)(floatByte);
-	__dmi.write(traceRAF,__big_endian,record,4,false);
-
-	// Carryover day. A 4 byte integer
-	record = new byte[4];
-	Message.printStatus ( 2, routine, "Writing carryover day ljdlst \"" + __ijdlst + "\"" );
-	floatByte = Float.floatToIntBits((float)__ijdlst);
-	record[3] = (byte)(floatByte>>24);
-	record[2] = (byte)(floatByte>>16);
-	record[1] = (byte)(floatByte>>8);
-	record[0] = (byte)(floatByte);
-	__dmi.write(traceRAF,__big_endian,record,4,false);
-
-	// Carryover hour. A 4 byte integer
-	record = new byte[4];
-	Message.printStatus ( 2, routine, "Writing carryover hour ihlst \"" + __ihlst + "\"" );
-	floatByte = Float.floatToIntBits((float)__ihlst);
-	record[3] = (byte)(floatByte>>24);
-	record[2] = (byte)(floatByte>>16);
-	record[1] = (byte)(floatByte>>8);
-	record[0] = (byte)(floatByte);
-	__dmi.write(traceRAF,__big_endian,record,4,false);
-
-	// Last day of forecast. A 4 byte integer
-	record = new byte[4];
-	Message.printStatus ( 2, routine, "Writing last day of forecast ljdlst \"" + __ljdlst + "\"" );
-	floatByte = Float.floatToIntBits((float)__ljdlst);
-	record[3] = (byte)(floatByte>>24);
-	record[2] = (byte)(floatByte>>16);
-	record[1] = (byte)(floatByte>>8);
-	record[0] = (byte)(floatByte);
-	__dmi.write(traceRAF,__big_endian,record,4,false);
-
-	// Last hour of forecast. A 4 byte integer
-	record = new byte[4];
-	Message.printStatus ( 2, routine, "Writing last hour of forecast lhlst \"" + __lhlst + "\"" );
-	floatByte = Float.floatToIntBits((float)__lhlst);
-	record[3] = (byte)(floatByte>>24);
-	record[2] = (byte)(floatByte>>16);
-	record[1] = (byte)(floatByte>>8);
-	record[0] = (byte)(floatByte);
-	__dmi.write(traceRAF,__big_endian,record,4,false);
-
-	// Number of traces. A 4 byte integer
-	record = new byte[4];
-	Message.printStatus ( 2, routine, "Writing number of traces n_traces \"" + __n_traces + "\"" );
-	floatByte = Float.floatToIntBits((float)__n_traces);
-	record[3] = (byte)(floatByte>>24);
-	record[2] = (byte)(floatByte>>16);
-	record[1] = (byte)(floatByte>>8);
-	record[0] = (byte)(floatByte);
-	__dmi.write(traceRAF,__big_endian,record,4,false);
-
-	// Number of conditional months. A 4 byte integer
-	record = new byte[4];
-	Message.printStatus ( 2, routine, "Writing number of conditional months ncm \"" + __ncm + "\"" );
-	floatByte = Float.floatToIntBits((float)__ncm);
-	record[3] = (byte)(floatByte>>24);
-	record[2] = (byte)(floatByte>>16);
-	record[1] = (byte)(floatByte>>8);
-	record[0] = (byte)(floatByte);
-	__dmi.write(traceRAF,__big_endian,record,4,false);
-
-	// NWSRFS Time zone. A 4 byte integer
-	record = new byte[4];
-	Message.printStatus ( 2, routine, "Writing time zone nlstz \"" + __nlstz + "\"" );
-	floatByte = Float.floatToIntBits((float)__nlstz);
-	record[3] = (byte)(floatByte>>24);
-	record[2] = (byte)(floatByte>>16);
-	record[1] = (byte)(floatByte>>8);
-	record[0] = (byte)(floatByte);
-	__dmi.write(traceRAF,__big_endian,record,4,false);
-
-	// The NWSRFS daylight savings time flag. A 4 byte integer
-	record = new byte[4];
-	Message.printStatus ( 2, routine, "Writing daylight saving time noutds \"" + __noutds + "\"" );
-	floatByte = Float.floatToIntBits((float)__noutds);
-	record[3] = (byte)(floatByte>>24);
-	record[2] = (byte)(floatByte>>16);
-	record[1] = (byte)(floatByte>>8);
-	record[0] = (byte)(floatByte);
-	__dmi.write(traceRAF,__big_endian,record,4,false);
-
-	// Record number of the first trace data. A 4 byte integer
-	record = new byte[4];
-	Message.printStatus ( 2, routine, "Writing first record with trace data \"" + __irec + "\"" );
-	floatByte = Float.floatToIntBits((float)__irec);
-	record[3] = (byte)(floatByte>>24);
-	record[2] = (byte)(floatByte>>16);
-	record[1] = (byte)(floatByte>>8);
-	record[0] = (byte)(floatByte);
-	__dmi.write(traceRAF,__big_endian,record,4,false);
-
-	// The Unit dimensions from the NWS data units. A 4 byte String
-	record = new byte[4];
-	Message.printStatus ( 2, routine, "Writing unit dimensions \"" + __dim + "\"" );
-	parseString = __dim;
-	for(i=0;i<4-__dim.length();i++) {
-		parseString += " ";
-    }
-
-	record = parseString.getBytes();
-	__dmi.write(traceRAF,__big_endian,record,4,false);
+	// Open the file.  The header and data records are assembled in a buffer that is
+	// written to the file in large blocks.  The bytes of each value were previously
+	// shifted into the low-order first (little-endian) order and then passed through
+	// to the file, regardless of __big_endian, so use that order.
+	try {
+		fos = new FileOutputStream ( full_fname );
+		channel = fos.getChannel();
+		ByteBuffer buffer = writeESPTraceEnsembleFile_AllocateBuffer ( ByteOrder.LITTLE_ENDIAN );
+
+		// This is important because the read code uses the ESP file name to get the TSIdent information...
+		//String espfname = f.getName();
+
+		// Format version. A 4 byte float.
+		Message.printStatus(2,routine,"Writing version \"" + __format_ver+"\"");
+		buffer.putFloat(__format_ver);
+
+		// Segment ID. An 8 byte String. Convert to bytes.
+		Message.printStatus ( 2, routine,"Writing seg_id \"" + __seg_id + "\"");
+		writeESPTraceEnsembleFile_PutBytes(buffer,__seg_id,8);
+
+		// Time series Id. An 8 byte String
+		Message.printStatus ( 2, routine, "Writing ts_id \"" + __ts_id + "\"" );
+		writeESPTraceEnsembleFile_PutBytes(buffer,__ts_id,8);
+
+		// Time series type. A 4 byte String
+		Message.printStatus ( 2, routine, "Writing ts_type \"" + __ts_type + "\"" );
+		writeESPTraceEnsembleFile_PutBytes(buffer,__ts_type,4);
+
+		// Time series data interval. A 4 byte integer
+		Message.printStatus ( 2, routine, "Writing data interval \"" + __ts_dt + "\"" );
+		buffer.putFloat((float)__ts_dt);
+
+		// Simulation flag. A 4 byte integer
+		Message.printStatus ( 2, routine, "Writing simflag \"" + __simflag + "\"" );
+		buffer.putFloat((float)__simflag);
 
-	// Time scale of code. A 4 byte String
-	record = new byte[4];
-	Message.printStatus ( 2, routine, "Writing time scale code \"" + __tscale + "\"" );
-	parseString = __tscale;
-	for(i=0;i<4-__tscale.length();i++) {
-		parseString += " ";
-    }
+		// Time series Unit. A 4 byte String
+		Message.printStatus ( 2, routine, "Writing ts_unit \"" + __ts_unit + "\"" );
+		writeESPTraceEnsembleFile_PutBytes(buffer,__ts_unit,4);
 
-	record = parseString.getBytes();
-	__dmi.write(traceRAF,__big_endian,record,4,false);
+		// The now datetime value. This is 5 4 byte integers
+		DateTime now = new DateTime ( DateTime.DATE_CURRENT );
+		Message.printStatus ( 2, routine, "Writing datetime \"" + now + "\"" );
+		buffer.putFloat((float)now.getMonth()); // Month
+		buffer.putFloat((float)now.getDay()); // Day
+		buffer.putFloat((float)now.getYear()); // Year
+		buffer.putFloat((float)now.getHour()*100+(float)now.getMinute()); // Hour/Min
+		buffer.putFloat((float)now.getSecond()); // Sec/Milisec
+
+		// Month of the first day of the Time series. A 4 byte integer	
+		Message.printStatus ( 2, routine, "Writing im \"" + __im + "\"" );
+		buffer.putFloat((float)__im);
+
+		// Year of the first day of the Time series. A 4 byte integer
+		Message.printStatus ( 2, routine, "Writing iy \"" + __iy + "\"" );
+		buffer.putFloat((float)__iy);
+
+		// Start of the traces. A 4 byte integer
+		Message.printStatus ( 2, routine, "Writing start of traces idarun \"" + __idarun + "\"" );
+		buffer.putFloat((float)__idarun);
+
+		// End of traces. A 4 byte integer
+		Message.printStatus ( 2, routine, "Writing end of traces ldarun \"" + __ldarun + "\"" );
+		buffer.putFloat((float)__ldarun);
+
+		// Carryover day. A 4 byte integer
+		Message.printStatus ( 2, routine, "Writing carryover day ljdlst \"" + __ijdlst + "\"" );
+		buffer.putFloat((float)__ijdlst);
+
+		// Carryover hour. A 4 byte integer
+		Message.printStatus ( 2, routine, "Writing carryover hour ihlst \"" + __ihlst + "\"" );
+		buffer.putFloat((float)__ihlst);
+
+		// Last day of forecast. A 4 byte integer
+		Message.printStatus ( 2, routine, "Writing last day of forecast ljdlst \"" + __ljdlst + "\"" );
+		buffer.putFloat((float)__ljdlst);
+
+		// Last hour of forecast. A 4 byte integer
+		Message.printStatus ( 2, routine, "Writing last hour of forecast lhlst \"" + __lhlst + "\"" );
+		buffer.putFloat((float)__lhlst);
+
+		// Number of traces. A 4 byte integer
+		Message.printStatus ( 2, routine, "Writing number of traces n_traces \"" + __n_traces + "\"" );
+		buffer.putFloat((float)__n_traces);
+
+		// Number of conditional months. A 4 byte integer
+		Message.printStatus ( 2, routine, "Writing number of conditional months ncm \"" + __ncm + "\"" );
+		buffer.putFloat((float)__ncm);
+
+		// NWSRFS Time zone. A 4 byte integer
+		Message.printStatus ( 2, routine, "Writing time zone nlstz \"" + __nlstz + "\"" );
+		buffer.putFloat((float)__nlstz);
+
+		// The NWSRFS daylight savings time flag. A 4 byte integer
+		Message.printStatus ( 2, routine, "Writing daylight saving time noutds \"" + __noutds + "\"" );
+		buffer.putFloat((float)__noutds);
+
+		// Record number of the first trace data. A 4 byte integer
+		Message.printStatus ( 2, routine, "Writing first record with trace data \"" + __irec + "\"" );
+		buffer.putFloat((float)__irec);
+
+		// The Unit dimensions from the NWS data units. A 4 byte String
+		Message.printStatus ( 2, routine, "Writing unit dimensions \"" + __dim + "\"" );
+		writeESPTraceEnsembleFile_PutBytes(buffer,__dim,4);
+
+		// Time scale of code. A 4 byte String
+		Message.printStatus ( 2, routine, "Writing time scale code \"" + __tscale + "\"" );
+		writeESPTraceEnsembleFile_PutBytes(buffer,__tscale,4);
 
-	// Segment description. A 20 byte String
-	record = new byte[20];
-	Message.printStatus ( 2, routine, "Writing segment description \"" + __segdesc + "\"" );
-	parseString = __segdesc;
-	for(i=0;i<20-__segdesc.length();i++) {
-		parseString += " ";
-    }
+		// Segment description. A 20 byte String
+		Message.printStatus ( 2, routine, "Writing segment description \"" + __segdesc + "\"" );
+		writeESPTraceEnsembleFile_PutBytes(buffer,__segdesc,20);
+
+		// Latitude. A 4 byte float
+		Message.printStatus ( 2, routine, "Writing latitude \"" + __xlat + "\"" );
+		buffer.putFloat(__xlat); 
+
+		// Longitude. A 4 byte float
+		Message.printStatus ( 2, routine, "Writing longitude \"" + __xlong + "\"" );
+		buffer.putFloat(__xlong); 
+
+		// Forecast group. An 8 byte String
+		Message.printStatus ( 2, routine, "Writing forecast group \"" + __fg + "\"" );
+		writeESPTraceEnsembleFile_PutBytes(buffer,__fg,8);
+
+		// Carryover group. An 8 byte String
+		Message.printStatus ( 2, routine, "Writing carryover group \"" + __cg + "\"" );
+		writeESPTraceEnsembleFile_PutBytes(buffer,__cg,8);
+
+		// The RFC name. An 8 byte String
+		Message.printStatus ( 2, routine, "Writing RFC name \"" + __rfcname + "\"" );
+		writeESPTraceEnsembleFile_PutBytes(buffer,__rfcname,8);
+
+		// Trace file name without path. An 80 byte String
 
-	record = parseString.getBytes();
-	__dmi.write(traceRAF,__big_endian,record,20,false);
-
-	// Latitude. A 4 byte float
-	record = new byte[4];
-	Message.printStatus ( 2, routine, "Writing latitude \"" + __xlat + "\"" );
-	floatByte = Float.floatToIntBits(__xlat);
-	record[3] = (byte)(floatByte>>24);
-	record[2] = (byte)(floatByte>>16);
-	record[1] = (byte)(floatByte>>8);
-	record[0] = (byte)(floatByte);
-	__dmi.write(traceRAF,__big_endian,record,4,false); 
-
-	// Longitude. A 4 byte float
-	record = new byte[4];
-	Message.printStatus ( 2, routine, "Writing longitude \"" + __xlong + "\"" );
-	floatByte = Float.floatToIntBits(__xlong);
-	record[3] = (byte)(floatByte>>24);
-	record[2] = (byte)(floatByte>>16);
-	record[1] = (byte)(floatByte>>8);
-	record[0] = (byte)(floatByte);
-	__dmi.write(traceRAF,__big_endian,record,4,false); 
-
-	// Forecast group. An 8 byte String
-	record = new byte[8];
-	Message.printStatus ( 2, routine, "Writing forecast group \"" + __fg + "\"" );
-	parseString = __fg;
-	for(i=0;i<8-__fg.length();i++) {
-		parseString += " ";
-    }
-
-	record = parseString.getBytes();
-	__dmi.write(traceRAF,__big_endian,record,8,false);
+		// If __espfname is missing then use the method argument fname
+		if(__espfname.length() == 0 || __espfname.compareTo(" ") == 0) {
+			__espfname = fname;
+	    }
 
-	// Carryover group. An 8 byte String
-	record = new byte[8];
-	Message.printStatus ( 2, routine, "Writing carryover group \"" + __cg + "\"" );
-	parseString = __cg;
-	for(i=0;i<8-__cg.length();i++) {
-		parseString += " ";
-    }
+		Message.printStatus ( 2, routine, "Writing trace name \"" + __espfname + "\"" );
+		writeESPTraceEnsembleFile_PutBytes(buffer,__espfname,80);
 
-	record = parseString.getBytes();
-	__dmi.write(traceRAF,__big_endian,record,8,false);
-
-	// The RFC name. An 8 byte String
-	record = new byte[8];
-	Message.printStatus ( 2, routine, "Writing RFC name \"" + __rfcname + "\"" );
-	parseString = __rfcname;
-	for(i=0;i<8-__rfcname.length();i++) {
-		parseString += " ";
-    }
-
-	record = parseString.getBytes();
-	__dmi.write(traceRAF,__big_endian,record,8,false);
+		// The prsf flag string. An 80 byte String
+		if(__prsf_flag == 1) 
+		{
+			prsf_string = "PRSF";
+		}
+		else 
+		{	
+			prsf_string = "";
+		}
+		Message.printStatus ( 2, routine, "Writing prsf string \"" + prsf_string + "\"" );
+		writeESPTraceEnsembleFile_PutBytes(buffer,prsf_string,80);
 
-	// Trace file name without path. An 80 byte String
-	record = new byte[80];
+		// User comments. An 80 byte String
+		Message.printStatus ( 2, routine, "Writing trace name \"" + __esptext + "\"" );
+		writeESPTraceEnsembleFile_PutBytes(buffer,__esptext,80);
 
-	// If __espfname is missing then use the method argument fname
-	if(__espfname.length() == 0 || __espfname.compareTo(" ") == 0) {
-		__espfname = fname;
-    }
+		// Adjustment counter. A 4 byte integer
+		Message.printStatus ( 2, routine, "Writing adjustment counter \"" + __adjcount + "\"" );
+		buffer.putFloat((float)__adjcount);
 
-	Message.printStatus ( 2, routine, "Writing trace name \"" + __espfname + "\"" );
-	parseString = __espfname;
-	for(i=0;i<80-__espfname.length();i++) {
-		parseString += " ";
-    }
+		// Words 104-124. There needs to be 84 bytes of nulls written to the file
+		writeESPTraceEnsembleFile_PutBytes(buffer,"",84);
 
-	record = parseString.getBytes();
-	__dmi.write(traceRAF,__big_endian,record,80,false);
+		// Write the data...
 
-	// The prsf flag string. An 80 byte String
-	record = new byte[80];
-	if(__prsf_flag == 1) 
-	{
-		prsf_string = "PRSF";
+		try {
+			writeESPTraceEnsembleFile_PutData ( channel, buffer, routine );
+			writeESPTraceEnsembleFile_Flush ( channel, buffer );
+		}
+		catch ( Exception e ) {
+			// Should not happen if loops above are correct...
+			Message.printWarning ( 2, routine, "Unexpected write error." );
+			Message.printWarning ( 2, routine, e );
+			throw new Exception ( "Unexpected write error" );
+		}
 	}
-	else 
-	{	
-		prsf_string = "";
+	finally {
+		// Close the file...
+		if ( fos != null ) {
+			fos.close();
+		}
 	}
-	Message.printStatus ( 2, routine, "Writing prsf string \"" + prsf_string + "\"" );
-	parseString = prsf_string;
-	for(i=0;i<80-prsf_string.length();i++) {
-		parseString += " ";
-    }
-
-	record = parseString.getBytes();
-	__dmi.write(traceRAF,__big_endian,record,80,false);
-
-	// User comments. An 80 byte String
-	record = new byte[80];
-	Message.printStatus ( 2, routine, "Writing trace name \"" + __esptext + "\"" );
-	parseString = __esptext;
-	for(i=0;i<80-__esptext.length();i++) {
-		parseString += " ";
-    }
+}
 
-	record = parseString.getBytes();
-	__dmi.write(traceRAF,__big_endian,record,80,false);
+/**
+Allocate the buffer used to assemble records when writing an ensemble file.
+The buffer holds WRITE_BLOCK_RECORDS records of __rec_words 4-byte words, so
+that it is written to the file in large blocks.  A heap buffer is used rather
+than a direct buffer because direct memory is limited and is only released when
+the buffer is garbage collected, so allocating a direct buffer for each file
+that is written could exhaust direct memory.  The channel copies the heap
+buffer through a temporary direct buffer that it reuses for the thread.
+@param order the byte order for the values in the file.
+@return a heap buffer with the requested byte order.
+*/
+private ByteBuffer writeESPTraceEnsembleFile_AllocateBuffer ( ByteOrder order )
+{	ByteBuffer buffer = ByteBuffer.allocate ( WRITE_BLOCK_RECORDS*__rec_words*4 );
+	buffer.order ( order );
+	return buffer;
+}
 
-	// Adjustment counter. A 4 byte integer
-	record = new byte[4];
-	Message.printStatus ( 2, routine, "Writing adjustment counter \"" + __adjcount + "\"" );
-	floatByte = Float.floatToIntBits((float)__adjcount);
-	record[3] = (byte)(floatByte>>24);
-	record[2] = (byte)(floatByte>>16);
-	record[1] = (byte)(floatByte>>8);
-	record[0] = (byte)(floatByte);
-	__dmi.write(traceRAF,__big_endian,record,4,false);
-
-	// Words 104-124. There needs to be 84 bytes of nulls written to the file
-	record = new byte[84];
-	for(i=0;i<84;i++) {
-		nullString += " ";
-    }
+/**
+Write the contents of the buffer to the file and clear the buffer for more records.
+@param channel the channel for the file being written.
+@param buffer the buffer containing the bytes to write.
+@exception IOException if there is an error writing the file.
+*/
+private void writeESPTraceEnsembleFile_Flush ( FileChannel channel, ByteBuffer buffer )
+throws IOException
+{	buffer.flip();
+	while ( buffer.hasRemaining() ) {
+		channel.write ( buffer );
+	}
+	buffer.clear();
+}
 
-	record = nullString.getBytes();
-	__dmi.write(traceRAF,__big_endian,record,84,false);
+/**
+Put a String into the buffer as the bytes of the String in the default character
+encoding, as returned by String.getBytes(), padding with spaces or truncating.
+@param buffer the buffer being assembled.
+@param s the String to put.
+@param width the number of bytes to put.
+*/
+private void writeESPTraceEnsembleFile_PutBytes ( ByteBuffer buffer, String s, int width )
+{	byte [] bytes = s.getBytes();
+	int nbytes = Math.min ( bytes.length, width );
+	buffer.put ( bytes, 0, nbytes );
+	for ( int i = nbytes; i < width; i++ ) {
+		buffer.put ( (byte)' ' );
+	}
+}
 
-	// Write the data...
+/**
+Put a String into the buffer as one byte per character (the low-order byte of
+each character), as done by EndianRandomAccessFile.writeEndianChar1().
+@param buffer the buffer being assembled.
+@param s the String to put, which should already be padded to the field width.
+*/
+private void writeESPTraceEnsembleFile_PutChars ( ByteBuffer buffer, String s )
+{	int length = s.length();
+	for ( int i = 0; i < length; i++ ) {
+		buffer.put ( (byte)s.charAt(i) );
+	}
+}
 
-	//int ndata = __rec_words/4;	// Floats per line - should be 31
-	//int nrecpermonth = (ndata/31)*(24/__ts_dt);
-	float [] data = new float[744];	// Enough for 31 days x 24 1-hour values...
+/**
+Put the data for all traces into the buffer, writing the buffer to the file when
+it is full.  Each conditional month of each trace is written as 31 days of data,
+with missing values after the end of the historical month.
+@param channel the channel for the file being written.
+@param buffer the buffer being assembled, containing the header.
+@param routine the routine name for messages.
+@return the number of data values put into the buffer.
+@exception IOException if there is an error writing the file.
+*/
+private int writeESPTraceEnsembleFile_PutData ( FileChannel channel, ByteBuffer buffer, String routine )
+throws IOException
+{
 	int icm;	// Loop counter for conditional months in each trace.
 	int ndays;	// Number of days per month.
-	int idata;	// Position in data array for month
+	int idata;	// Position in data for month
 	int ntran;	// Number of data to transfer for a month's data
-	int ntran2;	// Number of data to transfer for a full month's data
+	int ntran2 = 31*24/__ts_dt;	// Number of data to transfer for a full month's data
 	DateTime date;	// Date/time to used to transfer data array to time series.
 	DateTime hdate;	// Date/time to used to evaluate a historical date/time.
 	float missing_float = (float)-999.0;
-	try {
-    	// Loop through the number of time series traces...
-    	for ( int its = 0; its < __n_traces; its++ ) {
-    		// Initialize the date that will be used to transfer data to
-    		// the starting interval in the data file.
-    		// The dates in the file use the hour 1-24.  However,
-    		// the time series have been allocated in readHeader()
-    		// using hour 0-23.  Therefore, the starting date/time
-    		// must be properly set.  Each month of data in the file
-    		// corresponds to hour __ts_dt of the first day of the
-    		// HISTORICAL month, which will only be an issue if
-    		// __ts_dt == 24.  Take care to
-    		// set the starting date correctly and then just add the
-    		// interval as the data are processed.
-    		// First determine the hour 24 date/time, mainly to get
-    		// the correct month, and year.
-    		// Start by setting to the initial value...
-    		date = NWSRFS_Util.toDateTime24(__start_date,true);
-    		// Set the day to 1 and the hour to the interval...
-    		date.setDay ( 1 );
-    		date.setHour ( __ts_dt );
-    		// Convert back to 0-23 hour...
-    		date = NWSRFS_Util.toDateTime23(date,true);
-    		// Loop through the number of conditional months (the month is incr...
-    		for ( icm = 0; icm < __ncm; icm++ ) {
-    			// Loop through the records in the month...
-    			// Transfer a complete month into the data array.
-    			// Determine the number of values available in the file
-    			// to be transferred.  The months in the file
-    			// correspond to the historical months, not the
-    			// real-time forecast years.  Therefore, for example,
-    			// if the forecast period is May 2002 through May 2004
-    			// but the starting historical years are 1995 - 1998
-    			// (4 traces), the second trace (historical years
-    			// 1996-1997) will have 28 days in February in the data
-    			// file, even though 2004 in the forecast period has 29.
-    			// Therefore, calculate the number of data values in
-    			// the file based on the historical year and only
-    			// increment the date for the time series as values are
-    			// transferred.
-    			hdate = new DateTime(DateTime.PRECISION_MONTH);
-    			// Set the year to the historical year...
-    			hdate.setYear ( __iy + its );
-    			hdate.setMonth ( __im );
-    			// Now add the number of months that have been processed...
-    			hdate.addMonth ( icm );
-    			// Now get the number of days in the month.  This does
-    			// not look at the hour so an hour of 24 is OK...
-    			ndays = TimeUtil.numDaysInMonth ( hdate );
-    			// Now compute the number of data that will need to be
-    			// transferred.  It may be less than the number read
-    			// because of the number of days in the month...
-    			ntran = ndays*24/__ts_dt;
-    			// Now loop through the data, using the actual 0-23
-    			// hour and the number of intervals.  It is OK to
-    			// attempt transferring data outside the actual TS
-    			// period because data outside the period will be
-    			// ignored (and should be missing).
-    			if ( Message.isDebugOn ) {
-    				Message.printDebug ( 1, routine,
-    				"Transferring " + ndays + " days, " + ntran +
-    				" values for historical " + hdate +	" starting at " + date );
-    				Message.printDebug(1, routine, "The first trace data values are:");
-    			}
-    			for ( idata = 0; idata < ntran;	idata++, date.addHour(__ts_dt) ) {
-    				// Add a debug statement to check the first trace!
-    				if(Message.isDebugOn && its == 0) {
-    					Message.printDebug(1, routine, date.toString(
-    					DateTime.FORMAT_YYYY_MM_DD_HHmm)+ " "+__ts[its].getDataValue(date));
-    				}
-    				data[idata] = (float)__ts[its].getDataValue(date);
-    			}
-    			// Fill in the rest of the array if necessary...
-    			ntran2 = 31*24/__ts_dt;
-    			for ( ; idata < ntran2; idata++ ) {
-    				data[idata] = missing_float;
-    			}
-    			idata = 0;	// Reset array position.
-    			if ( Message.isDebugOn ) {
-    				Message.printDebug ( 1, routine, "Writing trace [" + its + "] " +
-    				__ts[its].getSequenceID() + " conditional month [" + icm + "]" );
-    			}
-    			
-    			// Loop through the data in the month, incrementing the hour to assign the data...
-    			for ( i = 0; i < ntran2; i++ ) {
-    				record = new byte[4];
-    				floatByte = Float.floatToIntBits(data[i]);
-    				record[3] = (byte)(floatByte>>24);
-    				record[2] = (byte)(floatByte>>16);
-    				record[1] = (byte)(floatByte>>8);
-    				record[0] = (byte)(floatByte);
-    				__dmi.write(traceRAF,__big_endian,record,4,false); 
-    			}
-    		}
-    	}
-	}
-	catch ( Exception e ) {
-		// Should not happen if loops above are correct...
-		Message.printWarning ( 2, routine, "Unexpected write error." );
-		Message.printWarning ( 2, routine, e );
-		throw new Exception ( "Unexpected write error" );
-	}
+	int ndata_written = 0;    // Count of data values written below
+    // Loop through the number of time series traces...
+	for ( int its = 0; its < __n_traces; its++ ) {
+		// Initialize the date that will be used to transfer data to
+		// the starting interval in the data file.
+		// The dates in the file use the hour 1-24.  However,
+		// the time series have been allocated in readHeader()
+		// using hour 0-23.  Therefore, the starting date/time
+		// must be properly set.  Each month of data in the file
+		// corresponds to hour __ts_dt of the first day of the
+		// HISTORICAL month, which will only be an issue if
+		// __ts_dt == 24.  Take care to
+		// set the starting date correctly and then just add the
+		// interval as the data are processed.
+		// First determine the hour 24 date/time, mainly to get
+		// the correct month, and year.
+		// Start by setting to the initial value...
+		date = NWSRFS_Util.toDateTime24(__start_date,true);
+		// Set the day to 1 and the hour to the interval...
+		date.setDay ( 1 );
+		date.setHour ( __ts_dt );
+		// Convert back to 0-23 hour...
+		date = NWSRFS_Util.toDateTime23(date,true);
+		Message.printStatus ( 2, routine, "For trace [" + __ts[its].getIdentifier().getSequenceID() +
+		        "] date for first value to write is " + date + ", local 24 = " + NWSRFS_Util.toDateTime24(date,true) );
+		// Loop through the number of conditional months (the month is incremented)...
+		for ( icm = 0; icm < __ncm; icm++ ) {
+			// Determine the number of values available in the file
+			// to be transferred.  The months in the file
+			// correspond to the historical months, not the
+			// real-time forecast years.  Therefore, for example,
+			// if the forecast period is May 2002 through May 2004
+			// but the starting historical years are 1995 - 1998
+			// (4 traces), the second trace (historical years
+			// 1996-1997) will have 28 days in February in the data
+			// file, even though 2004 in the forecast period has 29.
+			// Therefore, calculate the number of data values in
+			// the file based on the historical year and only
+			// increment the date for the time series as values are transferred.
+			hdate = new DateTime(DateTime.PRECISION_MONTH);
+			// Set the year to the historical year...
+			hdate.setYear ( __iy + its );
+			hdate.setMonth ( __im );
+			// Now add the number of months that have been processed...
+			hdate.addMonth ( icm );
+			// Now get the number of days in the month.  This does
+			// not look at the hour so an hour of 24 is OK...
+			ndays = TimeUtil.numDaysInMonth ( hdate );
+			// Now compute the number of data that will need to be
+			// transferred.  It may be less than the number read
+			// because of the number of days in the month...
+			ntran = ndays*24/__ts_dt;
+			if ( Message.isDebugOn ) {
+		        Message.printDebug ( 1, routine,
+		                "Transferring " + ndays + " days, " + ntran +
+		                " values for historical " + hdate + " starting at " + date );
+			}
+			// Make room for the complete month, writing the full records in the buffer...
+			if ( buffer.remaining() < ntran2*4 ) {
+				writeESPTraceEnsembleFile_Flush ( channel, buffer );
+			}
+			// Now loop through the data, using the actual 0-23
+			// hour and the number of intervals.  It is OK to
+			// attempt transferring data outside the actual TS
+			// period because data outside the period will be
+			// ignored (and should be missing).
+			for ( idata = 0; idata < ntran;	idata++, date.addHour(__ts_dt) ) {
+				// Add a debug statement to check the first trace!
+				if(Message.isDebugOn ) { //&& its == 0) {
+					Message.printDebug(1, routine,
+					date.toString(DateTime.FORMAT_YYYY_MM_DD_HHmm)+
+					" "+__ts[its].getDataValue(date));
+				}
+				buffer.putFloat ( (float)__ts[its].getDataValue(date) );
+			}
+			// Fill in the rest of the month if necessary...
+			for ( ; idata < ntran2; idata++ ) {
+				buffer.putFloat ( missing_float );
+			}
+			if ( Message.isDebugOn ) {
+				Message.printDebug ( 1, routine, "Wrote trace [" + its + "] " +
+				__ts[its].getSequenceID() + " conditional month [" + icm + "]: " +
+				ntran + " data values, " + ntran2 + " overall with missing to pad to 31 days." );
+			}
+            ndata_written += ntran2;
+		} // End conditional months
+ 	} // End traces
+	return ndata_written;
 }
 
 }
@@ -0,0 +1,450 @@
+//------------------------------------------------------------------------------
+// NWSRFS_ESPTraceEnsembleCache - class to keep ESP trace ensemble files open
+//				for reading individual traces
+//------------------------------------------------------------------------------
+// Endheader
+
+package RTi.DMI.NWSRFS_DMI;
+
+import java.io.File;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import RTi.TS.HourTS;
+import RTi.TS.TS;
+
+import RTi.Util.IO.IOUtil;
+import RTi.Util.Message.Message;
+import RTi.Util.Time.DateTime;
+
+/**
+The NWSRFS_ESPTraceEnsembleCache class keeps ESP trace ensemble files open,
+with their headers read, so that requests for individual traces (e.g., from
+NWSRFS_DMI.readTimeSeries() for each trace of an ensemble) only read the data
+for the requested trace rather than reopening and decoding the file for each
+request.  The ensembles are identified by the canonical path of the file.  The
+last modification time and length of the file are saved when the ensemble is
+opened, and if the file has changed when a trace is requested, the ensemble is
+closed and the file is opened again.
+<p>
+The number of open ensembles is limited, with the least recently used ensemble
+closed first when the limit is exceeded.  Because only the headers are kept in
+memory (traces are read on demand), the memory used by the cache is small.
+<p>
+A cache that is shared by all NWSRFS_DMI instances is available from
+getSharedCache().  The cache can be used by multiple threads.  Traces of the
+same ensemble are read one at a time, because they are read from the same
+open file.
+*/
+public class NWSRFS_ESPTraceEnsembleCache
+{
+
+/**
+Default maximum number of open ensembles.
+*/
+public static final int DEFAULT_MAX_ENTRIES = 20;
+
+/**
+The entry stored in the cache for each ensemble.
+*/
+private static class Entry
+{
+	/**
+	Whether the ensemble has been closed, because it was discarded from the
+	cache.
+	*/
+	boolean closed = false;
+
+	/**
+	The ensemble, which has its header read and its file open.
+	*/
+	NWSRFS_ESPTraceEnsemble ensemble;
+
+	/**
+	The length of the file when the ensemble was opened.
+	*/
+	long length;
+
+	/**
+	Lock used to read one trace at a time from the ensemble and to close the
+	ensemble when it is not being read.
+	*/
+	ReentrantLock lock = new ReentrantLock();
+
+	/**
+	The last modification time of the file when the ensemble was opened.
+	*/
+	long modified;
+}
+
+/**
+The cache that is shared by all NWSRFS_DMI instances.
+*/
+private static NWSRFS_ESPTraceEnsembleCache __sharedCache =
+	new NWSRFS_ESPTraceEnsembleCache();
+
+/**
+The open ensembles, by canonical path, in least- to most-recently used order.
+*/
+private LinkedHashMap<String,Entry> __entries = null;
+
+/**
+Lock used to protect __entries, because access-ordered gets modify the map.
+*/
+private ReentrantLock __lock = null;
+
+/**
+Maximum number of open ensembles.
+*/
+private int __maxEntries = DEFAULT_MAX_ENTRIES;
+
+/**
+Counters for cache requests.
+*/
+private AtomicLong __evictionCount = null;
+private AtomicLong __hitCount = null;
+private AtomicLong __missCount = null;
+private AtomicLong __staleCount = null;
+
+/**
+Construct a cache using the default limit.
+*/
+public NWSRFS_ESPTraceEnsembleCache() {
+	this(DEFAULT_MAX_ENTRIES);
+}
+
+/**
+Construct a cache.
+@param maxEntries the maximum number of open ensembles.  If zero, ensembles
+are opened for each request and closed after the request.
+*/
+public NWSRFS_ESPTraceEnsembleCache(int maxEntries) {
+	__entries = new LinkedHashMap<String,Entry>(16, (float)0.75, true);
+	__lock = new ReentrantLock();
+	__evictionCount = new AtomicLong();
+	__hitCount = new AtomicLong();
+	__missCount = new AtomicLong();
+	__staleCount = new AtomicLong();
+	setMaxEntries(maxEntries);
+}
+
+/**
+Close all of the ensembles and remove them from the cache.  The counters are
+not reset.
+*/
+public void clear() {
+	List<Entry> entries = null;
+	__lock.lock();
+	try {
+		entries = new ArrayList<Entry>(__entries.values());
+		__entries.clear();
+	}
+	finally {
+		__lock.unlock();
+	}
+	for (int i = 0; i < entries.size(); i++) {
+		close(entries.get(i));
+	}
+}
+
+/**
+Close the ensemble for an entry, waiting for any trace that is being read.
+@param entry the entry to close.
+*/
+private void close(Entry entry) {
+	String routine = "NWSRFS_ESPTraceEnsembleCache.close";
+	entry.lock.lock();
+	try {
+		if (!entry.closed) {
+			entry.closed = true;
+			entry.ensemble.close();
+		}
+	}
+	catch (Exception e) {
+		Message.printWarning(3, routine, "Error closing ESP trace ensemble file ("
+			+ e + ").");
+	}
+	finally {
+		entry.lock.unlock();
+	}
+}
+
+/**
+Remove the least recently used ensembles until the cache is within its limit.
+The lock must be held when calling this method.
+@return the entries that were removed, which must be closed after the lock is
+released, or null if none were removed.
+*/
+private List<Entry> evict() {
+	List<Entry> evicted = null;
+	Iterator<Entry> it = __entries.values().iterator();
+	while ((__entries.size() > __maxEntries) && it.hasNext()) {
+		Entry entry = it.next();
+		it.remove();
+		if (evicted == null) {
+			evicted = new ArrayList<Entry>();
+		}
+		evicted.add(entry);
+		__evictionCount.incrementAndGet();
+	}
+	return evicted;
+}
+
+/**
+Return the entry for an ensemble file, opening the file if it is not in the
+cache or has changed since it was opened.
+@param filename the name of the ensemble file.
+@return the entry for the ensemble.  If the cache does not hold any ensembles
+(the maximum is zero), the entry is not in the cache and must be closed by the
+caller.
+@exception Exception if the file cannot be opened.
+*/
+private Entry getEntry(String filename)
+throws Exception {
+	File file = new File(IOUtil.getPathUsingWorkingDir(filename));
+	String path = file.getCanonicalPath();
+	long modified = file.lastModified();
+	long length = file.length();
+	Entry stale = null;
+	__lock.lock();
+	try {
+		Entry entry = __entries.get(path);
+		if (entry != null) {
+			if ((entry.modified == modified) && (entry.length == length)) {
+				__hitCount.incrementAndGet();
+				return entry;
+			}
+			// The file has been rewritten since it was opened.
+			__entries.remove(path);
+			__staleCount.incrementAndGet();
+			stale = entry;
+		}
+		__missCount.incrementAndGet();
+	}
+	finally {
+		__lock.unlock();
+	}
+	if (stale != null) {
+		close(stale);
+	}
+
+	// Open the file outside of the lock so that other ensembles can be
+	// used while the header is read.
+	Entry entry = new Entry();
+	entry.ensemble = new NWSRFS_ESPTraceEnsemble(path, false, true);
+	entry.modified = modified;
+	entry.length = length;
+	if (__maxEntries == 0) {
+		return entry;
+	}
+	Entry other = null;
+	List<Entry> evicted = null;
+	__lock.lock();
+	try {
+		other = __entries.get(path);
+		if ((other == null) || (other.modified != modified)
+			|| (other.length != length)) {
+			if (other != null) {
+				__entries.remove(path);
+				evicted = new ArrayList<Entry>();
+				evicted.add(other);
+			}
+			other = null;
+			__entries.put(path, entry);
+			List<Entry> removed = evict();
+			if (removed != null) {
+				if (evicted == null) {
+					evicted = removed;
+				}
+				else {
+					evicted.addAll(removed);
+				}
+			}
+		}
+	}
+	finally {
+		__lock.unlock();
+	}
+	if (evicted != null) {
+		for (int i = 0; i < evicted.size(); i++) {
+			close(evicted.get(i));
+		}
+	}
+	if (other != null) {
+		// Another thread opened the same file at the same time.
+		close(entry);
+		return other;
+	}
+	return entry;
+}
+
+/**
+Return the number of ensembles that have been closed to stay within the cache
+limit.
+@return the number of evictions.
+*/
+public long getEvictionCount() {
+	return __evictionCount.get();
+}
+
+/**
+Return the number of requests that used an open ensemble.
+@return the number of cache hits.
+*/
+public long getHitCount() {
+	return __hitCount.get();
+}
+
+/**
+Return the maximum number of open ensembles.
+@return the maximum number of open ensembles.
+*/
+public int getMaxEntries() {
+	return __maxEntries;
+}
+
+/**
+Return the number of requests that opened an ensemble.
+@return the number of cache misses.
+*/
+public long getMissCount() {
+	return __missCount.get();
+}
+
+/**
+Return the cache that is shared by all NWSRFS_DMI instances.
+@return the shared cache.
+*/
+public static NWSRFS_ESPTraceEnsembleCache getSharedCache() {
+	return __sharedCache;
+}
+
+/**
+Return the number of open ensembles that were closed because the file changed.
+@return the number of stale ensembles.
+*/
+public long getStaleCount() {
+	return __staleCount.get();
+}
+
+/**
+Read a trace from an ESP trace ensemble file.
+@param filename the name of the ensemble file.
+@param sequenceID the sequence identifier (historical year) of the trace, as in
+the time series identifier.  If null or not found, the first trace is returned.
+@param read_data if true, read the data for the trace.  If false, only the
+header information is returned.
+@return a new time series for the trace, which can be modified by the caller.
+@exception Exception if the file cannot be read.
+*/
+public TS readTimeSeries(String filename, String sequenceID, boolean read_data)
+throws Exception {
+	return readTimeSeries(filename, sequenceID, null, null, read_data);
+}
+
+/**
+Read a trace from an ESP trace ensemble file, reading only the data for a
+period.  Only the conditional months of the trace that overlap the period are
+read from the file.
+@param filename the name of the ensemble file.
+@param sequenceID the sequence identifier (historical year) of the trace, as in
+the time series identifier.  If null or not found, the first trace is returned.
+@param read_start the start of the period to read, or null to read from the
+start of the forecast period.
+@param read_end the end of the period to read, or null to read to the end of the
+forecast period.
+@param read_data if true, read the data for the trace.  If false, only the
+header information is returned.
+@return a new time series for the trace, which can be modified by the caller.
+@exception Exception if the file cannot be read.
+*/
+public TS readTimeSeries(String filename, String sequenceID, DateTime read_start,
+	DateTime read_end, boolean read_data)
+throws Exception {
+	while (true) {
+		Entry entry = getEntry(filename);
+		entry.lock.lock();
+		try {
+			if (entry.closed) {
+				// Discarded from the cache after it was returned,
+				// so get the entry again.
+				continue;
+			}
+			NWSRFS_ESPTraceEnsemble ensemble = entry.ensemble;
+			// Use the trace matching the sequence identifier
+			// (historical year), or the first trace...
+			int index = ensemble.getTraceIndex(sequenceID);
+			if (index < 0) {
+				index = 0;
+			}
+			if (read_data) {
+				return new HourTS((HourTS)ensemble.getTimeSeries(index,
+					read_start, read_end));
+			}
+			else {
+				return new HourTS((HourTS)ensemble.getTimeSeries()[index]);
+			}
+		}
+		finally {
+			entry.lock.unlock();
+			if (__maxEntries == 0) {
+				close(entry);
+			}
+		}
+	}
+}
+
+/**
+Set the maximum number of open ensembles, closing ensembles if necessary.
+@param maxEntries the maximum number of open ensembles.  If zero, ensembles
+are opened for each request and closed after the request.
+*/
+public void setMaxEntries(int maxEntries) {
+	List<Entry> evicted = null;
+	__lock.lock();
+	try {
+		__maxEntries = Math.max(maxEntries, 0);
+		evicted = evict();
+	}
+	finally {
+		__lock.unlock();
+	}
+	if (evicted != null) {
+		for (int i = 0; i < evicted.size(); i++) {
+			close(evicted.get(i));
+		}
+	}
+}
+
+/**
+Return the number of open ensembles.
+@return the number of open ensembles.
+*/
+public int size() {
+	__lock.lock();
+	try {
+		return __entries.size();
+	}
+	finally {
+		__lock.unlock();
+	}
+}
+
+/**
+Return a String describing the cache contents and counters, for troubleshooting.
+@return a String describing the cache contents and counters.
+*/
+public String toString() {
+	return "NWSRFS_ESPTraceEnsembleCache: " + size() + " ensembles (max "
+		+ __maxEntries + "), " + getHitCount() + " hits, " + getMissCount()
+		+ " misses, " + getEvictionCount() + " evictions, "
+		+ getStaleCount() + " stale";
+}
+
+}
@@ -0,0 +1,444 @@
+//------------------------------------------------------------------------------
+// NWSRFS_ESPTraceEnsembleStatistics - class to compute statistics across the
+//				traces of an ESP trace ensemble
+//------------------------------------------------------------------------------
+// Endheader
+
+package RTi.DMI.NWSRFS_DMI;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import RTi.TS.HourTS;
+import RTi.TS.TS;
+import RTi.TS.TSIdent;
+
+import RTi.Util.Message.Message;
+import RTi.Util.String.StringUtil;
+import RTi.Util.Time.DateTime;
+import RTi.Util.Time.TimeInterval;
+
+/**
+The NWSRFS_ESPTraceEnsembleStatistics class computes statistics across the
+traces of an ESP trace ensemble for each time step of the forecast period: the
+minimum, maximum, and mean, and the values for exceedance probabilities (e.g.,
+the value that is exceeded by 10, 50, and 90 percent of the traces).
+<p>
+The trace data are transferred to a trace by time step matrix of float values
+(see NWSRFS_ESPTraceEnsemble.getTraceMatrix() and NWSRFS_ESPTraceMatrix).  If
+the data were not read when the ensemble was constructed, each trace is read
+from the file into the matrix, without creating a time series for the trace.
+Statistics can also be computed for an existing matrix.  The statistics are then computed
+in parallel for blocks of time steps and are stored as arrays.  Time series for
+the statistics are created only when requested.
+<p>
+Values of -999 (missing) are ignored.  If all the traces are missing for a time
+step, the statistics for the time step are -999.  The value for an exceedance
+probability P is computed by sorting the values for the time step and linearly
+interpolating at the position (n - 1)*(1 - P) in the sorted values.
+*/
+public class NWSRFS_ESPTraceEnsembleStatistics
+{
+
+/**
+Default exceedance probabilities.
+*/
+public static final double [] DEFAULT_EXCEEDANCE_PROBABILITIES = { 0.9, 0.5, 0.1 };
+
+/**
+Default number of time steps per block computed by a thread.
+*/
+public static final int DEFAULT_BLOCK_STEPS = 1024;
+
+/**
+Missing value for the statistics.
+*/
+private static final double __MISSING = -999.0;
+
+/**
+Number of time steps per block computed by a thread.
+*/
+private int __blockSteps = DEFAULT_BLOCK_STEPS;
+
+/**
+The number of non-missing values, by time step.
+*/
+private int [] __count = null;
+
+/**
+The ensemble for which statistics are computed, or null if the statistics are
+computed for an existing matrix.
+*/
+private NWSRFS_ESPTraceEnsemble __ensemble = null;
+
+/**
+The exceedance probabilities (0 to 1).
+*/
+private double [] __exceedanceProbabilities = null;
+
+/**
+The values for each exceedance probability, by time step.
+*/
+private double [][] __exceedanceValues = null;
+
+/**
+The maximum, by time step.
+*/
+private double [] __max = null;
+
+/**
+The mean, by time step.
+*/
+private double [] __mean = null;
+
+/**
+The trace data for which the statistics were computed.
+*/
+private NWSRFS_ESPTraceMatrix __matrix = null;
+
+/**
+The minimum, by time step.
+*/
+private double [] __min = null;
+
+/**
+Number of threads used to compute the statistics.
+*/
+private int __threads = 0;
+
+/**
+Construct the statistics for an ensemble.  Call compute() to compute the
+statistics.
+@param ensemble the ensemble for which statistics are computed.
+*/
+public NWSRFS_ESPTraceEnsembleStatistics ( NWSRFS_ESPTraceEnsemble ensemble )
+{	__ensemble = ensemble;
+	__exceedanceProbabilities = DEFAULT_EXCEEDANCE_PROBABILITIES;
+	__threads = Runtime.getRuntime().availableProcessors();
+}
+
+/**
+Construct the statistics for an existing trace matrix.  Call compute() to
+compute the statistics.
+@param matrix the trace data for which statistics are computed.
+*/
+public NWSRFS_ESPTraceEnsembleStatistics ( NWSRFS_ESPTraceMatrix matrix )
+{	__matrix = matrix;
+	__exceedanceProbabilities = DEFAULT_EXCEEDANCE_PROBABILITIES;
+	__threads = Runtime.getRuntime().availableProcessors();
+}
+
+/**
+Compute the statistics.  If the statistics are for an ensemble, the trace data
+are transferred to a new matrix, reading the data if necessary.
+@exception Exception if there is an error reading the data or computing the
+statistics.
+*/
+public void compute ()
+throws Exception
+{	String routine = "NWSRFS_ESPTraceEnsembleStatistics.compute";
+	long start = System.currentTimeMillis();
+	if ( __ensemble != null ) {
+		__matrix = __ensemble.getTraceMatrix ( false );
+	}
+	final NWSRFS_ESPTraceMatrix matrix = __matrix;
+	int nsteps = matrix.getStepCount();
+	long read = System.currentTimeMillis();
+
+	__count = new int[nsteps];
+	__min = new double[nsteps];
+	__max = new double[nsteps];
+	__mean = new double[nsteps];
+	__exceedanceValues = new double[__exceedanceProbabilities.length][nsteps];
+
+	// Compute blocks of time steps in parallel...
+	int nblocks = (nsteps + __blockSteps - 1)/__blockSteps;
+	int nthreads = Math.min(__threads, nblocks);
+	if ( nthreads <= 1 ) {
+		if ( nsteps > 0 ) {
+			computeBlock ( matrix, 0, nsteps );
+		}
+	}
+	else {
+		ExecutorService executor = Executors.newFixedThreadPool(nthreads);
+		try {
+			List<Future<Object>> futures = new ArrayList<Future<Object>>(nblocks);
+			for ( int iblock = 0; iblock < nblocks; iblock++ ) {
+				final int step1 = iblock*__blockSteps;
+				final int step2 = Math.min(step1 + __blockSteps, nsteps);
+				futures.add ( executor.submit ( new Callable<Object>() {
+					public Object call () {
+						computeBlock ( matrix, step1, step2 );
+						return null;
+					}
+				}));
+			}
+			for ( int i = 0; i < futures.size(); i++ ) {
+				// Rethrows any exception from the block...
+				futures.get(i).get();
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+	if ( Message.isDebugOn ) {
+		Message.printDebug ( 1, routine, "Computed statistics for " + matrix.getTraceCount() +
+		" traces, " + nsteps + " time steps using " + Math.max(nthreads,1) + " threads.  Read time = " +
+		(read - start) + " ms, compute time = " + (System.currentTimeMillis() - read) + " ms." );
+	}
+}
+
+/**
+Compute the statistics for a block of time steps.  Each block uses its own
+work arrays, so blocks can be computed at the same time.
+@param matrix the trace data.
+@param step1 the first time step to compute.
+@param step2 the time step after the last time step to compute.
+*/
+private void computeBlock ( NWSRFS_ESPTraceMatrix matrix, int step1, int step2 )
+{	int ntraces = matrix.getTraceCount();
+	float [] column = new float[ntraces];
+	double [] values = new double[ntraces];
+	int nprob = __exceedanceProbabilities.length;
+	for ( int istep = step1; istep < step2; istep++ ) {
+		int n = 0;
+		double sum = 0.0;
+		matrix.getStepValues ( istep, column );
+		for ( int its = 0; its < ntraces; its++ ) {
+			float value = column[its];
+			if ( isMissing(value) ) {
+				continue;
+			}
+			values[n++] = value;
+			sum += value;
+		}
+		__count[istep] = n;
+		if ( n == 0 ) {
+			__min[istep] = __MISSING;
+			__max[istep] = __MISSING;
+			__mean[istep] = __MISSING;
+			for ( int iprob = 0; iprob < nprob; iprob++ ) {
+				__exceedanceValues[iprob][istep] = __MISSING;
+			}
+			continue;
+		}
+		Arrays.sort ( values, 0, n );
+		__min[istep] = values[0];
+		__max[istep] = values[n - 1];
+		__mean[istep] = sum/n;
+		for ( int iprob = 0; iprob < nprob; iprob++ ) {
+			// Position in the sorted values of the non-exceedance probability...
+			double pos = (n - 1)*(1.0 - __exceedanceProbabilities[iprob]);
+			int ipos = (int)pos;
+			if ( ipos >= (n - 1) ) {
+				__exceedanceValues[iprob][istep] = values[n - 1];
+			}
+			else {
+				__exceedanceValues[iprob][istep] = values[ipos] + (pos - ipos)*(values[ipos + 1] - values[ipos]);
+			}
+		}
+	}
+}
+
+/**
+Create a time series for a statistic, with the same identifier as the traces.
+@param values the values for the statistic, by time step.
+@param statistic the name of the statistic, used for the alias and description.
+@return a new time series for the statistic.
+@exception Exception if the statistics have not been computed.
+*/
+private TS createTimeSeries ( double [] values, String statistic )
+throws Exception
+{	if ( values == null ) {
+		throw new Exception ( "Statistics have not been computed." );
+	}
+	NWSRFS_ESPTraceEnsemble ensemble = __matrix.getEnsemble();
+	TS [] traces = ensemble.getTimeSeries();
+	DateTime start = __matrix.getStart();
+	DateTime end = __matrix.getDate ( Math.max(values.length - 1, 0) );
+	int interval = __matrix.getIntervalHours();
+	HourTS ts = new HourTS();
+	if ( (traces != null) && (traces.length > 0) ) {
+		ts.setIdentifier ( new TSIdent(traces[0].getIdentifier()) );
+		ts.setAlias ( traces[0].getLocation() + "_" + statistic );
+	}
+	ts.setSequenceID ( "" );
+	ts.setDate1 ( new DateTime(start) );
+	ts.setDate1Original ( new DateTime(start) );
+	ts.setDate2 ( new DateTime(end) );
+	ts.setDate2Original ( new DateTime(end) );
+	ts.setDataInterval ( TimeInterval.HOUR, interval );
+	ts.setDataUnits ( ensemble.getDataUnits() );
+	ts.setDescription ( "Ensemble " + statistic );
+	ts.allocateDataSpace();
+	DateTime date = new DateTime ( start );
+	for ( int istep = 0; istep < values.length; istep++, date.addHour(interval) ) {
+		ts.setDataValue ( date, values[istep] );
+	}
+	return ts;
+}
+
+/**
+Return the number of non-missing values for each time step.
+@return the number of non-missing values for each time step, or null if the
+statistics have not been computed.
+*/
+public int [] getCounts ()
+{	return __count;
+}
+
+/**
+Return the exceedance probabilities.
+@return the exceedance probabilities (0 to 1).
+*/
+public double [] getExceedanceProbabilities ()
+{	return __exceedanceProbabilities;
+}
+
+/**
+Return the values for an exceedance probability, for each time step.
+@param index the index of the exceedance probability (see getExceedanceProbabilities()).
+@return the values for the exceedance probability, or null if the statistics
+have not been computed.
+*/
+public double [] getExceedanceValues ( int index )
+{	if ( __exceedanceValues == null ) {
+		return null;
+	}
+	return __exceedanceValues[index];
+}
+
+/**
+Return the maximum for each time step.
+@return the maximum for each time step, or null if the statistics have not been computed.
+*/
+public double [] getMaximumValues ()
+{	return __max;
+}
+
+/**
+Return the mean for each time step.
+@return the mean for each time step, or null if the statistics have not been computed.
+*/
+public double [] getMeanValues ()
+{	return __mean;
+}
+
+/**
+Return the minimum for each time step.
+@return the minimum for each time step, or null if the statistics have not been computed.
+*/
+public double [] getMinimumValues ()
+{	return __min;
+}
+
+/**
+Return a time series for the values for an exceedance probability.
+@param index the index of the exceedance probability (see getExceedanceProbabilities()).
+@return a new time series for the exceedance probability.
+@exception Exception if the statistics have not been computed.
+*/
+public TS getExceedanceTimeSeries ( int index )
+throws Exception
+{	String statistic = "Exceedance_" + StringUtil.formatString(__exceedanceProbabilities[index]*100.0,"%.0f");
+	return createTimeSeries ( getExceedanceValues(index), statistic );
+}
+
+/**
+Return a time series for the maximum.
+@return a new time series for the maximum.
+@exception Exception if the statistics have not been computed.
+*/
+public TS getMaximumTimeSeries ()
+throws Exception
+{	return createTimeSeries ( __max, "Max" );
+}
+
+/**
+Return a time series for the mean.
+@return a new time series for the mean.
+@exception Exception if the statistics have not been computed.
+*/
+public TS getMeanTimeSeries ()
+throws Exception
+{	return createTimeSeries ( __mean, "Mean" );
+}
+
+/**
+Return a time series for the minimum.
+@return a new time series for the minimum.
+@exception Exception if the statistics have not been computed.
+*/
+public TS getMinimumTimeSeries ()
+throws Exception
+{	return createTimeSeries ( __min, "Min" );
+}
+
+/**
+Return time series for all of the statistics: the minimum, maximum, mean, and
+the values for each exceedance probability.
+@return a list of new time series for the statistics.
+@exception Exception if the statistics have not been computed.
+*/
+public List<TS> getTimeSeriesList ()
+throws Exception
+{	List<TS> tslist = new ArrayList<TS>(3 + __exceedanceProbabilities.length);
+	tslist.add ( getMinimumTimeSeries() );
+	tslist.add ( getMaximumTimeSeries() );
+	tslist.add ( getMeanTimeSeries() );
+	for ( int i = 0; i < __exceedanceProbabilities.length; i++ ) {
+		tslist.add ( getExceedanceTimeSeries(i) );
+	}
+	return tslist;
+}
+
+/**
+Determine whether a trace value is missing.  Values near -999 are treated as
+missing, as in NWSRFS_ESPTraceEnsemble.convertESPTraceEnsembleData().
+@param value the value to check.
+@return true if the value is missing.
+*/
+private static boolean isMissing ( float value )
+{	return ((value < -997.9) && (value > -999.1)) || Float.isNaN(value);
+}
+
+/**
+Set the number of time steps per block computed by a thread.
+@param blockSteps the number of time steps per block.
+*/
+public void setBlockSteps ( int blockSteps )
+{	__blockSteps = Math.max(blockSteps, 1);
+}
+
+/**
+Set the exceedance probabilities.  Call compute() after setting.
+@param exceedanceProbabilities the exceedance probabilities (0 to 1).
+@exception IllegalArgumentException if a probability is not in the range 0 to 1.
+*/
+public void setExceedanceProbabilities ( double [] exceedanceProbabilities )
+{	for ( int i = 0; i < exceedanceProbabilities.length; i++ ) {
+		if ( (exceedanceProbabilities[i] < 0.0) || (exceedanceProbabilities[i] > 1.0) ) {
+			throw new IllegalArgumentException ( "Exceedance probability " +
+			exceedanceProbabilities[i] + " is not in the range 0 to 1." );
+		}
+	}
+	__exceedanceProbabilities = (double [])exceedanceProbabilities.clone();
+}
+
+/**
+Set the number of threads used to compute the statistics.
+@param threads the number of threads.  If 1 or less, the statistics are computed
+in the calling thread.
+*/
+public void setThreads ( int threads )
+{	__threads = Math.max(threads, 1);
+}
+
+}
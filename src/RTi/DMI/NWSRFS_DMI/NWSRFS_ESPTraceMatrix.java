@@ -0,0 +1,312 @@
+//------------------------------------------------------------------------------
+// NWSRFS_ESPTraceMatrix - class to hold the data for the traces of an ESP
+//				trace ensemble as a single matrix
+//------------------------------------------------------------------------------
+// Endheader
+
+package RTi.DMI.NWSRFS_DMI;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import RTi.TS.HourTS;
+import RTi.TS.TS;
+
+import RTi.Util.Time.DateTime;
+
+/**
+The NWSRFS_ESPTraceMatrix class holds the data for all the traces of an ESP
+trace ensemble as a single contiguous block of float values, indexed by trace
+and time step, rather than as one HourTS per trace.  All traces share the same
+time axis: time step 0 is the forecast start and each time step is one data
+interval later, through the forecast end.  The values for a trace are stored
+together, so copying a trace is a single block copy.
+<p>
+The values can be stored in a Java array or, to avoid using heap memory for
+large ensembles, in a direct (off-heap) buffer.  The matrix is read-only
+outside of this package.  A time series for a trace is created only when
+requested with getTimeSeries(), and is independent of the matrix.
+<p>
+Use NWSRFS_ESPTraceEnsemble.getTraceMatrix() to create a matrix.  Values for
+time steps that have no data (e.g., at the end of traces with fewer days in
+February) are -999.
+*/
+public class NWSRFS_ESPTraceMatrix
+{
+
+/**
+Missing value for time steps without data.
+*/
+public static final float MISSING = (float)-999.0;
+
+/**
+The values when stored in a Java array, or null if off-heap.
+*/
+private float [] __array = null;
+
+/**
+The values when stored off-heap, or null if in a Java array.
+*/
+private FloatBuffer __buffer = null;
+
+/**
+The ensemble that the matrix was created from, used to create time series.
+*/
+private NWSRFS_ESPTraceEnsemble __ensemble = null;
+
+/**
+The data interval, hours.
+*/
+private int __interval = 0;
+
+/**
+The number of time steps.
+*/
+private int __nsteps = 0;
+
+/**
+The number of traces.
+*/
+private int __ntraces = 0;
+
+/**
+The date/time of the first time step (the forecast start).
+*/
+private DateTime __start = null;
+
+/**
+Construct a matrix with all values missing.  The values are set when the trace
+data are read.
+@param ensemble the ensemble that the matrix is created from.
+@param ntraces the number of traces.
+@param nsteps the number of time steps.
+@param start the date/time of the first time step.
+@param interval the data interval, hours.
+@param off_heap if true, store the values in a direct buffer rather than a Java array.
+@exception IllegalArgumentException if the matrix is too large.
+*/
+NWSRFS_ESPTraceMatrix ( NWSRFS_ESPTraceEnsemble ensemble, int ntraces, int nsteps,
+	DateTime start, int interval, boolean off_heap )
+{	long size = (long)ntraces*nsteps;
+	if ( (off_heap && (size*4 > Integer.MAX_VALUE)) || (size > Integer.MAX_VALUE) ) {
+		throw new IllegalArgumentException ( "Trace matrix of " + ntraces + " traces by " +
+		nsteps + " time steps is too large." );
+	}
+	__ensemble = ensemble;
+	__ntraces = ntraces;
+	__nsteps = nsteps;
+	__start = new DateTime ( start );
+	__interval = interval;
+	if ( off_heap ) {
+		ByteBuffer bytes = ByteBuffer.allocateDirect ( (int)size*4 );
+		bytes.order ( ByteOrder.nativeOrder() );
+		__buffer = bytes.asFloatBuffer();
+		for ( int i = 0; i < size; i++ ) {
+			__buffer.put ( i, MISSING );
+		}
+	}
+	else {
+		__array = new float[(int)size];
+		Arrays.fill ( __array, MISSING );
+	}
+}
+
+/**
+Check that a time step is in range.
+@param step the time step.
+@exception ArrayIndexOutOfBoundsException if the time step is out of range.
+*/
+private void checkStep ( int step )
+{	if ( (step < 0) || (step >= __nsteps) ) {
+		throw new ArrayIndexOutOfBoundsException ( "Time step " + step + " is out of range (0 to " +
+		(__nsteps - 1) + ")." );
+	}
+}
+
+/**
+Check that a trace is in range.
+@param trace the trace.
+@exception ArrayIndexOutOfBoundsException if the trace is out of range.
+*/
+private void checkTrace ( int trace )
+{	if ( (trace < 0) || (trace >= __ntraces) ) {
+		throw new ArrayIndexOutOfBoundsException ( "Trace " + trace + " is out of range (0 to " +
+		(__ntraces - 1) + ")." );
+	}
+}
+
+/**
+Return the date/time for a time step.
+@param step the time step (0 to getStepCount() - 1).
+@return a new date/time for the time step.
+*/
+public DateTime getDate ( int step )
+{	DateTime date = new DateTime ( __start );
+	date.addHour ( step*__interval );
+	return date;
+}
+
+/**
+Return the ensemble that the matrix was created from.
+@return the ensemble that the matrix was created from.
+*/
+public NWSRFS_ESPTraceEnsemble getEnsemble ()
+{	return __ensemble;
+}
+
+/**
+Return the data interval.
+@return the data interval, hours.
+*/
+public int getIntervalHours ()
+{	return __interval;
+}
+
+/**
+Return the date/time of the first time step (the forecast start).
+@return a copy of the date/time of the first time step.
+*/
+public DateTime getStart ()
+{	return new DateTime ( __start );
+}
+
+/**
+Return the number of time steps.
+@return the number of time steps.
+*/
+public int getStepCount ()
+{	return __nsteps;
+}
+
+/**
+Return the values for all traces at a time step.
+@param step the time step (0 to getStepCount() - 1).
+@param values an array to receive the values, at least getTraceCount() in size,
+or null to allocate a new array.
+@return the values for the time step, by trace.
+*/
+public float [] getStepValues ( int step, float [] values )
+{	checkStep ( step );
+	if ( values == null ) {
+		values = new float[__ntraces];
+	}
+	int pos = step;
+	for ( int its = 0; its < __ntraces; its++, pos += __nsteps ) {
+		values[its] = (__array != null) ? __array[pos] : __buffer.get(pos);
+	}
+	return values;
+}
+
+/**
+Return a new time series for a trace, with the header information for the
+trace from the ensemble and the values from the matrix.  The time series is
+independent of the matrix.
+@param trace the trace (0 to getTraceCount() - 1).
+@return a new time series for the trace.
+@exception Exception if there is an error creating the time series.
+*/
+public TS getTimeSeries ( int trace )
+throws Exception
+{	checkTrace ( trace );
+	HourTS ts = new HourTS ( (HourTS)__ensemble.getTimeSeries()[trace] );
+	ts.allocateDataSpace();
+	int pos = trace*__nsteps;
+	DateTime date = new DateTime ( __start );
+	for ( int istep = 0; istep < __nsteps; istep++, pos++, date.addHour(__interval) ) {
+		ts.setDataValue ( date, (__array != null) ? __array[pos] : __buffer.get(pos) );
+	}
+	return ts;
+}
+
+/**
+Return new time series for all of the traces.
+@return a list of new time series, one per trace.
+@exception Exception if there is an error creating the time series.
+*/
+public List<TS> getTimeSeriesList ()
+throws Exception
+{	List<TS> tslist = new ArrayList<TS>(__ntraces);
+	for ( int its = 0; its < __ntraces; its++ ) {
+		tslist.add ( getTimeSeries(its) );
+	}
+	return tslist;
+}
+
+/**
+Return the number of traces.
+@return the number of traces.
+*/
+public int getTraceCount ()
+{	return __ntraces;
+}
+
+/**
+Return the values for a trace.
+@param trace the trace (0 to getTraceCount() - 1).
+@param values an array to receive the values, at least getStepCount() in size,
+or null to allocate a new array.
+@return the values for the trace, by time step.
+*/
+public float [] getTraceValues ( int trace, float [] values )
+{	checkTrace ( trace );
+	if ( values == null ) {
+		values = new float[__nsteps];
+	}
+	int pos = trace*__nsteps;
+	if ( __array != null ) {
+		System.arraycopy ( __array, pos, values, 0, __nsteps );
+	}
+	else {
+		FloatBuffer buffer = __buffer.duplicate();
+		buffer.position ( pos );
+		buffer.get ( values, 0, __nsteps );
+	}
+	return values;
+}
+
+/**
+Return a value.
+@param trace the trace (0 to getTraceCount() - 1).
+@param step the time step (0 to getStepCount() - 1).
+@return the value for the trace and time step.
+*/
+public float getValue ( int trace, int step )
+{	checkTrace ( trace );
+	checkStep ( step );
+	int pos = trace*__nsteps + step;
+	return (__array != null) ? __array[pos] : __buffer.get(pos);
+}
+
+/**
+Return whether the values are stored off-heap.
+@return true if the values are stored in a direct buffer.
+*/
+public boolean isOffHeap ()
+{	return __buffer != null;
+}
+
+/**
+Set the values for a trace, starting at the first time step.
+@param trace the trace (0 to getTraceCount() - 1).
+@param values the values for the trace, by time step.
+@param count the number of values to set, no more than getStepCount().
+*/
+void setTraceValues ( int trace, float [] values, int count )
+{	checkTrace ( trace );
+	int pos = trace*__nsteps;
+	if ( __array != null ) {
+		System.arraycopy ( values, 0, __array, pos, count );
+	}
+	else {
+		FloatBuffer buffer = __buffer.duplicate();
+		buffer.position ( pos );
+		buffer.put ( values, 0, count );
+	}
+}
+
+}
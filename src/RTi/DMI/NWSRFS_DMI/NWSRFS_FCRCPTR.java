@@ -14,6 +14,8 @@
 
 package RTi.DMI.NWSRFS_DMI;
 
+import java.io.Serializable;
+
 import java.util.List;
 import java.util.Vector;
 
@@ -64,7 +66,12 @@ RECORD STRUCTURE:
                IX.4.5B-FCRCPTR
 </pre>
 */
-public class NWSRFS_FCRCPTR {
+public class NWSRFS_FCRCPTR implements Serializable {
+
+/**
+Version of the serialized form, saved in FCRCPTR snapshots.
+*/
+private static final long serialVersionUID = 1L;
 
 /**
 A holding integer.  Not currently used.
@@ -15,6 +15,9 @@
 
 package RTi.DMI.NWSRFS_DMI;
 
+import java.io.Serializable;
+
+import java.util.Hashtable;
 import java.util.List;
 import java.util.Vector;
 
@@ -81,7 +84,12 @@ RECORD STRUCTURE:
                IX.4.5B-FCSEGPTR
 </pre>
 */
-public class NWSRFS_FCSEGPTR {
+public class NWSRFS_FCSEGPTR implements Serializable {
+
+/**
+Version of the serialized form, saved in FCSEGPTR snapshots.
+*/
+private static final long serialVersionUID = 1L;
 
 /**
 Max number of records allowed in FCPARAM.
@@ -123,6 +131,13 @@ List holding segment identifier.
 */
 protected List<String> _ISEG;
 
+/**
+Table of FCSEGSTS record number for each segment identifier, keyed by the upper
+case segment identifier.  Built by buildSegmentRecordIndex() and discarded when
+the ISEG or IREC data change.
+*/
+private transient Hashtable<String,Integer> __segmentRecordIndex = null;
+
 /**
 Constructor.
 */
@@ -147,6 +162,7 @@ public void addIREC(Integer I) {
 		_IREC = new Vector<Integer>();
 	}
 	_IREC.add(I);
+	__segmentRecordIndex = null;
 }
 
 /**
@@ -158,6 +174,25 @@ public void addISEG(String s) {
 		_ISEG = new Vector<String>();
 	}
 	_ISEG.add(s);
+	__segmentRecordIndex = null;
+}
+
+/**
+Build the lookup table used by getSegmentRecordNumber().  Call after all the
+segment records have been added.  Segment identifiers are compared ignoring
+case.  If a segment is defined more than once, the last definition is used, as
+when searching the full segment list.
+*/
+public void buildSegmentRecordIndex() {
+	int size = 0;
+	if (_ISEG != null && _IREC != null) {
+		size = Math.min(_ISEG.size(), _IREC.size());
+	}
+	Hashtable<String,Integer> segmentRecordIndex = new Hashtable<String,Integer>(size*2 + 1);
+	for (int i = 0; i < size; i++) {
+		segmentRecordIndex.put(_ISEG.get(i).toUpperCase(), _IREC.get(i));
+	}
+	__segmentRecordIndex = segmentRecordIndex;
 }
 
 /**
@@ -168,6 +203,7 @@ public void finalize()
 throws Throwable {
 	_IREC = null;
 	_ISEG = null;
+	__segmentRecordIndex = null;
 }
 
 /**
@@ -234,6 +270,28 @@ public List<String> getISEG() {
 	return _ISEG;
 }
 
+/**
+Returns the FCSEGSTS record number for a segment.
+@param segmentID the segment identifier, compared ignoring case.
+@return the record number in FCSEGSTS for the segment, or -1 if the segment is
+not defined.
+*/
+public int getSegmentRecordNumber(String segmentID) {
+	if (segmentID == null) {
+		return -1;
+	}
+	Hashtable<String,Integer> segmentRecordIndex = __segmentRecordIndex;
+	if (segmentRecordIndex == null) {
+		buildSegmentRecordIndex();
+		segmentRecordIndex = __segmentRecordIndex;
+	}
+	Integer recordNum = segmentRecordIndex.get(segmentID.toUpperCase());
+	if (recordNum == null) {
+		return -1;
+	}
+	return recordNum.intValue();
+}
+
 /**
 Initialize data members.
 */
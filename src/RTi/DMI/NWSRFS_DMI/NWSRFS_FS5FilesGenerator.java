@@ -0,0 +1,936 @@
+//------------------------------------------------------------------------------
+// NWSRFS_FS5FilesGenerator - class to write a synthetic set of FS5Files for
+//				testing the NWSRFS_DMI with large databases
+//------------------------------------------------------------------------------
+// Endheader
+
+package RTi.DMI.NWSRFS_DMI;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import RTi.Util.Message.Message;
+
+/**
+The NWSRFS_FS5FilesGenerator class writes a synthetic set of FS5Files that can
+be read by NWSRFS_DMI, so that the DMI can be tested and its performance
+measured with databases of any size without using a production database.
+The files contain generated identifiers and data values and are written with
+the records and fields that NWSRFS_DMI reads, in big or little endian byte
+order.  The following files are written:
+<ul>
+<li>	FCRCPTR and FCRATING - one rating curve per segment (at least one
+	rating curve is needed so that NWSRFS_DMI.open() can determine the byte
+	order), with blank rating curve data</li>
+<li>	FCSEGPTR and FCSEGSTS - the segment definitions, in forecast groups of
+	20 segments</li>
+<li>	PRDINDEX, PRDPARM and PRDTS1 to PRDTS5 - the processed database time
+	series, with five data types (one in each PRDTSn file) for each
+	location, with observed and optionally future data</li>
+<li>	PPPINDEX and PPPPARM1 - a GENL parameter record for each station</li>
+<li>	PDBINDEX and PDBRRS - an instantaneous RRS time series for each
+	station</li>
+</ul>
+Carryover, operation and daily preprocessor data files are not written, so
+only the index and status information of segments can be read, and only RRS
+time series can be read from the preprocessor database.
+<p>
+The sizes of the files are limited by the field sizes of the FS5Files, for
+example PDBINDEX stores PDBRRS record numbers in 2-byte fields.  write() throws
+an exception if the requested sizes do not fit.
+<p>
+Generate a database from the command line with:
+<pre>
+java RTi.DMI.NWSRFS_DMI.NWSRFS_FS5FilesGenerator -directory Directory
+	[-endian big|little] [-scale N] [-timeseries N] [-stations N]
+	[-segments N] [-days N] [-futuredays N] [-rrsdays N]
+</pre>
+*/
+public class NWSRFS_FS5FilesGenerator
+{
+
+/**
+Default number of PRD time series, stations and segments, which are
+multiplied by the scale (see setScale()).
+*/
+public static final int DEFAULT_TIME_SERIES = 1000;
+public static final int DEFAULT_STATIONS = 200;
+public static final int DEFAULT_SEGMENTS = 200;
+
+/**
+Data types of the PRD time series, which are stored in PRDTS1 to PRDTS5.
+*/
+private static final String[] __PRD_DATA_TYPES = { "QINE", "SQIN", "STG", "MAT", "RQOT" };
+
+/**
+Units of the PRD time series data types.
+*/
+private static final String[] __PRD_UNITS = { "CMS", "CMS", "M", "DEGC", "CMS" };
+
+/**
+Data types of the RRS time series, which are assigned to the stations in turn.
+*/
+private static final String[] __RRS_DATA_TYPES = { "STG", "QIN" };
+
+/**
+Number of segments in each forecast group.
+*/
+private static final int __SEGMENTS_PER_FORECAST_GROUP = 20;
+
+/**
+The largest record number or count that can be stored in the 2-byte fields.
+*/
+private static final int __MAX_SHORT = 32767;
+
+/**
+The largest record number that NWSRFS_DMI accepts from the index files.
+*/
+private static final int __MAX_INDEX_RECORD = 100000;
+
+/**
+Directory in which to write the files.
+*/
+private File __directory = null;
+
+/**
+Number of days of future data in the PRD time series.
+*/
+private int __futureDays = 10;
+
+/**
+Data interval of the time series, in hours.
+*/
+private int __intervalHours = 6;
+
+/**
+Whether to write big endian (true) or little endian (false) files.
+*/
+private boolean __isBigEndian = false;
+
+/**
+Number of days of observed data in the PRD time series.
+*/
+private int __periodDays = 30;
+
+/**
+Number of days of data in the RRS time series.
+*/
+private int __rrsDays = 10;
+
+/**
+Number of segments.
+*/
+private int __segments = DEFAULT_SEGMENTS;
+
+/**
+Date of the first observed value, which is at hour 12.
+*/
+private int __startDay = 1;
+private int __startMonth = 1;
+private int __startYear = 2006;
+
+/**
+Julian hour of the first observed value, set from the start date by write().
+*/
+private int __startJulianHour = 0;
+
+/**
+Number of stations.
+*/
+private int __stations = DEFAULT_STATIONS;
+
+/**
+Number of PRD time series.
+*/
+private int __timeSeries = DEFAULT_TIME_SERIES;
+
+/**
+Construct a generator that writes little endian files to a directory.
+@param directory the directory for the files, which is created if necessary.
+*/
+public NWSRFS_FS5FilesGenerator(String directory) {
+	__directory = new File(directory);
+}
+
+/**
+Allocate a zero-filled buffer that is a whole number of records long, with the
+byte order of the files.
+@param bytes the number of bytes that are needed.
+@param recordLength the record length of the file.
+@return the buffer.
+*/
+private ByteBuffer allocate(int bytes, int recordLength) {
+	int records = (bytes + recordLength - 1)/recordLength;
+	ByteBuffer buffer = ByteBuffer.allocate(Math.max(records, 1)*recordLength);
+	if (__isBigEndian) {
+		buffer.order(ByteOrder.BIG_ENDIAN);
+	}
+	else {
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+	}
+	return buffer;
+}
+
+/**
+Check that a value fits in a field.
+@param name the name of the value, for the message.
+@param value the value.
+@param max the largest value that fits.
+@throws Exception if the value is too large.
+*/
+private static void checkLimit(String name, int value, int max)
+throws Exception {
+	if (value > max) {
+		throw new Exception("The " + name + " (" + value + ") is larger than "
+			+ max + ", which is the limit of the FS5Files.  Reduce the size.");
+	}
+}
+
+/**
+Return a generated identifier, which is a prefix followed by a number padded
+with zeros to 8 characters.
+@param prefix the prefix.
+@param number the number.
+@return the identifier.
+*/
+private static String getIdentifier(String prefix, int number) {
+	StringBuffer b = new StringBuffer(prefix);
+	String s = String.valueOf(number);
+	for (int i = prefix.length() + s.length(); i < 8; i++) {
+		b.append('0');
+	}
+	b.append(s);
+	return b.toString();
+}
+
+/**
+Return the number of values in each PRD time series.
+@return the number of observed and future values.
+*/
+private int getPRDValueCount() {
+	return (__periodDays + __futureDays)*24/__intervalHours;
+}
+
+/**
+Return the identifiers of the PRD time series that are written, for example
+"TS000001.NWSRFS.QINE.6Hour".
+@return the time series identifiers.
+*/
+public List<String> getPRDTSIdentifiers() {
+	List<String> tsidents = new ArrayList<String>(__timeSeries);
+	for (int i = 0; i < __timeSeries; i++) {
+		tsidents.add(getPRDLocation(i) + ".NWSRFS."
+			+ __PRD_DATA_TYPES[i%__PRD_DATA_TYPES.length] + "."
+			+ __intervalHours + "Hour");
+	}
+	return tsidents;
+}
+
+/**
+Return the location of a PRD time series.
+@param i the index of the time series.
+@return the location identifier.
+*/
+private String getPRDLocation(int i) {
+	return getIdentifier("TS", i/__PRD_DATA_TYPES.length + 1);
+}
+
+/**
+Return the identifiers of the RRS time series that are written, for example
+"ST000001.NWSRFS.STG-PPDB.6Hour".
+@return the time series identifiers.
+*/
+public List<String> getPDBTSIdentifiers() {
+	List<String> tsidents = new ArrayList<String>(__stations);
+	for (int i = 0; i < __stations; i++) {
+		tsidents.add(getIdentifier("ST", i + 1) + ".NWSRFS."
+			+ __RRS_DATA_TYPES[i%__RRS_DATA_TYPES.length] + "-PPDB."
+			+ __intervalHours + "Hour");
+	}
+	return tsidents;
+}
+
+/**
+Return a generated data value, which varies smoothly with time and differs
+between time series.
+@param series the index of the time series.
+@param value the index of the value in the time series.
+@return the data value.
+*/
+private static float getValue(int series, int value) {
+	return (float)(100.0 + 10.0*(series%17)
+		+ 50.0*Math.sin((value + series*7)*2.0*Math.PI/120.0));
+}
+
+/**
+Write a character field, padded with blanks.
+@param buffer the buffer to write to.
+@param s the characters to write.
+@param length the length of the field.
+*/
+private static void putChars(ByteBuffer buffer, String s, int length) {
+	for (int i = 0; i < length; i++) {
+		if (i < s.length()) {
+			buffer.put((byte)s.charAt(i));
+		}
+		else {
+			buffer.put((byte)' ');
+		}
+	}
+}
+
+/**
+Set whether the files are big endian.
+@param isBigEndian true to write big endian files, false for little endian.
+*/
+public void setBigEndian(boolean isBigEndian) {
+	__isBigEndian = isBigEndian;
+}
+
+/**
+Set the number of days of future data in the PRD time series.
+@param futureDays the number of days (0 for observed data only).
+*/
+public void setFutureDays(int futureDays) {
+	__futureDays = Math.max(futureDays, 0);
+}
+
+/**
+Set the data interval of the time series.
+@param intervalHours the data interval in hours (1 to 24).
+*/
+public void setIntervalHours(int intervalHours) {
+	__intervalHours = Math.min(Math.max(intervalHours, 1), 24);
+}
+
+/**
+Set the number of days of observed data in the PRD time series.
+@param periodDays the number of days.
+*/
+public void setPeriodDays(int periodDays) {
+	__periodDays = Math.max(periodDays, 1);
+}
+
+/**
+Set the number of days of data in the RRS time series.
+@param rrsDays the number of days.
+*/
+public void setRRSDays(int rrsDays) {
+	__rrsDays = Math.max(rrsDays, 1);
+}
+
+/**
+Set the numbers of time series, stations and segments to the defaults times a
+scale factor, for example 10 for ten times the default size.
+@param scale the scale factor.
+*/
+public void setScale(double scale) {
+	setTimeSeries((int)Math.round(DEFAULT_TIME_SERIES*scale));
+	setStations((int)Math.round(DEFAULT_STATIONS*scale));
+	setSegments((int)Math.round(DEFAULT_SEGMENTS*scale));
+}
+
+/**
+Set the number of segments.
+@param segments the number of segments (at least 1).
+*/
+public void setSegments(int segments) {
+	__segments = Math.max(segments, 1);
+}
+
+/**
+Set the date of the first observed value.  The first value is at hour 12.
+@param year the year.
+@param month the month (1 to 12).
+@param day the day of the month.
+*/
+public void setStartDate(int year, int month, int day) {
+	__startYear = year;
+	__startMonth = month;
+	__startDay = day;
+}
+
+/**
+Set the number of stations, each of which has a GENL parameter record and an
+RRS time series.
+@param stations the number of stations.
+*/
+public void setStations(int stations) {
+	__stations = Math.max(stations, 0);
+}
+
+/**
+Set the number of PRD time series.
+@param timeSeries the number of time series.
+*/
+public void setTimeSeries(int timeSeries) {
+	__timeSeries = Math.max(timeSeries, 0);
+}
+
+/**
+Write the files.
+@throws Exception if the sizes do not fit in the files or the files cannot be
+written.
+*/
+public void write()
+throws Exception {
+	String routine = "NWSRFS_FS5FilesGenerator.write";
+	if (!__directory.isDirectory() && !__directory.mkdirs()) {
+		throw new IOException("Cannot create directory \"" + __directory + "\"");
+	}
+	__startJulianHour = NWSRFS_Util.getJulianHour1900FromDate(__startMonth,
+		__startDay, __startYear, 12);
+	writeFCRCPTR();
+	writeFCSEGPTR();
+	writePRD();
+	writePPP();
+	writePDB();
+	Message.printStatus(2, routine, "Wrote " + (__isBigEndian ? "big" : "little")
+		+ " endian FS5Files with " + __timeSeries + " time series, "
+		+ __stations + " stations and " + __segments + " segments to \""
+		+ __directory + "\".");
+}
+
+/**
+Open a buffered stream to write a file in the directory, replacing the file.
+@param name the name of the file.
+@return the stream to write to, which must be closed.
+@throws IOException if the file cannot be created.
+*/
+private OutputStream openFile(String name)
+throws IOException {
+	return new BufferedOutputStream(new FileOutputStream(
+		new File(__directory, name)), 65536);
+}
+
+/**
+Write FCRCPTR, and FCRATING with one blank rating curve for each segment.
+@throws Exception if the files cannot be written.
+*/
+private void writeFCRCPTR()
+throws Exception {
+	int nrc = __segments;
+	checkLimit("number of rating curves", nrc, __MAX_INDEX_RECORD);
+	OutputStream out = openFile("FCRCPTR");
+	try {
+		ByteBuffer buffer = allocate(12, 12);
+		buffer.putInt(nrc);		// NRC
+		buffer.putInt(nrc);		// MRC
+		buffer.putInt(nrc + 1);		// MRCF
+		out.write(buffer.array());
+		for (int i = 0; i < nrc; i++) {
+			buffer = allocate(12, 12);
+			putChars(buffer, getIdentifier("RC", i + 1), 8);
+			buffer.putInt(i + 1);
+			out.write(buffer.array());
+		}
+	}
+	finally {
+		out.close();
+	}
+	out = openFile("FCRATING");
+	try {
+		for (int i = 0; i < nrc; i++) {
+			ByteBuffer buffer = allocate(1200, 1200);
+			putChars(buffer, getIdentifier("RC", i + 1), 8);
+			putChars(buffer, "Synthetic rating curve", 20);
+			out.write(buffer.array());
+		}
+	}
+	finally {
+		out.close();
+	}
+}
+
+/**
+Write FCSEGPTR and FCSEGSTS.  Segment n is in record n of FCSEGSTS.
+@throws Exception if the files cannot be written.
+*/
+private void writeFCSEGPTR()
+throws Exception {
+	checkLimit("number of segments", __segments, __MAX_INDEX_RECORD);
+	OutputStream out = openFile("FCSEGPTR");
+	try {
+		ByteBuffer buffer = allocate(24, 12);
+		buffer.putInt(__segments);	// NSEG
+		buffer.putInt(__segments);	// NRECST
+		buffer.putInt(__segments);	// MAXRST
+		buffer.putInt(__segments);	// NRECP
+		buffer.putInt(__segments);	// MAXRP
+		buffer.putInt(100);		// NWPRP
+		out.write(buffer.array());
+		for (int i = 0; i < __segments; i++) {
+			buffer = allocate(12, 12);
+			putChars(buffer, getIdentifier("SEG", i + 1), 8);
+			buffer.putInt(i + 1);
+			out.write(buffer.array());
+		}
+	}
+	finally {
+		out.close();
+	}
+
+	out = openFile("FCSEGSTS");
+	try {
+		for (int i = 0; i < __segments; i++) {
+			int group = i/__SEGMENTS_PER_FORECAST_GROUP;
+			ByteBuffer buffer = allocate(260, 260);
+			putChars(buffer, getIdentifier("SEG", i + 1), 8);	// IDSEG
+			// IUPSEG and IDNSEG - the segments in each forecast group
+			// are in a chain.
+			for (int j = 0; j < 5; j++) {
+				if (j == 0 && i%__SEGMENTS_PER_FORECAST_GROUP != 0) {
+					putChars(buffer, getIdentifier("SEG", i), 8);
+				}
+				else {
+					putChars(buffer, "", 8);
+				}
+			}
+			for (int j = 0; j < 2; j++) {
+				if (j == 0 && (i + 1)%__SEGMENTS_PER_FORECAST_GROUP != 0
+					&& i + 1 < __segments) {
+					putChars(buffer, getIdentifier("SEG", i + 2), 8);
+				}
+				else {
+					putChars(buffer, "", 8);
+				}
+			}
+			buffer.putInt(i + 1);					// IPREC
+			buffer.putInt(1);					// IWOCRY
+			putChars(buffer, getIdentifier("FG", group + 1), 8);	// IFGID
+			putChars(buffer, "CG1", 8);				// ICGID
+			putChars(buffer, "Synthetic segment", 20);		// SGDSCR
+			for (int j = 0; j < 5; j++) {
+				buffer.putInt(0);				// ICRDTE
+			}
+			buffer.putInt(__intervalHours);				// MINDT
+			buffer.putFloat(35.0f + (i%100)*0.1f);			// XLAT
+			buffer.putFloat(105.0f + (i/100%100)*0.1f);		// XLONG
+			for (int j = 0; j < 6; j++) {
+				buffer.putInt(0);		// NC, ND, NT, NTS, NP, NCOPS
+			}
+			for (int j = 0; j < 20; j++) {
+				buffer.putInt(0);				// INCSEG
+			}
+			buffer.putInt(1);					// IDEFSG
+			buffer.putInt(0);					// IEREC
+			out.write(buffer.array());
+		}
+	}
+	finally {
+		out.close();
+	}
+}
+
+/**
+Write PDBINDEX and PDBRRS, with one instantaneous RRS time series for each
+station.  The station information records in PDBINDEX are one record each,
+and the RRS records in PDBRRS start at record 2.
+@throws Exception if the files cannot be written.
+*/
+private void writePDB()
+throws Exception {
+	int numObs = __rrsDays*24/__intervalHours;
+	// Words in the primary record, including the word before the data
+	int nwrds = 29 + 2*numObs;
+	int rrsRecords = (nwrds*4 + 63)/64;
+	checkLimit("number of PDBRRS records", 1 + __stations*rrsRecords, __MAX_SHORT);
+	int lastHour = __startJulianHour + (numObs - 1)*__intervalHours;
+
+	// The station information records start after the control record
+	// and one record that is skipped, with no daily data files or types.
+	int infrec = 2;
+	OutputStream out = openFile("PDBINDEX");
+	try {
+		ByteBuffer buffer = allocate(128, 64);
+		buffer.putInt(16);			// NWRDS
+		buffer.putInt(64);			// LRECL1
+		buffer.putInt(64);			// LRECL2
+		buffer.putInt(64);			// LRECL3
+		buffer.putInt(0);			// MAXTYP
+		buffer.putInt(0);			// NUMTYP
+		buffer.putInt(2);			// TYPREC
+		buffer.putInt(0);			// NHASHR
+		buffer.putInt(infrec + 1);		// H8CREC
+		buffer.putInt(infrec + 1);		// HINTRC
+		buffer.putInt(infrec);			// INFREC
+		buffer.putInt(infrec + __stations);	// MFILE
+		buffer.putInt(infrec + __stations);	// LFILE
+		buffer.putInt(1);			// LURRS
+		buffer.putInt(0);			// MAXDDF
+		buffer.putInt(0);			// NUMDDF
+		out.write(buffer.array());
+		for (int i = 0; i < __stations; i++) {
+			buffer = allocate(64, 64);
+			buffer.putShort((short)32);				// SNWRDS
+			putChars(buffer, getIdentifier("ST", i + 1), 8);	// STAID
+			buffer.putShort((short)Math.min(i + 1, __MAX_SHORT));	// NUMID
+			buffer.putShort((short)0);				// PRMPTR
+			buffer.putShort((short)0);				// PCPPTR
+			buffer.putShort((short)0);				// TMPPTR
+			buffer.putShort((short)1);				// NADDTP
+			putChars(buffer, __RRS_DATA_TYPES[i%__RRS_DATA_TYPES.length], 4);
+			buffer.putShort((short)(2 + i*rrsRecords));		// ADTPTR
+			buffer.putInt(__startJulianHour/24);			// BDATE
+			buffer.putInt(lastHour/24);				// RDATE
+			buffer.putShort((short)__rrsDays);			// NDAYS
+			buffer.putShort((short)Math.min(numObs, __MAX_SHORT));	// NTOTAL
+			buffer.putShort((short)0);				// NZERO
+			buffer.putFloat(0.0f);					// ACDCP
+			buffer.putShort((short)0);				// RPTLG
+			buffer.putInt(0);					// LDATE
+			buffer.putShort((short)0);				// RPT2LG
+			buffer.putInt(0);					// L2DATE
+			buffer.putShort((short)0);				// SMNOZO
+			buffer.putFloat(0.0f);					// ACPSQ
+			buffer.putShort((short)0);				// NWRDSO
+			out.write(buffer.array());
+		}
+	}
+	finally {
+		out.close();
+	}
+
+	out = openFile("PDBRRS");
+	try {
+		int maxrec = 1 + __stations*rrsRecords;
+		ByteBuffer buffer = allocate(64, 64);
+		buffer.putInt(maxrec);			// MAXREC
+		buffer.putInt(maxrec + 1);		// NEXTRC
+		buffer.putInt(0);			// FREE1
+		buffer.putInt(0);			// FREEN
+		buffer.putInt(16);			// FREEL
+		buffer.putInt(1);			// LUFREE
+		buffer.putInt(0);			// MAXFRE
+		buffer.putInt(__rrsDays);		// MAXPD
+		buffer.putInt(__stations);		// NUMSET
+		buffer.putInt(0);			// INUSE
+		putChars(buffer, "SYNTH", 8);		// USER
+		out.write(buffer.array());
+		for (int i = 0; i < __stations; i++) {
+			buffer = allocate(nwrds*4, 64);
+			buffer.putInt(nwrds);					// NWRDS
+			putChars(buffer, getIdentifier("ST", i + 1), 8);	// STAID
+			buffer.putInt(i + 1);					// NUMID
+			putChars(buffer, __RRS_DATA_TYPES[i%__RRS_DATA_TYPES.length], 4);
+			buffer.putInt(__rrsDays);				// MINDAY
+			buffer.putInt(numObs);					// MAXOBS
+			buffer.putInt(numObs);					// NUMOBS
+			buffer.putInt(30);					// EVAL
+			buffer.putInt(0);					// REVAL
+			buffer.putInt(28 + 2*numObs);				// LVAL
+			buffer.putInt(0);					// RLVAL
+			buffer.putInt(0);					// IFREC1
+			buffer.putInt(2);					// NVALS
+			buffer.putInt(0);					// FTIME
+			buffer.putInt(lastHour);				// LSTHR
+			buffer.putInt(0);					// NSTAT
+			for (int j = 0; j < 11; j++) {
+				// BDATE through S2DATE, which are not used
+				buffer.putInt(0);
+			}
+			buffer.putInt(0);		// Word before the observations
+			for (int j = 0; j < numObs; j++) {
+				// Observation time in Julian minutes and value
+				buffer.putInt((__startJulianHour + j*__intervalHours)*100);
+				buffer.putFloat(getValue(i, j));
+			}
+			out.write(buffer.array());
+		}
+	}
+	finally {
+		out.close();
+	}
+}
+
+/**
+Write PPPINDEX and PPPPARM1, with a GENL parameter record for each station.
+The GENL records are two records long and start at record 2 of PPPPARM1.
+@throws Exception if the files cannot be written.
+*/
+private void writePPP()
+throws Exception {
+	// Control, user and two parameter type records precede the index
+	int fstidx = 5;
+	int lastRecord = 1 + 2*__stations;
+	checkLimit("number of PPPPARM1 records", lastRecord, __MAX_INDEX_RECORD);
+	OutputStream out = openFile("PPPINDEX");
+	try {
+		ByteBuffer buffer = allocate(16, 16);
+		buffer.putInt(fstidx - 1 + __stations);	// MAXREC
+		buffer.putInt(1);			// MAXTYP
+		buffer.putInt(1);			// NUMTYP
+		buffer.putInt(1);			// NUMFIL
+		out.write(buffer.array());
+		buffer = allocate(16, 16);
+		buffer.putInt(fstidx);			// FSTIDX
+		putChars(buffer, "SYNTH", 8);		// USERID
+		out.write(buffer.array());
+		buffer = allocate(16, 16);
+		putChars(buffer, "GENL", 4);		// PARMTP
+		buffer.putInt(1);			// LUFILE
+		buffer.putInt(__stations > 0 ? 2 : 0);	// FIRST
+		buffer.putInt(__stations > 0 ? lastRecord - 1 : 0);	// LAST
+		out.write(buffer.array());
+		buffer = allocate(16, 16);
+		buffer.putInt(__stations);		// NUMPRM
+		buffer.putInt(0);			// ISNGL
+		out.write(buffer.array());
+		for (int i = 0; i < __stations; i++) {
+			buffer = allocate(16, 16);
+			putChars(buffer, getIdentifier("ST", i + 1), 8);
+			putChars(buffer, "GENL", 4);
+			buffer.putInt(2 + 2*i);
+			out.write(buffer.array());
+		}
+	}
+	finally {
+		out.close();
+	}
+
+	out = openFile("PPPPARM1");
+	try {
+		ByteBuffer buffer = allocate(64, 64);
+		buffer.putInt(lastRecord);		// Last used record
+		out.write(buffer.array());
+		for (int i = 0; i < __stations; i++) {
+			String staid = getIdentifier("ST", i + 1);
+			buffer = allocate(84, 64);
+			buffer.putInt(20);			// NWRDS
+			putChars(buffer, staid, 8);		// Identifier
+			putChars(buffer, "GENL", 4);		// Parameter type
+			buffer.putInt(0);			// IRECNX
+			buffer.putFloat(1.0f);			// Parameter array version
+			putChars(buffer, staid, 8);		// Station identifier
+			buffer.putFloat(i + 1);			// Station number
+			putChars(buffer, "Synthetic station", 20);
+			buffer.putFloat(1500.0f + i%1000);	// Elevation
+			buffer.putFloat(35.0f + (i%100)*0.1f);	// Latitude
+			buffer.putFloat(105.0f + (i/100%100)*0.1f);	// Longitude
+			buffer.putFloat(100 + i%100);		// HRAP X
+			buffer.putFloat(100 + i/100%100);	// HRAP Y
+			buffer.putFloat(1.0f);			// Complete indicator
+			putChars(buffer, "CO", 4);		// Postal code
+			out.write(buffer.array());
+		}
+	}
+	finally {
+		out.close();
+	}
+}
+
+/**
+Write PRDINDEX, PRDPARM and PRDTS1 to PRDTS5.  Data type n is stored in PRDTSn,
+the first word of which is the unit number n, so the time series start at
+record 2 of each file.
+@throws Exception if the files cannot be written.
+*/
+private void writePRD()
+throws Exception {
+	int numTypes = __PRD_DATA_TYPES.length;
+	int numValues = getPRDValueCount();
+	int numObs = __periodDays*24/__intervalHours;
+	int numFut = numValues - numObs;
+	// The fixed header is 18 words (72 bytes), with no extra header words
+	int ltshdr = 18;
+	int iptreg = ltshdr + 1;
+	checkLimit("number of values in a time series", iptreg + numValues, __MAX_SHORT);
+	int tsRecords = (ltshdr*4 + numValues*4 + 63)/64;
+	int[] tsCount = new int[numTypes];
+	for (int i = 0; i < __timeSeries; i++) {
+		tsCount[i%numTypes]++;
+	}
+	checkLimit("number of records in a PRDTSn file", 1 + tsCount[0]*tsRecords, 1000000);
+
+	OutputStream[] tsOut = new OutputStream[numTypes];
+	OutputStream indexOut = null;
+	try {
+		indexOut = openFile("PRDINDEX");
+		for (int i = 0; i < numTypes; i++) {
+			tsOut[i] = openFile("PRDTS" + (i + 1));
+			ByteBuffer buffer = allocate(64, 64);
+			buffer.putInt(i + 1);		// Unit number
+			buffer.putInt(2 + tsCount[i]*tsRecords);	// Next available record
+			tsOut[i].write(buffer.array());
+		}
+		int[] nextRecord = new int[numTypes];
+		for (int i = 0; i < numTypes; i++) {
+			nextRecord[i] = 2;
+		}
+		for (int i = 0; i < __timeSeries; i++) {
+			int type = i%numTypes;
+			String tsid = getPRDLocation(i);
+			ByteBuffer buffer = allocate(16, 16);
+			putChars(buffer, tsid, 8);
+			putChars(buffer, __PRD_DATA_TYPES[type], 4);
+			buffer.putInt(nextRecord[type]);
+			indexOut.write(buffer.array());
+
+			buffer = allocate(ltshdr*4 + numValues*4, 64);
+			buffer.put((byte)ltshdr);			// LTSHDR
+			buffer.put((byte)__intervalHours);		// IDTINT
+			buffer.put((byte)1);				// NVLINT
+			buffer.put((byte)0);
+			buffer.putShort((short)numValues);		// NTSMAX
+			buffer.putShort((short)numValues);		// NTSNUM
+			buffer.putShort((short)iptreg);			// IPTREG
+			if (numFut > 0) {
+				buffer.putShort((short)(iptreg + numObs));	// IPTFUT
+			}
+			else {
+				buffer.putShort((short)0);
+			}
+			putChars(buffer, tsid, 8);
+			putChars(buffer, __PRD_DATA_TYPES[type], 4);
+			putChars(buffer, __PRD_UNITS[type], 4);		// TSUNIT
+			buffer.putFloat(35.0f + (i%100)*0.1f);		// TSLAT
+			buffer.putFloat(105.0f + (i/100%100)*0.1f);	// TSLONG
+			buffer.putInt(__startJulianHour);		// JULBEG
+			if (numFut > 0) {
+				buffer.putInt(__startJulianHour + numObs*__intervalHours);	// ITSFUT
+			}
+			else {
+				buffer.putInt(0);
+			}
+			buffer.putInt(0);
+			buffer.putInt(0);				// NRECNX
+			putChars(buffer, "Synthetic time series", 20);	// TSDESC
+			for (int j = 0; j < numValues; j++) {
+				buffer.putFloat(getValue(i, j));
+			}
+			tsOut[type].write(buffer.array());
+			nextRecord[type] += tsRecords;
+		}
+	}
+	finally {
+		if (indexOut != null) {
+			indexOut.close();
+		}
+		for (int i = 0; i < numTypes; i++) {
+			if (tsOut[i] != null) {
+				tsOut[i].close();
+			}
+		}
+	}
+
+	OutputStream out = openFile("PRDPARM");
+	try {
+		ByteBuffer buffer = allocate(240, 240);
+		putChars(buffer, "SYNTH", 8);			// NAMERF
+		buffer.putInt(numTypes);			// MAXDTP
+		buffer.putInt(__timeSeries);			// MAXTMS
+		buffer.putInt(__periodDays);			// MINDAY
+		for (int i = 0; i < 7; i++) {
+			buffer.putInt(0);
+		}
+		buffer.putInt(__timeSeries);			// NUMTMS
+		buffer.putInt(numTypes);			// NUMDTP
+		out.write(buffer.array());
+		for (int i = 0; i < numTypes; i++) {
+			buffer = allocate(72, 72);
+			putChars(buffer, __PRD_DATA_TYPES[i], 4);
+			buffer.putInt(i + 1);				// IUNIT
+			buffer.putInt(0);				// NCORE
+			buffer.putInt(__periodDays + __futureDays);	// MAXDAY
+			buffer.putInt(__intervalHours);			// MINDT
+			buffer.putInt(0);				// IPROC
+			buffer.putInt(0);				// IFDAT
+			buffer.putInt(2);				// IFRECD
+			buffer.putInt(1 + tsCount[i]*tsRecords);	// ILRECD
+			buffer.putInt(0);				// ICPTR
+			buffer.putInt(0);				// ICALL
+			buffer.putInt(1);				// IDIM
+			buffer.putInt(1);				// NVAL
+			buffer.putInt(0);				// NXHDR
+			buffer.putInt(tsCount[i]);			// NUMTS
+			out.write(buffer.array());
+		}
+	}
+	finally {
+		out.close();
+	}
+}
+
+/**
+Write a synthetic database from the command line.  See the class description
+for the arguments.
+@param args the command line arguments.
+*/
+public static void main(String[] args) {
+	String routine = "NWSRFS_FS5FilesGenerator.main";
+	String directory = null;
+	List<String[]> options = new ArrayList<String[]>();
+	for (int i = 0; i < args.length - 1; i += 2) {
+		if (args[i].equalsIgnoreCase("-directory")) {
+			directory = args[i + 1];
+		}
+		else {
+			options.add(new String[] { args[i], args[i + 1] });
+		}
+	}
+	if (directory == null) {
+		Message.printWarning(1, routine, "A directory must be specified with -directory.");
+		System.exit(1);
+	}
+
+	Message.setWarningLevel(Message.TERM_OUTPUT, 1);
+	try {
+		NWSRFS_FS5FilesGenerator generator = new NWSRFS_FS5FilesGenerator(directory);
+		// Apply the scale first so that specific sizes override it.
+		for (int i = 0; i < options.size(); i++) {
+			String[] option = options.get(i);
+			if (option[0].equalsIgnoreCase("-scale")) {
+				generator.setScale(Double.parseDouble(option[1]));
+			}
+		}
+		for (int i = 0; i < options.size(); i++) {
+			String[] option = options.get(i);
+			if (option[0].equalsIgnoreCase("-scale")) {
+				continue;
+			}
+			else if (option[0].equalsIgnoreCase("-endian")) {
+				generator.setBigEndian(option[1].equalsIgnoreCase("big"));
+			}
+			else if (option[0].equalsIgnoreCase("-timeseries")) {
+				generator.setTimeSeries(Integer.parseInt(option[1]));
+			}
+			else if (option[0].equalsIgnoreCase("-stations")) {
+				generator.setStations(Integer.parseInt(option[1]));
+			}
+			else if (option[0].equalsIgnoreCase("-segments")) {
+				generator.setSegments(Integer.parseInt(option[1]));
+			}
+			else if (option[0].equalsIgnoreCase("-days")) {
+				generator.setPeriodDays(Integer.parseInt(option[1]));
+			}
+			else if (option[0].equalsIgnoreCase("-futuredays")) {
+				generator.setFutureDays(Integer.parseInt(option[1]));
+			}
+			else if (option[0].equalsIgnoreCase("-rrsdays")) {
+				generator.setRRSDays(Integer.parseInt(option[1]));
+			}
+			else {
+				Message.printWarning(1, routine, "Unknown argument \""
+					+ option[0] + "\" - ignoring.");
+			}
+		}
+		generator.write();
+		Message.printStatus(1, routine, "Wrote FS5Files to \"" + directory + "\".");
+	}
+	catch (Exception e) {
+		Message.printWarning(1, routine, e);
+		System.exit(1);
+	}
+	System.exit(0);
+}
+
+}
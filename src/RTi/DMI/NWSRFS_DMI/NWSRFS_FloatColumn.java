@@ -0,0 +1,156 @@
+//------------------------------------------------------------------------------
+// NWSRFS_FloatColumn - growable array of float values used by the index classes
+//------------------------------------------------------------------------------
+// Endheader
+
+package RTi.DMI.NWSRFS_DMI;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+The NWSRFS_FloatColumn class stores a column of float values from an NWSRFS
+index file (e.g., the ACDCP statistics in PDBINDEX) in a growable float array,
+rather than as Float objects in a Vector.  See NWSRFS_IntColumn.
+*/
+public class NWSRFS_FloatColumn extends NWSRFS_PrimitiveColumn<Float>
+{
+
+/**
+Version of the serialized form (the values of the column).
+*/
+private static final long serialVersionUID = 1L;
+
+/**
+The values in the column.  Only the first _size values are used, and only
+those values are serialized (see writeObject()).
+*/
+private transient float[] __values = null;
+
+/**
+Construct an empty column.
+*/
+public NWSRFS_FloatColumn() {
+	this(16);
+}
+
+/**
+Construct an empty column.
+@param capacity the initial number of values that can be stored before the
+array is enlarged.
+*/
+public NWSRFS_FloatColumn(int capacity) {
+	__values = new float[Math.max(capacity, 1)];
+}
+
+/**
+Insert a value in the column (required by AbstractList).
+@param index the index at which to insert the value.
+@param value the value to insert.
+*/
+public void add(int index, Float value) {
+	insertSpace(index);
+	__values[index] = value.floatValue();
+}
+
+/**
+Add a value to the end of the column.
+@param value the value to add.
+*/
+public void addFloat(float value) {
+	ensureCapacity(_size + 1);
+	__values[_size++] = value;
+	modCount++;
+}
+
+/**
+Return the array holding the values (required by NWSRFS_PrimitiveColumn).
+@return the float[] holding the values.
+*/
+protected Object getArray() {
+	return __values;
+}
+
+/**
+Return a value as a Float (required by AbstractList).  Use getFloat() to avoid
+creating a Float.
+@param index the index of the value.
+@return the value at the index.
+*/
+public Float get(int index) {
+	return Float.valueOf(getFloat(index));
+}
+
+/**
+Return a value.
+@param index the index of the value.
+@return the value at the index.
+*/
+public float getFloat(int index) {
+	checkIndex(index);
+	return __values[index];
+}
+
+/**
+Read the column from a serialized stream (see writeObject()).
+@param in the stream to read.
+@throws IOException if the column cannot be read.
+@throws ClassNotFoundException if a class in the stream cannot be found.
+*/
+private void readObject(ObjectInputStream in)
+throws IOException, ClassNotFoundException {
+	in.defaultReadObject();
+	__values = new float[Math.max(_size, 1)];
+	for (int i = 0; i < _size; i++) {
+		__values[i] = in.readFloat();
+	}
+}
+
+/**
+Remove a value from the column (required by AbstractList).
+@param index the index of the value to remove.
+@return the value that was removed.
+*/
+public Float remove(int index) {
+	float value = getFloat(index);
+	removeSpace(index);
+	return Float.valueOf(value);
+}
+
+/**
+Set the array holding the values (required by NWSRFS_PrimitiveColumn).
+@param array the float[] holding the values.
+*/
+protected void setArray(Object array) {
+	__values = (float[])array;
+}
+
+/**
+Set a value in the column (required by AbstractList).
+@param index the index of the value to set.
+@param value the value to set.
+@return the previous value at the index.
+*/
+public Float set(int index, Float value) {
+	float old = getFloat(index);
+	__values[index] = value.floatValue();
+	return Float.valueOf(old);
+}
+
+/**
+Write the column to a serialized stream, for example when an index is saved
+in an NWSRFS_IndexSnapshot.  Only the values that are used are written,
+regardless of the capacity of the array.
+@param out the stream to write.
+@throws IOException if the column cannot be written.
+*/
+private void writeObject(ObjectOutputStream out)
+throws IOException {
+	out.defaultWriteObject();
+	for (int i = 0; i < _size; i++) {
+		out.writeFloat(__values[i]);
+	}
+}
+
+}
@@ -0,0 +1,237 @@
+//------------------------------------------------------------------------------
+// NWSRFS_IndexSnapshot - class to save and restore the parsed NWSRFS index
+//				files in snapshot files
+//------------------------------------------------------------------------------
+// Endheader
+
+package RTi.DMI.NWSRFS_DMI;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import RTi.Util.Message.Message;
+
+/**
+The NWSRFS_IndexSnapshot class saves the parsed contents of an NWSRFS index
+file (e.g., an NWSRFS_PDBINDEX read from PDBINDEX) in a snapshot file, and
+restores the index from the snapshot so that a new NWSRFS_DMI does not need to
+parse the index file again.  Each snapshot records the path, length, and last
+modification time of the index file that it was created from.  A snapshot is
+only used if these still match the index file, so a snapshot is never used
+after the index file has been changed by NWSRFS.  Stale or unreadable snapshots
+are ignored and are replaced the next time the index file is parsed.
+<p>
+The snapshot files are named for the index files and a hash of the canonical
+path of the index file (e.g., "PDBINDEX-1f2e3d4c.snapshot"), so that the
+snapshots for several FS5Files directories can be kept in the same snapshot
+directory without replacing each other.  The snapshots are written to a
+directory specified by the application (see
+NWSRFS_DMI.setIndexSnapshotDirectory()), because the FS5Files directory is
+often not writable.  The index objects are saved with Java serialization.
+Each serialized class declares its serialVersionUID, which must be increased
+when the serialized fields of the class change.  Snapshots written with a
+different serialVersionUID cannot be read and are also replaced.
+*/
+public class NWSRFS_IndexSnapshot
+{
+
+/**
+Value at the start of each snapshot file, used to recognize snapshot files.
+*/
+private static final int __MAGIC = 0x4E575349;
+
+/**
+Version of the snapshot file format.
+*/
+private static final int __VERSION = 1;
+
+/**
+Extension added to the index file name and path hash to name the snapshot
+file.
+*/
+public static final String EXTENSION = ".snapshot";
+
+/**
+Directory containing the snapshot files.
+*/
+private File __directory = null;
+
+/**
+Construct an instance that saves snapshots in a directory.
+@param directory the directory for the snapshot files.  The directory is
+created when the first snapshot is written, if necessary.
+*/
+public NWSRFS_IndexSnapshot(String directory) {
+	__directory = new File(directory);
+}
+
+/**
+Return the directory containing the snapshot files.
+@return the directory containing the snapshot files.
+*/
+public String getDirectory() {
+	return __directory.getPath();
+}
+
+/**
+Return the snapshot file for an index file.  The name of the snapshot file
+includes the hash code of the canonical path of the index file (or the absolute
+path, if the canonical path cannot be determined), so that index files with the
+same name in different directories have different snapshot files.  The path
+saved in the snapshot is still checked when the snapshot is read, in case two
+paths have the same hash code.
+@param indexFile the index file.
+@return the snapshot file for the index file.
+*/
+public File getSnapshotFile(File indexFile) {
+	String path;
+	try {
+		path = indexFile.getCanonicalPath();
+	}
+	catch (IOException e) {
+		path = indexFile.getAbsolutePath();
+	}
+	return new File(__directory, indexFile.getName() + "-"
+		+ Integer.toHexString(path.hashCode()) + EXTENSION);
+}
+
+/**
+Read the index that was saved for an index file.
+@param indexFile the index file that was parsed to create the index.
+@param indexClass the class of the index (e.g., NWSRFS_PDBINDEX.class).
+@return the index, or null if there is no snapshot for the index file, or the
+snapshot is for a different or modified index file, or cannot be read.
+*/
+public <T> T read(File indexFile, Class<T> indexClass) {
+	String routine = "NWSRFS_IndexSnapshot.read";
+	File snapshotFile = getSnapshotFile(indexFile);
+	if (!snapshotFile.isFile() || !indexFile.isFile()) {
+		return null;
+	}
+	DataInputStream in = null;
+	try {
+		in = new DataInputStream(new BufferedInputStream(
+			new FileInputStream(snapshotFile)));
+		if (in.readInt() != __MAGIC || in.readInt() != __VERSION) {
+			Message.printStatus(2, routine, "\"" + snapshotFile
+				+ "\" is not a current index snapshot.  Ignoring.");
+			return null;
+		}
+		String path = in.readUTF();
+		long length = in.readLong();
+		long lastModified = in.readLong();
+		if (!path.equals(indexFile.getCanonicalPath())
+			|| length != indexFile.length()
+			|| lastModified != indexFile.lastModified()) {
+			Message.printStatus(2, routine, "Index snapshot \""
+				+ snapshotFile + "\" is out of date with \"" + indexFile
+				+ "\".  Ignoring.");
+			return null;
+		}
+		Object index = new ObjectInputStream(in).readObject();
+		if (!indexClass.isInstance(index)) {
+			return null;
+		}
+		if (Message.isDebugOn) {
+			Message.printDebug(1, routine, "Read index for \"" + indexFile
+				+ "\" from snapshot \"" + snapshotFile + "\".");
+		}
+		return indexClass.cast(index);
+	}
+	catch (Exception e) {
+		// Includes InvalidClassException if the classes have changed.
+		Message.printWarning(3, routine, "Unable to read index snapshot \""
+			+ snapshotFile + "\" (" + e + ").  Ignoring.");
+		return null;
+	}
+	finally {
+		if (in != null) {
+			try {
+				in.close();
+			}
+			catch (IOException e) {
+				// Ignore.
+			}
+		}
+	}
+}
+
+/**
+Save the index that was parsed from an index file.  The snapshot is written to
+a temporary file that is then renamed so that other processes do not read a
+partial snapshot.  Errors are printed as warnings and otherwise ignored because
+the snapshot is only used to improve performance.
+@param indexFile the index file that was parsed to create the index.
+@param index the index to save.
+*/
+public void write(File indexFile, Serializable index) {
+	String routine = "NWSRFS_IndexSnapshot.write";
+	File snapshotFile = getSnapshotFile(indexFile);
+	File tempFile = null;
+	// Get the length and time before writing, in case the index file is
+	// modified in the meantime, so that the snapshot will then be stale.
+	long length = indexFile.length();
+	long lastModified = indexFile.lastModified();
+	DataOutputStream out = null;
+	try {
+		String path = indexFile.getCanonicalPath();
+		if (!__directory.isDirectory() && !__directory.mkdirs()) {
+			throw new IOException("Cannot create directory \"" + __directory
+				+ "\"");
+		}
+		tempFile = File.createTempFile(indexFile.getName(), ".tmp",
+			__directory);
+		out = new DataOutputStream(new BufferedOutputStream(
+			new FileOutputStream(tempFile)));
+		out.writeInt(__MAGIC);
+		out.writeInt(__VERSION);
+		out.writeUTF(path);
+		out.writeLong(length);
+		out.writeLong(lastModified);
+		ObjectOutputStream oos = new ObjectOutputStream(out);
+		oos.writeObject(index);
+		oos.close();
+		out = null;
+		if (!tempFile.renameTo(snapshotFile)) {
+			// Some systems do not allow an existing file to be replaced.
+			snapshotFile.delete();
+			if (!tempFile.renameTo(snapshotFile)) {
+				throw new IOException("Cannot rename \"" + tempFile
+					+ "\" to \"" + snapshotFile + "\"");
+			}
+		}
+		tempFile = null;
+		if (Message.isDebugOn) {
+			Message.printDebug(1, routine, "Saved index for \"" + indexFile
+				+ "\" in snapshot \"" + snapshotFile + "\".");
+		}
+	}
+	catch (Exception e) {
+		Message.printWarning(3, routine, "Unable to save index snapshot \""
+			+ snapshotFile + "\" (" + e + ").");
+	}
+	finally {
+		if (out != null) {
+			try {
+				out.close();
+			}
+			catch (IOException e) {
+				// Ignore.
+			}
+		}
+		if (tempFile != null) {
+			tempFile.delete();
+		}
+	}
+}
+
+}
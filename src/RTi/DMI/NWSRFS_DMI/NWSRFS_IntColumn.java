@@ -0,0 +1,173 @@
+//------------------------------------------------------------------------------
+// NWSRFS_IntColumn - growable array of int values used by the index classes
+//------------------------------------------------------------------------------
+// Endheader
+
+package RTi.DMI.NWSRFS_DMI;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+The NWSRFS_IntColumn class stores a column of int values from an NWSRFS index
+file (e.g., the LUFILE values in PDBINDEX) in a growable int array, rather
+than as Integer objects in a Vector.  This uses a fraction of the memory for
+large indexes and allows values to be retrieved without unboxing, using
+getInt().  The class is also a List&lt;Integer&gt; so that it can be returned
+by the index class getter methods that return the whole column.
+*/
+public class NWSRFS_IntColumn extends NWSRFS_PrimitiveColumn<Integer>
+{
+
+/**
+Version of the serialized form (the values of the column).
+*/
+private static final long serialVersionUID = 1L;
+
+/**
+The values in the column.  Only the first _size values are used, and only
+those values are serialized (see writeObject()).
+*/
+private transient int[] __values = null;
+
+/**
+Construct an empty column.
+*/
+public NWSRFS_IntColumn() {
+	this(16);
+}
+
+/**
+Construct an empty column.
+@param capacity the initial number of values that can be stored before the
+array is enlarged.
+*/
+public NWSRFS_IntColumn(int capacity) {
+	__values = new int[Math.max(capacity, 1)];
+}
+
+/**
+Insert a value in the column (required by AbstractList).
+@param index the index at which to insert the value.
+@param value the value to insert.
+*/
+public void add(int index, Integer value) {
+	insertSpace(index);
+	__values[index] = value.intValue();
+}
+
+/**
+Add a value to the end of the column.
+@param value the value to add.
+*/
+public void addInt(int value) {
+	ensureCapacity(_size + 1);
+	__values[_size++] = value;
+	modCount++;
+}
+
+/**
+Return the array holding the values (required by NWSRFS_PrimitiveColumn).
+@return the int[] holding the values.
+*/
+protected Object getArray() {
+	return __values;
+}
+
+/**
+Return a value as an Integer (required by AbstractList).  Use getInt() to avoid
+creating an Integer.
+@param index the index of the value.
+@return the value at the index.
+*/
+public Integer get(int index) {
+	return Integer.valueOf(getInt(index));
+}
+
+/**
+Return a value.
+@param index the index of the value.
+@return the value at the index.
+*/
+public int getInt(int index) {
+	checkIndex(index);
+	return __values[index];
+}
+
+/**
+Return the index of the first occurrence of a value.
+@param value the value to find.
+@return the index of the value, or -1 if not found.
+*/
+public int indexOfInt(int value) {
+	for (int i = 0; i < _size; i++) {
+		if (__values[i] == value) {
+			return i;
+		}
+	}
+	return -1;
+}
+
+/**
+Read the column from a serialized stream (see writeObject()).
+@param in the stream to read.
+@throws IOException if the column cannot be read.
+@throws ClassNotFoundException if a class in the stream cannot be found.
+*/
+private void readObject(ObjectInputStream in)
+throws IOException, ClassNotFoundException {
+	in.defaultReadObject();
+	__values = new int[Math.max(_size, 1)];
+	for (int i = 0; i < _size; i++) {
+		__values[i] = in.readInt();
+	}
+}
+
+/**
+Remove a value from the column (required by AbstractList).
+@param index the index of the value to remove.
+@return the value that was removed.
+*/
+public Integer remove(int index) {
+	int value = getInt(index);
+	removeSpace(index);
+	return Integer.valueOf(value);
+}
+
+/**
+Set the array holding the values (required by NWSRFS_PrimitiveColumn).
+@param array the int[] holding the values.
+*/
+protected void setArray(Object array) {
+	__values = (int[])array;
+}
+
+/**
+Set a value in the column (required by AbstractList).
+@param index the index of the value to set.
+@param value the value to set.
+@return the previous value at the index.
+*/
+public Integer set(int index, Integer value) {
+	int old = getInt(index);
+	__values[index] = value.intValue();
+	return Integer.valueOf(old);
+}
+
+/**
+Write the column to a serialized stream, for example when an index is saved
+in an NWSRFS_IndexSnapshot.  Only the values that are used are written,
+regardless of the capacity of the array.
+@param out the stream to write.
+@throws IOException if the column cannot be written.
+*/
+private void writeObject(ObjectOutputStream out)
+throws IOException {
+	out.defaultWriteObject();
+	for (int i = 0; i < _size; i++) {
+		out.writeInt(__values[i]);
+	}
+}
+
+}
@@ -0,0 +1,195 @@
+//------------------------------------------------------------------------------
+// NWSRFS_LatencyHistogram - class to accumulate the elapsed times of an
+//				NWSRFS_DMI operation
+//------------------------------------------------------------------------------
+// Endheader
+
+package RTi.DMI.NWSRFS_DMI;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+The NWSRFS_LatencyHistogram class accumulates the elapsed times of calls to an
+NWSRFS_DMI method (e.g., readTimeSeries()).  The times are counted in buckets
+whose upper limits double, starting at 1 microsecond, so that the distribution
+of times can be reported without keeping each time.  Adding a time only
+increments counters, so the histogram can be updated by multiple threads
+without locking and is cheap enough to use at all times.
+*/
+public class NWSRFS_LatencyHistogram
+{
+
+/**
+The number of buckets.  Bucket 0 counts times less than 1 microsecond and
+bucket i counts times from 2^(i-1) up to 2^i microseconds, except that the last
+bucket counts all times of 2^31 microseconds (about 36 minutes) or longer.
+*/
+public static final int NUM_BUCKETS = 33;
+
+/**
+The number of times in each bucket.
+*/
+private AtomicLongArray __buckets = null;
+
+/**
+The number of times that have been added.
+*/
+private AtomicLong __count = null;
+
+/**
+The longest time that has been added, in nanoseconds.
+*/
+private AtomicLong __maxNanos = null;
+
+/**
+The sum of the times that have been added, in nanoseconds.
+*/
+private AtomicLong __totalNanos = null;
+
+/**
+Construct an empty histogram.
+*/
+public NWSRFS_LatencyHistogram() {
+	__buckets = new AtomicLongArray(NUM_BUCKETS);
+	__count = new AtomicLong();
+	__maxNanos = new AtomicLong();
+	__totalNanos = new AtomicLong();
+}
+
+/**
+Add a time to the histogram.
+@param nanos the elapsed time in nanoseconds.
+*/
+public void add(long nanos) {
+	if (nanos < 0) {
+		nanos = 0;
+	}
+	__buckets.incrementAndGet(getBucket(nanos));
+	__count.incrementAndGet();
+	__totalNanos.addAndGet(nanos);
+	long max = __maxNanos.get();
+	while (nanos > max && !__maxNanos.compareAndSet(max, nanos)) {
+		max = __maxNanos.get();
+	}
+}
+
+/**
+Return the bucket for a time.
+@param nanos the elapsed time in nanoseconds.
+@return the bucket for the time.
+*/
+private static int getBucket(long nanos) {
+	long micros = nanos/1000;
+	// The number of bits needed to hold the microseconds, for example 0
+	// for 0 microseconds, 1 for 1, 2 for 2-3, 3 for 4-7.
+	int bucket = 64 - Long.numberOfLeadingZeros(micros);
+	return Math.min(bucket, NUM_BUCKETS - 1);
+}
+
+/**
+Return the number of times in a bucket.
+@param bucket the bucket (0 to NUM_BUCKETS - 1).
+@return the number of times in the bucket.
+*/
+public long getBucketCount(int bucket) {
+	return __buckets.get(bucket);
+}
+
+/**
+Return the upper limit of a bucket.
+@param bucket the bucket (0 to NUM_BUCKETS - 1).
+@return the upper limit of the bucket in microseconds (times in the bucket are
+less than the limit), or Long.MAX_VALUE for the last bucket.
+*/
+public static long getBucketLimitMicros(int bucket) {
+	if (bucket >= NUM_BUCKETS - 1) {
+		return Long.MAX_VALUE;
+	}
+	return 1L << bucket;
+}
+
+/**
+Return the number of times that have been added.
+@return the number of times that have been added.
+*/
+public long getCount() {
+	return __count.get();
+}
+
+/**
+Return the longest time that has been added.
+@return the longest time in microseconds.
+*/
+public long getMaxMicros() {
+	return __maxNanos.get()/1000;
+}
+
+/**
+Return the average of the times that have been added.
+@return the average time in microseconds, or 0 if no times have been added.
+*/
+public long getMeanMicros() {
+	long count = __count.get();
+	if (count == 0) {
+		return 0;
+	}
+	return __totalNanos.get()/count/1000;
+}
+
+/**
+Return an estimate of a percentile of the times that have been added.  The
+estimate is the upper limit of the bucket containing the percentile, so it is
+within a factor of two of the actual value.
+@param percentile the percentile (0 to 100), for example 99.
+@return the estimated percentile time in microseconds, limited to the longest
+time that has been added, or 0 if no times have been added.
+*/
+public long getPercentileMicros(double percentile) {
+	long count = __count.get();
+	if (count == 0) {
+		return 0;
+	}
+	long target = (long)Math.ceil(count*percentile/100.0);
+	long sum = 0;
+	for (int i = 0; i < NUM_BUCKETS; i++) {
+		sum += __buckets.get(i);
+		if (sum >= target) {
+			return Math.min(getBucketLimitMicros(i), getMaxMicros());
+		}
+	}
+	return getMaxMicros();
+}
+
+/**
+Return the sum of the times that have been added.
+@return the sum of the times in microseconds.
+*/
+public long getTotalMicros() {
+	return __totalNanos.get()/1000;
+}
+
+/**
+Remove all times from the histogram.
+*/
+public void reset() {
+	for (int i = 0; i < NUM_BUCKETS; i++) {
+		__buckets.set(i, 0);
+	}
+	__count.set(0);
+	__maxNanos.set(0);
+	__totalNanos.set(0);
+}
+
+/**
+Return a String summarizing the times, for reports.
+@return a String summarizing the times.
+*/
+public String toString() {
+	return "count=" + getCount() + " mean=" + getMeanMicros()
+		+ "us p50=" + getPercentileMicros(50) + "us p90="
+		+ getPercentileMicros(90) + "us p99=" + getPercentileMicros(99)
+		+ "us max=" + getMaxMicros() + "us total=" + getTotalMicros() + "us";
+}
+
+}
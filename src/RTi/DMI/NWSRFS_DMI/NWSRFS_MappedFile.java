@@ -0,0 +1,307 @@
+//------------------------------------------------------------------------------
+// NWSRFS_MappedFile - class to provide memory-mapped, read-only access to an
+//				NWSRFS FS5Files binary database file
+//------------------------------------------------------------------------------
+// Endheader
+
+package RTi.DMI.NWSRFS_DMI;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+The NWSRFS_MappedFile class maps an entire FS5Files binary database file
+(e.g., PRDTSn, PPPPARMn, FCSEGSTS) into memory and provides absolute-position
+reads of the primitive values used in the NWSRFS records.  The byte order of
+the mapping matches the endian-ness determined by the NWSRFS_DMI so values are
+decoded directly from the mapped bytes, without creating a byte array,
+ByteArrayInputStream, or EndianDataInputStream for each record.
+<p>
+The mapping is only used when the database file has been opened read-only.
+Reads do not change the state of the mapping so one instance can be shared
+by multiple callers.  The mapping does not change size if the file is
+modified, so the NWSRFS_DMI compares the time stamp of the file (see
+getTimestamp()) with the time stamp when it was mapped and maps the file again
+if they differ.  Because the time stamp is only checked once per interval, a
+file that is truncated by another program may be read before it is mapped
+again, in which case the virtual machine reports the read of the part of the
+mapping that is no longer in the file as an InternalError.  The FS5Files are
+normally created at a fixed size and are not truncated when they are updated.
+Files larger than 2 GB cannot be mapped in one buffer and should be read with
+the EndianRandomAccessFile instead (see <code>canMap()</code>).
+*/
+public class NWSRFS_MappedFile
+{
+
+/**
+The mapped contents of the file.
+*/
+private MappedByteBuffer __buffer = null;
+
+/**
+The name of the file that is mapped, used for messages.
+*/
+private String __filename = null;
+
+/**
+The length of the file, in bytes, at the time that it was mapped.
+*/
+private final int __length;
+
+/**
+The time stamp of the file at the time that it was mapped.
+*/
+private final long __timestamp;
+
+/**
+Map a binary database file into memory for reading.
+@param filename the full path to the file to map.
+@param isBigEndian true if the values in the file are big endian, false if
+little endian.
+@throws IOException if the file cannot be opened or mapped.
+*/
+public NWSRFS_MappedFile(String filename, boolean isBigEndian)
+throws IOException {
+	// Get the time stamp before mapping so that a change made while the file
+	// is being mapped results in a different time stamp.
+	File f = new File(filename);
+	__timestamp = f.lastModified() + f.length();
+	RandomAccessFile raf = new RandomAccessFile(filename, "r");
+	try {
+		FileChannel channel = raf.getChannel();
+		long length = channel.size();
+		if (!canMap(length)) {
+			throw new IOException("File \"" + filename + "\" is too large ("
+				+ length + " bytes) to be memory-mapped.");
+		}
+		__buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+		__length = (int)length;
+	}
+	finally {
+		// The mapping remains valid after the channel is closed.
+		raf.close();
+	}
+	__filename = filename;
+	setBigEndian(isBigEndian);
+}
+
+/**
+Indicate whether a file can be memory-mapped as a single buffer.
+@param filename the full path to the file.
+@return true if the file exists and is small enough to map, false otherwise.
+*/
+public static boolean canMap(String filename) {
+	File f = new File(filename);
+	if (!f.isFile()) {
+		return false;
+	}
+	return canMap(f.length());
+}
+
+/**
+Indicate whether a file of the given length can be mapped as a single buffer.
+@param length the file length in bytes.
+@return true if the length can be mapped.
+*/
+private static boolean canMap(long length) {
+	return length <= Integer.MAX_VALUE;
+}
+
+/**
+Check that a read of <code>byteCount</code> bytes at <code>position</code> is
+within the mapped file.
+@param position the absolute byte position of the read.
+@param byteCount the number of bytes to read.
+@throws EOFException if the read would extend past the end of the file.
+*/
+private void checkPosition(long position, int byteCount)
+throws EOFException {
+	if (position < 0 || (position + byteCount) > __length) {
+		throw new EOFException("Attempt to read " + byteCount
+			+ " bytes at position " + position + " past the end of \""
+			+ __filename + "\" (length " + __length + ").");
+	}
+}
+
+/**
+Cleans up member variables.  The mapping itself is released when the buffer
+is garbage collected.
+@throws Throwable if an error occurs.
+*/
+public void finalize()
+throws Throwable {
+	__buffer = null;
+	__filename = null;
+	super.finalize();
+}
+
+/**
+Return the single byte at an absolute position.
+@param position the absolute byte position in the file.
+@return the byte at the position.
+@throws EOFException if the position is past the end of the file.
+*/
+public byte getByte(long position)
+throws EOFException {
+	checkPosition(position, 1);
+	return __buffer.get((int)position);
+}
+
+/**
+Copy bytes from the file into an existing array.
+@param position the absolute byte position in the file to start copying.
+@param bytes the array to receive the bytes.
+@param offset the index in <code>bytes</code> to receive the first byte.
+@param byteCount the number of bytes to copy.
+@throws EOFException if the read would extend past the end of the file.
+*/
+public void getBytes(long position, byte[] bytes, int offset, int byteCount)
+throws EOFException {
+	checkPosition(position, byteCount);
+	// Use a duplicate so that setting the position does not affect other
+	// callers that are reading from the same mapping.
+	ByteBuffer buffer = __buffer.duplicate();
+	buffer.position((int)position);
+	buffer.get(bytes, offset, byteCount);
+}
+
+/**
+Copy one-byte characters from the file into an existing array.  This is
+equivalent to calling EndianDataInputStream.readEndianChar1()
+<code>charCount</code> times.
+@param position the absolute byte position in the file to start copying.
+@param chars the array to receive the characters.
+@param offset the index in <code>chars</code> to receive the first character.
+@param charCount the number of characters to copy.
+@throws EOFException if the read would extend past the end of the file.
+*/
+public void getChars(long position, char[] chars, int offset, int charCount)
+throws EOFException {
+	byte[] bytes = new byte[charCount];
+	getBytes(position, bytes, 0, charCount);
+	for (int i = 0; i < charCount; i++) {
+		chars[offset + i] = (char)(bytes[i] & 0xff);
+	}
+}
+
+/**
+Return the name of the mapped file.
+@return the name of the mapped file.
+*/
+public String getFilename() {
+	return __filename;
+}
+
+/**
+Return the float value at an absolute position.
+@param position the absolute byte position in the file.
+@return the float value at the position.
+@throws EOFException if the read would extend past the end of the file.
+*/
+public float getFloat(long position)
+throws EOFException {
+	checkPosition(position, 4);
+	return __buffer.getFloat((int)position);
+}
+
+/**
+Decode a block of consecutive float values from the file into an existing array.
+This is equivalent to calling EndianDataInputStream.readEndianFloat()
+<code>count</code> times but decodes the whole block in one operation.
+@param position the absolute byte position in the file of the first value.
+@param values the array to receive the values.
+@param offset the index in <code>values</code> to receive the first value.
+@param count the number of values to decode.
+@throws EOFException if the read would extend past the end of the file.
+*/
+public void getFloats(long position, float[] values, int offset, int count)
+throws EOFException {
+	checkPosition(position, count*4);
+	// Use a duplicate so that setting the position does not affect other
+	// callers that are reading from the same mapping.
+	ByteBuffer buffer = __buffer.duplicate();
+	buffer.order(__buffer.order());
+	buffer.position((int)position);
+	buffer.asFloatBuffer().get(values, offset, count);
+}
+
+/**
+Return the int value at an absolute position.
+@param position the absolute byte position in the file.
+@return the int value at the position.
+@throws EOFException if the read would extend past the end of the file.
+*/
+public int getInt(long position)
+throws EOFException {
+	checkPosition(position, 4);
+	return __buffer.getInt((int)position);
+}
+
+/**
+Return the short value at an absolute position.
+@param position the absolute byte position in the file.
+@return the short value at the position.
+@throws EOFException if the read would extend past the end of the file.
+*/
+public short getShort(long position)
+throws EOFException {
+	checkPosition(position, 2);
+	return __buffer.getShort((int)position);
+}
+
+/**
+Return a trimmed String built from one-byte characters in the file.
+@param position the absolute byte position in the file.
+@param chars a work array used to hold the characters, which must be at least
+<code>charCount</code> long.  Passing the same array for each call avoids
+allocating a new array for each field.
+@param charCount the number of characters in the field.
+@return the trimmed String, which may be empty.
+@throws EOFException if the read would extend past the end of the file.
+*/
+public String getString(long position, char[] chars, int charCount)
+throws EOFException {
+	getChars(position, chars, 0, charCount);
+	return new String(chars, 0, charCount).trim();
+}
+
+/**
+Return the time stamp of the file at the time that it was mapped, which is the
+sum of the last modification time and length of the file, as for the time
+stamps computed by NWSRFS_DMI.
+@return the time stamp of the file at the time that it was mapped.
+*/
+public long getTimestamp() {
+	return __timestamp;
+}
+
+/**
+Return the length of the mapped file in bytes.
+@return the length of the mapped file in bytes.
+*/
+public long length() {
+	return __length;
+}
+
+/**
+Set the byte order used to decode multi-byte values.
+@param isBigEndian true if the values in the file are big endian, false if
+little endian.
+*/
+public void setBigEndian(boolean isBigEndian) {
+	if (isBigEndian) {
+		__buffer.order(ByteOrder.BIG_ENDIAN);
+	}
+	else {
+		__buffer.order(ByteOrder.LITTLE_ENDIAN);
+	}
+}
+
+}
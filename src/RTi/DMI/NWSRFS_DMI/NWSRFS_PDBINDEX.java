@@ -10,6 +10,9 @@
 
 package RTi.DMI.NWSRFS_DMI;
 
+import java.io.Serializable;
+
+import java.util.Hashtable;
 import java.util.List;
 import java.util.Vector;
 
@@ -276,7 +279,12 @@ Notes:
 </pre>
 */
 
-public class NWSRFS_PDBINDEX {
+public class NWSRFS_PDBINDEX implements Serializable {
+
+/**
+Version of the serialized form, saved in PDBINDEX snapshots.
+*/
+private static final long serialVersionUID = 1L;
 
 protected int _H8CREC;
 protected int _HINTRC;
@@ -294,48 +302,55 @@ protected int _NUMDDF;
 protected int _NUMTYP;
 protected int _NWRDS;
 protected int _TYPREC;
-protected List<Float> _ACDCP;
-protected List<Float> _ACPSQ;
+protected NWSRFS_FloatColumn _ACDCP;
+protected NWSRFS_FloatColumn _ACPSQ;
 protected List<List<String>> _ADDDTP;
 protected List<List<Integer>> _ADTPTR;
-protected List<Integer> _BDATE;
-protected List<Integer> _DATAR1;
+protected NWSRFS_IntColumn _BDATE;
+protected NWSRFS_IntColumn _DATAR1;
 protected List<String> _DTYPE;
-protected List<Integer> _ECRECN;
-protected List<Integer> _EDATE;
-protected List<Integer> _L2DATE;
-protected List<Integer> _LDATE;
-protected List<Integer> _LDATEDDT;
-protected List<Integer> _LDDFRC;
-protected List<Integer> _LDRECN;
-protected List<Integer> _LSTDTA;
-protected List<Integer> _LSTPTR;
-protected List<Integer> _LUFILE;
-protected List<Integer> _MAXDAY;
-protected List<Integer> _MAXSTA;
-protected List<Integer> _MDDFRC;
-protected List<Integer> _NADDTP;
-protected List<Integer> _NDATA;
-protected List<Integer> _NDAYS;
-protected List<Integer> _NPNTRS;
-protected List<Integer> _NREC1D;
-protected List<Integer> _NSTATS;
-protected List<Integer> _NTOTAL;
-protected List<Integer> _NUMID;
-protected List<Integer> _NUMSTA;
-protected List<Integer> _NWRDSDDT;
-protected List<Integer> _NWRDSSTI;
-protected List<Integer> _NWRDSO;
-protected List<Integer> _NZERO;
-protected List<Integer> _PCPPTR;
-protected List<Integer> _PNTR;
-protected List<Integer> _PRMPTR;
-protected List<Integer> _RDATE;
-protected List<Integer> _RPT2LG;
-protected List<Integer> _RPTLG;
-protected List<Integer> _SMNOZO;
+protected NWSRFS_IntColumn _ECRECN;
+protected NWSRFS_IntColumn _EDATE;
+protected NWSRFS_IntColumn _L2DATE;
+protected NWSRFS_IntColumn _LDATE;
+protected NWSRFS_IntColumn _LDATEDDT;
+protected NWSRFS_IntColumn _LDDFRC;
+protected NWSRFS_IntColumn _LDRECN;
+protected NWSRFS_IntColumn _LSTDTA;
+protected NWSRFS_IntColumn _LSTPTR;
+protected NWSRFS_IntColumn _LUFILE;
+protected NWSRFS_IntColumn _MAXDAY;
+protected NWSRFS_IntColumn _MAXSTA;
+protected NWSRFS_IntColumn _MDDFRC;
+protected NWSRFS_IntColumn _NADDTP;
+protected NWSRFS_IntColumn _NDATA;
+protected NWSRFS_IntColumn _NDAYS;
+protected NWSRFS_IntColumn _NPNTRS;
+protected NWSRFS_IntColumn _NREC1D;
+protected NWSRFS_IntColumn _NSTATS;
+protected NWSRFS_IntColumn _NTOTAL;
+protected NWSRFS_IntColumn _NUMID;
+protected NWSRFS_IntColumn _NUMSTA;
+protected NWSRFS_IntColumn _NWRDSDDT;
+protected NWSRFS_IntColumn _NWRDSSTI;
+protected NWSRFS_IntColumn _NWRDSO;
+protected NWSRFS_IntColumn _NZERO;
+protected NWSRFS_IntColumn _PCPPTR;
+protected NWSRFS_IntColumn _PNTR;
+protected NWSRFS_IntColumn _PRMPTR;
+protected NWSRFS_IntColumn _RDATE;
+protected NWSRFS_IntColumn _RPT2LG;
+protected NWSRFS_IntColumn _RPTLG;
+protected NWSRFS_IntColumn _SMNOZO;
 protected List<String> _STAID;
-protected List<Integer> _TMPPTR;
+protected NWSRFS_IntColumn _TMPPTR;
+
+/**
+Lookup table of RRS primary record numbers (ADTPTR), keyed by the upper case
+station identifier and data type (e.g., "ABCD1.STG"), built from the Station
+Information records.  Used instead of searching _STAID for each read.
+*/
+private transient Hashtable<String,Integer> __rrsRecordIndex = null;
 
 /**
 Constructor.
@@ -348,11 +363,11 @@ public NWSRFS_PDBINDEX() {
 }
 
 public void addACDCP(float ACDCP) {
-	_ACDCP.add(new Float(ACDCP)); 
+	_ACDCP.addFloat(ACDCP); 
 }
 
 public void addACPSQ(float ACPSQ) {
-	_ACPSQ.add(new Float(ACPSQ)); 
+	_ACPSQ.addFloat(ACPSQ); 
 }
 
 public void addADDDTP(List<String> ADDDTP) {
@@ -364,11 +379,11 @@ public void addADTPTR(List<Integer> ADTPTR) {
 }
 
 public void addBDATE(int BDATE) {
-	_BDATE.add(new Integer(BDATE)); 
+	_BDATE.addInt(BDATE); 
 }
 
 public void addDATAR1(int DATAR1) {
-	_DATAR1.add(new Integer(DATAR1)); 
+	_DATAR1.addInt(DATAR1); 
 }
 
 public void addDTYPE(String DTYPE) {
@@ -376,135 +391,135 @@ public void addDTYPE(String DTYPE) {
 }
 
 public void addECRECN(int ECRECN) {
-	_ECRECN.add(new Integer(ECRECN)); 
+	_ECRECN.addInt(ECRECN); 
 }
 
 public void addEDATE(int EDATE) {
-	_EDATE.add(new Integer(EDATE)); 
+	_EDATE.addInt(EDATE); 
 }
 
 public void addL2DATE(int L2DATE) {
-	_L2DATE.add(new Integer(L2DATE)); 
+	_L2DATE.addInt(L2DATE); 
 }
 
 public void addLDATE(int LDATE) {
-	_LDATE.add(new Integer(LDATE)); 
+	_LDATE.addInt(LDATE); 
 }
 
 public void addLDATEDDT(int LDATEDDT) {
-	_LDATEDDT.add(new Integer(LDATEDDT)); 
+	_LDATEDDT.addInt(LDATEDDT); 
 }
 
 public void addLDDFRC(int LDDFRC) {
-	_LDDFRC.add(new Integer(LDDFRC)); 
+	_LDDFRC.addInt(LDDFRC); 
 }
 
 public void addLDRECN(int LDRECN) {
-	_LDRECN.add(new Integer(LDRECN)); 
+	_LDRECN.addInt(LDRECN); 
 }
 
 public void addLSTDTA(int LSTDTA) {
-	_LSTDTA.add(new Integer(LSTDTA)); 
+	_LSTDTA.addInt(LSTDTA); 
 }
 
 public void addLSTPTR(int LSTPTR) {
-	_LSTPTR.add(new Integer(LSTPTR)); 
+	_LSTPTR.addInt(LSTPTR); 
 }
 
 public void addLUFILE(int LUFILE) {
-	_LUFILE.add(new Integer(LUFILE)); 
+	_LUFILE.addInt(LUFILE); 
 }
 
 public void addMAXDAY(int MAXDAY) {
-	_MAXDAY.add(new Integer(MAXDAY)); 
+	_MAXDAY.addInt(MAXDAY); 
 }
 
 public void addMAXSTA(int MAXSTA) {
-	_MAXSTA.add(new Integer(MAXSTA)); 
+	_MAXSTA.addInt(MAXSTA); 
 }
 
 public void addMDDFRC(int MDDFRC) {
-	_MDDFRC.add(new Integer(MDDFRC)); 
+	_MDDFRC.addInt(MDDFRC); 
 }
 
 public void addNADDTP(int NADDTP) {
-	_NADDTP.add(new Integer(NADDTP)); 
+	_NADDTP.addInt(NADDTP); 
 }
 
 public void addNDATA(int NDATA) {
-	_NDATA.add(new Integer(NDATA)); 
+	_NDATA.addInt(NDATA); 
 }
 
 public void addNDAYS(int NDAYS) {
-	_NDAYS.add(new Integer(NDAYS)); 
+	_NDAYS.addInt(NDAYS); 
 }
 
 public void addNPNTRS(int NPNTRS) {
-	_NPNTRS.add(new Integer(NPNTRS)); 
+	_NPNTRS.addInt(NPNTRS); 
 }
 
 public void addNREC1D(int NREC1D) {
-	_NREC1D.add(new Integer(NREC1D)); 
+	_NREC1D.addInt(NREC1D); 
 }
 
 public void addNSTATS(int NSTATS) {
-	_NSTATS.add(new Integer(NSTATS)); 
+	_NSTATS.addInt(NSTATS); 
 }
 
 public void addNTOTAL(int NTOTAL) {
-	_NTOTAL.add(new Integer(NTOTAL)); 
+	_NTOTAL.addInt(NTOTAL); 
 }
 
 public void addNUMID(int NUMID) {
-	_NUMID.add(new Integer(NUMID)); 
+	_NUMID.addInt(NUMID); 
 }
 
 public void addNUMSTA(int NUMSTA) {
-	_NUMSTA.add(new Integer(NUMSTA)); 
+	_NUMSTA.addInt(NUMSTA); 
 }
 
 public void addNWRDSDDT(int NWRDSDDT) {
-	_NWRDSDDT.add(new Integer(NWRDSDDT)); 
+	_NWRDSDDT.addInt(NWRDSDDT); 
 }
 
 public void addNWRDSSTI(int NWRDSSTI) {
-	_NWRDSSTI.add(new Integer(NWRDSSTI)); 
+	_NWRDSSTI.addInt(NWRDSSTI); 
 }
 
 public void addNWRDSO(int NWRDSO) {
-	_NWRDSO.add(new Integer(NWRDSO)); 
+	_NWRDSO.addInt(NWRDSO); 
 }
 
 public void addNZERO(int NZERO) {
-	_NZERO.add(new Integer(NZERO)); 
+	_NZERO.addInt(NZERO); 
 }
 
 public void addPCPPTR(int PCPPTR) {
-	_PCPPTR.add(new Integer(PCPPTR)); 
+	_PCPPTR.addInt(PCPPTR); 
 }
 
 public void addPNTR(int PNTR) {
-	_PNTR.add(new Integer(PNTR)); 
+	_PNTR.addInt(PNTR); 
 }
 
 public void addPRMPTR(int PRMPTR) {
-	_PRMPTR.add(new Integer(PRMPTR)); 
+	_PRMPTR.addInt(PRMPTR); 
 }
 
 public void addRDATE(int RDATE) {
-	_RDATE.add(new Integer(RDATE)); 
+	_RDATE.addInt(RDATE); 
 }
 
 public void addRPT2LG(int RPT2LG) {
-	_RPT2LG.add(new Integer(RPT2LG)); 
+	_RPT2LG.addInt(RPT2LG); 
 }
 
 public void addRPTLG(int RPTLG) {
-	_RPTLG.add(new Integer(RPTLG)); 
+	_RPTLG.addInt(RPTLG); 
 }
 
 public void addSMNOZO(int SMNOZO) {
-	_SMNOZO.add(new Integer(SMNOZO)); 
+	_SMNOZO.addInt(SMNOZO); 
 }
 
 public void addSTAID(String STAID) {
@@ -512,7 +527,33 @@ public void addSTAID(String STAID) {
 }
 
 public void addTMPPTR(int TMPPTR) {
-	_TMPPTR.add(new Integer(TMPPTR)); 
+	_TMPPTR.addInt(TMPPTR); 
+}
+
+/**
+Build the lookup table used by getRRSRecordNumber().  Call after all the
+Station Information records have been added.  If a station is defined more
+than once, the first definition is used, as when searching the station list.
+*/
+public void buildRRSRecordIndex() {
+	int size = _STAID.size();
+	Hashtable<String,Integer> rrsRecordIndex = new Hashtable<String,Integer>(size*2 + 1);
+	Hashtable<String,String> stations = new Hashtable<String,String>(size + 1);
+	for (int i = 0; i < size; i++) {
+		String staid = getSTAID(i).toUpperCase();
+		if (stations.containsKey(staid)) {
+			continue;
+		}
+		stations.put(staid, staid);
+		int naddtp = getNADDTP(i);
+		for (int j = 0; j < naddtp; j++) {
+			String key = staid + "." + getADDDTP(i,j).toUpperCase();
+			if (!rrsRecordIndex.containsKey(key)) {
+				rrsRecordIndex.put(key, new Integer(getADTPTR(i,j)));
+			}
+		}
+	}
+	__rrsRecordIndex = rrsRecordIndex;
 }
 
 /**
@@ -578,6 +619,7 @@ public void finalize() {
 	_STAID 		= null;
 	_TMPPTR 	= null;
 	_TYPREC 	= -1;
+	__rrsRecordIndex = null;
 }
 
 public int getH8CREC() {
@@ -747,14 +789,14 @@ public List<Float> getACDCP() {
 	return _ACDCP; 
 }  
 public float getACDCP(int ACDCPindex) { 
-	return (float)((Float)_ACDCP.get(ACDCPindex)).floatValue();
+	return _ACDCP.getFloat(ACDCPindex);
 }
 
 public List<Float> getACPSQ() {
 	return _ACPSQ; 
 }  
 public float getACPSQ(int ACPSQindex) { 
-	return (float)((Float)_ACPSQ.get(ACPSQindex)).floatValue();
+	return _ACPSQ.getFloat(ACPSQindex);
 }
 
 public List<List<String>> getADDDTP() {
@@ -776,6 +818,9 @@ public List<Integer> getADTPTR(int ADTPTRVindex) {
 }
 public int getADTPTR(int ADTPTRVindex, int ADTPTRindex) { 
 	List<Integer> adtptrVect = (List<Integer>)_ADTPTR.get(ADTPTRVindex);
+	if (adtptrVect instanceof NWSRFS_IntColumn) {
+		return ((NWSRFS_IntColumn)adtptrVect).getInt(ADTPTRindex);
+	}
 	return (int)((Integer)adtptrVect.get(ADTPTRindex)).intValue();
 }
 
@@ -783,14 +828,14 @@ public List<Integer> getBDATE() {
 	return _BDATE; 
 }  
 public int getBDATE(int BDATEindex) { 
-	return (int)((Integer)_BDATE.get(BDATEindex)).intValue();
+	return _BDATE.getInt(BDATEindex);
 }
 
 public List<Integer> getDATAR1() {
 	return _DATAR1; 
 }  
 public int getDATAR1(int DATAR1index) { 
-	return (int)(_DATAR1.get(DATAR1index)).intValue();
+	return _DATAR1.getInt(DATAR1index);
 }
 
 public List<String> getDTYPE() {
@@ -804,231 +849,231 @@ public List<Integer> getECRECN() {
 	return _ECRECN; 
 }  
 public int getECRECN(int ECRECNindex) { 
-	return (int)(_ECRECN.get(ECRECNindex)).intValue();
+	return _ECRECN.getInt(ECRECNindex);
 }
 
 public List<Integer> getEDATE() {
 	return _EDATE; 
 }  
 public int getEDATE(int EDATEindex) { 
-	return (int)(_EDATE.get(EDATEindex)).intValue();
+	return _EDATE.getInt(EDATEindex);
 }
 
 public List<Integer> getL2DATE() {
 	return _L2DATE; 
 }  
 public int getL2DATE(int L2DATEindex) { 
-	return (int)(_L2DATE.get(L2DATEindex)).intValue();
+	return _L2DATE.getInt(L2DATEindex);
 }
 
 public List<Integer> getLDATE() {
 	return _LDATE; 
 }  
 public int getLDATE(int LDATEindex) { 
-	return (int)(_LDATE.get(LDATEindex)).intValue();
+	return _LDATE.getInt(LDATEindex);
 }
 
 public List<Integer> getLDATEDDT() {
 	return _LDATEDDT; 
 }  
 public int getLDATEDDT(int LDATEDDTindex) { 
-	return (int)(_LDATEDDT.get(LDATEDDTindex)).intValue();
+	return _LDATEDDT.getInt(LDATEDDTindex);
 }
 
 public List<Integer> getLDDFRC() {
 	return _LDDFRC; 
 }  
 public int getLDDFRC(int LDDFRCindex) { 
-	return (int)(_LDDFRC.get(LDDFRCindex)).intValue();
+	return _LDDFRC.getInt(LDDFRCindex);
 }
 
 public List<Integer> getLDRECN() {
 	return _LDRECN; 
 }  
 public int getLDRECN(int LDRECNindex) { 
-	return (int)(_LDRECN.get(LDRECNindex)).intValue();
+	return _LDRECN.getInt(LDRECNindex);
 }
 
 public List<Integer> getLSTDTA() {
 	return _LSTDTA; 
 }  
 public int getLSTDTA(int LSTDTAindex) { 
-	return (int)(_LSTDTA.get(LSTDTAindex)).intValue();
+	return _LSTDTA.getInt(LSTDTAindex);
 }
 
 public List<Integer> getLSTPTR() {
 	return _LSTPTR; 
 }  
 public int getLSTPTR(int LSTPTRindex) { 
-	return (int)(_LSTPTR.get(LSTPTRindex)).intValue();
+	return _LSTPTR.getInt(LSTPTRindex);
 }
 
 public List<Integer> getLUFILE() {
 	return _LUFILE; 
 }  
 public int getLUFILE(int LUFILEindex) { 
-	return (int)(_LUFILE.get(LUFILEindex)).intValue();
+	return _LUFILE.getInt(LUFILEindex);
 }
 
 public List<Integer> getMAXDAY() {
 	return _MAXDAY; 
 }  
 public int getMAXDAY(int MAXDAYindex) { 
-	return (int)(_MAXDAY.get(MAXDAYindex)).intValue();
+	return _MAXDAY.getInt(MAXDAYindex);
 }
 
 public List<Integer> getMAXSTA() {
 	return _MAXSTA; 
 }  
 public int getMAXSTA(int MAXSTAindex) { 
-	return (int)(_MAXSTA.get(MAXSTAindex)).intValue();
+	return _MAXSTA.getInt(MAXSTAindex);
 }
 
 public List<Integer> getMDDFRC() {
 	return _MDDFRC; 
 }  
 public int getMDDFRC(int MDDFRCindex) { 
-	return (int)(_MDDFRC.get(MDDFRCindex)).intValue();
+	return _MDDFRC.getInt(MDDFRCindex);
 }
 
 public List<Integer> getNADDTP() {
 	return _NADDTP; 
 }  
 public int getNADDTP(int NADDTPindex) { 
-	return (int)(_NADDTP.get(NADDTPindex)).intValue();
+	return _NADDTP.getInt(NADDTPindex);
 }
 
 public List<Integer> getNDATA() {
 	return _NDATA; 
 }  
 public int getNDATA(int NDATAindex) { 
-	return (int)(_NDATA.get(NDATAindex)).intValue();
+	return _NDATA.getInt(NDATAindex);
 }
 
 public List<Integer> getNDAYS() {
 	return _NDAYS; 
 }  
 public int getNDAYS(int NDAYSindex) { 
-	return (int)(_NDAYS.get(NDAYSindex)).intValue();
+	return _NDAYS.getInt(NDAYSindex);
 }
 
 public List<Integer> getNPNTRS() {
 	return _NPNTRS; 
 }  
 public int getNPNTRS(int NPNTRSindex) { 
-	return (int)(_NPNTRS.get(NPNTRSindex)).intValue();
+	return _NPNTRS.getInt(NPNTRSindex);
 }
 
 public List<Integer> getNREC1D() {
 	return _NREC1D; 
 }  
 public int getNREC1D(int NREC1Dindex) { 
-	return (int)(_NREC1D.get(NREC1Dindex)).intValue();
+	return _NREC1D.getInt(NREC1Dindex);
 }
 
 public List<Integer> getNSTATS() {
 	return _NSTATS; 
 }  
 public int getNSTATS(int NSTATSindex) { 
-	return (int)((Integer)_NSTATS.get(NSTATSindex)).intValue();
+	return _NSTATS.getInt(NSTATSindex);
 }
 
 public List<Integer> getNTOTAL() {
 	return _NTOTAL; 
 }
 public int getNTOTAL(int NTOTALindex) { 
-	return (int)(_NTOTAL.get(NTOTALindex)).intValue();
+	return _NTOTAL.getInt(NTOTALindex);
 }
 
 public List<Integer> getNUMID() {
 	return _NUMID; 
 }  
 public int getNUMID(int NUMIDindex) { 
-	return (int)(_NUMID.get(NUMIDindex)).intValue();
+	return _NUMID.getInt(NUMIDindex);
 }
 
 public List<Integer> getNUMSTA() {
 	return _NUMSTA; 
 }  
 public int getNUMSTA(int NUMSTAindex) { 
-	return (int)(_NUMSTA.get(NUMSTAindex)).intValue();
+	return _NUMSTA.getInt(NUMSTAindex);
 }
 
 public List<Integer> getNWRDSDDT() {
 	return _NWRDSDDT; 
 }  
 public int getNWRDSDDT(int NWRDSDDTindex) { 
-	return (int)(_NWRDSDDT.get(NWRDSDDTindex)).intValue();
+	return _NWRDSDDT.getInt(NWRDSDDTindex);
 }
 
 public List<Integer> getNWRDSSTI() {
 	return _NWRDSSTI; 
 }  
 public int getNWRDSSTI(int NWRDSSTIindex) { 
-	return (int)((Integer)_NWRDSSTI.get(NWRDSSTIindex)).intValue();
+	return _NWRDSSTI.getInt(NWRDSSTIindex);
 }
 
 public List<Integer> getNWRDSO() {
 	return _NWRDSO; 
 }  
 public int getNWRDSO(int NWRDSOindex) { 
-	return (int)((Integer)_NWRDSO.get(NWRDSOindex)).intValue();
+	return _NWRDSO.getInt(NWRDSOindex);
 }
 
 public List<Integer> getNZERO() {
 	return _NZERO; 
 }  
 public int getNZERO(int NZEROindex) { 
-	return (int)((Integer)_NZERO.get(NZEROindex)).intValue();
+	return _NZERO.getInt(NZEROindex);
 }
 
 public List<Integer> getPCPPTR() {
 	return _PCPPTR; 
 }  
 public int getPCPPTR(int PCPPTRindex) { 
-	return (int)((Integer)_PCPPTR.get(PCPPTRindex)).intValue();
+	return _PCPPTR.getInt(PCPPTRindex);
 }
 
 public List<Integer> getPNTR() {
 	return _PNTR; 
 }  
 public int getPNTR(int PNTRindex) { 
-	return (int)((Integer)_PNTR.get(PNTRindex)).intValue();
+	return _PNTR.getInt(PNTRindex);
 }
 
 public List<Integer> getPRMPTR() {
 	return _PRMPTR; 
 }  
 public int getPRMPTR(int PRMPTRindex) { 
-	return (int)((Integer)_PRMPTR.get(PRMPTRindex)).intValue();
+	return _PRMPTR.getInt(PRMPTRindex);
 }
 
 public List<Integer> getRDATE() {
 	return _RDATE; 
 }  
 public int getRDATE(int RDATEindex) { 
-	return (int)((Integer)_RDATE.get(RDATEindex)).intValue();
+	return _RDATE.getInt(RDATEindex);
 }
 
 public List<Integer> getRPT2LG() {
 	return _RPT2LG; 
 }  
 public int getRPT2LG(int RPT2LGindex) { 
-	return (int)((Integer)_RPT2LG.get(RPT2LGindex)).intValue();
+	return _RPT2LG.getInt(RPT2LGindex);
 }
 
 public List<Integer> getRPTLG() {
 	return _RPTLG; 
 }  
 public int getRPTLG(int RPTLGindex) { 
-	return (int)((Integer)_RPTLG.get(RPTLGindex)).intValue();
+	return _RPTLG.getInt(RPTLGindex);
 }
 
 public List<Integer> getSMNOZO() {
 	return _SMNOZO; 
 }  
 public int getSMNOZO(int SMNOZOindex) { 
-	return (int)((Integer)_SMNOZO.get(SMNOZOindex)).intValue();
+	return _SMNOZO.getInt(SMNOZOindex);
 }
 
 public List<String> getSTAID() {
@@ -1038,74 +1083,91 @@ public String getSTAID(int STAIDindex) {
 	return (String)_STAID.get(STAIDindex);
 }
 
+/**
+Return the RRS primary record number (ADTPTR) for a station and data type.
+@param staid the station identifier (case is ignored).
+@param dataType the data type (case is ignored).
+@return the record number in PDBRRS, or -1 if the station does not have the data type.
+*/
+public int getRRSRecordNumber(String staid, String dataType) {
+	if (__rrsRecordIndex == null) {
+		buildRRSRecordIndex();
+	}
+	Integer recNum = __rrsRecordIndex.get(staid.toUpperCase() + "." + dataType.toUpperCase());
+	if (recNum == null) {
+		return -1;
+	}
+	return recNum.intValue();
+}
+
 public List<Integer> getTMPPTR() {
 	return _TMPPTR; 
 }  
 public int getTMPPTR(int TMPPTRindex) { 
-	return (int)((Integer)_TMPPTR.get(TMPPTRindex)).intValue();
+	return _TMPPTR.getInt(TMPPTRindex);
 }
 
 /**
 Initialize global objects.
 */
 private void initialize() {
-	_ACDCP 		= new Vector();
-	_ACPSQ 		= new Vector();
+	_ACDCP 		= new NWSRFS_FloatColumn();
+	_ACPSQ 		= new NWSRFS_FloatColumn();
 	_ADDDTP 	= new Vector();
 	_ADTPTR 	= new Vector();
-	_BDATE 		= new Vector();
-	_DATAR1 	= new Vector();
+	_BDATE 		= new NWSRFS_IntColumn();
+	_DATAR1 	= new NWSRFS_IntColumn();
 	_DTYPE 		= new Vector();
-	_ECRECN 	= new Vector();
-	_EDATE 		= new Vector();
+	_ECRECN 	= new NWSRFS_IntColumn();
+	_EDATE 		= new NWSRFS_IntColumn();
 	_H8CREC 	= -1;
 	_HINTRC 	= -1;
 	_INFREC 	= -1;
-	_L2DATE 	= new Vector<Integer>();
-	_LDATE 		= new Vector<Integer>();
-	_LDATEDDT 	= new Vector<Integer>();
-	_LDDFRC 	= new Vector<Integer>();
-	_LDRECN 	= new Vector<Integer>();
+	_L2DATE 	= new NWSRFS_IntColumn();
+	_LDATE 		= new NWSRFS_IntColumn();
+	_LDATEDDT 	= new NWSRFS_IntColumn();
+	_LDDFRC 	= new NWSRFS_IntColumn();
+	_LDRECN 	= new NWSRFS_IntColumn();
 	_LFILE 		= -1;
 	_LRECL1 	= -1;
 	_LRECL2 	= -1;
 	_LRECL3 	= -1;
-	_LSTDTA 	= new Vector<Integer>();
-	_LSTPTR 	= new Vector<Integer>();
-	_LUFILE 	= new Vector<Integer>();
+	_LSTDTA 	= new NWSRFS_IntColumn();
+	_LSTPTR 	= new NWSRFS_IntColumn();
+	_LUFILE 	= new NWSRFS_IntColumn();
 	_LURRS 		= -1;
-	_MAXDAY 	= new Vector<Integer>();
+	_MAXDAY 	= new NWSRFS_IntColumn();
 	_MAXDDF 	= -1;
-	_MAXSTA 	= new Vector<Integer>();
+	_MAXSTA 	= new NWSRFS_IntColumn();
 	_MAXTYP 	= -1;
-	_MDDFRC 	= new Vector<Integer>();
+	_MDDFRC 	= new NWSRFS_IntColumn();
 	_MFILE 		= -1;
-	_NADDTP 	= new Vector<Integer>();
-	_NDATA 		= new Vector<Integer>();
-	_NDAYS 		= new Vector<Integer>();
+	_NADDTP 	= new NWSRFS_IntColumn();
+	_NDATA 		= new NWSRFS_IntColumn();
+	_NDAYS 		= new NWSRFS_IntColumn();
 	_NHASHR 	= -1;
-	_NPNTRS 	= new Vector<Integer>();
-	_NREC1D 	= new Vector<Integer>();
-	_NSTATS 	= new Vector<Integer>();
-	_NTOTAL 	= new Vector<Integer>();
+	_NPNTRS 	= new NWSRFS_IntColumn();
+	_NREC1D 	= new NWSRFS_IntColumn();
+	_NSTATS 	= new NWSRFS_IntColumn();
+	_NTOTAL 	= new NWSRFS_IntColumn();
 	_NUMDDF 	= -1;
-	_NUMID 		= new Vector<Integer>();
-	_NUMSTA 	= new Vector<Integer>();
+	_NUMID 		= new NWSRFS_IntColumn();
+	_NUMSTA 	= new NWSRFS_IntColumn();
 	_NUMTYP 	= -1;
 	_NWRDS 		= -1;
-	_NWRDSDDT 	= new Vector<Integer>();
-	_NWRDSSTI 	= new Vector<Integer>();
-	_NWRDSO 	= new Vector<Integer>();
-	_NZERO 		= new Vector<Integer>();
-	_PCPPTR 	= new Vector();
-	_PNTR 		= new Vector();
-	_PRMPTR 	= new Vector();
-	_RDATE 		= new Vector();
-	_RPT2LG 	= new Vector();
-	_RPTLG 		= new Vector();
-	_SMNOZO 	= new Vector();
+	_NWRDSDDT 	= new NWSRFS_IntColumn();
+	_NWRDSSTI 	= new NWSRFS_IntColumn();
+	_NWRDSO 	= new NWSRFS_IntColumn();
+	_NZERO 		= new NWSRFS_IntColumn();
+	_PCPPTR 	= new NWSRFS_IntColumn();
+	_PNTR 		= new NWSRFS_IntColumn();
+	_PRMPTR 	= new NWSRFS_IntColumn();
+	_RDATE 		= new NWSRFS_IntColumn();
+	_RPT2LG 	= new NWSRFS_IntColumn();
+	_RPTLG 		= new NWSRFS_IntColumn();
+	_SMNOZO 	= new NWSRFS_IntColumn();
 	_STAID 		= new Vector();
-	_TMPPTR 	= new Vector();
+	_TMPPTR 	= new NWSRFS_IntColumn();
 	_TYPREC 	= -1;
 }
 
@@ -1173,4 +1235,28 @@ public void setTYPREC(int TYPREC) {
 	_TYPREC = TYPREC; 
 }
 
+/**
+Release the unused space in the index columns.  Call after the index file has
+been read and no more values will be added.
+*/
+public void trimToSize() {
+	NWSRFS_IntColumn[] intColumns = { _BDATE, _DATAR1, _ECRECN, _EDATE,
+		_L2DATE, _LDATE, _LDATEDDT, _LDDFRC, _LDRECN, _LSTDTA, _LSTPTR,
+		_LUFILE, _MAXDAY, _MAXSTA, _MDDFRC, _NADDTP, _NDATA, _NDAYS, _NPNTRS,
+		_NREC1D, _NSTATS, _NTOTAL, _NUMID, _NUMSTA, _NWRDSDDT, _NWRDSSTI,
+		_NWRDSO, _NZERO, _PCPPTR, _PNTR, _PRMPTR, _RDATE, _RPT2LG, _RPTLG,
+		_SMNOZO, _TMPPTR };
+	for (int i = 0; i < intColumns.length; i++) {
+		intColumns[i].trimToSize();
+	}
+	_ACDCP.trimToSize();
+	_ACPSQ.trimToSize();
+	for (int i = 0; i < _ADTPTR.size(); i++) {
+		List<Integer> adtptrVect = _ADTPTR.get(i);
+		if (adtptrVect instanceof NWSRFS_IntColumn) {
+			((NWSRFS_IntColumn)adtptrVect).trimToSize();
+		}
+	}
+}
+
 }
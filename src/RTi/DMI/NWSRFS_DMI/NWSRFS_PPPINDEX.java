@@ -13,6 +13,8 @@
 
 package RTi.DMI.NWSRFS_DMI;
 
+import java.io.Serializable;
+
 import java.util.List;
 import java.util.Vector;
 
@@ -124,7 +126,12 @@ Notes:
 </pre>
 */
 
-public class NWSRFS_PPPINDEX {
+public class NWSRFS_PPPINDEX implements Serializable {
+
+/**
+Version of the serialized form, saved in PPPINDEX snapshots.
+*/
+private static final long serialVersionUID = 1L;
 
 /**
 Record number of first index record
@@ -160,35 +167,35 @@ protected String _USERID;
 Record number of first parameter 
 record of this type.
 */
-protected List<Integer> _FIRST;
+protected NWSRFS_IntColumn _FIRST;
 
 /**
 Holds the record number of the associated parameter identifier in the 
 binary file PPPPARMn.
 */
-protected List<Integer> _IREC;
+protected NWSRFS_IntColumn _IREC;
 
 /**
 Single record type indicator:
   0 =  not a single record type
   1 = single record type
 */
-protected List<Integer> _ISNGL;
+protected NWSRFS_IntColumn _ISNGL;
 
 /**
 Record number of last parameter record of this type.
 */
-protected List<Integer> _LAST;
+protected NWSRFS_IntColumn _LAST;
 
 /**
 Logical unit assigned to file that contains the parameter type.
 */
-protected List<Integer> _LUFILE;
+protected NWSRFS_IntColumn _LUFILE;
 
 /**
 Number of parameter records of this type.
 */
-protected List<Integer> _NUMPRM;
+protected NWSRFS_IntColumn _NUMPRM;
 
 /**
 Holds all of the parameter identifiers.
@@ -217,117 +224,117 @@ public NWSRFS_PPPINDEX() {
 }
 
 /**
-Adds a value to the _FIRST Vector.
-@param i the int to add (added as an Integer).
+Adds a value to the _FIRST column.
+@param i the int to add.
 */
 public void addFIRST(int i) {
-	addFIRST(new Integer(i));
+	if (_FIRST == null) {
+		_FIRST = new NWSRFS_IntColumn();
+	}
+	_FIRST.addInt(i);
 }
 
 /**
-Adds a value to the _FIRST Vector.
+Adds a value to the _FIRST column.
 @param I the Integer to add.
 */
 public void addFIRST(Integer I) {
-	if (_FIRST == null) {
-		_FIRST = new Vector<Integer>();
-	}
-	_FIRST.add(I);
+	addFIRST(I.intValue());
 }
 
 /**
-Adds a value to the _IREC Vector.
-@param i the int to add (added as an Integer).
+Adds a value to the _IREC column.
+@param i the int to add.
 */
 public void addIREC(int i) {
-	addIREC(new Integer(i));
+	if (_IREC == null) {
+		_IREC = new NWSRFS_IntColumn();
+	}
+	_IREC.addInt(i);
 }
 
 /**
-Adds a value to the _IREC Vector.
+Adds a value to the _IREC column.
 @param I the Integer to add.
 */
 public void addIREC(Integer I) {
-	if (_IREC == null) {
-		_IREC = new Vector<Integer>();
-	}
-	_IREC.add(I);
+	addIREC(I.intValue());
 }
 
 /**
-Adds a value to the _ISNGL Vector.
-@param i the int to add (added as an Integer).
+Adds a value to the _ISNGL column.
+@param i the int to add.
 */
 public void addISNGL(int i) {
-	addISNGL(new Integer(i));
+	if (_ISNGL == null) {
+		_ISNGL = new NWSRFS_IntColumn();
+	}
+	_ISNGL.addInt(i);
 }
 
 /**
-Adds a value to the _ISNGL Vector.
+Adds a value to the _ISNGL column.
 @param I the Integer to add.
 */
 public void addISNGL(Integer I) {
-	if (_ISNGL == null) {
-		_ISNGL = new Vector<Integer>();
-	}
-	_ISNGL.add(I);
+	addISNGL(I.intValue());
 }
 
 /**
-Adds a value to the _LAST Vector.
-@param i the int to add (added as an Integer).
+Adds a value to the _LAST column.
+@param i the int to add.
 */
 public void addLAST(int i) {
-	addLAST(new Integer(i));
+	if (_LAST == null) {
+		_LAST = new NWSRFS_IntColumn();
+	}
+	_LAST.addInt(i);
 }
 
 /**
-Adds a value to the _LAST Vector.
+Adds a value to the _LAST column.
 @param I the Integer to add.
 */
 public void addLAST(Integer I) {
-	if (_LAST == null) {
-		_LAST = new Vector<Integer>();
-	}
-	_LAST.add(I);
+	addLAST(I.intValue());
 }
 
 /**
-Adds a value to the _LUFILE Vector.
-@param i the int to add (added as an Integer).
+Adds a value to the _LUFILE column.
+@param i the int to add.
 */
 public void addLUFILE(int i) {
-	addLUFILE(new Integer(i));
+	if (_LUFILE == null) {
+		_LUFILE = new NWSRFS_IntColumn();
+	}
+	_LUFILE.addInt(i);
 }
 
 /**
-Adds a value to the _LUFILE Vector.
+Adds a value to the _LUFILE column.
 @param I the Integer to add.
 */
 public void addLUFILE(Integer I) {
-	if (_LUFILE == null) {
-		_LUFILE = new Vector<Integer>();
-	}
-	_LUFILE.add(I);
+	addLUFILE(I.intValue());
 }
 
 /**
-Adds a value to the _NUMPRM Vector.
-@param i the int to add (added as an Integer).
+Adds a value to the _NUMPRM column.
+@param i the int to add.
 */
 public void addNUMPRM(int i) {
-	addNUMPRM(new Integer(i));
+	if (_NUMPRM == null) {
+		_NUMPRM = new NWSRFS_IntColumn();
+	}
+	_NUMPRM.addInt(i);
 }
 
 /**
-Adds a value to the _NUMPRM Vector.
+Adds a value to the _NUMPRM column.
 @param I the Integer to add.
 */
 public void addNUMPRM(Integer I) {
-	if (_NUMPRM == null) {
-		_NUMPRM = new Vector<Integer>();
-	}
-	_NUMPRM.add(I);
+	addNUMPRM(I.intValue());
 }
 
 /**
@@ -442,7 +449,7 @@ Returns the record number of the first parameters at an index.
 @return the record number of the first parameters at an index.
 */
 public int getFIRST(int firstIndex) {
-	return (int)((Integer)_FIRST.get(firstIndex)).intValue();
+	return _FIRST.getInt(firstIndex);
 }
 
 /**
@@ -459,7 +466,7 @@ Returns the record number of the associated parameter identifiers at an index.
 @return the record number of the associated parameter identifiers at an index.
 */
 public int getIREC(int irecIndex) {
-	return (int)((Integer)_IREC.get(irecIndex)).intValue();
+	return _IREC.getInt(irecIndex);
 }
 
 /**
@@ -476,7 +483,7 @@ Returns the single record type indicator at an index.
 @return the single record type indicator at an index.
 */
 public int getISNGL(int isnglIndex) {
-	return (int)((Integer)_ISNGL.get(isnglIndex)).intValue();
+	return _ISNGL.getInt(isnglIndex);
 }
 
 /**
@@ -493,7 +500,7 @@ Returns the record number of the last parameter at an index.
 @return the record number of the last parameter at an index.
 */
 public int getLAST(int lastIndex) {
-	return (int)((Integer)_LAST.get(lastIndex)).intValue();
+	return _LAST.getInt(lastIndex);
 }
 
 /**
@@ -510,7 +517,7 @@ Returns the logical units assigned to files at an index.
 @return the logical units assigned to files at an index.
 */
 public int getLUFILE(int lufileIndex) {
-	return (int)((Integer)_LUFILE.get(lufileIndex)).intValue();
+	return _LUFILE.getInt(lufileIndex);
 }
 
 /**
@@ -527,7 +534,7 @@ Returns the number of parameter records at an index.
 @return the number of parameter records at an index.
 */
 public int getNUMPRM(int numprmIndex) {
-	return (int)((Integer)_NUMPRM.get(numprmIndex)).intValue();
+	return _NUMPRM.getInt(numprmIndex);
 }
 
 /**
@@ -10,6 +10,9 @@
 
 package RTi.DMI.NWSRFS_DMI;
 
+import java.io.Serializable;
+
+import java.util.Hashtable;
 import java.util.List;
 import java.util.Vector;
 
@@ -62,7 +65,13 @@ RECORD STRUCTURE:
 </pre>
 */
 
-public class NWSRFS_PRDINDEX {
+public class NWSRFS_PRDINDEX implements Serializable {
+
+/**
+Version of the serialized form, saved in PRDINDEX snapshots.  Version 2
+declares _IREC as an NWSRFS_IntColumn.
+*/
+private static final long serialVersionUID = 2L;
 
 /**
 The Time Series ID
@@ -78,7 +87,15 @@ protected List _TSDataType;
 The Record Number in the PRDTSn file containing 
 the Time Series data.
 */
-protected List _IREC; 
+protected NWSRFS_IntColumn _IREC;
+
+/**
+Table of the PRDTSn record numbers for each time series identifier and data
+type, keyed by "TSID.DT" in upper case.  Because the PRDINDEX records do not
+include the data interval, more than one record may be found for a key.  Built
+by buildRecordIndex() and discarded when the index data change.
+*/
+private transient Hashtable<String,int[]> __recordIndex = null;
 
 /**
 Constructor.
@@ -91,22 +108,23 @@ public NWSRFS_PRDINDEX() {
 }
 
 /**
-Adds a value to the _IREC Vector.
-@param i the int to add (added as an Integer).
+Adds a value to the _IREC column.
+@param i the int to add.
 */
 public void addIREC(int i) {
-	addIREC(new Integer(i));
+	if (_IREC == null) {
+		_IREC = new NWSRFS_IntColumn();
+	}
+	_IREC.addInt(i);
+	__recordIndex = null;
 }
 
 /**
-Adds a value to the _IREC Vector.
+Adds a value to the _IREC column.
 @param I the Integer to add.
 */
 public void addIREC(Integer I) {
-	if (_IREC == null) {
-		_IREC = new Vector();
-	}
-	_IREC.add(I);
+	addIREC(I.intValue());
 }
 
 /**
@@ -118,6 +136,7 @@ public void addTSDT(String s) {
 		_TSDataType = new Vector();
 	}
 	_TSDataType.add(s);
+	__recordIndex = null;
 }
 
 /**
@@ -129,6 +148,44 @@ public void addTSID(String s) {
 		_TSID = new Vector();
 	}
 	_TSID.add(s);
+	__recordIndex = null;
+}
+
+/**
+Build the lookup table used by getRecordNumbers().  Call after all the PRDINDEX
+records have been added.  The record numbers for each key are in the order of
+the PRDINDEX records, as when searching the full index.
+*/
+public void buildRecordIndex() {
+	int size = getNumRecords();
+	Hashtable<String,int[]> recordIndex = new Hashtable<String,int[]>(size*2 + 1);
+	for (int i = 0; i < size; i++) {
+		String key = createRecordKey(getTSID(i), getTSDT(i));
+		int[] recordNums = recordIndex.get(key);
+		if (recordNums == null) {
+			recordNums = new int[1];
+		}
+		else {
+			// Rare - the same identifier and data type with more than
+			// one interval.
+			int[] temp = new int[recordNums.length + 1];
+			System.arraycopy(recordNums, 0, temp, 0, recordNums.length);
+			recordNums = temp;
+		}
+		recordNums[recordNums.length - 1] = getIREC(i);
+		recordIndex.put(key, recordNums);
+	}
+	__recordIndex = recordIndex;
+}
+
+/**
+Create the key used in the record lookup table.
+@param tsID the time series identifier.
+@param tsDT the time series data type.
+@return the key for the lookup table.
+*/
+private String createRecordKey(String tsID, String tsDT) {
+	return tsID.toUpperCase() + "." + tsDT.toUpperCase();
 }
 
 /**
@@ -136,16 +193,17 @@ Cleans up member variables.
 @throws Throwable if an error occurs.
 */
 public void finalize() {
+	__recordIndex = null;
 	_IREC = null;
 	_TSDataType = null;
 	_TSID = null;
 }
 
 /**
-Returns the Vector of record numbers.
-@return the Vector of record numbers.
+Returns the List of record numbers.
+@return the List of record numbers.
 */
-public List getIREC() {
+public List<Integer> getIREC() {
 	return _IREC;
 }
 
@@ -155,7 +213,45 @@ Return the Record Number at an index.
 @return the Record Number at an index.
 */
 public int getIREC(int index) {
-	return ((Integer)_IREC.get(index)).intValue();
+	return _IREC.getInt(index);
+}
+
+/**
+Return the number of complete PRDINDEX records, each with an identifier, data
+type, and record number.
+@return the number of complete PRDINDEX records.
+*/
+public int getNumRecords() {
+	if (_TSID == null || _TSDataType == null || _IREC == null) {
+		return 0;
+	}
+	return Math.min(_TSID.size(), Math.min(_TSDataType.size(), _IREC.size()));
+}
+
+/**
+Return the PRDTSn record numbers for a time series.  Because the PRDINDEX
+records do not include the data interval, more than one record may be returned
+and the caller must check the interval in each record.
+@param tsID the time series identifier, compared ignoring case.
+@param tsDT the time series data type, compared ignoring case.
+@return the record numbers for the time series, in PRDINDEX order, or an empty
+array if the time series is not in the index.
+*/
+public int[] getRecordNumbers(String tsID, String tsDT) {
+	if (tsID == null || tsDT == null) {
+		return new int[0];
+	}
+	Hashtable<String,int[]> recordIndex = __recordIndex;
+	if (recordIndex == null) {
+		buildRecordIndex();
+		recordIndex = __recordIndex;
+	}
+	int[] recordNums = recordIndex.get(createRecordKey(tsID, tsDT));
+	if (recordNums == null) {
+		return new int[0];
+	}
+	// Return a copy so that the table cannot be modified by the caller.
+	return (int[])recordNums.clone();
 }
 
 /**
@@ -196,6 +292,7 @@ public String getTSID(int index) {
 Initialize global objects.
 */
 private void initialize() {
+	__recordIndex = null;
 	_IREC = null;
 	_TSDataType = null;
 	_TSID = null;
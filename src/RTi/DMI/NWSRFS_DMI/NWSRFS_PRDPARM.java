@@ -0,0 +1,558 @@
+//------------------------------------------------------------------------------
+// NWSRFS_PRDPARM - class to contain the processed database data type
+//				parameters
+//------------------------------------------------------------------------------
+// Endheader
+
+package RTi.DMI.NWSRFS_DMI;
+
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Vector;
+
+/**
+The NWSRFS_PRDPARM class stores the contents of the PRDPARM processed database
+file, which describes each data type in the processed database, and the PRDTSn
+file that holds the time series for each unit number.  The NWSRFS_DMI reads
+the file once rather than scanning PRDPARM and probing the PRDTSn files for
+each time series that is read.  The PRDPARM database file has the following
+definition:
+<pre>
+Record 1 (240 bytes) contains the global values:
+
+  Variable Type     Dimension   Word Pos.   Description
+
+  NAMERF    A8         1           1        User identifier
+  MAXDTP    I*4        1           3        Maximum number of data types
+  MAXTMS    I*4        1           4        Maximum number of time series
+  MINDAY    I*4        1           5        Minimum days of observed data kept
+  NUMTMS    I*4        1          13        Actual number of time series
+  NUMDTP    I*4        1          14        Actual number of data types
+
+Records 2 through the last (72 bytes each) contain the data type values:
+
+  DTYPE     A4         1           1        Data type code
+  IUNIT     I*4        1           2        Unit number of the PRDTSn file
+  NCORE     I*4        1           3        Number of time series kept in core
+  MAXDAY    I*4        1           4        Maximum number of days of data
+  MINDT     I*4        1           5        Smallest time interval allowed
+  IPROC     I*4        1           6        Processing indicator
+  IFDAT     I*4        1           7        Future data indicator
+  IFRECD    I*4        1           8        First record of this data type
+  ILRECD    I*4        1           9        Last record of this data type
+  ICPTR     I*4        1          10        Pointer to incore data table
+  ICALL     I*4        1          11        Indicator for write access
+  IDIM      I*4        1          12        Units dimension
+  NVAL      I*4        1          13        Number of values per time interval
+  NXHDR     I*4        1          14        Number of extra words in header
+  NUMTS     I*4        1          15        Number of time series defined
+</pre>
+*/
+public class NWSRFS_PRDPARM {
+
+/**
+The user identifier.
+*/
+protected String _NAMERF;
+
+/**
+Maximum number of data types.
+*/
+protected int _MAXDTP;
+
+/**
+Maximum number of time series.
+*/
+protected int _MAXTMS;
+
+/**
+Minimum number of days of observed data kept.
+*/
+protected int _MINDAY;
+
+/**
+Actual number of data types.
+*/
+protected int _NUMDTP;
+
+/**
+Actual number of time series.
+*/
+protected int _NUMTMS;
+
+/**
+The data type codes.
+*/
+protected List<String> _DTYPE;
+
+/**
+Unit number of the PRDTSn file holding time series of the data type.
+*/
+protected NWSRFS_IntColumn _IUNIT;
+
+/**
+Number of time series of the data type kept in core.
+*/
+protected NWSRFS_IntColumn _NCORE;
+
+/**
+Maximum number of days of data.
+*/
+protected NWSRFS_IntColumn _MAXDAY;
+
+/**
+Smallest time interval allowed.
+*/
+protected NWSRFS_IntColumn _MINDT;
+
+/**
+Processing indicator.
+*/
+protected NWSRFS_IntColumn _IPROC;
+
+/**
+Future data indicator.
+*/
+protected NWSRFS_IntColumn _IFDAT;
+
+/**
+First record in file of this data type.
+*/
+protected NWSRFS_IntColumn _IFRECD;
+
+/**
+Last record in file of this data type.
+*/
+protected NWSRFS_IntColumn _ILRECD;
+
+/**
+Pointer to incore data table.
+*/
+protected NWSRFS_IntColumn _ICPTR;
+
+/**
+Indicator for write access.
+*/
+protected NWSRFS_IntColumn _ICALL;
+
+/**
+Units dimension.
+*/
+protected NWSRFS_IntColumn _IDIM;
+
+/**
+Number of values per time interval.
+*/
+protected NWSRFS_IntColumn _NVAL;
+
+/**
+Number of extra words in header.
+*/
+protected NWSRFS_IntColumn _NXHDR;
+
+/**
+Number of time series defined for data type.
+*/
+protected NWSRFS_IntColumn _NUMTS;
+
+/**
+Table of the position of each data type in the lists, keyed by the upper case
+data type.  If a data type is defined more than once, the first definition is
+used.
+*/
+private Hashtable<String,Integer> __dataTypeIndex = null;
+
+/**
+Table of the NWSRFS_DMI file index (e.g., the value of PRDTS1) for each unit
+number, as read from the first word of each PRDTSn file.
+*/
+private Hashtable<Integer,Integer> __unitFileIndex = null;
+
+/**
+Constructor.
+*/
+public NWSRFS_PRDPARM() {
+	initialize();
+}
+
+/**
+Adds a data type and its values.  The values must be added in the order that
+they are defined in the PRDPARM record.
+@param DTYPE the data type code.
+@param IUNIT the unit number of the PRDTSn file.
+@param NCORE the number of time series kept in core.
+@param MAXDAY the maximum number of days of data.
+@param MINDT the smallest time interval allowed.
+@param IPROC the processing indicator.
+@param IFDAT the future data indicator.
+@param IFRECD the first record of the data type.
+@param ILRECD the last record of the data type.
+@param ICPTR the pointer to the incore data table.
+@param ICALL the indicator for write access.
+@param IDIM the units dimension.
+@param NVAL the number of values per time interval.
+@param NXHDR the number of extra words in the header.
+@param NUMTS the number of time series defined for the data type.
+*/
+public void addDataType(String DTYPE, int IUNIT, int NCORE, int MAXDAY,
+int MINDT, int IPROC, int IFDAT, int IFRECD, int ILRECD, int ICPTR, int ICALL,
+int IDIM, int NVAL, int NXHDR, int NUMTS) {
+	String key = DTYPE.toUpperCase();
+	if (!__dataTypeIndex.containsKey(key)) {
+		__dataTypeIndex.put(key, new Integer(_DTYPE.size()));
+	}
+	_DTYPE.add(DTYPE);
+	_IUNIT.addInt(IUNIT);
+	_NCORE.addInt(NCORE);
+	_MAXDAY.addInt(MAXDAY);
+	_MINDT.addInt(MINDT);
+	_IPROC.addInt(IPROC);
+	_IFDAT.addInt(IFDAT);
+	_IFRECD.addInt(IFRECD);
+	_ILRECD.addInt(ILRECD);
+	_ICPTR.addInt(ICPTR);
+	_ICALL.addInt(ICALL);
+	_IDIM.addInt(IDIM);
+	_NVAL.addInt(NVAL);
+	_NXHDR.addInt(NXHDR);
+	_NUMTS.addInt(NUMTS);
+}
+
+/**
+Cleans up member variables.
+@throws Throwable if an error occurs.
+*/
+public void finalize() {
+	_NAMERF = null;
+	_DTYPE = null;
+	_IUNIT = null;
+	_NCORE = null;
+	_MAXDAY = null;
+	_MINDT = null;
+	_IPROC = null;
+	_IFDAT = null;
+	_IFRECD = null;
+	_ILRECD = null;
+	_ICPTR = null;
+	_ICALL = null;
+	_IDIM = null;
+	_NVAL = null;
+	_NXHDR = null;
+	_NUMTS = null;
+	__dataTypeIndex = null;
+	__unitFileIndex = null;
+}
+
+/**
+Returns the data type code at an index.
+@param index the index of the data type.
+@return the data type code at an index.
+*/
+public String getDTYPE(int index) {
+	return _DTYPE.get(index);
+}
+
+/**
+Returns the index of a data type, which is used with the other get methods.
+@param dataType the data type, compared ignoring case.
+@return the index of the data type, or -1 if the data type is not defined.
+*/
+public int getDataTypeIndex(String dataType) {
+	if (dataType == null) {
+		return -1;
+	}
+	Integer index = __dataTypeIndex.get(dataType.toUpperCase());
+	if (index == null) {
+		return -1;
+	}
+	return index.intValue();
+}
+
+/**
+Returns the ICALL value for a data type.
+@param index the index of the data type (see getDataTypeIndex()).
+@return the ICALL value for the data type.
+*/
+public int getICALL(int index) {
+	return _ICALL.getInt(index);
+}
+
+/**
+Returns the ICPTR value for a data type.
+@param index the index of the data type (see getDataTypeIndex()).
+@return the ICPTR value for the data type.
+*/
+public int getICPTR(int index) {
+	return _ICPTR.getInt(index);
+}
+
+/**
+Returns the IDIM value for a data type.
+@param index the index of the data type (see getDataTypeIndex()).
+@return the IDIM value for the data type.
+*/
+public int getIDIM(int index) {
+	return _IDIM.getInt(index);
+}
+
+/**
+Returns the IFDAT value for a data type.
+@param index the index of the data type (see getDataTypeIndex()).
+@return the IFDAT value for the data type.
+*/
+public int getIFDAT(int index) {
+	return _IFDAT.getInt(index);
+}
+
+/**
+Returns the IFRECD value for a data type.
+@param index the index of the data type (see getDataTypeIndex()).
+@return the IFRECD value for the data type.
+*/
+public int getIFRECD(int index) {
+	return _IFRECD.getInt(index);
+}
+
+/**
+Returns the ILRECD value for a data type.
+@param index the index of the data type (see getDataTypeIndex()).
+@return the ILRECD value for the data type.
+*/
+public int getILRECD(int index) {
+	return _ILRECD.getInt(index);
+}
+
+/**
+Returns the IPROC value for a data type.
+@param index the index of the data type (see getDataTypeIndex()).
+@return the IPROC value for the data type.
+*/
+public int getIPROC(int index) {
+	return _IPROC.getInt(index);
+}
+
+/**
+Returns the IUNIT value for a data type.
+@param index the index of the data type (see getDataTypeIndex()).
+@return the IUNIT value for the data type.
+*/
+public int getIUNIT(int index) {
+	return _IUNIT.getInt(index);
+}
+
+/**
+Returns the MAXDAY value for a data type.
+@param index the index of the data type (see getDataTypeIndex()).
+@return the MAXDAY value for the data type.
+*/
+public int getMAXDAY(int index) {
+	return _MAXDAY.getInt(index);
+}
+
+/**
+Returns the maximum number of data types.
+@return the maximum number of data types.
+*/
+public int getMAXDTP() {
+	return _MAXDTP;
+}
+
+/**
+Returns the maximum number of time series.
+@return the maximum number of time series.
+*/
+public int getMAXTMS() {
+	return _MAXTMS;
+}
+
+/**
+Returns the minimum number of days of observed data kept.
+@return the minimum number of days of observed data kept.
+*/
+public int getMINDAY() {
+	return _MINDAY;
+}
+
+/**
+Returns the MINDT value for a data type.
+@param index the index of the data type (see getDataTypeIndex()).
+@return the MINDT value for the data type.
+*/
+public int getMINDT(int index) {
+	return _MINDT.getInt(index);
+}
+
+/**
+Returns the user identifier.
+@return the user identifier.
+*/
+public String getNAMERF() {
+	return _NAMERF;
+}
+
+/**
+Returns the NCORE value for a data type.
+@param index the index of the data type (see getDataTypeIndex()).
+@return the NCORE value for the data type.
+*/
+public int getNCORE(int index) {
+	return _NCORE.getInt(index);
+}
+
+/**
+Returns the actual number of data types.
+@return the actual number of data types.
+*/
+public int getNUMDTP() {
+	return _NUMDTP;
+}
+
+/**
+Returns the actual number of time series.
+@return the actual number of time series.
+*/
+public int getNUMTMS() {
+	return _NUMTMS;
+}
+
+/**
+Returns the NUMTS value for a data type.
+@param index the index of the data type (see getDataTypeIndex()).
+@return the NUMTS value for the data type.
+*/
+public int getNUMTS(int index) {
+	return _NUMTS.getInt(index);
+}
+
+/**
+Returns the NVAL value for a data type.
+@param index the index of the data type (see getDataTypeIndex()).
+@return the NVAL value for the data type.
+*/
+public int getNVAL(int index) {
+	return _NVAL.getInt(index);
+}
+
+/**
+Returns the NXHDR value for a data type.
+@param index the index of the data type (see getDataTypeIndex()).
+@return the NXHDR value for the data type.
+*/
+public int getNXHDR(int index) {
+	return _NXHDR.getInt(index);
+}
+
+/**
+Returns the number of data types.
+@return the number of data types.
+*/
+public int getNumDataTypes() {
+	return _DTYPE.size();
+}
+
+/**
+Returns the NWSRFS_DMI file index of the PRDTSn file that holds time series
+for a unit number.
+@param IUNIT the unit number (see getIUNIT()).
+@return the file index (e.g., the value of PRDTS1), or -1 if no PRDTSn file
+has the unit number.
+*/
+public int getUnitFileIndex(int IUNIT) {
+	Integer fileIndex = __unitFileIndex.get(new Integer(IUNIT));
+	if (fileIndex == null) {
+		return -1;
+	}
+	return fileIndex.intValue();
+}
+
+/**
+Initialize data members.
+*/
+private void initialize() {
+	_NAMERF = null;
+	_MAXDTP = -1;
+	_MAXTMS = -1;
+	_MINDAY = -1;
+	_NUMDTP = -1;
+	_NUMTMS = -1;
+	_DTYPE = new Vector<String>();
+	_IUNIT = new NWSRFS_IntColumn();
+	_NCORE = new NWSRFS_IntColumn();
+	_MAXDAY = new NWSRFS_IntColumn();
+	_MINDT = new NWSRFS_IntColumn();
+	_IPROC = new NWSRFS_IntColumn();
+	_IFDAT = new NWSRFS_IntColumn();
+	_IFRECD = new NWSRFS_IntColumn();
+	_ILRECD = new NWSRFS_IntColumn();
+	_ICPTR = new NWSRFS_IntColumn();
+	_ICALL = new NWSRFS_IntColumn();
+	_IDIM = new NWSRFS_IntColumn();
+	_NVAL = new NWSRFS_IntColumn();
+	_NXHDR = new NWSRFS_IntColumn();
+	_NUMTS = new NWSRFS_IntColumn();
+	__dataTypeIndex = new Hashtable<String,Integer>();
+	__unitFileIndex = new Hashtable<Integer,Integer>();
+}
+
+/**
+Sets the user identifier.
+@param NAMERF the user identifier.
+*/
+public void setNAMERF(String NAMERF) {
+	_NAMERF = NAMERF;
+}
+
+/**
+Sets the maximum number of data types.
+@param MAXDTP the maximum number of data types.
+*/
+public void setMAXDTP(int MAXDTP) {
+	_MAXDTP = MAXDTP;
+}
+
+/**
+Sets the maximum number of time series.
+@param MAXTMS the maximum number of time series.
+*/
+public void setMAXTMS(int MAXTMS) {
+	_MAXTMS = MAXTMS;
+}
+
+/**
+Sets the minimum number of days of observed data kept.
+@param MINDAY the minimum number of days of observed data kept.
+*/
+public void setMINDAY(int MINDAY) {
+	_MINDAY = MINDAY;
+}
+
+/**
+Sets the actual number of data types.
+@param NUMDTP the actual number of data types.
+*/
+public void setNUMDTP(int NUMDTP) {
+	_NUMDTP = NUMDTP;
+}
+
+/**
+Sets the actual number of time series.
+@param NUMTMS the actual number of time series.
+*/
+public void setNUMTMS(int NUMTMS) {
+	_NUMTMS = NUMTMS;
+}
+
+/**
+Sets the PRDTSn file that holds time series for a unit number.  If more than
+one file has the same unit number, the first file that is set is used.
+@param IUNIT the unit number read from the PRDTSn file.
+@param fileIndex the NWSRFS_DMI file index (e.g., the value of PRDTS1).
+*/
+public void setUnitFileIndex(int IUNIT, int fileIndex) {
+	Integer key = new Integer(IUNIT);
+	if (!__unitFileIndex.containsKey(key)) {
+		__unitFileIndex.put(key, new Integer(fileIndex));
+	}
+}
+
+}
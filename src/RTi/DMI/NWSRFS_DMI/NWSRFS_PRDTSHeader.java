@@ -0,0 +1,363 @@
+//------------------------------------------------------------------------------
+// NWSRFS_PRDTSHeader - class to contain the header of a time series in the
+//				processed database
+//------------------------------------------------------------------------------
+// Endheader
+
+package RTi.DMI.NWSRFS_DMI;
+
+/**
+The NWSRFS_PRDTSHeader class holds the header values of one time series in a
+PRDTSn processed database file, as returned by
+NWSRFS_DMI.readPRDTSHeaderList().  Unlike NWSRFS_TimeSeries, no HourTS objects,
+identifiers, or data are created, so headers can be listed for all of the time
+series in a database quickly and with little memory.  The record number and
+file index can be used to read the time series data later.
+*/
+public class NWSRFS_PRDTSHeader {
+
+/**
+Time Series identifier.
+*/
+protected String _TSID;
+
+/**
+Time Series data type.
+*/
+protected String _TSDataType;
+
+/**
+Time Series Header - Data time interval, hours.
+*/
+protected int _IDTINT;
+
+/**
+Time Series Header - Number of values per time interval.
+*/
+protected int _NVLINT;
+
+/**
+Time Series Header - Maximum number of data values.
+*/
+protected int _NTSMAX;
+
+/**
+Time Series Header - Actual number of data values.
+*/
+protected int _NTSNUM;
+
+/**
+Time Series Header - Location in the record of the first regular/observed data
+value.
+*/
+protected int _IPTREG;
+
+/**
+Time Series Header - Location in the record of the first future data value, or
+zero if there are no future data.
+*/
+protected int _IPTFUT;
+
+/**
+Time Series Header - Data units code.
+*/
+protected String _TSUNIT;
+
+/**
+Time Series Header - Time Series Latitude.
+*/
+protected float _TSLAT;
+
+/**
+Time Series Header - Time Series Longitude.
+*/
+protected float _TSLONG;
+
+/**
+Time Series Header - Julian hour of first data value.
+*/
+protected int _JULBEG;
+
+/**
+Time Series Header - Code for component write.
+*/
+protected int _ITSFUT;
+
+/**
+Time Series Header - Time Series description.
+*/
+protected String _TSDESC;
+
+/**
+The NWSRFS_DMI file index of the PRDTSn file containing the time series.
+*/
+protected int _fileIndex;
+
+/**
+The record number (1+) of the time series header in the PRDTSn file.
+*/
+protected int _recordNum;
+
+/**
+Constructor.
+@param TSID the time series identifier.
+@param TSDataType the time series data type.
+@param fileIndex the NWSRFS_DMI file index of the PRDTSn file.
+@param recordNum the record number of the header in the PRDTSn file.
+*/
+public NWSRFS_PRDTSHeader(String TSID, String TSDataType, int fileIndex,
+int recordNum) {
+	_TSID = TSID;
+	_TSDataType = TSDataType;
+	_fileIndex = fileIndex;
+	_recordNum = recordNum;
+	_IDTINT = 0;
+	_NVLINT = 0;
+	_NTSMAX = 0;
+	_NTSNUM = 0;
+	_IPTREG = 0;
+	_IPTFUT = 0;
+	_TSUNIT = "";
+	_TSLAT = 0;
+	_TSLONG = 0;
+	_JULBEG = 0;
+	_ITSFUT = 0;
+	_TSDESC = "";
+}
+
+/**
+Returns the NWSRFS_DMI file index of the PRDTSn file containing the time series.
+@return the NWSRFS_DMI file index of the PRDTSn file.
+*/
+public int getFileIndex() {
+	return _fileIndex;
+}
+
+/**
+Returns the data time interval, hours.
+@return the data time interval, hours.
+*/
+public int getIDTINT() {
+	return _IDTINT;
+}
+
+/**
+Returns the location in the record of the first future data value.
+@return the location in the record of the first future data value, or zero if
+there are no future data.
+*/
+public int getIPTFUT() {
+	return _IPTFUT;
+}
+
+/**
+Returns the location in the record of the first regular/observed data value.
+@return the location in the record of the first regular/observed data value.
+*/
+public int getIPTREG() {
+	return _IPTREG;
+}
+
+/**
+Returns the code for component write.
+@return the code for component write.
+*/
+public int getITSFUT() {
+	return _ITSFUT;
+}
+
+/**
+Returns the Julian hour of the first data value.
+@return the Julian hour of the first data value.
+*/
+public int getJULBEG() {
+	return _JULBEG;
+}
+
+/**
+Returns the maximum number of data values.
+@return the maximum number of data values.
+*/
+public int getNTSMAX() {
+	return _NTSMAX;
+}
+
+/**
+Returns the actual number of data values.
+@return the actual number of data values.
+*/
+public int getNTSNUM() {
+	return _NTSNUM;
+}
+
+/**
+Returns the number of values per time interval.
+@return the number of values per time interval.
+*/
+public int getNVLINT() {
+	return _NVLINT;
+}
+
+/**
+Returns the record number of the header in the PRDTSn file.
+@return the record number of the header in the PRDTSn file.
+*/
+public int getRecordNum() {
+	return _recordNum;
+}
+
+/**
+Returns the time series data type.
+@return the time series data type.
+*/
+public String getTSDataType() {
+	return _TSDataType;
+}
+
+/**
+Returns the time series description.
+@return the time series description.
+*/
+public String getTSDESC() {
+	return _TSDESC;
+}
+
+/**
+Returns the time series identifier.
+@return the time series identifier.
+*/
+public String getTSID() {
+	return _TSID;
+}
+
+/**
+Returns the time series latitude.
+@return the time series latitude.
+*/
+public float getTSLAT() {
+	return _TSLAT;
+}
+
+/**
+Returns the time series longitude.
+@return the time series longitude.
+*/
+public float getTSLONG() {
+	return _TSLONG;
+}
+
+/**
+Returns the data units code.
+@return the data units code.
+*/
+public String getTSUNIT() {
+	return _TSUNIT;
+}
+
+/**
+Sets the data time interval, hours.
+@param IDTINT the data time interval, hours.
+*/
+public void setIDTINT(int IDTINT) {
+	_IDTINT = IDTINT;
+}
+
+/**
+Sets the location in the record of the first future data value.
+@param IPTFUT the location in the record of the first future data value.
+*/
+public void setIPTFUT(int IPTFUT) {
+	_IPTFUT = IPTFUT;
+}
+
+/**
+Sets the location in the record of the first regular/observed data value.
+@param IPTREG the location in the record of the first regular/observed data
+value.
+*/
+public void setIPTREG(int IPTREG) {
+	_IPTREG = IPTREG;
+}
+
+/**
+Sets the code for component write.
+@param ITSFUT the code for component write.
+*/
+public void setITSFUT(int ITSFUT) {
+	_ITSFUT = ITSFUT;
+}
+
+/**
+Sets the Julian hour of the first data value.
+@param JULBEG the Julian hour of the first data value.
+*/
+public void setJULBEG(int JULBEG) {
+	_JULBEG = JULBEG;
+}
+
+/**
+Sets the maximum number of data values.
+@param NTSMAX the maximum number of data values.
+*/
+public void setNTSMAX(int NTSMAX) {
+	_NTSMAX = NTSMAX;
+}
+
+/**
+Sets the actual number of data values.
+@param NTSNUM the actual number of data values.
+*/
+public void setNTSNUM(int NTSNUM) {
+	_NTSNUM = NTSNUM;
+}
+
+/**
+Sets the number of values per time interval.
+@param NVLINT the number of values per time interval.
+*/
+public void setNVLINT(int NVLINT) {
+	_NVLINT = NVLINT;
+}
+
+/**
+Sets the time series description.
+@param TSDESC the time series description.
+*/
+public void setTSDESC(String TSDESC) {
+	_TSDESC = TSDESC;
+}
+
+/**
+Sets the time series latitude.
+@param TSLAT the time series latitude.
+*/
+public void setTSLAT(float TSLAT) {
+	_TSLAT = TSLAT;
+}
+
+/**
+Sets the time series longitude.
+@param TSLONG the time series longitude.
+*/
+public void setTSLONG(float TSLONG) {
+	_TSLONG = TSLONG;
+}
+
+/**
+Sets the data units code.
+@param TSUNIT the data units code.
+*/
+public void setTSUNIT(String TSUNIT) {
+	_TSUNIT = TSUNIT;
+}
+
+/**
+Returns a String with the identifier, data type, and interval of the time
+series, for messages.
+@return a String describing the time series.
+*/
+public String toString() {
+	return _TSID + "." + _TSDataType + "." + _IDTINT + "Hour";
+}
+
+}
@@ -0,0 +1,146 @@
+//------------------------------------------------------------------------------
+// NWSRFS_PrimitiveColumn - base class for the growable arrays of primitive
+//				values used by the index classes
+//------------------------------------------------------------------------------
+// Endheader
+
+package RTi.DMI.NWSRFS_DMI;
+
+import java.io.Serializable;
+
+import java.lang.reflect.Array;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+The NWSRFS_PrimitiveColumn class holds the size, bounds checking, and array
+growth shared by NWSRFS_IntColumn and NWSRFS_FloatColumn.  A derived class
+keeps its values in a primitive array, which is passed to this class as an
+Object (see getArray() and setArray()) so that the array can be enlarged and
+values can be moved with System.arraycopy() regardless of its type.  The
+derived class reads and writes the values in the array directly and serializes
+the first _size values.
+*/
+public abstract class NWSRFS_PrimitiveColumn<T> extends AbstractList<T>
+implements RandomAccess, Serializable
+{
+
+/**
+Version of the serialized form (the size of the column).
+*/
+private static final long serialVersionUID = 1L;
+
+/**
+The number of values in the column.
+*/
+protected int _size = 0;
+
+/**
+Check that an index refers to a value in the column.
+@param index the index to check.
+@throws IndexOutOfBoundsException if the index is negative or not less than
+the number of values in the column.
+*/
+protected void checkIndex(int index) {
+	if (index < 0 || index >= _size) {
+		throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+			+ _size);
+	}
+}
+
+/**
+Remove all values from the column.
+*/
+public void clear() {
+	_size = 0;
+	modCount++;
+}
+
+/**
+Enlarge the array if necessary to hold the given number of values.  The array
+is at least doubled in size so that adding values one at a time is fast.
+@param capacity the number of values that need to be stored.
+*/
+protected void ensureCapacity(int capacity) {
+	int length = Array.getLength(getArray());
+	if (capacity > length) {
+		resize(Math.max(capacity, length*2));
+	}
+}
+
+/**
+Return the array holding the values.
+@return the primitive array holding the values (e.g., int[]).
+*/
+protected abstract Object getArray();
+
+/**
+Open a space in the column for a value to be inserted.  The value in the space
+must then be set by the derived class.
+@param index the index at which a value will be inserted.
+@throws IndexOutOfBoundsException if the index is negative or greater than the
+number of values in the column.
+*/
+protected void insertSpace(int index) {
+	if (index < 0 || index > _size) {
+		throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+			+ _size);
+	}
+	ensureCapacity(_size + 1);
+	Object values = getArray();
+	System.arraycopy(values, index, values, index + 1, _size - index);
+	_size++;
+	modCount++;
+}
+
+/**
+Remove the space for a value from the column, shifting the following values.
+@param index the index of the value to remove.
+@throws IndexOutOfBoundsException if the index is out of range.
+*/
+protected void removeSpace(int index) {
+	checkIndex(index);
+	Object values = getArray();
+	System.arraycopy(values, index + 1, values, index, _size - index - 1);
+	_size--;
+	modCount++;
+}
+
+/**
+Replace the array with a new array of the given length, copying the values.
+@param length the length of the new array, at least 1.
+*/
+private void resize(int length) {
+	Object values = getArray();
+	Object resized = Array.newInstance(values.getClass().getComponentType(),
+		Math.max(length, 1));
+	System.arraycopy(values, 0, resized, 0, _size);
+	setArray(resized);
+}
+
+/**
+Set the array holding the values.
+@param array the primitive array holding the values (e.g., int[]).
+*/
+protected abstract void setArray(Object array);
+
+/**
+Return the number of values in the column.
+@return the number of values in the column.
+*/
+public int size() {
+	return _size;
+}
+
+/**
+Reduce the array to the number of values in the column, to release unused
+memory after an index file has been read.
+*/
+public void trimToSize() {
+	if (Array.getLength(getArray()) > Math.max(_size, 1)) {
+		resize(_size);
+	}
+}
+
+}
@@ -0,0 +1,520 @@
+//------------------------------------------------------------------------------
+// NWSRFS_TSCache - class to cache NWSRFS_TimeSeries read from the NWSRFS
+//				processed and preprocessor databases
+//------------------------------------------------------------------------------
+// Endheader
+
+package RTi.DMI.NWSRFS_DMI;
+
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import RTi.TS.TS;
+
+/**
+The NWSRFS_TSCache class holds NWSRFS_TimeSeries that have been read by the
+NWSRFS_DMI so that repeated requests for the same time series do not reread the
+binary database files.  The cache is limited by the number of time series and
+by the estimated memory used by the time series data, with the least recently
+used time series discarded first when either limit is exceeded.
+<p>
+Each cached time series is stored with a database time stamp (e.g., the last
+modification time of the PRDTSn or PDBRRS files) that is supplied by the caller.
+If the time stamp supplied when the time series is requested does not match the
+stored time stamp, the database has changed since the time series was read and
+the cached time series is discarded.
+<p>
+Separately, the cache keeps the set of time series identifiers that are known
+to exist in the database, which is used by NWSRFS_DMI.checkTimeSeriesExists()
+so that existence checks do not need to keep the time series data in memory.
+The set is also limited in size, with the least recently used identifiers
+discarded first, so that checking many identifiers does not use unlimited
+memory.
+<p>
+The cache can be used by multiple threads.  Counts of hits, misses, evictions,
+and stale entries are maintained to evaluate the effectiveness of the cache.
+*/
+public class NWSRFS_TSCache
+{
+
+/**
+Default maximum number of time series to cache.
+*/
+public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+/**
+Default maximum estimated bytes of time series data to cache (64 MB).
+*/
+public static final long DEFAULT_MAX_BYTES = 64L*1024L*1024L;
+
+/**
+Default maximum number of time series identifiers known to exist.
+*/
+public static final int DEFAULT_MAX_EXISTING = 100000;
+
+/**
+Estimated bytes used by a time series, other than the data values.
+*/
+private static final long __TS_OVERHEAD_BYTES = 1024;
+
+/**
+Estimated bytes used for each data value in a time series.
+*/
+private static final long __VALUE_BYTES = 8;
+
+/**
+The entry stored in the cache for each time series.
+*/
+private static class Entry
+{
+	/**
+	The estimated bytes used by the time series.
+	*/
+	long bytes;
+
+	/**
+	The database time stamp when the time series was read.
+	*/
+	long timestamp;
+
+	/**
+	The cached time series.
+	*/
+	NWSRFS_TimeSeries ts;
+}
+
+/**
+The cached time series, in least- to most-recently used order.
+*/
+private LinkedHashMap<String,Entry> __entries = null;
+
+/**
+Time series identifiers that are known to exist in the database, in least- to
+most-recently used order.  Only the keys are used.
+*/
+private LinkedHashMap<String,Boolean> __existing = null;
+
+/**
+Lock used to protect __existing, which is modified by access-ordered gets.
+*/
+private ReentrantLock __existingLock = null;
+
+/**
+Maximum number of time series identifiers known to exist.
+*/
+private int __maxExisting = DEFAULT_MAX_EXISTING;
+
+/**
+Lock used to protect __entries and __bytes, because access-ordered gets modify
+the map.
+*/
+private ReentrantLock __lock = null;
+
+/**
+Maximum number of time series to cache.
+*/
+private int __maxEntries = DEFAULT_MAX_ENTRIES;
+
+/**
+Maximum estimated bytes to cache.
+*/
+private long __maxBytes = DEFAULT_MAX_BYTES;
+
+/**
+Estimated bytes for the cached time series.
+*/
+private long __bytes = 0;
+
+/**
+Counters for cache requests.
+*/
+private AtomicLong __evictionCount = null;
+private AtomicLong __hitCount = null;
+private AtomicLong __missCount = null;
+private AtomicLong __staleCount = null;
+
+/**
+Construct a cache using the default limits.
+*/
+public NWSRFS_TSCache() {
+	this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+}
+
+/**
+Construct a cache.
+@param maxEntries the maximum number of time series to cache.
+@param maxBytes the maximum estimated bytes of time series data to cache.
+*/
+public NWSRFS_TSCache(int maxEntries, long maxBytes) {
+	__entries = new LinkedHashMap<String,Entry>(16, (float)0.75, true);
+	__existing = new LinkedHashMap<String,Boolean>(16, (float)0.75, true) {
+		protected boolean removeEldestEntry(Map.Entry<String,Boolean> eldest) {
+			return size() > __maxExisting;
+		}
+	};
+	__existingLock = new ReentrantLock();
+	__lock = new ReentrantLock();
+	__evictionCount = new AtomicLong();
+	__hitCount = new AtomicLong();
+	__missCount = new AtomicLong();
+	__staleCount = new AtomicLong();
+	setLimits(maxEntries, maxBytes);
+}
+
+/**
+Indicate that a time series exists in the database.
+@param key the time series key (see NWSRFS_DMI), for example "TSID.DT.interval".
+*/
+public void addExisting(String key) {
+	__existingLock.lock();
+	try {
+		__existing.put(key, Boolean.TRUE);
+	}
+	finally {
+		__existingLock.unlock();
+	}
+}
+
+/**
+Remove all time series and existence information from the cache.  The
+counters are not reset.
+*/
+public void clear() {
+	__lock.lock();
+	try {
+		__entries.clear();
+		__bytes = 0;
+	}
+	finally {
+		__lock.unlock();
+	}
+	__existingLock.lock();
+	try {
+		__existing.clear();
+	}
+	finally {
+		__existingLock.unlock();
+	}
+}
+
+/**
+Indicate whether a time series is known to exist in the database.
+@param key the time series key.
+@return true if the time series is known to exist, false if not known.
+*/
+public boolean containsExisting(String key) {
+	__existingLock.lock();
+	try {
+		return __existing.get(key) != null;
+	}
+	finally {
+		__existingLock.unlock();
+	}
+}
+
+/**
+Estimate the bytes used by a time series.
+@param ts the time series to evaluate.
+@return the estimated bytes used by the time series.
+*/
+private long estimateBytes(NWSRFS_TimeSeries ts) {
+	long bytes = __TS_OVERHEAD_BYTES;
+	TS observed = ts.getObservedTS();
+	if (observed != null) {
+		bytes += __TS_OVERHEAD_BYTES
+			+ (long)observed.getDataSize()*__VALUE_BYTES;
+	}
+	TS future = ts.getFutureTS();
+	if (future != null) {
+		bytes += __TS_OVERHEAD_BYTES
+			+ (long)future.getDataSize()*__VALUE_BYTES;
+	}
+	return bytes;
+}
+
+/**
+Discard the least recently used time series until the cache is within its
+limits.  The lock must be held when calling this method.
+*/
+private void evict() {
+	Iterator<Entry> it = __entries.values().iterator();
+	while (((__entries.size() > __maxEntries) || (__bytes > __maxBytes))
+		&& it.hasNext()) {
+		Entry entry = it.next();
+		it.remove();
+		__bytes -= entry.bytes;
+		__evictionCount.incrementAndGet();
+	}
+}
+
+/**
+Return a cached time series.
+@param key the time series key.
+@param timestamp the current database time stamp.  If it does not match the
+time stamp that was provided when the time series was cached, the cached time
+series is discarded.
+@return the cached time series, or null if not cached or stale.
+*/
+public NWSRFS_TimeSeries get(String key, long timestamp) {
+	__lock.lock();
+	try {
+		Entry entry = __entries.get(key);
+		if (entry == null) {
+			__missCount.incrementAndGet();
+			return null;
+		}
+		if (entry.timestamp != timestamp) {
+			// The database has been modified since the time series
+			// was read.  The time series may also no longer exist.
+			__entries.remove(key);
+			__bytes -= entry.bytes;
+			removeExisting(key);
+			__staleCount.incrementAndGet();
+			__missCount.incrementAndGet();
+			return null;
+		}
+		__hitCount.incrementAndGet();
+		return entry.ts;
+	}
+	finally {
+		__lock.unlock();
+	}
+}
+
+/**
+Return the estimated bytes used by the cached time series.
+@return the estimated bytes used by the cached time series.
+*/
+public long getBytes() {
+	__lock.lock();
+	try {
+		return __bytes;
+	}
+	finally {
+		__lock.unlock();
+	}
+}
+
+/**
+Return the number of time series that have been discarded to stay within the
+cache limits.
+@return the number of evictions.
+*/
+public long getEvictionCount() {
+	return __evictionCount.get();
+}
+
+/**
+Return the number of time series identifiers known to exist.
+@return the number of time series identifiers known to exist.
+*/
+public int getExistingCount() {
+	__existingLock.lock();
+	try {
+		return __existing.size();
+	}
+	finally {
+		__existingLock.unlock();
+	}
+}
+
+/**
+Return the number of requests that were satisfied from the cache.
+@return the number of cache hits.
+*/
+public long getHitCount() {
+	return __hitCount.get();
+}
+
+/**
+Return the maximum estimated bytes to cache.
+@return the maximum estimated bytes to cache.
+*/
+public long getMaxBytes() {
+	return __maxBytes;
+}
+
+/**
+Return the maximum number of time series to cache.
+@return the maximum number of time series to cache.
+*/
+public int getMaxEntries() {
+	return __maxEntries;
+}
+
+/**
+Return the maximum number of time series identifiers known to exist.
+@return the maximum number of time series identifiers known to exist.
+*/
+public int getMaxExisting() {
+	return __maxExisting;
+}
+
+/**
+Return the number of requests that were not satisfied from the cache.
+@return the number of cache misses.
+*/
+public long getMissCount() {
+	return __missCount.get();
+}
+
+/**
+Return the number of cached time series that were discarded because the
+database was modified.
+@return the number of stale time series.
+*/
+public long getStaleCount() {
+	return __staleCount.get();
+}
+
+/**
+Add a time series to the cache, replacing any time series with the same key.
+The time series is also recorded as existing.
+@param key the time series key.
+@param ts the time series to cache.
+@param timestamp the database time stamp when the time series was read.
+*/
+public void put(String key, NWSRFS_TimeSeries ts, long timestamp) {
+	addExisting(key);
+	Entry entry = new Entry();
+	entry.ts = ts;
+	entry.timestamp = timestamp;
+	entry.bytes = estimateBytes(ts);
+	__lock.lock();
+	try {
+		Entry old = __entries.put(key, entry);
+		if (old != null) {
+			__bytes -= old.bytes;
+		}
+		__bytes += entry.bytes;
+		evict();
+	}
+	finally {
+		__lock.unlock();
+	}
+}
+
+/**
+Remove a time series from the cache, for example after the time series has
+been written or deleted.
+@param key the time series key.
+*/
+public void remove(String key) {
+	__lock.lock();
+	try {
+		Entry entry = __entries.remove(key);
+		if (entry != null) {
+			__bytes -= entry.bytes;
+		}
+	}
+	finally {
+		__lock.unlock();
+	}
+	removeExisting(key);
+}
+
+/**
+Remove a time series identifier from the identifiers known to exist.
+@param key the time series key.
+*/
+private void removeExisting(String key) {
+	__existingLock.lock();
+	try {
+		__existing.remove(key);
+	}
+	finally {
+		__existingLock.unlock();
+	}
+}
+
+/**
+Set the cache limits, discarding time series if necessary.
+@param maxEntries the maximum number of time series to cache.
+@param maxBytes the maximum estimated bytes of time series data to cache.
+*/
+public void setLimits(int maxEntries, long maxBytes) {
+	__lock.lock();
+	try {
+		__maxEntries = Math.max(maxEntries, 0);
+		__maxBytes = Math.max(maxBytes, 0);
+		evict();
+	}
+	finally {
+		__lock.unlock();
+	}
+}
+
+/**
+Set the maximum number of time series identifiers known to exist, discarding
+the least recently used identifiers if necessary.
+@param maxExisting the maximum number of time series identifiers.
+*/
+public void setMaxExisting(int maxExisting) {
+	__existingLock.lock();
+	try {
+		__maxExisting = Math.max(maxExisting, 0);
+		Iterator<String> it = __existing.keySet().iterator();
+		while (__existing.size() > __maxExisting && it.hasNext()) {
+			it.next();
+			it.remove();
+		}
+	}
+	finally {
+		__existingLock.unlock();
+	}
+}
+
+/**
+Return the number of cached time series.
+@return the number of cached time series.
+*/
+public int size() {
+	__lock.lock();
+	try {
+		return __entries.size();
+	}
+	finally {
+		__lock.unlock();
+	}
+}
+
+/**
+Return a copy of the cached time series, for code that used the Hashtable
+formerly kept by NWSRFS_DMI.  The access order of the cache is not changed.
+@return a new Hashtable of the cached time series, by time series key.
+*/
+public Hashtable<String,NWSRFS_TimeSeries> toHashtable() {
+	__lock.lock();
+	try {
+		Hashtable<String,NWSRFS_TimeSeries> table =
+			new Hashtable<String,NWSRFS_TimeSeries>(__entries.size()*2 + 1);
+		for (Iterator<Map.Entry<String,Entry>> it =
+			__entries.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<String,Entry> e = it.next();
+			table.put(e.getKey(), e.getValue().ts);
+		}
+		return table;
+	}
+	finally {
+		__lock.unlock();
+	}
+}
+
+/**
+Return a String describing the cache contents and counters, for troubleshooting.
+@return a String describing the cache contents and counters.
+*/
+public String toString() {
+	return "NWSRFS_TSCache: " + size() + " time series (max " + __maxEntries
+		+ "), " + getBytes() + " bytes (max " + __maxBytes + "), "
+		+ getExistingCount() + " known to exist, " + getHitCount()
+		+ " hits, " + getMissCount() + " misses, " + getEvictionCount()
+		+ " evictions, " + getStaleCount() + " stale";
+}
+
+}
@@ -1,9 +1,28 @@
 package RTi.DMI.NWSRFS_DMI;
 
+import java.io.File;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Vector;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import RTi.TS.TS;
+import RTi.TS.TSIterator;
+
 import RTi.Util.IO.IOUtil;
 
 import RTi.Util.Message.Message;
 
+import RTi.Util.String.StringUtil;
+
+import RTi.Util.Time.DateTime;
 import RTi.Util.Time.StopWatch;
 
 public class NWSRFS_Test {
@@ -185,7 +204,584 @@ throws Exception {
 		+ "               other exceptions: " + NWSRFS_DMI.exceptionCount);
 }
 
+/**
+Compute a checksum of the data in a time series, used to compare reads.
+*/
+static double checksum(TS ts)
+throws Exception {
+	if (ts == null || ts.getDate1() == null || ts.getDate2() == null) {
+		return 0.0;
+	}
+	double sum = 0.0;
+	int count = 0;
+	TSIterator tsi = ts.iterator();
+	while (tsi.next() != null) {
+		sum += tsi.getDataValue() * (++count % 97 + 1);
+	}
+	return sum + count;
+}
+
+/**
+Stress test concurrent reads from a single NWSRFS_DMI.  Each time series is
+first read by one thread to get the expected data, and then many threads read
+the time series repeatedly from the same DMI, comparing the data with the
+expected data.
+@param dmi the DMI to read from.
+@param tsidents the time series identifiers to read.
+@param threadCount the number of threads that read at the same time.
+@param iterations the number of times that each thread reads each time series.
+@return the number of reads that did not match the expected data.
+*/
+public static int testConcurrentReads(final NWSRFS_DMI dmi, 
+final String[] tsidents, int threadCount, final int iterations)
+throws Exception {
+	double[] expected = new double[tsidents.length];
+	for (int i = 0; i < tsidents.length; i++) {
+		expected[i] = checksum(dmi.readTimeSeries(tsidents[i], null, null, null, true));
+	}
+	return testConcurrentReads(dmi, tsidents, expected, threadCount, iterations);
+}
+
+/**
+Stress test concurrent reads from a single NWSRFS_DMI, comparing the data with
+expected data.
+@param dmi the DMI to read from.
+@param tsidents the time series identifiers to read.
+@param expected the checksum (see checksum()) of the data of each time series.
+@param threadCount the number of threads that read at the same time.
+@param iterations the number of times that each thread reads each time series.
+@return the number of reads that did not match the expected data.
+*/
+public static int testConcurrentReads(final NWSRFS_DMI dmi, 
+final String[] tsidents, final double[] expected, int threadCount,
+final int iterations)
+throws Exception {
+
+	StopWatch sw = new StopWatch();
+	sw.start();
+	ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+	List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+	for (int it = 0; it < threadCount; it++) {
+		final int offset = it;
+		futures.add(executor.submit(new Callable<Integer>() {
+			public Integer call() throws Exception {
+				int errors = 0;
+				for (int iter = 0; iter < iterations; iter++) {
+					for (int j = 0; j < tsidents.length; j++) {
+						// Start at different time series in each thread.
+						int i = (j + offset) % tsidents.length;
+						TS ts = dmi.readTimeSeries(tsidents[i], null, null, null, true);
+						if (checksum(ts) != expected[i]) {
+							Message.printWarning(1, "NWSRFS_Test.testConcurrentReads",
+								"Data for \"" + tsidents[i] + "\" do not match.");
+							errors++;
+						}
+					}
+				}
+				return Integer.valueOf(errors);
+			}
+		}));
+	}
+	int errors = 0;
+	for (int it = 0; it < futures.size(); it++) {
+		errors += futures.get(it).get().intValue();
+	}
+	executor.shutdown();
+	sw.stop();
+
+	Message.printStatus(1, "", threadCount + " threads read " + tsidents.length 
+		+ " time series " + iterations + " times in " + sw.getSeconds() 
+		+ " seconds with " + errors + " errors.");
+	return errors;
+}
+
+/**
+Stress test concurrent reads from a synthetic FS5Files database written with
+NWSRFS_FS5FilesGenerator to a temporary directory, so that the test does not
+need a production database.  For each byte order, the expected data are read
+by one thread from one DMI, and then many threads read the processed and
+preprocessor database time series from a second DMI, first without and then
+with time series caching.  The second DMI is not used before the threads start,
+so the threads also open the files and read the indexes at the same time.
+@param threadCount the number of threads that read at the same time.
+@param iterations the number of times that each thread reads each time series.
+@return the number of reads that did not match the expected data.
+@throws Exception if the database cannot be written or read.
+*/
+public static int testConcurrentReadsGenerated(int threadCount, int iterations)
+throws Exception {
+	String routine = "NWSRFS_Test.testConcurrentReadsGenerated";
+	File tempFile = File.createTempFile("NWSRFS_Test", "");
+	if (!tempFile.delete() || !tempFile.mkdir()) {
+		throw new IOException("Cannot create directory \"" + tempFile + "\"");
+	}
+	int errors = 0;
+	try {
+		for (int iendian = 0; iendian < 2; iendian++) {
+			File directory = new File(tempFile, (iendian == 0) ? "little" : "big");
+			NWSRFS_FS5FilesGenerator generator =
+				new NWSRFS_FS5FilesGenerator(directory.getPath());
+			generator.setBigEndian(iendian == 1);
+			generator.setTimeSeries(100);
+			generator.setStations(20);
+			generator.setSegments(20);
+			generator.write();
+			List<String> tslist = new ArrayList<String>(generator.getPRDTSIdentifiers());
+			tslist.addAll(generator.getPDBTSIdentifiers());
+			String[] tsidents = tslist.toArray(new String[tslist.size()]);
+
+			// Read the expected data one at a time.
+			double[] expected = new double[tsidents.length];
+			NWSRFS_DMI dmi = new NWSRFS_DMI(directory.getPath());
+			dmi.open();
+			try {
+				for (int i = 0; i < tsidents.length; i++) {
+					expected[i] = checksum(dmi.readTimeSeries(tsidents[i], null, null, null, true));
+					if (expected[i] == 0.0) {
+						Message.printWarning(1, routine, "No data were read for \""
+							+ tsidents[i] + "\".");
+						errors++;
+					}
+				}
+			}
+			finally {
+				dmi.close();
+			}
+
+			for (int icache = 0; icache < 2; icache++) {
+				dmi = new NWSRFS_DMI(directory.getPath());
+				dmi.open();
+				try {
+					dmi.setCacheTS(icache == 1);
+					errors += testConcurrentReads(dmi, tsidents, expected,
+						threadCount, iterations);
+				}
+				finally {
+					dmi.close();
+				}
+			}
+		}
+	}
+	finally {
+		deleteDirectory(tempFile);
+	}
+	Message.printStatus(1, routine, "Concurrent reads from generated FS5Files had "
+		+ errors + " errors.");
+	return errors;
+}
+
+/**
+Delete a directory and the files and directories in it.
+@param directory the directory to delete.
+*/
+private static void deleteDirectory(File directory) {
+	File[] files = directory.listFiles();
+	if (files != null) {
+		for (int i = 0; i < files.length; i++) {
+			if (files[i].isDirectory()) {
+				deleteDirectory(files[i]);
+			}
+			else {
+				files[i].delete();
+			}
+		}
+	}
+	directory.delete();
+}
+
+/**
+Compare the allocation-free Julian hour conversions in NWSRFS_Util with
+getDateFromJulianHour1900(), getJulianHour1900FromDate(), julda(), and mdyh1()
+for every hour in the NWSRFS_Util month table, and time the old and new
+conversions.
+@return the number of hours for which the conversions do not match.
+*/
+public static int testJulianHourConversions()
+throws Exception {
+	String routine = "NWSRFS_Test.testJulianHourConversions";
+	int firstHour = NWSRFS_Util.getJulianHour1900FromPackedDate(
+		NWSRFS_Util.packDate(NWSRFS_Util.JULIAN_TABLE_FIRST_YEAR, 1, 1, 0));
+	int lastHour = NWSRFS_Util.getJulianHour1900FromPackedDate(
+		NWSRFS_Util.packDate(NWSRFS_Util.JULIAN_TABLE_LAST_YEAR, 12, 31, 23));
+	int errors = 0;
+	DateTime date = new DateTime(DateTime.PRECISION_TIME_ZONE);
+	for (int jh = firstHour; jh <= lastHour; jh++) {
+		DateTime d = NWSRFS_Util.getDateFromJulianHour1900(jh);
+		int packed = NWSRFS_Util.getPackedDateFromJulianHour1900(jh);
+		int year = NWSRFS_Util.getPackedYear(packed);
+		int month = NWSRFS_Util.getPackedMonth(packed);
+		int day = NWSRFS_Util.getPackedDay(packed);
+		int hour = NWSRFS_Util.getPackedHour(packed);
+		NWSRFS_Util.setDateFromJulianHour1900(date, jh);
+		if (d.getYear() != year || d.getMonth() != month 
+		    || d.getDay() != day || d.getHour() != hour
+		    || date.getYear() != year || date.getMonth() != month
+		    || date.getDay() != day || date.getHour() != hour) {
+			Message.printWarning(1, routine, "Julian hour " + jh 
+				+ " is " + d + " but packed date is " + year + "-" 
+				+ month + "-" + day + " " + hour);
+			errors++;
+		}
+		if (NWSRFS_Util.getJulianHour1900FromPackedDate(packed) != jh
+		    || NWSRFS_Util.getJulianHour1900FromDate(month, day, year, hour) != jh
+		    || NWSRFS_Util.getJulianHour1900FromHour1970(
+		    NWSRFS_Util.getHour1970FromJulianHour1900(jh)) != jh) {
+			Message.printWarning(1, routine, "Julian hour " + jh
+				+ " is not returned for " + d);
+			errors++;
+		}
+		if (hour == 0) {
+			// The NWS routines use hour 24 of the previous day.
+			int[] j = NWSRFS_Util.julda(month, day, year, hour);
+			DateTime m = NWSRFS_Util.mdyh1(j[0], j[1]);
+			if ((j[0] - 1)*24 + j[1] != jh || m.getYear() != year
+			    || m.getMonth() != month || m.getDay() != day
+			    || m.getHour() != hour) {
+				Message.printWarning(1, routine, "julda/mdyh1 for Julian hour "
+					+ jh + " do not match " + d);
+				errors++;
+			}
+		}
+	}
+
+	// Time the conversions.
+	long sum = 0;
+	StopWatch sw = new StopWatch();
+	sw.start();
+	for (int jh = firstHour; jh <= lastHour; jh++) {
+		sum += NWSRFS_Util.getDateFromJulianHour1900(jh).getDay();
+	}
+	sw.stop();
+	StopWatch swPacked = new StopWatch();
+	swPacked.start();
+	for (int jh = firstHour; jh <= lastHour; jh++) {
+		sum -= NWSRFS_Util.getPackedDay(
+			NWSRFS_Util.getPackedDateFromJulianHour1900(jh));
+	}
+	swPacked.stop();
+
+	Message.printStatus(1, routine, "Compared " + (lastHour - firstHour + 1)
+		+ " Julian hours with " + errors + " errors.  getDateFromJulianHour1900 took "
+		+ sw.getSeconds() + " seconds, getPackedDateFromJulianHour1900 took "
+		+ swPacked.getSeconds() + " seconds (checksum " + sum + ").");
+	return errors;
+}
+
+/**
+Compare the formatting of one value by NWSCardTS.writeTimeSeries_AppendValue()
+with StringUtil.formatString().
+@param buffer buffer used to format the value.
+@param value the value to format.
+@param width the width of the output format.
+@param precision the number of digits after the decimal point.
+@param cfmt the C-style format matching the width and precision.
+@return 1 if the output is not identical, 0 if it is.
+*/
+private static int testCardTSFormat_Value(StringBuffer buffer, double value,
+int width, int precision, String cfmt) {
+	buffer.setLength(0);
+	NWSCardTS.writeTimeSeries_AppendValue(buffer, value, width, precision, cfmt);
+	String expected = StringUtil.formatString(value, cfmt);
+	if (!expected.equals(buffer.toString())) {
+		Message.printWarning(1, "NWSRFS_Test.testCardTSFormat", "Value " + value
+			+ " is \"" + buffer + "\" but " + cfmt + " gives \"" + expected + "\"");
+		return 1;
+	}
+	return 0;
+}
+
+/**
+Check that NWSCardTS.writeTimeSeries() formats data lines with the same
+characters as when each value and the line information were formatted with
+StringUtil.formatString().  Each output format is checked with random values,
+values at and next to the half-way points between output values, and special
+values (e.g., -0, NaN, and values too large for the width).  The line
+information is checked for each month and two-digit year.
+@param count the number of random values to check for each output format.
+@return the number of values or lines that are not identical.
+*/
+public static int testCardTSFormat(int count) {
+	String routine = "NWSRFS_Test.testCardTSFormat";
+	// The output formats chosen by writeTimeSeries(), and the largest value
+	// that is written with each format.
+	int[] widths = { 10, 10, 10, 10, 12 };
+	int[] precisions = { 3, 2, 1, 0, 0 };
+	double[] limits = { 99999, 999999, 9999999, 99999999, 9999999999.0 };
+	Random random = new Random(1);
+	StringBuffer buffer = new StringBuffer();
+	int errors = 0;
+	int values = 0;
+	for (int f = 0; f < widths.length; f++) {
+		String cfmt = "%" + widths[f] + "." + precisions[f] + "f";
+		double scale = Math.pow(10, precisions[f]);
+		double limit = limits[f];
+		for (int i = 0; i < count; i++) {
+			double value;
+			if (i%4 == 0) {
+				// Any value that uses the format.
+				value = (random.nextDouble()*2 - 1)*limit;
+			}
+			else if (i%4 == 1) {
+				// Small values, which have the most significant digits
+				// after the decimal point.
+				value = (random.nextDouble()*2 - 1)*100;
+			}
+			else if (i%4 == 2) {
+				// Values at a half-way point between two output values,
+				// or next to one, where rounding is most likely to differ.
+				value = (Math.floor((random.nextDouble()*2 - 1)*limit/100*scale)
+					+ 0.5)/scale;
+				int next = random.nextInt(3);
+				if (next == 1) {
+					value = Math.nextUp(value);
+				}
+				else if (next == 2) {
+					value = Math.nextAfter(value, Double.NEGATIVE_INFINITY);
+				}
+			}
+			else {
+				// Values with three decimals, as read from card files.
+				value = (random.nextInt(2000001) - 1000000)/1000.0;
+			}
+			errors += testCardTSFormat_Value(buffer, value, widths[f], precisions[f], cfmt);
+		}
+		double[] special = { 0.0, -0.0, -999.0, 0.0005, -0.0005, -0.0004, 0.5,
+			-0.5, 1.5, 2.5, 0.125, limit, -limit/10, limit*10, -limit*10,
+			Double.NaN, Double.POSITIVE_INFINITY, Double.MIN_VALUE,
+			-Double.MIN_VALUE };
+		for (int i = 0; i < special.length; i++) {
+			errors += testCardTSFormat_Value(buffer, special[i], widths[f], precisions[f], cfmt);
+		}
+		values += count + special.length;
+	}
+
+	// Check the location, month, year, and line count at the start of each line.
+	String location = StringUtil.formatString("TESTLOC", "%-12.12s");
+	int lines = 0;
+	for (int month = 1; month <= 12; month++) {
+		for (int year = 0; year <= 99; year++) {
+			for (int card = 1; card <= 9999; card += (card < 100) ? 1 : 97) {
+				buffer.setLength(0);
+				for (int i = location.length() + 8; i > 0; i--) {
+					buffer.append(' ');
+				}
+				NWSCardTS.writeTimeSeries_SetLineInfo(buffer, 0, location, month, year, card);
+				String expected = location + StringUtil.formatString(month, "%2d")
+					+ StringUtil.formatString(year, "%02d")
+					+ StringUtil.formatString(card, "%4d");
+				if (!expected.equals(buffer.toString())) {
+					Message.printWarning(1, routine, "Line information is \"" + buffer
+						+ "\" but should be \"" + expected + "\"");
+					errors++;
+				}
+				lines++;
+			}
+		}
+	}
+
+	Message.printStatus(1, routine, "Compared " + values + " values and " + lines
+		+ " lines of NWSCard output with " + errors + " differences.");
+	return errors;
+}
+
+/**
+Return the memory in use by the Java virtual machine after requesting garbage
+collection, used to estimate the memory used by objects that are created.
+@return the memory in use, bytes.
+*/
+private static long getUsedMemory() {
+	Runtime runtime = Runtime.getRuntime();
+	for (int i = 0; i < 4; i++) {
+		System.gc();
+		try {
+			Thread.sleep(50);
+		}
+		catch (InterruptedException e) {
+		}
+	}
+	return runtime.totalMemory() - runtime.freeMemory();
+}
+
+/**
+Compare the memory used by an index column and the time to look up its values
+when the column is a Vector of Integer, as the index classes (e.g.,
+NWSRFS_PPPINDEX) stored their numeric columns, and when it is an
+NWSRFS_IntColumn.  The column holds record numbers between 1 and 1000000, as
+read from an index file, added one at a time.  The memory is measured for
+several copies of the column, so that the measurement is larger than the
+changes in memory use by the virtual machine itself.  The lookups are a sequential
+pass over the column, as when a DMI method searches an index, and random
+lookups, as when a record number is found for an identifier.
+@param count the number of values in the column.
+@return the number of lookups for which the columns return different values.
+*/
+public static int testIndexColumns(int count) {
+	String routine = "NWSRFS_Test.testIndexColumns";
+	int passes = 20;
+	int copies = 10;
+	int[] values = new int[count];
+	int[] lookups = new int[count];
+	Random random = new Random(1);
+	for (int i = 0; i < count; i++) {
+		values[i] = 1 + random.nextInt(1000000);
+		lookups[i] = random.nextInt(count);
+	}
+
+	List<Vector<Integer>> vectors = new ArrayList<Vector<Integer>>();
+	long used = getUsedMemory();
+	for (int copy = 0; copy < copies; copy++) {
+		Vector<Integer> v = new Vector<Integer>();
+		for (int i = 0; i < count; i++) {
+			v.add(Integer.valueOf(values[i]));
+		}
+		v.trimToSize();
+		vectors.add(v);
+	}
+	long vectorBytes = (getUsedMemory() - used)/copies;
+	Vector<Integer> vector = vectors.get(0);
+
+	List<NWSRFS_IntColumn> columns = new ArrayList<NWSRFS_IntColumn>();
+	used = getUsedMemory();
+	for (int copy = 0; copy < copies; copy++) {
+		NWSRFS_IntColumn c = new NWSRFS_IntColumn();
+		for (int i = 0; i < count; i++) {
+			c.addInt(values[i]);
+		}
+		c.trimToSize();
+		columns.add(c);
+	}
+	long columnBytes = (getUsedMemory() - used)/copies;
+	NWSRFS_IntColumn column = columns.get(0);
+
+	// Time each kind of lookup after a pass to compile the code.
+	long vectorSum = 0;
+	long columnSum = 0;
+	double[] vectorSeconds = new double[2];
+	double[] columnSeconds = new double[2];
+	for (int timed = 0; timed <= 1; timed++) {
+		StopWatch sw = new StopWatch();
+		sw.start();
+		for (int pass = 0; pass < passes; pass++) {
+			for (int i = 0; i < count; i++) {
+				vectorSum += vector.get(i).intValue();
+			}
+		}
+		sw.stop();
+		vectorSeconds[0] = sw.getSeconds();
+		sw = new StopWatch();
+		sw.start();
+		for (int pass = 0; pass < passes; pass++) {
+			for (int i = 0; i < count; i++) {
+				vectorSum += vector.get(lookups[i]).intValue();
+			}
+		}
+		sw.stop();
+		vectorSeconds[1] = sw.getSeconds();
+		sw = new StopWatch();
+		sw.start();
+		for (int pass = 0; pass < passes; pass++) {
+			for (int i = 0; i < count; i++) {
+				columnSum += column.getInt(i);
+			}
+		}
+		sw.stop();
+		columnSeconds[0] = sw.getSeconds();
+		sw = new StopWatch();
+		sw.start();
+		for (int pass = 0; pass < passes; pass++) {
+			for (int i = 0; i < count; i++) {
+				columnSum += column.getInt(lookups[i]);
+			}
+		}
+		sw.stop();
+		columnSeconds[1] = sw.getSeconds();
+	}
+
+	int errors = 0;
+	for (int i = 0; i < count; i++) {
+		if (vector.get(i).intValue() != values[i] || column.getInt(i) != values[i]) {
+			errors++;
+		}
+	}
+	if (vectorSum != columnSum) {
+		Message.printWarning(1, routine, "Vector lookups sum to " + vectorSum
+			+ " but NWSRFS_IntColumn lookups sum to " + columnSum);
+		errors++;
+	}
+
+	Message.printStatus(1, routine, "Column of " + count + " record numbers: "
+		+ "Vector<Integer> uses " + vectorBytes + " bytes ("
+		+ StringUtil.formatString((double)vectorBytes/count, "%.1f")
+		+ " per value), NWSRFS_IntColumn uses " + columnBytes + " bytes ("
+		+ StringUtil.formatString((double)columnBytes/count, "%.1f")
+		+ " per value).");
+	Message.printStatus(1, routine, passes + " passes of " + count
+		+ " sequential lookups took " + vectorSeconds[0] + " seconds with Vector<Integer>, "
+		+ columnSeconds[0] + " seconds with NWSRFS_IntColumn; random lookups took "
+		+ vectorSeconds[1] + " and " + columnSeconds[1] + " seconds.");
+	return errors;
+}
+
 public static void main(String[] args) {
+	if (args.length > 0 && args[0].equalsIgnoreCase("-cardformat")) {
+		// -cardformat [count] to check the NWSCardTS output formatting
+		int count = 1000000;
+		if (args.length > 1) {
+			count = Integer.parseInt(args[1]);
+		}
+		System.exit(testCardTSFormat(count) == 0 ? 0 : 1);
+	}
+	if (args.length > 0 && args[0].equalsIgnoreCase("-indexcolumns")) {
+		// -indexcolumns [count] to measure the memory and lookup time of
+		// the index columns
+		int count = 1000000;
+		if (args.length > 1) {
+			count = Integer.parseInt(args[1]);
+		}
+		System.exit(testIndexColumns(count) == 0 ? 0 : 1);
+	}
+	if (args.length > 0 && args[0].equalsIgnoreCase("-julian")) {
+		// -julian to check the Julian hour conversions
+		try {
+			System.exit(testJulianHourConversions() == 0 ? 0 : 1);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+	if (args.length == 1 && args[0].equalsIgnoreCase("-concurrent")) {
+		// -concurrent without identifiers to stress test concurrent reads
+		// from a generated database
+		try {
+			System.exit(testConcurrentReadsGenerated(
+				Runtime.getRuntime().availableProcessors() * 2, 5) == 0 ? 0 : 1);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+	if (args.length > 1 && args[0].equalsIgnoreCase("-concurrent")) {
+		// -concurrent TSID1 TSID2 ... to stress test concurrent reads
+		String[] tsidents = new String[args.length - 1];
+		System.arraycopy(args, 1, tsidents, 0, tsidents.length);
+		try {
+			NWSRFS_DMI dmi = new NWSRFS_DMI();
+			dmi.open();
+			int errors = testConcurrentReads(dmi, tsidents, 
+				Runtime.getRuntime().availableProcessors() * 2, 20);
+			List<String> report = dmi.getMetrics().getReport();
+			for (int i = 0; i < report.size(); i++) {
+				Message.printStatus(1, "", report.get(i));
+			}
+			System.exit(errors == 0 ? 0 : 1);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
 	new NWSRFS_Test();
 }
 
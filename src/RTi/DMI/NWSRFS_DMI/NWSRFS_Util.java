@@ -114,6 +114,28 @@ The number of days that have come before each month of the year.
 public final static int[] monthYearDays = 
 	{ 0, 31, 59, 90, 120, 151, 181, 212, 243, 273, 304, 334 };
 
+/**
+The first and last years in the table of Julian days at the start of each
+month, which covers the dates used in NWSRFS databases.  Conversions for dates
+outside this range are computed without the table.
+*/
+public final static int JULIAN_TABLE_FIRST_YEAR = 1900;
+public final static int JULIAN_TABLE_LAST_YEAR = 2199;
+
+/**
+The Julian hour (see getJulianHour1900FromDate()) of 1970-01-01 00:00, used to
+convert between Julian hours and hours since 1970.
+*/
+public final static int JULIAN_HOUR_1900_OF_1970 = 613608;
+
+/**
+The Julian day (01/01/1900 == 1) of the first day of each month, starting with
+January of JULIAN_TABLE_FIRST_YEAR, with a final entry for January of the year
+after JULIAN_TABLE_LAST_YEAR.  The index for a month is
+(year - JULIAN_TABLE_FIRST_YEAR)*12 + (month - 1).
+*/
+private final static int[] __julianMonthStartDays = createJulianMonthStartDays();
+
 /**
 The single AppsDefaults instance used to get Apps Defaults.
 */
@@ -604,6 +626,187 @@ throws Exception {
 	return julianHour;
 }
 
+/**
+Create the table of Julian days at the start of each month.
+@return the table of Julian days at the start of each month.
+*/
+private static int[] createJulianMonthStartDays()
+{	int size = (JULIAN_TABLE_LAST_YEAR - JULIAN_TABLE_FIRST_YEAR + 1)*12 + 1;
+	int[] days = new int[size];
+	for (int i = 0; i < size; i++) {
+		days[i] = computeJulianDay1900(JULIAN_TABLE_FIRST_YEAR + i/12,
+			(i % 12) + 1, 1);
+	}
+	return days;
+}
+
+/**
+Calculates a Julian day from a year, month, and day without using the month
+table, with the same result as getJulianDay1900FromDate().
+@param year the 4-digit year.
+@param month the month (1-12).
+@param day the day of the month (1-31).
+@return the Julian day (01/01/1900 == 1).
+*/
+private static int computeJulianDay1900(int year, int month, int day)
+{	int leapYear = 0;
+	if (((year % 4) == 0) && (((year % 100) != 0) || ((year % 400) == 0))) {
+		leapYear = 1;
+	}
+	int julianDay = day + monthYearDays[month - 1] + (year * 365)
+		+ (year / 4) - (year / 100) + (year / 400) - JULIAN_1900_DAYS
+		- leapYear;
+	if (month >= 3) {
+		julianDay += leapYear;
+	}
+	return julianDay;
+}
+
+/**
+Returns the hours since 1970-01-01 00:00 for a Julian hour.
+@param julianHour the Julian hour (see getJulianHour1900FromDate()).
+@return the hours since 1970-01-01 00:00.
+*/
+public static int getHour1970FromJulianHour1900(int julianHour)
+{	return julianHour - JULIAN_HOUR_1900_OF_1970;
+}
+
+/**
+Returns the Julian hour for hours since 1970-01-01 00:00.
+@param hour1970 the hours since 1970-01-01 00:00.
+@return the Julian hour (see getJulianHour1900FromDate()).
+*/
+public static int getJulianHour1900FromHour1970(int hour1970)
+{	return hour1970 + JULIAN_HOUR_1900_OF_1970;
+}
+
+/**
+Returns the Julian hour for a date packed with packDate().  This is equivalent
+to getJulianHour1900FromDate() but does not create any objects and, for years
+in the month table, does not compute leap years.
+@param packedDate the packed date.
+@return the Julian hour (see getJulianHour1900FromDate()).
+*/
+public static int getJulianHour1900FromPackedDate(int packedDate)
+{	int year = getPackedYear(packedDate);
+	int month = getPackedMonth(packedDate);
+	int day = getPackedDay(packedDate);
+	int julianDay;
+	if (year >= JULIAN_TABLE_FIRST_YEAR && year <= JULIAN_TABLE_LAST_YEAR) {
+		julianDay = __julianMonthStartDays[(year - JULIAN_TABLE_FIRST_YEAR)*12
+			+ month - 1] + day - 1;
+	}
+	else {	julianDay = computeJulianDay1900(year, month, day);
+	}
+	return (julianDay - 1)*24 + getPackedHour(packedDate);
+}
+
+/**
+Returns the packed date (see packDate()) for a Julian hour.  This is equivalent
+to getDateFromJulianHour1900() but does not create any objects, and computes
+the date directly rather than by correcting a guessed year.  The hour is 0-23.
+For Julian hours less than zero, the date is the calendar date before
+01/01/1900 (getDateFromJulianHour1900() does not handle negative hours).
+@param julianHour the Julian hour (see getJulianHour1900FromDate()).
+@return the packed date.
+*/
+public static int getPackedDateFromJulianHour1900(int julianHour)
+{	int hour = julianHour % 24;
+	int julianDay = julianHour / 24;
+	if (hour < 0) {
+		hour += 24;
+		--julianDay;
+	}
+	// julianDay is now the Julian day minus 1, which is the number of days
+	// since 01/01/1900.  Convert to days since 03/01/0000 so that leap days
+	// are at the end of each 400, 100, and 4 year cycle, as per the civil
+	// calendar algorithm.
+	int z = julianDay + JULIAN_1900_DAYS - 59;
+	int era = (z >= 0 ? z : z - 146096) / 146097;
+	int dayOfEra = z - era*146097;
+	int yearOfEra = (dayOfEra - dayOfEra/1460 + dayOfEra/36524
+		- dayOfEra/146096) / 365;
+	int dayOfYear = dayOfEra - (365*yearOfEra + yearOfEra/4 - yearOfEra/100);
+	int monthFromMarch = (5*dayOfYear + 2)/153;
+	int day = dayOfYear - (153*monthFromMarch + 2)/5 + 1;
+	int month = (monthFromMarch < 10) ? (monthFromMarch + 3) : (monthFromMarch - 9);
+	int year = yearOfEra + era*400;
+	if (month <= 2) {
+		++year;
+	}
+	return packDate(year, month, day, hour);
+}
+
+/**
+Returns the day from a packed date.
+@param packedDate a date packed with packDate().
+@return the day (1-31).
+*/
+public static int getPackedDay(int packedDate)
+{	return (packedDate >> 5) & 0x1f;
+}
+
+/**
+Returns the hour from a packed date.
+@param packedDate a date packed with packDate().
+@return the hour (0-24).
+*/
+public static int getPackedHour(int packedDate)
+{	return packedDate & 0x1f;
+}
+
+/**
+Returns the month from a packed date.
+@param packedDate a date packed with packDate().
+@return the month (1-12).
+*/
+public static int getPackedMonth(int packedDate)
+{	return (packedDate >> 10) & 0xf;
+}
+
+/**
+Returns the year from a packed date.
+@param packedDate a date packed with packDate().
+@return the 4-digit year.
+*/
+public static int getPackedYear(int packedDate)
+{	return packedDate >> 14;
+}
+
+/**
+Packs a year, month, day, and hour into a single int, which can be stored in
+arrays and compared without creating DateTime objects.  Later dates have larger
+packed values.
+@param year the year (0 or later).
+@param month the month (1-12).
+@param day the day of the month (1-31).
+@param hour the hour (0-24).
+@return the packed date.
+*/
+public static int packDate(int year, int month, int day, int hour)
+{	return (year << 14) | (month << 10) | (day << 5) | hour;
+}
+
+/**
+Sets a DateTime to the date for a Julian hour, with the same result as
+getDateFromJulianHour1900() but reusing the DateTime, for example when setting
+each value of a time series.
+@param date the DateTime to set.
+@param julianHour the Julian hour (see getJulianHour1900FromDate()).
+@return the DateTime that was passed in.
+*/
+public static DateTime setDateFromJulianHour1900(DateTime date, int julianHour)
+{	int packedDate = getPackedDateFromJulianHour1900(julianHour);
+	// Set the day first so that an invalid day is not set for the month
+	// while the fields are changed.
+	date.setDay(1);
+	date.setYear(getPackedYear(packedDate));
+	date.setMonth(getPackedMonth(packedDate));
+	date.setDay(getPackedDay(packedDate));
+	date.setHour(getPackedHour(packedDate));
+	return date;
+}
+
 /**
 Return the valid data intervals for a time series data type.
 Currently this is hard-coded to return possible hourly intervals.  In the